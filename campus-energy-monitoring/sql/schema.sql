@@ -50,6 +50,8 @@ CREATE TABLE t_building (
 
 -- ============================================
 -- 3. 智能电表设备表
+-- 已有数据库升级：
+--   ALTER TABLE t_device ADD COLUMN sample_interval INT COMMENT '采样间隔(秒)，为空时使用全局采集间隔' AFTER rated_power;
 -- ============================================
 DROP TABLE IF EXISTS t_device;
 CREATE TABLE t_device (
@@ -58,6 +60,7 @@ CREATE TABLE t_device (
     serial_number VARCHAR(50) NOT NULL UNIQUE COMMENT '唯一设备序列号(SN)',
     status VARCHAR(20) NOT NULL DEFAULT 'ONLINE' COMMENT '通讯状态: ONLINE-在线, OFFLINE-离线, MAINTENANCE-维护中, DECOMMISSIONED-已停用',
     rated_power DOUBLE NOT NULL COMMENT '额定功率阈值(W)',
+    sample_interval INT COMMENT '采样间隔(秒)，为空时使用全局采集间隔',
     building_id BIGINT NOT NULL COMMENT '所属建筑ID',
     room_number VARCHAR(50) NOT NULL COMMENT '房间号',
     usage_description VARCHAR(200) COMMENT '设备用途描述',
@@ -72,10 +75,26 @@ CREATE TABLE t_device (
 
 -- ============================================
 -- 4. 能耗数据表
+-- (device_id, collect_time) 唯一键保证幂等接入，已有数据库升级：
+--   DELETE e1 FROM t_energy_data e1 JOIN t_energy_data e2
+--     ON e1.device_id = e2.device_id AND e1.collect_time = e2.collect_time AND e1.id > e2.id;
+--   ALTER TABLE t_energy_data DROP INDEX idx_device_time,
+--     ADD UNIQUE KEY uk_device_time (device_id, collect_time);
+-- 按 collect_time 做 RANGE 分区：时间范围查询只扫描命中的分区，过期数据按分区整体删除。
+-- 初始只建历史分区与兜底分区 p_future，按月（或按天）的分区由 EnergyDataPartitionManager
+-- 在启动时和每天定时从 p_future 中拆分预建。分区表的唯一键必须包含分区列且不支持外键，
+-- 因此主键为 (id, collect_time)，device_id 不建外键（删除设备时由 JPA 级联删除读数）。
+-- 已有数据库升级（重建分区会复制整表，建议在维护窗口执行）：
+--   ALTER TABLE t_energy_data DROP FOREIGN KEY fk_energy_device;
+--   ALTER TABLE t_energy_data DROP INDEX idx_device_id,
+--     DROP PRIMARY KEY, ADD PRIMARY KEY (id, collect_time);
+--   ALTER TABLE t_energy_data PARTITION BY RANGE (TO_DAYS(collect_time)) (
+--     PARTITION p_history VALUES LESS THAN (TO_DAYS('2025-01-01')),
+--     PARTITION p_future VALUES LESS THAN MAXVALUE);
 -- ============================================
 DROP TABLE IF EXISTS t_energy_data;
 CREATE TABLE t_energy_data (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    id BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
     device_id BIGINT NOT NULL COMMENT '所属设备ID',
     voltage DOUBLE NOT NULL COMMENT '当前电压(V)',
     current DOUBLE NOT NULL COMMENT '当前电流(A)',
@@ -83,11 +102,88 @@ CREATE TABLE t_energy_data (
     total_energy DOUBLE NOT NULL COMMENT '累计用电量(kWh)',
     is_abnormal TINYINT(1) DEFAULT 0 COMMENT '数据是否异常: 1-异常, 0-正常',
     collect_time DATETIME NOT NULL COMMENT '采集时间戳',
-    CONSTRAINT fk_energy_device FOREIGN KEY (device_id) REFERENCES t_device(id) ON DELETE CASCADE,
-    INDEX idx_device_id (device_id),
+    PRIMARY KEY (id, collect_time),
     INDEX idx_collect_time (collect_time),
-    INDEX idx_device_time (device_id, collect_time)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='能耗数据表';
+    UNIQUE KEY uk_device_time (device_id, collect_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='能耗数据表'
+PARTITION BY RANGE (TO_DAYS(collect_time)) (
+    PARTITION p_history VALUES LESS THAN (TO_DAYS('2025-01-01')),
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+);
+
+-- ============================================
+-- 4.1 压测数据表（虚拟电表压测写入，不关联设备表）
+-- ============================================
+DROP TABLE IF EXISTS t_energy_data_load;
+CREATE TABLE t_energy_data_load (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    device_id BIGINT NOT NULL COMMENT '虚拟电表ID',
+    voltage DOUBLE NOT NULL COMMENT '当前电压(V)',
+    current DOUBLE NOT NULL COMMENT '当前电流(A)',
+    power DOUBLE NOT NULL COMMENT '当前实时功率(W)',
+    total_energy DOUBLE NOT NULL COMMENT '累计用电量(kWh)',
+    is_abnormal TINYINT(1) DEFAULT 0 COMMENT '数据是否异常: 1-异常, 0-正常',
+    collect_time DATETIME NOT NULL COMMENT '采集时间戳',
+    INDEX idx_load_device_time (device_id, collect_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='压测数据表';
+
+-- ============================================
+-- 4.2 能耗汇总表（按设备、按粒度的时间桶汇总，由接入流水线增量维护）
+-- 用电量按 MAX(energy_max) - MIN(energy_min) 计算，与原始读数的 MAX - MIN 一致
+-- 已有数据库升级后可调用 POST /api/energy-data/rollup/rebuild 为历史读数生成汇总
+-- ============================================
+DROP TABLE IF EXISTS t_energy_rollup;
+CREATE TABLE t_energy_rollup (
+    resolution VARCHAR(16) NOT NULL COMMENT '聚合粒度: MINUTE_1, MINUTE_15, HOUR_1, DAY_1',
+    device_id BIGINT NOT NULL COMMENT '设备ID',
+    bucket_start DATETIME NOT NULL COMMENT '时间桶起始时间',
+    sample_count INT NOT NULL COMMENT '读数条数',
+    voltage_min DOUBLE NOT NULL COMMENT '最小电压(V)',
+    voltage_max DOUBLE NOT NULL COMMENT '最大电压(V)',
+    voltage_sum DOUBLE NOT NULL COMMENT '电压合计(V)，平均值=合计/条数',
+    voltage_last DOUBLE NOT NULL COMMENT '最后电压(V)',
+    current_min DOUBLE NOT NULL COMMENT '最小电流(A)',
+    current_max DOUBLE NOT NULL COMMENT '最大电流(A)',
+    current_sum DOUBLE NOT NULL COMMENT '电流合计(A)',
+    current_last DOUBLE NOT NULL COMMENT '最后电流(A)',
+    power_min DOUBLE NOT NULL COMMENT '最小功率(W)',
+    power_max DOUBLE NOT NULL COMMENT '最大功率(W)',
+    power_sum DOUBLE NOT NULL COMMENT '功率合计(W)',
+    power_last DOUBLE NOT NULL COMMENT '最后功率(W)',
+    energy_min DOUBLE NOT NULL COMMENT '桶内最小累计用电量(kWh)',
+    energy_max DOUBLE NOT NULL COMMENT '桶内最大累计用电量(kWh)，用电量=最大-最小',
+    last_time DATETIME NOT NULL COMMENT '最后值的采集时间',
+    PRIMARY KEY (resolution, device_id, bucket_start),
+    INDEX idx_rollup_time (resolution, bucket_start)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='能耗汇总表';
+
+-- ============================================
+-- 4.3 能耗读数分块表（energy.storage.mode=chunk 时使用，替代 t_energy_data 保存原始读数）
+-- 每台设备每小时一行，payload 为列式压缩的读数，汇总列用于不解码的统计
+-- ============================================
+DROP TABLE IF EXISTS t_energy_chunk;
+CREATE TABLE t_energy_chunk (
+    device_id BIGINT NOT NULL COMMENT '设备ID',
+    chunk_start DATETIME NOT NULL COMMENT '小时起始时间',
+    sample_count INT NOT NULL COMMENT '读数条数',
+    first_time DATETIME NOT NULL COMMENT '第一条读数的采集时间',
+    last_time DATETIME NOT NULL COMMENT '最后一条读数的采集时间',
+    voltage_min DOUBLE NOT NULL COMMENT '最小电压(V)',
+    voltage_max DOUBLE NOT NULL COMMENT '最大电压(V)',
+    voltage_sum DOUBLE NOT NULL COMMENT '电压合计(V)',
+    current_min DOUBLE NOT NULL COMMENT '最小电流(A)',
+    current_max DOUBLE NOT NULL COMMENT '最大电流(A)',
+    current_sum DOUBLE NOT NULL COMMENT '电流合计(A)',
+    power_min DOUBLE NOT NULL COMMENT '最小功率(W)',
+    power_max DOUBLE NOT NULL COMMENT '最大功率(W)',
+    power_sum DOUBLE NOT NULL COMMENT '功率合计(W)',
+    energy_min DOUBLE NOT NULL COMMENT '最小累计用电量(kWh)',
+    energy_max DOUBLE NOT NULL COMMENT '最大累计用电量(kWh)',
+    abnormal_count INT NOT NULL DEFAULT 0 COMMENT '异常读数条数',
+    payload MEDIUMBLOB NOT NULL COMMENT '列式压缩的读数(时间/电压/电流/功率/累计用电量/是否异常)',
+    PRIMARY KEY (device_id, chunk_start),
+    INDEX idx_chunk_start (chunk_start)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='能耗读数分块表';
 
 -- ============================================
 -- 5. 告警记录表
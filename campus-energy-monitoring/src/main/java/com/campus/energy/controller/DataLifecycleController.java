@@ -0,0 +1,143 @@
+package com.campus.energy.controller;
+
+import com.campus.energy.dto.common.Result;
+import com.campus.energy.service.ArchiveService;
+import com.campus.energy.service.DataLifecycleService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * 数据生命周期控制器
+ *
+ * <p>负责原始读数与汇总数据的保留期管理：查看保留策略与清理进度，手动触发或停止清理任务；
+ * 以及冷数据归档：把较早的原始读数移出数据库，写入本地磁盘的压缩段文件。
+ * 两个任务也会按配置的 cron 定时执行（energy.lifecycle.enabled / energy.archive.enabled 开启时）。</p>
+ *
+ * <p><b>功能说明：</b></p>
+ * <ul>
+ *   <li>状态查询：保留策略、当前阶段、降采样进度、删除的行数与估算释放的空间、分区情况</li>
+ *   <li>手动执行：先为即将清理的原始读数补齐汇总，再删除过期分区与过期行（需要管理员权限）</li>
+ *   <li>停止执行：当前块完成后停止，下次执行从剩余部分继续（需要管理员权限）</li>
+ *   <li>冷数据归档：查看归档进度与压缩比，手动执行或停止归档（需要管理员权限）</li>
+ * </ul>
+ *
+ * <p><b>请求路径：</b>/api/admin/data-lifecycle</p>
+ *
+ * @author Campus Energy System
+ * @version 1.0
+ * @since 2025
+ */
+@RestController
+@RequestMapping("/admin/data-lifecycle")
+@RequiredArgsConstructor
+@Tag(name = "数据生命周期", description = "数据保留期与降采样管理接口")
+public class DataLifecycleController {
+
+    /** 数据生命周期服务 */
+    private final DataLifecycleService dataLifecycleService;
+
+    /** 冷数据归档服务 */
+    private final ArchiveService archiveService;
+
+    /**
+     * 获取数据生命周期任务状态
+     *
+     * <p><b>请求示例：</b></p>
+     * <pre>GET /api/admin/data-lifecycle/status</pre>
+     *
+     * @return 保留策略、执行进度、释放的行数与估算字节数、分区情况
+     */
+    @GetMapping("/status")
+    @Operation(summary = "获取数据生命周期状态", description = "查询保留策略、清理进度与释放的空间")
+    public Result<Map<String, Object>> getStatus() {
+        return Result.success(dataLifecycleService.getStatus());
+    }
+
+    /**
+     * 立即执行一次数据生命周期任务（后台执行）
+     *
+     * <p><b>权限要求：</b>需要管理员（ADMIN）角色</p>
+     *
+     * <p><b>请求示例：</b></p>
+     * <pre>POST /api/admin/data-lifecycle/run</pre>
+     *
+     * @return 任务状态
+     */
+    @PostMapping("/run")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "执行数据生命周期任务", description = "降采样后清理过期的原始读数与汇总数据，需要管理员权限")
+    public Result<Map<String, Object>> run() {
+        dataLifecycleService.start();
+        return Result.success(dataLifecycleService.getStatus());
+    }
+
+    /**
+     * 停止数据生命周期任务
+     *
+     * <p><b>权限要求：</b>需要管理员（ADMIN）角色</p>
+     *
+     * @return 任务状态
+     */
+    @PostMapping("/stop")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "停止数据生命周期任务", description = "当前块完成后停止，已删除的数据不恢复，需要管理员权限")
+    public Result<Map<String, Object>> stop() {
+        dataLifecycleService.stop();
+        return Result.success(dataLifecycleService.getStatus());
+    }
+
+    /**
+     * 获取冷数据归档状态
+     *
+     * <p><b>请求示例：</b></p>
+     * <pre>GET /api/admin/data-lifecycle/archive/status</pre>
+     *
+     * @return 归档进度、归档行数、段文件大小与压缩比
+     */
+    @GetMapping("/archive/status")
+    @Operation(summary = "获取冷数据归档状态", description = "查询归档进度、段文件大小与相对数据库的压缩比")
+    public Result<Map<String, Object>> getArchiveStatus() {
+        return Result.success(archiveService.getStatus());
+    }
+
+    /**
+     * 立即执行一次冷数据归档（后台执行）
+     *
+     * <p>早于 energy.archive.hot-days 天的原始读数按设备按天写入段文件后从数据库删除，
+     * 时间范围查询会自动合并段文件中的读数。</p>
+     *
+     * <p><b>权限要求：</b>需要管理员（ADMIN）角色</p>
+     *
+     * <p><b>请求示例：</b></p>
+     * <pre>POST /api/admin/data-lifecycle/archive/run</pre>
+     *
+     * @return 归档状态
+     */
+    @PostMapping("/archive/run")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "执行冷数据归档", description = "将较早的原始读数移入压缩段文件，需要管理员权限")
+    public Result<Map<String, Object>> runArchive() {
+        archiveService.start();
+        return Result.success(archiveService.getStatus());
+    }
+
+    /**
+     * 停止冷数据归档
+     *
+     * <p><b>权限要求：</b>需要管理员（ADMIN）角色</p>
+     *
+     * @return 归档状态
+     */
+    @PostMapping("/archive/stop")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "停止冷数据归档", description = "当前设备完成后停止，需要管理员权限")
+    public Result<Map<String, Object>> stopArchive() {
+        archiveService.stop();
+        return Result.success(archiveService.getStatus());
+    }
+}
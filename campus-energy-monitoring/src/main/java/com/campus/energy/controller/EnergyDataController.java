@@ -1,18 +1,27 @@
 package com.campus.energy.controller;
 
 import com.campus.energy.dto.EnergyDataDTO;
+import com.campus.energy.dto.EnergyRollupDTO;
 import com.campus.energy.dto.common.Result;
+import com.campus.energy.dto.ingest.BulkIngestResultDTO;
+import com.campus.energy.enums.RollupResolution;
 import com.campus.energy.service.EnergyDataService;
+import com.campus.energy.service.EnergyIngestService;
+import com.campus.energy.service.EnergyRollupService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
@@ -70,6 +79,12 @@ public class EnergyDataController {
     /** 能耗数据服务层，处理能耗数据相关的业务逻辑 */
     private final EnergyDataService energyDataService;
     
+    /** 能耗数据接入服务，处理电表/网关批量上报 */
+    private final EnergyIngestService energyIngestService;
+    
+    /** 多粒度汇总服务，处理汇总数据重建 */
+    private final EnergyRollupService energyRollupService;
+    
     /**
      * 根据设备ID获取能耗数据（分页）
      * 
@@ -189,8 +204,17 @@ public class EnergyDataController {
      *   <li>deviceId：设备ID，路径参数，必填</li>
      *   <li>startTime：开始时间，查询参数，必填，格式：yyyy-MM-ddTHH:mm:ss</li>
      *   <li>endTime：结束时间，查询参数，必填，格式：yyyy-MM-ddTHH:mm:ss</li>
+     *   <li>interpolate：是否插值重建压缩丢弃的读数，查询参数，可选，默认false</li>
+     *   <li>resolution：数据粒度，查询参数，可选：RAW、MINUTE_1、MINUTE_15、HOUR_1、DAY_1，
+     *       不传时按点数自动选择（原始读数点数不超过 energy.rollup.max-points 时返回原始读数）</li>
      * </ul>
      * 
+     * <p><b>插值重建：</b>开启写库压缩（ingest.compression.mode）后，未存储的读数可通过
+     * interpolate=true 按设备采样间隔线性插值重建，重建的点 interpolated=true。</p>
+     * 
+     * <p><b>汇总粒度：</b>按汇总粒度返回时直接读取汇总表，每个点为一个时间桶：
+     * 电压/电流/功率为桶内平均值，collectTime 为桶起始时间，sampleCount 为桶内读数条数。</p>
+     * 
      * <p><b>注意事项：</b></p>
      * <ul>
      *   <li>时间范围不能超过合理范围（建议不超过1个月）</li>
@@ -201,6 +225,8 @@ public class EnergyDataController {
      * @param deviceId 设备ID，从URL路径中获取
      * @param startTime 开始时间，从查询参数中获取，ISO 8601格式
      * @param endTime 结束时间，从查询参数中获取，ISO 8601格式
+     * @param interpolate 是否插值重建压缩丢弃的读数，默认false
+     * @param resolution 数据粒度，不传时自动选择
      * @return 包含时间范围内所有能耗数据的Result对象
      */
     @GetMapping("/device/{deviceId}/range")
@@ -210,8 +236,75 @@ public class EnergyDataController {
             @Parameter(description = "开始时间", required = true, example = "2025-01-01T00:00:00") 
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
             @Parameter(description = "结束时间", required = true, example = "2025-01-01T23:59:59") 
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @Parameter(description = "是否插值重建压缩丢弃的读数", example = "false")
+            @RequestParam(defaultValue = "false") boolean interpolate,
+            @Parameter(description = "数据粒度：RAW、MINUTE_1、MINUTE_15、HOUR_1、DAY_1，不传时自动选择", example = "HOUR_1")
+            @RequestParam(required = false) RollupResolution resolution) {
+        return Result.success(energyDataService.getEnergyDataByTimeRange(deviceId, startTime, endTime,
+                interpolate, resolution));
+    }
+    
+    /**
+     * 获取设备在指定时间范围内的汇总数据
+     * 
+     * <p>按指定粒度返回每个时间桶的电压、电流、功率的最小/最大/平均/最后值及桶内用电量，
+     * 直接读取汇总表，不扫描原始读数，适用于趋势图表和报表。</p>
+     * 
+     * <p><b>请求示例：</b></p>
+     * <pre>GET /api/energy-data/device/1/rollup?resolution=HOUR_1&startTime=2025-01-01T00:00:00&endTime=2025-01-31T23:59:59</pre>
+     * 
+     * <p><b>参数说明：</b></p>
+     * <ul>
+     *   <li>deviceId：设备ID，路径参数，必填</li>
+     *   <li>resolution：汇总粒度，查询参数，可选：MINUTE_1、MINUTE_15、HOUR_1（默认）、DAY_1</li>
+     *   <li>startTime：开始时间，查询参数，必填，格式：yyyy-MM-ddTHH:mm:ss</li>
+     *   <li>endTime：结束时间，查询参数，必填，格式：yyyy-MM-ddTHH:mm:ss</li>
+     * </ul>
+     * 
+     * @param deviceId 设备ID，从URL路径中获取
+     * @param resolution 汇总粒度
+     * @param startTime 开始时间，从查询参数中获取，ISO 8601格式
+     * @param endTime 结束时间，从查询参数中获取，ISO 8601格式
+     * @return 按时间升序的汇总数据列表
+     */
+    @GetMapping("/device/{deviceId}/rollup")
+    @Operation(summary = "获取设备汇总数据", description = "按粒度返回每个时间桶的最小/最大/平均/最后值及用电量")
+    public Result<List<EnergyRollupDTO>> getRollups(
+            @Parameter(description = "设备ID", required = true, example = "1") @PathVariable Long deviceId,
+            @Parameter(description = "汇总粒度：MINUTE_1、MINUTE_15、HOUR_1、DAY_1", example = "HOUR_1")
+            @RequestParam(defaultValue = "HOUR_1") RollupResolution resolution,
+            @Parameter(description = "开始时间", required = true, example = "2025-01-01T00:00:00")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "结束时间", required = true, example = "2025-01-31T23:59:59")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
+        return Result.success(energyDataService.getRollups(deviceId, resolution, startTime, endTime));
+    }
+    
+    /**
+     * 重建汇总数据
+     * 
+     * <p>登记所有设备在指定时间范围内的汇总重建，由汇总修复任务从原始读数重新计算（异步执行）。
+     * 用于升级后为已有的原始读数生成汇总，或修复异常中断后的汇总数据。</p>
+     * 
+     * <p><b>请求示例：</b></p>
+     * <pre>POST /api/energy-data/rollup/rebuild?startTime=2025-01-01T00:00:00&endTime=2025-01-31T23:59:59</pre>
+     * 
+     * <p><b>权限说明：</b>仅管理员可访问</p>
+     * 
+     * @param startTime 开始时间
+     * @param endTime 结束时间
+     * @return 登记重建的设备数
+     */
+    @PostMapping("/rollup/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "重建汇总数据", description = "登记所有设备在指定时间范围内的汇总重建，由修复任务异步执行（仅管理员）")
+    public Result<Integer> rebuildRollups(
+            @Parameter(description = "开始时间", required = true, example = "2025-01-01T00:00:00")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @Parameter(description = "结束时间", required = true, example = "2025-01-31T23:59:59")
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime) {
-        return Result.success(energyDataService.getEnergyDataByTimeRange(deviceId, startTime, endTime));
+        return Result.success(energyRollupService.rebuild(startTime, endTime));
     }
     
     /**
@@ -325,5 +418,54 @@ public class EnergyDataController {
         Double consumption = energyDataService.calculateEnergyConsumption(deviceId, startTime, endTime);
         return Result.success(consumption != null ? consumption : 0.0);
     }
+    
+    /**
+     * 批量接入电表读数
+     * 
+     * <p>供智能电表或网关批量上报读数，请求体为 JSON 数组或 NDJSON（每行一条JSON对象），
+     * 按设备序列号关联设备。请求体采用流式解析，不会一次性加载到内存；
+     * 读数经校验后分批发布到接入流水线，由流水线异步批量入库并执行告警检查。</p>
+     * 
+     * <p><b>请求示例：</b></p>
+     * <pre>
+     * POST /api/energy-data/bulk
+     * Content-Type: application/x-ndjson
+     * 
+     * {"serialNumber":"METER_QIU_301","collectTime":"2025-01-01T10:00:00","voltage":220.5,"current":2.5,"power":551.25,"totalEnergy":125.5}
+     * {"serialNumber":"METER_QIU_302","collectTime":"2025-01-01T10:00:00","voltage":219.8,"current":1.2,"power":263.76,"totalEnergy":98.1}
+     * </pre>
+     * 
+     * <p><b>响应示例：</b></p>
+     * <pre>
+     * {
+     *   "code": 200,
+     *   "message": "操作成功",
+     *   "data": {
+     *     "accepted": 1997,
+     *     "rejected": 1,
+     *     "duplicates": 2,
+     *     "batches": [
+     *       {"index": 0, "accepted": 997, "rejected": 1, "duplicates": 2, "errors": ["#17 设备不存在: METER_X"]},
+     *       {"index": 1, "accepted": 1000, "rejected": 0, "duplicates": 0, "errors": []}
+     *     ]
+     *   },
+     *   "timestamp": 1704067200000
+     * }
+     * </pre>
+     * 
+     * <p><b>注意事项：</b></p>
+     * <ul>
+     *   <li>单条读数校验失败只拒绝该条，不影响同批次其他读数</li>
+     *   <li>接口幂等：同一设备同一采集时间（精确到秒）的读数只入库一次，重复上报计入 duplicates</li>
+     *   <li>出现JSON格式错误时，之前的批次已接收，之后的数据不再处理，错误信息见 parseError</li>
+     * </ul>
+     * 
+     * @param request HTTP请求，从中流式读取请求体
+     * @return 包含各批次接收/拒绝统计的Result对象
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "批量接入电表读数", description = "接收JSON数组或NDJSON格式的批量读数，流式解析后分批入库")
+    public Result<BulkIngestResultDTO> ingestBulk(HttpServletRequest request) throws IOException {
+        return Result.success(energyIngestService.ingestBulk(request.getInputStream()));
+    }
 }
-
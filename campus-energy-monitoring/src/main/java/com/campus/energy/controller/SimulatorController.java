@@ -1,14 +1,24 @@
 package com.campus.energy.controller;
 
 import com.campus.energy.dto.common.Result;
+import com.campus.energy.exception.BusinessException;
+import com.campus.energy.gateway.GatewayTcpServer;
+import com.campus.energy.simulator.BackfillService;
 import com.campus.energy.simulator.EnergySimulatorService;
+import com.campus.energy.simulator.LoadGeneratorService;
+import com.campus.energy.simulator.ScenarioDefinition;
+import com.campus.energy.simulator.ScenarioEngine;
+import com.campus.energy.simulator.WheelSamplingScheduler;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -54,6 +64,21 @@ public class SimulatorController {
     /** 能耗数据模拟器服务层，处理模拟器相关的业务逻辑 */
     private final EnergySimulatorService simulatorService;
     
+    /** 虚拟电表压测服务 */
+    private final LoadGeneratorService loadGeneratorService;
+    
+    /** 历史数据回填服务 */
+    private final BackfillService backfillService;
+    
+    /** 故障场景引擎 */
+    private final ScenarioEngine scenarioEngine;
+    
+    /** 网关TCP接入服务（gateway.tcp.enabled=false 时不存在） */
+    private final ObjectProvider<GatewayTcpServer> gatewayTcpServer;
+    
+    /** 时间轮采样调度器（simulator.scheduler=wheel 时存在） */
+    private final ObjectProvider<WheelSamplingScheduler> wheelSamplingScheduler;
+    
     /**
      * 获取模拟器状态
      * 
@@ -80,6 +105,16 @@ public class SimulatorController {
      * <ul>
      *   <li>enabled：模拟器是否启用，boolean类型</li>
      *   <li>generatedDataCount：已生成的数据总数，Long类型</li>
+     *   <li>writer：批量写入统计（写入行数、rows/s、每块刷新耗时）</li>
+     *   <li>overloaded：接入是否过载（过载期间模拟器跳过生成，其他来源按准入策略处理）</li>
+     *   <li>skippedTicks：因过载跳过的生成轮次</li>
+     *   <li>seeded：可复现模式状态（种子、虚拟时钟、数据集摘要），未开启时为null</li>
+     *   <li>pipeline：接入流水线统计（准入缓冲区策略与丢弃数、缓冲区积压、各阶段lag与批大小）</li>
+     *   <li>scheduler：调度方式（global/wheel）</li>
+     *   <li>wheel：时间轮调度统计（设备数、每格采样数、补采/跳过数、漂移），global 调度时不返回</li>
+     *   <li>executionMode：执行模式（sequential/parallel）</li>
+     *   <li>shards：最近一轮各分片的设备数、发布数与耗时</li>
+     *   <li>gateway：网关TCP接入统计（连接数、解码/接收/拒绝帧数），未启用时不返回</li>
      * </ul>
      * 
      * @return 包含模拟器状态的Result对象
@@ -90,6 +125,16 @@ public class SimulatorController {
         Map<String, Object> status = new HashMap<>();
         status.put("enabled", simulatorService.isSimulatorEnabled());
         status.put("generatedDataCount", simulatorService.getGeneratedDataCount());
+        status.put("writer", simulatorService.getWriterStats());
+        status.put("overloaded", simulatorService.isOverloaded());
+        status.put("skippedTicks", simulatorService.getSkippedTicks());
+        status.put("seeded", simulatorService.getSeededStatus());
+        status.put("pipeline", simulatorService.getPipelineStats());
+        status.put("scheduler", simulatorService.getScheduler());
+        wheelSamplingScheduler.ifAvailable(wheel -> status.put("wheel", wheel.getStats()));
+        status.put("executionMode", simulatorService.getExecutionMode());
+        status.put("shards", simulatorService.getLastShardStats());
+        gatewayTcpServer.ifAvailable(server -> status.put("gateway", server.getStats()));
         return Result.success(status);
     }
     
@@ -194,5 +239,263 @@ public class SimulatorController {
         simulatorService.triggerManualGeneration();
         return Result.success("已触发数据生成");
     }
+    
+    /**
+     * 启动虚拟电表压测
+     * 
+     * <p>在内存中合成指定数量的虚拟电表，按目标速率生成读数并走真实的接入路径
+     * （去重、重排、准入缓冲区、接入流水线与告警检查），用于在接入新园区前验证系统容量。
+     * 读数写入压测表 t_energy_data_load。电表数量需不少于目标速率（每台电表采样间隔不小于1秒）。</p>
+     * 
+     * <p><b>权限要求：</b>需要管理员（ADMIN）角色</p>
+     * 
+     * <p><b>请求示例：</b></p>
+     * <pre>POST /api/simulator/load/start?meterCount=100000&buildingCount=50&targetRate=20000</pre>
+     * 
+     * @param meterCount 虚拟电表数量，可选
+     * @param buildingCount 虚拟建筑数量，可选
+     * @param targetRate 目标速率（条/秒），可选
+     * @return 压测状态
+     */
+    @PostMapping("/load/start")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "启动虚拟电表压测", description = "合成虚拟电表并按目标速率生成读数，需要管理员权限")
+    public Result<Map<String, Object>> startLoad(
+            @Parameter(description = "虚拟电表数量", example = "100000") @RequestParam(required = false) Integer meterCount,
+            @Parameter(description = "虚拟建筑数量", example = "50") @RequestParam(required = false) Integer buildingCount,
+            @Parameter(description = "目标速率(条/秒)", example = "20000") @RequestParam(required = false) Integer targetRate) {
+        loadGeneratorService.start(meterCount, buildingCount, targetRate);
+        return Result.success(loadGeneratorService.getStatus());
+    }
+    
+    /**
+     * 停止虚拟电表压测
+     * 
+     * <p><b>权限要求：</b>需要管理员（ADMIN）角色</p>
+     * 
+     * @return 压测最终统计
+     */
+    @PostMapping("/load/stop")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "停止虚拟电表压测", description = "停止压测并等待积压数据写完，需要管理员权限")
+    public Result<Map<String, Object>> stopLoad() {
+        loadGeneratorService.stop();
+        return Result.success(loadGeneratorService.getStatus());
+    }
+    
+    /**
+     * 获取虚拟电表压测状态
+     * 
+     * <p><b>响应字段说明：</b></p>
+     * <ul>
+     *   <li>generatedPerSecond / writtenPerSecond：实际生成与写入速率</li>
+     *   <li>avgLatencyMillis / maxLatencyMillis：采集时间到写库提交的端到端延迟（采集时间精确到秒）</li>
+     *   <li>backlog：已被接入路径接收、尚未写库的读数</li>
+     *   <li>shed：接入过载时按准入策略丢弃的读数</li>
+     *   <li>duplicates：同一电表同一秒的重复读数</li>
+     * </ul>
+     * 
+     * @return 压测状态
+     */
+    @GetMapping("/load/status")
+    @Operation(summary = "获取虚拟电表压测状态", description = "查询压测吞吐、延迟与积压")
+    public Result<Map<String, Object>> getLoadStatus() {
+        return Result.success(loadGeneratorService.getStatus());
+    }
+    
+    /**
+     * 启动历史数据回填
+     * 
+     * <p>复用正常/异常数据工厂，为每台设备从其最早的读数向过去回填指定天数的历史数据，
+     * 按设备并行、批量写库。中断后再次调用会从断点继续。</p>
+     * 
+     * <p><b>权限要求：</b>需要管理员（ADMIN）角色</p>
+     * 
+     * <p><b>请求示例：</b></p>
+     * <pre>POST /api/simulator/backfill/start?days=90&stepSeconds=5</pre>
+     * 
+     * @param days 回填天数
+     * @param stepSeconds 读数间隔（秒），默认5
+     * @return 回填进度
+     */
+    @PostMapping("/backfill/start")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "启动历史数据回填", description = "为每台设备生成N天的历史读数，需要管理员权限")
+    public Result<Map<String, Object>> startBackfill(
+            @Parameter(description = "回填天数", required = true, example = "90") @RequestParam int days,
+            @Parameter(description = "读数间隔(秒)", example = "5") @RequestParam(defaultValue = "5") int stepSeconds) {
+        backfillService.start(days, stepSeconds);
+        return Result.success(backfillService.getStatus());
+    }
+    
+    /**
+     * 停止历史数据回填
+     * 
+     * <p><b>权限要求：</b>需要管理员（ADMIN）角色</p>
+     * 
+     * @return 回填进度
+     */
+    @PostMapping("/backfill/stop")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "停止历史数据回填", description = "停止回填，已提交的数据保留，需要管理员权限")
+    public Result<Map<String, Object>> stopBackfill() {
+        backfillService.stop();
+        return Result.success(backfillService.getStatus());
+    }
+    
+    /**
+     * 获取历史数据回填进度
+     * 
+     * @return 回填进度（设备完成数、写入行数、写入速率）
+     */
+    @GetMapping("/backfill/status")
+    @Operation(summary = "获取历史数据回填进度", description = "查询回填的设备完成数、写入行数与速率")
+    public Result<Map<String, Object>> getBackfillStatus() {
+        return Result.success(backfillService.getStatus());
+    }
+    
+    /**
+     * 开启可复现模式
+     * 
+     * <p>按种子重新开始模拟：每台设备使用独立的种子随机流，采集时间取虚拟时钟。
+     * 相同种子、相同初始数据的两次运行，生成的数据集与告警序列完全一致，与执行模式和线程数无关，
+     * 可通过 status 中的 seeded.datasetDigest 比对。</p>
+     * 
+     * <p><b>权限要求：</b>需要管理员（ADMIN）角色</p>
+     * 
+     * <p><b>请求示例：</b></p>
+     * <pre>POST /api/simulator/seeded/start?seed=42&startTime=2025-01-01T00:00:00</pre>
+     * 
+     * @param seed 随机种子
+     * @param startTime 虚拟时钟起始时间，可选，默认取 simulator.seed-start-time
+     * @return 可复现模式状态
+     */
+    @PostMapping("/seeded/start")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "开启可复现模式", description = "按种子和虚拟时钟生成可复现的数据集，需要管理员权限")
+    public Result<Map<String, Object>> startSeeded(
+            @Parameter(description = "随机种子", required = true, example = "42") @RequestParam long seed,
+            @Parameter(description = "虚拟起始时间", example = "2025-01-01T00:00:00")
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime) {
+        simulatorService.startSeeded(seed, startTime);
+        return Result.success(simulatorService.getSeededStatus());
+    }
+    
+    /**
+     * 退出可复现模式
+     * 
+     * <p><b>权限要求：</b>需要管理员（ADMIN）角色</p>
+     * 
+     * @return 操作结果
+     */
+    @PostMapping("/seeded/stop")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "退出可复现模式", description = "恢复按墙钟和随机数生成数据，需要管理员权限")
+    public Result<Void> stopSeeded() {
+        simulatorService.stopSeeded();
+        return Result.success();
+    }
+    
+    /**
+     * 启动故障场景（告警风暴压测）
+     * 
+     * <p>按场景定义改写模拟器生成的读数：整栋楼电压骤降、全校功率爬升过载、电表掉线/抖动等，
+     * 用于测量告警链路在大量告警同时触发时的吞吐与写放大。场景时间按读数采集时间计算，
+     * 与可复现模式组合即可得到可重复的告警风暴。</p>
+     * 
+     * <p>可通过 name 使用内置场景（classpath:scenarios/{name}.yml），
+     * 或在请求体中直接提交YAML格式的场景定义。</p>
+     * 
+     * <p><b>权限要求：</b>需要管理员（ADMIN）角色</p>
+     * 
+     * <p><b>请求示例：</b></p>
+     * <pre>POST /api/simulator/scenario/start?name=building-voltage-sag</pre>
+     * 
+     * <p><b>请求体示例（YAML）：</b></p>
+     * <pre>
+     * name: custom-sag
+     * events:
+     *   - type: VOLTAGE_SAG
+     *     startSeconds: 0
+     *     durationSeconds: 60
+     *     buildingIds: [1, 2]
+     *     voltage: 180
+     * </pre>
+     * 
+     * @param name 内置场景名称，与请求体二选一
+     * @param yaml YAML格式的场景定义
+     * @return 场景实时统计
+     */
+    @PostMapping("/scenario/start")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "启动故障场景", description = "按YAML场景注入电压骤降、过载、掉线等故障，需要管理员权限")
+    public Result<Map<String, Object>> startScenario(
+            @Parameter(description = "内置场景名称", example = "building-voltage-sag") @RequestParam(required = false) String name,
+            @RequestBody(required = false) String yaml) {
+        ScenarioDefinition definition;
+        if (name != null && !name.isBlank()) {
+            definition = scenarioEngine.load(name);
+        } else if (yaml != null && !yaml.isBlank()) {
+            definition = scenarioEngine.parse(yaml);
+        } else {
+            throw new BusinessException("请指定场景名称或提交场景定义");
+        }
+        scenarioEngine.start(definition, simulatorService.currentSimulationTime());
+        return Result.success(scenarioEngine.getStatus());
+    }
+    
+    /**
+     * 停止故障场景
+     * 
+     * <p><b>权限要求：</b>需要管理员（ADMIN）角色</p>
+     * 
+     * @return 场景报告
+     */
+    @PostMapping("/scenario/stop")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(summary = "停止故障场景", description = "立即结束场景并生成报告，需要管理员权限")
+    public Result<Map<String, Object>> stopScenario() {
+        return Result.success(scenarioEngine.stop());
+    }
+    
+    /**
+     * 获取故障场景状态
+     * 
+     * <p>场景运行中返回实时统计，结束后返回最近一次报告。</p>
+     * 
+     * <p><b>响应字段说明：</b></p>
+     * <ul>
+     *   <li>readings / modifiedReadings / droppedReadings：场景期间上报、被改写、被丢弃的读数</li>
+     *   <li>alerts / alertsByType：场景期间触发的告警数（总数及按类型）</li>
+     *   <li>alertsPerSecond / peakAlertsPerSecond：平均与峰值告警吞吐</li>
+     *   <li>maxAlertStageLag / maxPersistenceStageLag：告警、写库阶段的最大积压</li>
+     *   <li>rowsPerReading / transactionsPerReading：写放大（每条读数的写库行数与事务数）</li>
+     * </ul>
+     * 
+     * @return 场景状态，未运行过时为null
+     */
+    @GetMapping("/scenario/status")
+    @Operation(summary = "获取故障场景状态", description = "查询告警吞吐、积压与写放大")
+    public Result<Map<String, Object>> getScenarioStatus() {
+        return Result.success(scenarioEngine.getStatus());
+    }
+    
+    /**
+     * 获取自适应采样统计
+     * 
+     * <p>查询自适应采样节省的存储：全速率下应产生的读数条数与实际采样条数之差，
+     * 包括总体节省比例及节省最多的设备列表（含各设备当前采样间隔）。</p>
+     * 
+     * <p><b>请求示例：</b></p>
+     * <pre>GET /api/simulator/adaptive?limit=20</pre>
+     * 
+     * @param limit 返回的设备条数，默认20
+     * @return 自适应采样统计
+     */
+    @GetMapping("/adaptive")
+    @Operation(summary = "获取自适应采样统计", description = "查询按设备节省的采样条数与当前采样间隔")
+    public Result<Map<String, Object>> getAdaptiveStats(
+            @Parameter(description = "返回的设备条数", example = "20") @RequestParam(defaultValue = "20") int limit) {
+        return Result.success(simulatorService.getAdaptiveStats(limit));
+    }
 }
-
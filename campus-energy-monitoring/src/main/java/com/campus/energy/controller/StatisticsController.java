@@ -10,6 +10,8 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.Map;
+
 /**
  * 统计数据控制器
  * 
@@ -20,6 +22,7 @@ import org.springframework.web.bind.annotation.RestController;
  * <ul>
  *   <li>系统概览：提供系统整体统计数据，包括设备总数、在线设备数、总用电量、告警数量等</li>
  *   <li>数据统计：支持按建筑、按设备、按时间等维度进行统计分析</li>
+ *   <li>缓存状态：概览统计缓存的命中率、合并的请求数与缓存数据的年龄</li>
  * </ul>
  * 
  * <p><b>权限说明：</b></p>
@@ -97,5 +100,22 @@ public class StatisticsController {
     public Result<StatisticsDTO> getOverviewStatistics() {
         return Result.success(statisticsService.getOverviewStatistics());
     }
+    
+    /**
+     * 获取概览统计缓存状态
+     * 
+     * <p>概览统计按 statistics.cache.ttl-millis 缓存，设备、建筑、告警变更时立即失效；
+     * 同时到达的未命中请求只计算一次。</p>
+     * 
+     * <p><b>请求示例：</b></p>
+     * <pre>GET /api/statistics/overview/cache</pre>
+     * 
+     * @return 命中率、合并的请求数、失效次数与最近原因、缓存数据年龄(ageMillis)
+     */
+    @GetMapping("/overview/cache")
+    @Operation(summary = "获取概览统计缓存状态", description = "查询概览统计缓存的命中率、失效次数与数据年龄")
+    public Result<Map<String, Object>> getOverviewCacheStats() {
+        return Result.success(statisticsService.getOverviewCacheStats());
+    }
 }
 
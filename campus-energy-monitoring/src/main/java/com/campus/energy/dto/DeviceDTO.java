@@ -64,6 +64,10 @@ public class DeviceDTO {
     @Schema(description = "额定功率阈值(W)", example = "1000")
     private Double ratedPower;
     
+    @Positive(message = "采样间隔必须大于0")
+    @Schema(description = "采样间隔(秒)，为空时使用全局采集间隔", example = "5")
+    private Integer sampleInterval;
+    
     @NotNull(message = "所属建筑不能为空")
     @Schema(description = "所属建筑ID")
     private Long buildingId;
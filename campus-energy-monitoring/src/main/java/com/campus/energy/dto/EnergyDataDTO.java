@@ -47,5 +47,11 @@ public class EnergyDataDTO {
     
     @Schema(description = "采集时间")
     private LocalDateTime collectTime;
+    
+    @Schema(description = "是否为读取时插值重建的点（写库压缩后未存储的读数）")
+    private Boolean interpolated;
+    
+    @Schema(description = "聚合点包含的读数条数（按汇总粒度查询时有值，电压/电流/功率为时间桶平均值）")
+    private Integer sampleCount;
 }
 
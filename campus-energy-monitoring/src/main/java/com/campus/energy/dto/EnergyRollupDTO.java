@@ -0,0 +1,75 @@
+package com.campus.energy.dto;
+
+import com.campus.energy.enums.RollupResolution;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 能耗汇总DTO（单台设备单个时间桶）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "能耗汇总")
+public class EnergyRollupDTO {
+    
+    @Schema(description = "设备ID")
+    private Long deviceId;
+    
+    @Schema(description = "聚合粒度")
+    private RollupResolution resolution;
+    
+    @Schema(description = "时间桶起始时间")
+    private LocalDateTime bucketStart;
+    
+    @Schema(description = "读数条数")
+    private Integer sampleCount;
+    
+    @Schema(description = "最小电压(V)")
+    private Double voltageMin;
+    
+    @Schema(description = "最大电压(V)")
+    private Double voltageMax;
+    
+    @Schema(description = "平均电压(V)")
+    private Double voltageAvg;
+    
+    @Schema(description = "最后电压(V)")
+    private Double voltageLast;
+    
+    @Schema(description = "最小电流(A)")
+    private Double currentMin;
+    
+    @Schema(description = "最大电流(A)")
+    private Double currentMax;
+    
+    @Schema(description = "平均电流(A)")
+    private Double currentAvg;
+    
+    @Schema(description = "最后电流(A)")
+    private Double currentLast;
+    
+    @Schema(description = "最小功率(W)")
+    private Double powerMin;
+    
+    @Schema(description = "最大功率(W)")
+    private Double powerMax;
+    
+    @Schema(description = "平均功率(W)")
+    private Double powerAvg;
+    
+    @Schema(description = "最后功率(W)")
+    private Double powerLast;
+    
+    @Schema(description = "时间桶内用电量(kWh)", example = "0.125")
+    private Double consumption;
+    
+    @Schema(description = "时间桶结束时的累计用电量(kWh)", example = "125.5")
+    private Double totalEnergy;
+}
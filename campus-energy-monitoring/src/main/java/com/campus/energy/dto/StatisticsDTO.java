@@ -49,6 +49,12 @@ public class StatisticsDTO {
     @Schema(description = "告警类型统计")
     private Map<String, Long> alertTypeStats;
     
+    @Schema(description = "各统计项耗时(ms)，total为总耗时")
+    private Map<String, Long> sectionTimings;
+    
+    @Schema(description = "超时或失败、使用上一次结果的统计项")
+    private List<String> degradedSections;
+    
     /**
      * 建筑用电量统计
      */
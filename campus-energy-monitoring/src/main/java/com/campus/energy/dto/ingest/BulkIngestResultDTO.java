@@ -0,0 +1,61 @@
+package com.campus.energy.dto.ingest;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 批量接入结果
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "批量接入结果")
+public class BulkIngestResultDTO {
+    
+    @Schema(description = "接收条数")
+    private long accepted;
+    
+    @Schema(description = "拒绝条数")
+    private long rejected;
+    
+    @Schema(description = "重复条数（已接收过的 设备+采集时间，按幂等处理，不重复入库）")
+    private long duplicates;
+    
+    @Schema(description = "解析错误（出现时之后的数据未处理）")
+    private String parseError;
+    
+    @Schema(description = "各批次处理结果")
+    @Builder.Default
+    private List<BatchSummary> batches = new ArrayList<>();
+    
+    /**
+     * 单批次处理结果
+     */
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BatchSummary {
+        @Schema(description = "批次序号")
+        private Integer index;
+        
+        @Schema(description = "接收条数")
+        private Integer accepted;
+        
+        @Schema(description = "拒绝条数")
+        private Integer rejected;
+        
+        @Schema(description = "重复条数")
+        private Integer duplicates;
+        
+        @Schema(description = "拒绝原因示例（最多10条）")
+        private List<String> errors;
+    }
+}
@@ -0,0 +1,38 @@
+package com.campus.energy.dto.ingest;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * 电表上报读数（批量接入接口的单条记录）
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "电表上报读数")
+public class EnergyReadingRequest {
+    
+    @Schema(description = "设备序列号", example = "METER_QIU_301")
+    private String serialNumber;
+    
+    @Schema(description = "采集时间", example = "2025-01-01T10:00:00")
+    private LocalDateTime collectTime;
+    
+    @Schema(description = "电压(V)", example = "220.5")
+    private Double voltage;
+    
+    @Schema(description = "电流(A)", example = "2.5")
+    private Double current;
+    
+    @Schema(description = "功率(W)", example = "551.25")
+    private Double power;
+    
+    @Schema(description = "累计用电量(kWh)", example = "125.5")
+    private Double totalEnergy;
+}
@@ -82,6 +82,12 @@ public class Device {
     @Column(name = "rated_power", nullable = false)
     private Double ratedPower;
     
+    /**
+     * 采样间隔（秒），为空时使用模拟器全局间隔 simulator.interval
+     */
+    @Column(name = "sample_interval")
+    private Integer sampleInterval;
+    
     /**
      * 所属建筑
      */
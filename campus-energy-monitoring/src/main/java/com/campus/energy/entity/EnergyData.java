@@ -35,11 +35,19 @@ import java.time.LocalDateTime;
  * 
  * 能耗数据实体类
  * 用于存储智能电表采集的实时能耗数据
+ * 
+ * 分区说明：
+ * t_energy_data 按 collect_time 做 RANGE 分区（见 sql/schema.sql 与 EnergyDataPartitionManager），
+ * MySQL 要求分区表的每个唯一键都包含分区列，因此物理主键为 (id, collect_time)，
+ * id 仍由自增保证唯一，JPA 映射只使用 id；分区表不支持外键，device_id 不建外键约束。
+ * device_id 的单列索引由唯一键 uk_device_time 的前缀覆盖，不再单独创建。
  */
 @Entity
 @Table(name = "t_energy_data", indexes = {
-    @Index(name = "idx_device_id", columnList = "device_id"),
     @Index(name = "idx_collect_time", columnList = "collect_time")
+}, uniqueConstraints = {
+    // 幂等键：同一设备同一采集时间（秒）只保留一条读数
+    @UniqueConstraint(name = "uk_device_time", columnNames = {"device_id", "collect_time"})
 })
 @Data
 @Builder
@@ -55,7 +63,8 @@ public class EnergyData {
      * 所属设备
      */
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "device_id", nullable = false)
+    @JoinColumn(name = "device_id", nullable = false,
+                foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Device device;
     
     /**
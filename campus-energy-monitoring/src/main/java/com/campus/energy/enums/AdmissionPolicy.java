@@ -0,0 +1,22 @@
+package com.campus.energy.enums;
+
+import lombok.Getter;
+
+/**
+ * 接入缓冲区满（过载）时的处理策略枚举
+ */
+@Getter
+public enum AdmissionPolicy {
+
+    BLOCK("阻塞", "缓冲区满时阻塞生产者，直到有空位"),
+    DROP_OLDEST("丢弃最旧", "缓冲区满时丢弃最早进入缓冲区的读数"),
+    DOWNSAMPLE("降采样", "过载期间每台设备每个时间窗口只保留一条读数");
+
+    private final String label;
+    private final String description;
+
+    AdmissionPolicy(String label, String description) {
+        this.label = label;
+        this.description = description;
+    }
+}
@@ -0,0 +1,22 @@
+package com.campus.energy.enums;
+
+import lombok.Getter;
+
+/**
+ * 实体变更类型枚举（领域事件使用）
+ */
+@Getter
+public enum ChangeType {
+
+    CREATED("新增", "实体已创建"),
+    UPDATED("修改", "实体属性已修改"),
+    DELETED("删除", "实体已删除");
+
+    private final String label;
+    private final String description;
+
+    ChangeType(String label, String description) {
+        this.label = label;
+        this.description = description;
+    }
+}
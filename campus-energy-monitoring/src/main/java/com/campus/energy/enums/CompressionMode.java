@@ -0,0 +1,22 @@
+package com.campus.energy.enums;
+
+import lombok.Getter;
+
+/**
+ * 读数写库压缩方式枚举
+ */
+@Getter
+public enum CompressionMode {
+
+    NONE("不压缩", "所有读数全部写库"),
+    DEADBAND("死区", "电压/电流/功率相对上一条存储读数的变化都在容差内时不写库"),
+    SWINGING_DOOR("旋转门", "能由前后存储读数线性插值重建（误差在容差内）的读数不写库");
+
+    private final String label;
+    private final String description;
+
+    CompressionMode(String label, String description) {
+        this.label = label;
+        this.description = description;
+    }
+}
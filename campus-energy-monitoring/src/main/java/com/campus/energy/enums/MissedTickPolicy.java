@@ -0,0 +1,21 @@
+package com.campus.energy.enums;
+
+import lombok.Getter;
+
+/**
+ * 采样调度落后（错过采样时刻）时的处理策略枚举
+ */
+@Getter
+public enum MissedTickPolicy {
+
+    CATCH_UP("补采", "按错过的每个采样时刻逐一补生成读数，保持读数时间序列连续"),
+    SKIP("跳过", "丢弃错过的采样时刻，只生成最近一个采样时刻的读数");
+
+    private final String label;
+    private final String description;
+
+    MissedTickPolicy(String label, String description) {
+        this.label = label;
+        this.description = description;
+    }
+}
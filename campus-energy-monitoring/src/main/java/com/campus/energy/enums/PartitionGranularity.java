@@ -0,0 +1,47 @@
+package com.campus.energy.enums;
+
+import lombok.Getter;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * 能耗数据表分区粒度枚举
+ */
+@Getter
+public enum PartitionGranularity {
+
+    MONTH("按月", "每个自然月一个分区，分区名 pYYYYMM", "yyyyMM"),
+    DAY("按天", "每天一个分区，分区名 pYYYYMMDD，适合保留期较短（数周）的场景", "yyyyMMdd");
+
+    private final String label;
+    private final String description;
+    private final DateTimeFormatter nameFormat;
+
+    PartitionGranularity(String label, String description, String namePattern) {
+        this.label = label;
+        this.description = description;
+        this.nameFormat = DateTimeFormatter.ofPattern(namePattern);
+    }
+
+    /**
+     * 日期所在分区周期的起始日
+     */
+    public LocalDate periodStart(LocalDate date) {
+        return this == MONTH ? date.withDayOfMonth(1) : date;
+    }
+
+    /**
+     * 下一个分区周期的起始日
+     */
+    public LocalDate next(LocalDate periodStart) {
+        return this == MONTH ? periodStart.plusMonths(1) : periodStart.plusDays(1);
+    }
+
+    /**
+     * 以周期起始日命名的分区名
+     */
+    public String partitionName(LocalDate periodStart) {
+        return "p" + periodStart.format(nameFormat);
+    }
+}
@@ -0,0 +1,55 @@
+package com.campus.energy.enums;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 能耗数据聚合粒度枚举
+ */
+@Getter
+public enum RollupResolution {
+
+    RAW("原始读数", 0),
+    MINUTE_1("1分钟", 60),
+    MINUTE_15("15分钟", 900),
+    HOUR_1("1小时", 3600),
+    DAY_1("1天", 86400);
+
+    private final String label;
+
+    /**
+     * 聚合桶时长（秒），RAW 为0
+     */
+    private final long seconds;
+
+    RollupResolution(String label, long seconds) {
+        this.label = label;
+        this.seconds = seconds;
+    }
+
+    /**
+     * 由汇总表维护的聚合粒度（不含 RAW），由细到粗
+     */
+    public static List<RollupResolution> rollups() {
+        return Arrays.stream(values()).filter(r -> r != RAW).toList();
+    }
+
+    /**
+     * 时间所在聚合桶的起始时间
+     */
+    public LocalDateTime floor(LocalDateTime time) {
+        long second = time.toEpochSecond(ZoneOffset.UTC);
+        return LocalDateTime.ofEpochSecond(second - Math.floorMod(second, seconds), 0, ZoneOffset.UTC);
+    }
+
+    /**
+     * 时间是否恰好落在聚合桶边界上
+     */
+    public boolean isAligned(LocalDateTime time) {
+        return time.getNano() == 0 && floor(time).equals(time);
+    }
+}
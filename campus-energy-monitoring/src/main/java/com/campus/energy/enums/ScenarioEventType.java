@@ -0,0 +1,23 @@
+package com.campus.energy.enums;
+
+import lombok.Getter;
+
+/**
+ * 故障场景事件类型枚举
+ */
+@Getter
+public enum ScenarioEventType {
+
+    VOLTAGE_SAG("电压骤降", "受影响电表的电压降至指定值（如整栋楼电网跌落）"),
+    OVERLOAD_RAMP("过载爬升", "受影响电表的功率在持续时间内从额定功率的起始倍数线性升至目标倍数"),
+    DROPOUT("电表掉线", "受影响电表在持续时间内不上报读数"),
+    FLAPPING("通讯抖动", "受影响电表按周期交替上报与掉线");
+
+    private final String label;
+    private final String description;
+
+    ScenarioEventType(String label, String description) {
+        this.label = label;
+        this.description = description;
+    }
+}
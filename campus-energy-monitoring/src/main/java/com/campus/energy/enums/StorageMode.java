@@ -0,0 +1,21 @@
+package com.campus.energy.enums;
+
+import lombok.Getter;
+
+/**
+ * 原始读数存储方式枚举
+ */
+@Getter
+public enum StorageMode {
+
+    ROW("按行存储", "每条读数一行写入 t_energy_data"),
+    CHUNK("按块存储", "每台设备每小时一行写入 t_energy_chunk，读数列式压缩保存");
+
+    private final String label;
+    private final String description;
+
+    StorageMode(String label, String description) {
+        this.label = label;
+        this.description = description;
+    }
+}
@@ -0,0 +1,15 @@
+package com.campus.energy.event;
+
+import com.campus.energy.enums.AlertType;
+
+import java.time.LocalDateTime;
+
+/**
+ * 告警已触发（由 DomainEventAlertObserver 在观察者通知时发布）
+ *
+ * @param deviceId    设备ID
+ * @param alertType   告警类型
+ * @param triggerTime 触发时间
+ */
+public record AlertCreatedEvent(Long deviceId, AlertType alertType, LocalDateTime triggerTime) {
+}
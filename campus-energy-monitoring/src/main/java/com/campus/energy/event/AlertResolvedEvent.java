@@ -0,0 +1,12 @@
+package com.campus.energy.event;
+
+import com.campus.energy.enums.AlertType;
+
+/**
+ * 告警已处理（事务提交后处理）
+ *
+ * @param alertId   告警ID
+ * @param alertType 告警类型
+ */
+public record AlertResolvedEvent(Long alertId, AlertType alertType) {
+}
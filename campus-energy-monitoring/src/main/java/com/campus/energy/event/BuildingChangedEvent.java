@@ -0,0 +1,13 @@
+package com.campus.energy.event;
+
+import com.campus.energy.enums.ChangeType;
+
+/**
+ * 建筑新增、修改或删除（事务提交后处理）
+ *
+ * @param buildingId 建筑ID
+ * @param name       变更后的建筑名称
+ * @param type       变更类型
+ */
+public record BuildingChangedEvent(Long buildingId, String name, ChangeType type) {
+}
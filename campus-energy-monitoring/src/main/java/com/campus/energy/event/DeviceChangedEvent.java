@@ -0,0 +1,15 @@
+package com.campus.energy.event;
+
+import com.campus.energy.enums.ChangeType;
+import com.campus.energy.enums.DeviceStatus;
+
+/**
+ * 设备新增、修改或删除（事务提交后处理）
+ *
+ * @param deviceId   设备ID
+ * @param buildingId 变更后的所属建筑ID（删除时为删除前的建筑）
+ * @param status     变更后的状态（删除时为删除前的状态）
+ * @param type       变更类型
+ */
+public record DeviceChangedEvent(Long deviceId, Long buildingId, DeviceStatus status, ChangeType type) {
+}
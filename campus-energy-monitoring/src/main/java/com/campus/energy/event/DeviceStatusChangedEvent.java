@@ -0,0 +1,13 @@
+package com.campus.energy.event;
+
+import com.campus.energy.enums.DeviceStatus;
+
+/**
+ * 设备状态变更（事务提交后处理）
+ *
+ * @param deviceId       设备ID
+ * @param previousStatus 变更前的状态
+ * @param status         变更后的状态
+ */
+public record DeviceStatusChangedEvent(Long deviceId, DeviceStatus previousStatus, DeviceStatus status) {
+}
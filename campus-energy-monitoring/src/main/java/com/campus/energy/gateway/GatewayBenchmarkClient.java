@@ -0,0 +1,151 @@
+package com.campus.energy.gateway;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 网关TCP接入压测客户端
+ *
+ * 独立运行（不依赖Spring容器），向 GatewayTcpServer 按目标速率发送二进制帧。
+ * 每台设备的采集时间按帧递增1秒，避免同一设备同一秒内出现重复读数。
+ *
+ * 用法：
+ * <pre>
+ * java -cp target/classes com.campus.energy.gateway.GatewayBenchmarkClient \
+ *      [host=localhost] [port=9300] [deviceIds=1-9] [rate=100000] [seconds=30] [connections=4]
+ * </pre>
+ */
+public final class GatewayBenchmarkClient {
+
+    /**
+     * 每次写出的最大帧数
+     */
+    private static final int FRAMES_PER_WRITE = 1000;
+
+    private GatewayBenchmarkClient() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = arg(args, 0, "localhost");
+        int port = Integer.parseInt(arg(args, 1, "9300"));
+        long[] deviceIds = parseDeviceIds(arg(args, 2, "1-9"));
+        int rate = Integer.parseInt(arg(args, 3, "100000"));
+        int seconds = Integer.parseInt(arg(args, 4, "30"));
+        int connections = Integer.parseInt(arg(args, 5, "4"));
+
+        // 采集时间从过去开始递增，结束时接近当前时间
+        long framesPerDevice = (long) rate * seconds / deviceIds.length;
+        long baseMillis = System.currentTimeMillis() - framesPerDevice * 1000L;
+
+        AtomicLong sent = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+        long startNanos = System.nanoTime();
+
+        for (int c = 0; c < connections; c++) {
+            int connection = c;
+            Thread thread = new Thread(() -> {
+                try {
+                    send(host, port, deviceIds, connection, connections, rate / connections,
+                            seconds, baseMillis, sent);
+                } catch (IOException e) {
+                    System.err.println("连接 " + connection + " 发送失败: " + e.getMessage());
+                }
+            }, "gateway-client-" + c);
+            thread.start();
+            threads.add(thread);
+        }
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        double elapsed = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+        System.out.printf("发送 %d 帧，耗时 %.2f 秒，速率 %.0f 帧/秒%n", sent.get(), elapsed, sent.get() / elapsed);
+    }
+
+    /**
+     * 单个连接：负责 deviceIds 中下标 mod connections == connection 的设备
+     */
+    private static void send(String host, int port, long[] deviceIds, int connection, int connections,
+                             int rate, int seconds, long baseMillis, AtomicLong sent) throws IOException {
+        List<Integer> owned = new ArrayList<>();
+        for (int i = connection; i < deviceIds.length; i += connections) {
+            owned.add(i);
+        }
+        if (owned.isEmpty()) {
+            return;
+        }
+
+        long[] sequence = new long[deviceIds.length];
+        double[] totalEnergy = new double[deviceIds.length];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(GatewayFrameCodec.FRAME_LENGTH * FRAMES_PER_WRITE);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(host, port))) {
+            long startNanos = System.nanoTime();
+            long endNanos = startNanos + seconds * 1_000_000_000L;
+            long produced = 0;
+            int cursor = 0;
+
+            while (System.nanoTime() < endNanos) {
+                long due = (long) (rate * ((System.nanoTime() - startNanos) / 1_000_000_000.0)) - produced;
+                if (due <= 0) {
+                    LockSupport.parkNanos(200_000);
+                    continue;
+                }
+                int n = (int) Math.min(due, FRAMES_PER_WRITE);
+
+                buffer.clear();
+                for (int i = 0; i < n; i++) {
+                    int index = owned.get(cursor);
+                    cursor = (cursor + 1) % owned.size();
+
+                    double voltage = 220.0 + random.nextGaussian() * 5.0;
+                    double power = 200.0 + random.nextDouble() * 800.0;
+                    totalEnergy[index] += power / 1000.0 / 3600.0;
+                    GatewayFrameCodec.encode(buffer, deviceIds[index], baseMillis + sequence[index]++ * 1000L,
+                            voltage, power / voltage, power, totalEnergy[index]);
+                }
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                produced += n;
+                sent.addAndGet(n);
+            }
+        }
+    }
+
+    /**
+     * 解析设备ID，支持 "1-9" 或 "1,2,5" 格式
+     */
+    private static long[] parseDeviceIds(String spec) {
+        if (spec.contains("-")) {
+            String[] range = spec.split("-");
+            long from = Long.parseLong(range[0]);
+            long to = Long.parseLong(range[1]);
+            long[] ids = new long[(int) (to - from + 1)];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = from + i;
+            }
+            return ids;
+        }
+        String[] parts = spec.split(",");
+        long[] ids = new long[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            ids[i] = Long.parseLong(parts[i].trim());
+        }
+        return ids;
+    }
+
+    private static String arg(String[] args, int index, String defaultValue) {
+        return args.length > index ? args[index] : defaultValue;
+    }
+}
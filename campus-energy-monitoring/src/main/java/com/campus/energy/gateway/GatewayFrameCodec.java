@@ -0,0 +1,84 @@
+package com.campus.energy.gateway;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 网关二进制帧编解码
+ * 
+ * 帧格式（大端序，定长）：
+ * <pre>
+ * +--------+----------+-------------+---------+---------+--------+-------------+
+ * | length | deviceId | epochMillis | voltage | current | power  | totalEnergy |
+ * | int32  | int64    | int64       | float64 | float64 | float64| float64     |
+ * +--------+----------+-------------+---------+---------+--------+-------------+
+ * </pre>
+ * length 为负载长度，固定为 48 字节，整帧 52 字节。
+ * 
+ * 解码直接使用绝对位置读取（getLong(index)/getDouble(index)）从直接缓冲区取值，
+ * 不做中间字节数组拷贝。
+ */
+public final class GatewayFrameCodec {
+    
+    /**
+     * 负载长度（字节）
+     */
+    public static final int PAYLOAD_LENGTH = 48;
+    
+    /**
+     * 整帧长度（字节）
+     */
+    public static final int FRAME_LENGTH = 4 + PAYLOAD_LENGTH;
+    
+    private GatewayFrameCodec() {
+    }
+    
+    /**
+     * 解码后的一条读数
+     */
+    public record Reading(long deviceId, long epochMillis, double voltage,
+                          double current, double power, double totalEnergy) {
+    }
+    
+    /**
+     * 解码缓冲区（读模式）中所有完整的帧，不完整的帧保留在缓冲区中等待后续数据
+     * 
+     * @return false 表示遇到非法长度（协议错误），连接应关闭
+     */
+    public static boolean decode(ByteBuffer buffer, List<Reading> out) {
+        while (buffer.remaining() >= 4) {
+            int pos = buffer.position();
+            int length = buffer.getInt(pos);
+            if (length != PAYLOAD_LENGTH) {
+                return false;
+            }
+            if (buffer.remaining() < FRAME_LENGTH) {
+                break;
+            }
+            int p = pos + 4;
+            out.add(new Reading(
+                    buffer.getLong(p),
+                    buffer.getLong(p + 8),
+                    buffer.getDouble(p + 16),
+                    buffer.getDouble(p + 24),
+                    buffer.getDouble(p + 32),
+                    buffer.getDouble(p + 40)));
+            buffer.position(pos + FRAME_LENGTH);
+        }
+        return true;
+    }
+    
+    /**
+     * 编码一帧到缓冲区（写模式）
+     */
+    public static void encode(ByteBuffer buffer, long deviceId, long epochMillis, double voltage,
+                              double current, double power, double totalEnergy) {
+        buffer.putInt(PAYLOAD_LENGTH)
+                .putLong(deviceId)
+                .putLong(epochMillis)
+                .putDouble(voltage)
+                .putDouble(current)
+                .putDouble(power)
+                .putDouble(totalEnergy);
+    }
+}
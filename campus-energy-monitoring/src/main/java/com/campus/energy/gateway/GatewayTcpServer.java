@@ -0,0 +1,313 @@
+package com.campus.energy.gateway;
+
+import com.campus.energy.entity.Device;
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.enums.DeviceStatus;
+import com.campus.energy.event.DeviceChangedEvent;
+import com.campus.energy.event.DeviceStatusChangedEvent;
+import com.campus.energy.ingest.IngestOutcome;
+import com.campus.energy.repository.DeviceRepository;
+import com.campus.energy.service.EnergyIngestService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 网关二进制TCP接入服务（可选，gateway.tcp.enabled=true 时启用）
+ *
+ * 说明：
+ * 宿舍楼等高密度建筑中，每条读数一次 HTTP+JSON 请求开销过大。
+ * 本服务基于 NIO 单线程 Selector 监听TCP端口，接收网关发送的定长二进制帧
+ * （格式见 GatewayFrameCodec），每个连接使用一个直接缓冲区，解码不做字节拷贝。
+ *
+ * 每轮 select 解码出的读数作为一批交给接入线程池，走与模拟器相同的接入路径
+ * （EnergyIngestService：更新电表寄存器 -> 发布到接入流水线）。
+ * 接入线程池队列满时由 IO 线程直接执行接入，IO 线程因此停止读取，
+ * 形成 TCP 层面的背压。
+ *
+ * 帧中的数值必须是有限值（NaN/Infinity 会使整批写库失败）；设备缓存在设备变更事务提交后失效，
+ * 删除、移动建筑或修改额定功率的设备不会继续按旧数据接入和告警。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "gateway.tcp", name = "enabled", havingValue = "true")
+public class GatewayTcpServer {
+
+    private final EnergyIngestService energyIngestService;
+    private final DeviceRepository deviceRepository;
+
+    @Value("${gateway.tcp.port:9300}")
+    private int port;
+
+    @Value("${gateway.tcp.buffer-size:65536}")
+    private int bufferSize;
+
+    @Value("${gateway.tcp.ingest-threads:2}")
+    private int ingestThreads;
+
+    @Value("${gateway.tcp.ingest-queue:256}")
+    private int ingestQueue;
+
+    private Selector selector;
+    private ServerSocketChannel serverChannel;
+    private Thread ioThread;
+    private ThreadPoolExecutor ingestExecutor;
+    private volatile boolean running;
+
+    /**
+     * 设备ID -> 设备，避免每帧查询数据库；设备变更时失效
+     */
+    private final Map<Long, Device> deviceCache = new ConcurrentHashMap<>();
+
+    private final AtomicInteger activeConnections = new AtomicInteger();
+    private final AtomicLong totalConnections = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong framesDecoded = new AtomicLong();
+    private final AtomicLong framesAccepted = new AtomicLong();
+    private final AtomicLong framesRejected = new AtomicLong();
+    private final AtomicLong framesDuplicate = new AtomicLong();
+    private final AtomicLong protocolErrors = new AtomicLong();
+
+    @PostConstruct
+    public void start() throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+
+        AtomicInteger threadIndex = new AtomicInteger();
+        ingestExecutor = new ThreadPoolExecutor(ingestThreads, ingestThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(ingestQueue),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "gateway-ingest-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        running = true;
+        ioThread = new Thread(this::ioLoop, "gateway-tcp-io");
+        ioThread.setDaemon(true);
+        ioThread.start();
+        log.info("网关TCP接入服务已启动，端口: {}", port);
+    }
+
+    @PreDestroy
+    public void stop() throws IOException, InterruptedException {
+        running = false;
+        selector.wakeup();
+        ioThread.join(5000);
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        ingestExecutor.shutdown();
+        ingestExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        log.info("网关TCP接入服务已停止");
+    }
+
+    /**
+     * IO线程：接受连接、读取并解码帧
+     */
+    private void ioLoop() {
+        List<GatewayFrameCodec.Reading> batch = new ArrayList<>();
+        while (running) {
+            try {
+                selector.select(100);
+                Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+                while (iterator.hasNext()) {
+                    SelectionKey key = iterator.next();
+                    iterator.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else if (key.isReadable()) {
+                        read(key, batch);
+                    }
+                }
+
+                if (!batch.isEmpty()) {
+                    List<GatewayFrameCodec.Reading> frames = batch;
+                    batch = new ArrayList<>();
+                    ingestExecutor.execute(() -> ingestFrames(frames));
+                }
+            } catch (Exception e) {
+                if (running) {
+                    log.error("网关TCP接入IO异常: {}", e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, ByteBuffer.allocateDirect(bufferSize));
+        activeConnections.incrementAndGet();
+        totalConnections.incrementAndGet();
+        log.info("网关连接建立: {}", channel.getRemoteAddress());
+    }
+
+    private void read(SelectionKey key, List<GatewayFrameCodec.Reading> batch) {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer buffer = (ByteBuffer) key.attachment();
+        try {
+            int n = channel.read(buffer);
+            if (n < 0) {
+                close(key);
+                return;
+            }
+            bytesReceived.addAndGet(n);
+
+            int before = batch.size();
+            buffer.flip();
+            boolean valid = GatewayFrameCodec.decode(buffer, batch);
+            buffer.compact();
+            framesDecoded.addAndGet(batch.size() - before);
+
+            if (!valid) {
+                protocolErrors.incrementAndGet();
+                log.warn("网关帧长度非法，关闭连接: {}", channel.getRemoteAddress());
+                close(key);
+            }
+        } catch (IOException e) {
+            close(key);
+        }
+    }
+
+    private void close(SelectionKey key) {
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException ignored) {
+            // 连接已断开
+        }
+        activeConnections.decrementAndGet();
+    }
+
+    /**
+     * 接入线程：关联设备并走统一接入路径
+     */
+    private void ingestFrames(List<GatewayFrameCodec.Reading> frames) {
+        resolveDevices(frames);
+
+        List<EnergyData> readings = new ArrayList<>(frames.size());
+        for (GatewayFrameCodec.Reading frame : frames) {
+            Device device = deviceCache.get(frame.deviceId());
+            if (device == null || device.getStatus() == DeviceStatus.DECOMMISSIONED || !isValid(frame)) {
+                framesRejected.incrementAndGet();
+                continue;
+            }
+            readings.add(EnergyData.builder()
+                    .device(device)
+                    .voltage(frame.voltage())
+                    .current(frame.current())
+                    .power(frame.power())
+                    .totalEnergy(frame.totalEnergy())
+                    .collectTime(LocalDateTime.ofInstant(Instant.ofEpochMilli(frame.epochMillis()), ZoneId.systemDefault())
+                            .truncatedTo(ChronoUnit.SECONDS))
+                    .isAbnormal(false)
+                    .build());
+        }
+
+        try {
+            IngestOutcome outcome = energyIngestService.submit(readings);
+            framesAccepted.addAndGet(outcome.accepted());
+            framesDuplicate.addAndGet(outcome.duplicates());
+            // 过载时被降采样或丢弃的读数计为拒绝
+            framesRejected.addAndGet(outcome.shed());
+        } catch (Exception e) {
+            framesRejected.addAndGet(readings.size());
+            log.error("网关读数接入失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 帧数值校验：必须是有限值，电压为正，电流、功率与累计用电量非负
+     */
+    private static boolean isValid(GatewayFrameCodec.Reading frame) {
+        return Double.isFinite(frame.voltage()) && Double.isFinite(frame.current())
+                && Double.isFinite(frame.power()) && Double.isFinite(frame.totalEnergy())
+                && frame.voltage() > 0 && frame.current() >= 0 && frame.power() >= 0 && frame.totalEnergy() >= 0;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        deviceCache.remove(event.deviceId());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceStatusChanged(DeviceStatusChangedEvent event) {
+        deviceCache.remove(event.deviceId());
+    }
+
+    /**
+     * 一次查询加载本批次中未缓存的设备
+     */
+    private void resolveDevices(List<GatewayFrameCodec.Reading> frames) {
+        Set<Long> unknown = new HashSet<>();
+        for (GatewayFrameCodec.Reading frame : frames) {
+            if (!deviceCache.containsKey(frame.deviceId())) {
+                unknown.add(frame.deviceId());
+            }
+        }
+        if (!unknown.isEmpty()) {
+            deviceRepository.findAllById(unknown).forEach(device -> deviceCache.put(device.getId(), device));
+        }
+    }
+
+    /**
+     * 获取接入统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("port", port);
+        stats.put("activeConnections", activeConnections.get());
+        stats.put("totalConnections", totalConnections.get());
+        stats.put("bytesReceived", bytesReceived.get());
+        stats.put("framesDecoded", framesDecoded.get());
+        stats.put("framesAccepted", framesAccepted.get());
+        stats.put("framesRejected", framesRejected.get());
+        stats.put("framesDuplicate", framesDuplicate.get());
+        stats.put("protocolErrors", protocolErrors.get());
+        stats.put("ingestQueueSize", ingestExecutor.getQueue().size());
+        return stats;
+    }
+}
@@ -0,0 +1,270 @@
+package com.campus.energy.ingest;
+
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.enums.AdmissionPolicy;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * 接入准入缓冲区（位于环形缓冲区之前的有界队列）
+ *
+ * 说明：
+ * 所有接入来源（模拟器、批量接口、网关TCP接入）都先进入本缓冲区，
+ * 由流水线的发布线程取出后写入环形缓冲区。环形缓冲区写满（下游阶段跟不上）时，
+ * 积压停留在本缓冲区中，按配置的策略处理：
+ * - BLOCK：阻塞生产者，直到有空位（形成背压）
+ * - DROP_OLDEST：丢弃最早的读数，保留最新数据
+ * - DOWNSAMPLE：过载期间每台设备每个窗口只接收一条读数；若缓冲区仍满则丢弃最旧读数
+ *
+ * 过载判定使用高低水位（滞回），填充率 = (本缓冲区排队数 + 环形缓冲区积压) / 总容量：
+ * 超过高水位进入过载，低于低水位才解除，避免状态抖动。
+ */
+@Slf4j
+public class AdmissionBuffer {
+
+    /**
+     * 阻塞等待的轮询间隔（毫秒），用于及时响应关闭
+     */
+    private static final long AWAIT_MILLIS = 100;
+
+    private final ArrayDeque<EnergyData> queue;
+    private final int capacity;
+    private final AdmissionPolicy policy;
+    private final long downsampleWindowSeconds;
+    private final double highWatermark;
+    private final double lowWatermark;
+
+    /**
+     * 下游（环形缓冲区）积压及容量
+     */
+    private final LongSupplier downstreamBacklog;
+    private final int downstreamCapacity;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition notEmpty = lock.newCondition();
+
+    /**
+     * 设备ID -> 最近一条被接收读数的采集时间（epoch秒），用于降采样
+     */
+    private final Map<Long, Long> lastAdmittedSecond = new HashMap<>();
+
+    private volatile boolean overloaded;
+    private volatile boolean closed;
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong droppedOldest = new AtomicLong();
+    private final AtomicLong downsampled = new AtomicLong();
+    private final AtomicLong rejectedClosed = new AtomicLong();
+    private final AtomicLong blockedNanos = new AtomicLong();
+    private final AtomicLong overloadEvents = new AtomicLong();
+
+    public AdmissionBuffer(int capacity, AdmissionPolicy policy, long downsampleWindowSeconds,
+                           double highWatermark, double lowWatermark,
+                           LongSupplier downstreamBacklog, int downstreamCapacity) {
+        this.queue = new ArrayDeque<>(capacity);
+        this.capacity = capacity;
+        this.policy = policy;
+        this.downsampleWindowSeconds = downsampleWindowSeconds;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.downstreamBacklog = downstreamBacklog;
+        this.downstreamCapacity = downstreamCapacity;
+    }
+
+    /**
+     * 接收一批读数，被降采样、关闭拒绝或为腾出空位丢弃的读数加入 shed
+     *
+     * @return 本批实际进入缓冲区的条数（被降采样或关闭拒绝的不计入）
+     */
+    public int offer(List<EnergyData> readings, List<EnergyData> shed) {
+        lock.lock();
+        try {
+            updateOverload();
+            int accepted = 0;
+            for (EnergyData data : readings) {
+                if (closed) {
+                    rejectedClosed.incrementAndGet();
+                    shed.add(data);
+                    continue;
+                }
+                long second = data.getCollectTime().toEpochSecond(ZoneOffset.UTC);
+                if (overloaded && policy == AdmissionPolicy.DOWNSAMPLE && withinWindow(data, second)) {
+                    downsampled.incrementAndGet();
+                    shed.add(data);
+                    continue;
+                }
+                if (!awaitSpace(shed)) {
+                    rejectedClosed.incrementAndGet();
+                    shed.add(data);
+                    continue;
+                }
+                queue.addLast(data);
+                lastAdmittedSecond.put(data.getDevice().getId(), second);
+                accepted++;
+            }
+            admitted.addAndGet(accepted);
+            if (accepted > 0) {
+                notEmpty.signal();
+            }
+            return accepted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 确保队列有空位；BLOCK 策略下等待，其余策略丢弃最旧读数
+     *
+     * @return false 表示缓冲区已关闭
+     */
+    private boolean awaitSpace(List<EnergyData> shed) {
+        if (queue.size() < capacity) {
+            return true;
+        }
+        if (policy != AdmissionPolicy.BLOCK) {
+            shed.add(queue.pollFirst());
+            droppedOldest.incrementAndGet();
+            return true;
+        }
+        long start = System.nanoTime();
+        try {
+            while (queue.size() >= capacity && !closed) {
+                notFull.await(AWAIT_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            blockedNanos.addAndGet(System.nanoTime() - start);
+            updateOverload();
+        }
+        return !closed;
+    }
+
+    /**
+     * 降采样：设备在窗口内已有读数被接收时返回 true
+     */
+    private boolean withinWindow(EnergyData data, long second) {
+        Long last = lastAdmittedSecond.get(data.getDevice().getId());
+        return last != null && Math.abs(second - last) < downsampleWindowSeconds;
+    }
+
+    /**
+     * 取出最多 max 条读数，缓冲区为空时等待
+     *
+     * @return 取出的条数；缓冲区已关闭且为空时返回 -1
+     */
+    public int drainTo(List<EnergyData> batch, int max) throws InterruptedException {
+        lock.lock();
+        try {
+            while (queue.isEmpty()) {
+                if (closed) {
+                    return -1;
+                }
+                notEmpty.await(AWAIT_MILLIS, TimeUnit.MILLISECONDS);
+                // 空闲等待期间环形缓冲区仍在消化积压，及时解除过载
+                updateOverload();
+            }
+            int n = 0;
+            while (n < max && !queue.isEmpty()) {
+                batch.add(queue.pollFirst());
+                n++;
+            }
+            updateOverload();
+            notFull.signalAll();
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 根据填充率更新过载状态（需持有锁）
+     */
+    private void updateOverload() {
+        double fill = fillRatio();
+        if (!overloaded && fill >= highWatermark) {
+            overloaded = true;
+            overloadEvents.incrementAndGet();
+            log.warn("接入过载：填充率 {}%，策略 {}", Math.round(fill * 100), policy);
+        } else if (overloaded && fill <= lowWatermark) {
+            overloaded = false;
+            lastAdmittedSecond.clear();
+            log.info("接入过载解除：填充率 {}%", Math.round(fill * 100));
+        }
+    }
+
+    private double fillRatio() {
+        return (double) (queue.size() + downstreamBacklog.getAsLong()) / (capacity + downstreamCapacity);
+    }
+
+    /**
+     * 关闭缓冲区：不再接收新读数，唤醒所有等待线程
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notFull.signalAll();
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 是否过载：按当前填充率重新判定
+     *
+     * 过载时生产者会停止调用 offer，因此不能只依赖 offer 中的判定，否则过载状态无法解除
+     */
+    public boolean isOverloaded() {
+        lock.lock();
+        try {
+            updateOverload();
+            return overloaded;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 获取准入统计：策略、排队数、填充率、过载状态、接收/丢弃/降采样条数、阻塞时间
+     */
+    public Map<String, Object> getStats() {
+        int queued;
+        double fill;
+        lock.lock();
+        try {
+            updateOverload();
+            queued = queue.size();
+            fill = fillRatio();
+        } finally {
+            lock.unlock();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("policy", policy);
+        stats.put("capacity", capacity);
+        stats.put("queued", queued);
+        stats.put("fillRatio", Math.round(fill * 1000) / 1000.0);
+        stats.put("overloaded", overloaded);
+        stats.put("overloadEvents", overloadEvents.get());
+        stats.put("admitted", admitted.get());
+        stats.put("droppedOldest", droppedOldest.get());
+        stats.put("downsampled", downsampled.get());
+        stats.put("rejectedClosed", rejectedClosed.get());
+        stats.put("blockedMillis", blockedNanos.get() / 1_000_000);
+        return stats;
+    }
+}
@@ -0,0 +1,142 @@
+package com.campus.energy.ingest;
+
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.repository.EnergyDataBatchWriter;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 写库失败读数的死信队列
+ *
+ * 说明：
+ * 写库阶段在有限次重试后仍写不进去的读数（如清理任务持有锁导致的锁等待超时）不能直接丢弃：
+ * 调用方已被告知这些读数已接收，去重窗口也会拦住网关的重发。
+ * 这些读数放入本队列，由定时任务整批重新写入能耗数据表（INSERT IGNORE，重复写入无副作用），
+ * 写入失败的部分重新入队，超过 max-attempts 次后才放弃并计数；
+ * 放弃的读数移出去重窗口，网关重发时可以重新接收。
+ *
+ * 队列按读数条数限定容量，数据库长时间不可用时超出容量的读数被丢弃并计数，内存占用有上限。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class DeadLetterQueue {
+
+    private final EnergyDataBatchWriter energyDataBatchWriter;
+    private final ReadingDeduplicator readingDeduplicator;
+
+    /**
+     * 最多暂存的读数条数
+     */
+    @Value("${ingest.dead-letter.capacity:200000}")
+    private long capacity;
+
+    /**
+     * 每批读数最多重试的轮数，超过后放弃
+     */
+    @Value("${ingest.dead-letter.max-attempts:10}")
+    private int maxAttempts;
+
+    private final ConcurrentLinkedQueue<Entry> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicLong pending = new AtomicLong();
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong recovered = new AtomicLong();
+    private final AtomicLong abandoned = new AtomicLong();
+    private final AtomicLong overflowed = new AtomicLong();
+
+    /**
+     * 接收写库失败的读数
+     */
+    public void add(List<EnergyData> readings) {
+        if (readings.isEmpty()) {
+            return;
+        }
+        received.addAndGet(readings.size());
+        enqueue(new Entry(new ArrayList<>(readings), 0));
+    }
+
+    /**
+     * 定时重试：整批重新写入，失败的部分重新入队
+     */
+    @Scheduled(fixedDelayString = "${ingest.dead-letter.retry-interval:5000}")
+    public void retry() {
+        // 只处理本轮开始时已在队列中的批次，本轮重新入队的留到下一轮
+        int batches = queue.size();
+        for (int i = 0; i < batches; i++) {
+            Entry entry = queue.poll();
+            if (entry == null) {
+                return;
+            }
+            pending.addAndGet(-entry.readings().size());
+            List<EnergyData> failed = new ArrayList<>();
+            int written = energyDataBatchWriter.writeAll(entry.readings(), EnergyDataBatchWriter.ENERGY_DATA_TABLE, failed);
+            recovered.addAndGet(written);
+            if (failed.isEmpty()) {
+                continue;
+            }
+            int attempts = entry.attempts() + 1;
+            if (attempts >= maxAttempts) {
+                abandoned.addAndGet(failed.size());
+                readingDeduplicator.forget(failed);
+                log.error("死信读数重试 {} 次仍写入失败，放弃 {} 条", attempts, failed.size());
+            } else {
+                enqueue(new Entry(failed, attempts));
+            }
+        }
+    }
+
+    /**
+     * 停止前最后重试一次（接入流水线先于本队列停止），仍未写入的读数记录日志
+     */
+    @PreDestroy
+    public void shutdown() {
+        retry();
+        if (pending.get() > 0) {
+            log.error("停止时死信队列中仍有 {} 条读数未写入", pending.get());
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        if (pending.get() + entry.readings().size() > capacity) {
+            overflowed.addAndGet(entry.readings().size());
+            readingDeduplicator.forget(entry.readings());
+            log.error("死信队列已满（{} 条），丢弃 {} 条读数", pending.get(), entry.readings().size());
+            return;
+        }
+        pending.addAndGet(entry.readings().size());
+        queue.add(entry);
+    }
+
+    /**
+     * 获取死信统计：接收、重试写入成功、放弃、因队列满丢弃的条数及待重试条数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", capacity);
+        stats.put("maxAttempts", maxAttempts);
+        stats.put("pending", pending.get());
+        stats.put("received", received.get());
+        stats.put("recovered", recovered.get());
+        stats.put("abandoned", abandoned.get());
+        stats.put("overflowed", overflowed.get());
+        return stats;
+    }
+
+    /**
+     * 待重试的一批读数及已重试轮数
+     */
+    private record Entry(List<EnergyData> readings, int attempts) {
+    }
+}
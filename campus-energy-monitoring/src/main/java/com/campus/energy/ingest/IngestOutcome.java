@@ -0,0 +1,11 @@
+package com.campus.energy.ingest;
+
+/**
+ * 一批读数的接入结果
+ *
+ * @param accepted   进入流水线的条数
+ * @param duplicates 因 (设备, 采集时间) 重复被丢弃的条数
+ * @param shed       因过载被降采样或丢弃的条数
+ */
+public record IngestOutcome(int accepted, int duplicates, int shed) {
+}
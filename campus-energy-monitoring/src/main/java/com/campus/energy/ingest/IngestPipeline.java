@@ -0,0 +1,376 @@
+package com.campus.energy.ingest;
+
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.enums.AdmissionPolicy;
+import com.campus.energy.repository.EnergyDataBatchWriter;
+import com.campus.energy.service.AlertService;
+import com.campus.energy.service.EnergyRollupService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 读数接入流水线
+ *
+ * 说明：
+ * 原先读数生成、写库、告警检查与观察者通知都在调度线程中同步执行，
+ * 数据库变慢时整个模拟器随之停顿。
+ * 现在读数发布到预分配的环形缓冲区后立即返回，由四个独立的消费阶段处理：
+ * - persistence：写库压缩（ReadingCompressor，可选）后批量写库（EnergyDataBatchWriter，每块独立短事务），
+ *   写入失败的块有限次退避重试，仍失败的交给死信队列（DeadLetterQueue）定时重试，不丢弃
+ * - alert：告警检查（策略模式 + 观察者模式）
+ * - live-state：更新设备实时状态与实时计数器（LiveCampusCounters），只计入实际进入流水线的读数
+ * - rollup：合并到多粒度汇总表（EnergyRollupService），处理全部读数，不受写库压缩影响
+ *
+ * 各阶段互不等待，某一阶段变慢只会增大该阶段的积压(lag)。
+ *
+ * 压测虚拟电表的读数同样经过本流水线，写入压测表且只做告警判断计数（见 LoadTestSink）。
+ *
+ * 背压：
+ * 读数先进入有界的准入缓冲区（AdmissionBuffer），由发布线程转入环形缓冲区。
+ * 环形缓冲区写满后积压停留在准入缓冲区，按 ingest.admission.policy
+ * （BLOCK / DROP_OLDEST / DOWNSAMPLE）处理，内存占用始终有上限。
+ * 被丢弃的读数移出去重窗口（ReadingDeduplicator），网关重发时可以重新接收。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IngestPipeline {
+
+    /**
+     * 停止时等待各阶段处理完积压读数的最长时间（毫秒）
+     */
+    private static final long DRAIN_TIMEOUT_MILLIS = 10_000;
+
+    /**
+     * 阶段名称
+     */
+    public static final String PERSISTENCE_STAGE = "persistence";
+    public static final String ALERT_STAGE = "alert";
+    public static final String LIVE_STATE_STAGE = "live-state";
+    public static final String ROLLUP_STAGE = "rollup";
+
+    private final EnergyDataBatchWriter energyDataBatchWriter;
+    private final AlertService alertService;
+    private final LiveReadingState liveReadingState;
+    private final ReadingCompressor readingCompressor;
+    private final EnergyRollupService energyRollupService;
+    private final DeadLetterQueue deadLetterQueue;
+    private final ReadingDeduplicator readingDeduplicator;
+    private final LiveCampusCounters liveCampusCounters;
+
+    /**
+     * 环形缓冲区容量（向上取整为2的幂）
+     */
+    @Value("${ingest.ring.size:65536}")
+    private int ringSize;
+
+    /**
+     * 各阶段单批最多处理的读数条数
+     */
+    @Value("${ingest.ring.max-batch:2000}")
+    private int maxBatch;
+
+    /**
+     * 准入缓冲区容量（读数条数）
+     */
+    @Value("${ingest.admission.capacity:100000}")
+    private int admissionCapacity;
+
+    /**
+     * 过载处理策略
+     */
+    @Value("${ingest.admission.policy:BLOCK}")
+    private AdmissionPolicy admissionPolicy;
+
+    /**
+     * 降采样窗口（秒），DOWNSAMPLE 策略下每台设备每个窗口只保留一条读数
+     */
+    @Value("${ingest.admission.downsample-window-seconds:60}")
+    private long downsampleWindowSeconds;
+
+    /**
+     * 过载高水位：填充率超过该值进入过载
+     */
+    @Value("${ingest.admission.high-watermark:0.8}")
+    private double highWatermark;
+
+    /**
+     * 过载低水位：填充率低于该值解除过载
+     */
+    @Value("${ingest.admission.low-watermark:0.5}")
+    private double lowWatermark;
+
+    /**
+     * 写库失败的块在写库阶段内的重试次数（之后交给死信队列）
+     */
+    @Value("${ingest.persist.retry-attempts:3}")
+    private int persistRetryAttempts;
+
+    /**
+     * 首次重试前的等待时间（毫秒），之后每次翻倍
+     */
+    @Value("${ingest.persist.retry-backoff-millis:200}")
+    private long persistRetryBackoffMillis;
+
+    private ReadingRingBuffer ringBuffer;
+    private AdmissionBuffer admissionBuffer;
+    private List<PipelineStage> stages;
+    private Thread publisherThread;
+    private volatile LoadTestSink loadTestSink;
+
+    @PostConstruct
+    public void init() {
+        ringBuffer = new ReadingRingBuffer(ringSize);
+        stages = List.of(
+                new PipelineStage(PERSISTENCE_STAGE, ringBuffer, maxBatch, this::persist, deadLetterQueue::add),
+                new PipelineStage(ALERT_STAGE, ringBuffer, maxBatch, this::checkAlerts),
+                new PipelineStage(LIVE_STATE_STAGE, ringBuffer, maxBatch, this::updateLiveState),
+                new PipelineStage(ROLLUP_STAGE, ringBuffer, maxBatch, this::accumulateRollups));
+        stages.forEach(PipelineStage::start);
+
+        admissionBuffer = new AdmissionBuffer(admissionCapacity, admissionPolicy, downsampleWindowSeconds,
+                highWatermark, lowWatermark, ringBuffer::getBacklog, ringBuffer.getCapacity());
+        publisherThread = new Thread(this::publishLoop, "ingest-publisher");
+        publisherThread.setDaemon(true);
+        publisherThread.start();
+
+        log.info("接入流水线已启动，环形缓冲区容量: {}，准入缓冲区容量: {}，过载策略: {}，阶段: {}",
+                ringBuffer.getCapacity(), admissionCapacity, admissionPolicy,
+                stages.stream().map(PipelineStage::getName).toList());
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        log.info("接入流水线停止中，积压读数: {}", ringBuffer.getBacklog());
+        admissionBuffer.close();
+        publisherThread.join(DRAIN_TIMEOUT_MILLIS);
+        for (PipelineStage stage : stages) {
+            stage.stop(DRAIN_TIMEOUT_MILLIS);
+        }
+        writeWithRetry(readingCompressor.flushAll());
+    }
+
+    /**
+     * 提交一批读数到准入缓冲区，按过载策略处理
+     *
+     * @return 被接收的条数
+     */
+    public int publish(List<EnergyData> readings) {
+        if (readings.isEmpty()) {
+            return 0;
+        }
+        List<EnergyData> shed = new ArrayList<>();
+        int accepted = admissionBuffer.offer(readings, shed);
+        if (!shed.isEmpty()) {
+            readingDeduplicator.forget(shed);
+        }
+        return accepted;
+    }
+
+    /**
+     * 注册压测读数的接收端
+     */
+    public void setLoadTestSink(LoadTestSink loadTestSink) {
+        this.loadTestSink = loadTestSink;
+    }
+
+    /**
+     * 是否处于过载状态（生产者可据此主动降速）
+     */
+    public boolean isOverloaded() {
+        return admissionBuffer.isOverloaded();
+    }
+
+    /**
+     * 指定阶段当前的积压条数
+     */
+    public long getStageLag(String stageName) {
+        return stage(stageName).getLag();
+    }
+
+    /**
+     * 指定阶段累计处理的读数条数
+     */
+    public long getStageProcessed(String stageName) {
+        return stage(stageName).getProcessed();
+    }
+
+    private PipelineStage stage(String stageName) {
+        return stages.stream()
+                .filter(stage -> stage.getName().equals(stageName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("未知的流水线阶段: " + stageName));
+    }
+
+    /**
+     * 发布线程：从准入缓冲区取出读数写入环形缓冲区
+     */
+    private void publishLoop() {
+        List<EnergyData> batch = new ArrayList<>(maxBatch);
+        while (true) {
+            try {
+                if (admissionBuffer.drainTo(batch, maxBatch) < 0) {
+                    return;
+                }
+                ringBuffer.publish(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("接入流水线发布失败 {} 条: {}", batch.size(), e.getMessage(), e);
+            }
+            batch = new ArrayList<>(maxBatch);
+        }
+    }
+
+    /**
+     * 写库阶段：压缩后批量写库；压测虚拟电表的读数写入压测表
+     */
+    private void persist(List<EnergyData> batch) {
+        List<EnergyData> virtual = new ArrayList<>();
+        List<EnergyData> real = new ArrayList<>(batch.size());
+        for (EnergyData data : batch) {
+            (LoadTestSink.isVirtual(data) ? virtual : real).add(data);
+        }
+        if (!virtual.isEmpty()) {
+            persistLoadTest(virtual);
+        }
+        if (!real.isEmpty()) {
+            writeWithRetry(readingCompressor.compress(real));
+        }
+    }
+
+    /**
+     * 压测读数写入压测表，结果回调给压测接收端（失败只计数，不重试）
+     *
+     * 写库阶段与迟到数据路径（压测的迟到读数）调用
+     */
+    public void persistLoadTest(List<EnergyData> readings) {
+        List<EnergyData> failed = new ArrayList<>();
+        int written = energyDataBatchWriter.writeAll(readings, EnergyDataBatchWriter.LOAD_TEST_TABLE, failed);
+        LoadTestSink sink = loadTestSink;
+        if (sink != null) {
+            sink.onPersisted(readings, written, failed.size());
+        }
+    }
+
+    /**
+     * 批量写库，失败的块退避重试 retry-attempts 次，仍失败的交给死信队列
+     *
+     * 重试期间写库阶段不推进序号，积压由环形缓冲区和准入缓冲区承接（形成背压）
+     */
+    private void writeWithRetry(List<EnergyData> readings) {
+        List<EnergyData> failed = new ArrayList<>();
+        energyDataBatchWriter.writeAll(readings, EnergyDataBatchWriter.ENERGY_DATA_TABLE, failed);
+        long backoff = persistRetryBackoffMillis;
+        for (int attempt = 1; attempt <= persistRetryAttempts && !failed.isEmpty(); attempt++) {
+            log.warn("写库失败 {} 条，{} ms 后第 {} 次重试", failed.size(), backoff, attempt);
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            backoff *= 2;
+            List<EnergyData> retry = failed;
+            failed = new ArrayList<>();
+            energyDataBatchWriter.writeAll(retry, EnergyDataBatchWriter.ENERGY_DATA_TABLE, failed);
+        }
+        if (!failed.isEmpty()) {
+            deadLetterQueue.add(failed);
+        }
+    }
+
+    /**
+     * 补写压缩暂存超时的读数（设备停止上报时），不经过告警阶段
+     */
+    public void flushCompression() {
+        List<EnergyData> held = readingCompressor.flushStale();
+        if (!held.isEmpty()) {
+            writeWithRetry(held);
+        }
+    }
+
+    /**
+     * 实时状态阶段：更新设备实时状态并计入实时计数器
+     */
+    private void updateLiveState(List<EnergyData> batch) {
+        List<EnergyData> real = withoutVirtual(batch);
+        real.forEach(liveReadingState::update);
+        liveCampusCounters.accumulate(real);
+    }
+
+    /**
+     * 汇总阶段：合并到多粒度汇总表（压测读数不计入）
+     */
+    private void accumulateRollups(List<EnergyData> batch) {
+        energyRollupService.accumulate(withoutVirtual(batch));
+    }
+
+    private static List<EnergyData> withoutVirtual(List<EnergyData> batch) {
+        List<EnergyData> real = new ArrayList<>(batch.size());
+        for (EnergyData data : batch) {
+            if (!LoadTestSink.isVirtual(data)) {
+                real.add(data);
+            }
+        }
+        return real;
+    }
+
+    /**
+     * 告警阶段：逐条执行告警检查
+     */
+    private void checkAlerts(List<EnergyData> batch) {
+        // ============================================
+        // 设计模式：Strategy Pattern（策略模式）
+        // 调用AlertService检查告警，内部使用策略模式判断
+        // ============================================
+        int virtualChecked = 0;
+        int virtualTriggered = 0;
+        for (EnergyData energyData : batch) {
+            try {
+                if (LoadTestSink.isVirtual(energyData)) {
+                    // 虚拟电表没有设备记录：只执行策略判断并计数
+                    virtualChecked++;
+                    virtualTriggered += alertService.countTriggeredAlerts(energyData.getDevice(), energyData);
+                } else {
+                    alertService.checkAndTriggerAlerts(energyData.getDevice(), energyData);
+                }
+            } catch (Exception e) {
+                log.error("设备[{}]告警检查失败: {}", energyData.getDevice().getSerialNumber(), e.getMessage(), e);
+            }
+        }
+        LoadTestSink sink = loadTestSink;
+        if (sink != null && virtualChecked > 0) {
+            sink.onAlertsChecked(virtualChecked, virtualTriggered);
+        }
+    }
+
+    /**
+     * 获取流水线统计：准入缓冲区、环形缓冲区容量、已发布序号、积压、生产者等待时间及各阶段统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("admission", admissionBuffer.getStats());
+        stats.put("capacity", ringBuffer.getCapacity());
+        stats.put("published", ringBuffer.getCursor() + 1);
+        stats.put("backlog", ringBuffer.getBacklog());
+        stats.put("producerWaitMillis", ringBuffer.getProducerWaitMillis());
+        Map<String, Object> stageStats = new LinkedHashMap<>();
+        stages.forEach(stage -> stageStats.put(stage.getName(), stage.getStats()));
+        stats.put("stages", stageStats);
+        stats.put("compression", readingCompressor.getStats());
+        stats.put("deadLetter", deadLetterQueue.getStats());
+        stats.put("rollup", energyRollupService.getStats());
+        return stats;
+    }
+}
@@ -0,0 +1,124 @@
+package com.campus.energy.ingest;
+
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.repository.EnergyDataBatchWriter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 迟到数据处理路径
+ *
+ * 说明：
+ * 超出乱序窗口才到达的读数不再进入接入流水线：
+ * 告警策略按时间顺序评估，迟到数据既不应触发告警，也不应影响电表寄存器。
+ * 这些读数直接批量写库（INSERT IGNORE，重复的由唯一键忽略），
+ * 同时按设备记录受影响的采集时间范围（脏区间），供汇总数据的修复任务重新计算。
+ * 写入失败的读数交给死信队列重试。压测虚拟电表的迟到读数直接写入压测表，不登记脏区间。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LateDataPath {
+
+    private final EnergyDataBatchWriter energyDataBatchWriter;
+    private final DeadLetterQueue deadLetterQueue;
+    private final IngestPipeline ingestPipeline;
+
+    private final ConcurrentLinkedQueue<EnergyData> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * 设备ID -> 脏区间 [最早采集时间, 最晚采集时间]（epoch秒）
+     */
+    private final Map<Long, long[]> dirtyRanges = new ConcurrentHashMap<>();
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * 接收迟到读数并登记脏区间
+     */
+    public void accept(List<EnergyData> lateReadings) {
+        List<EnergyData> virtual = new ArrayList<>();
+        for (EnergyData data : lateReadings) {
+            if (LoadTestSink.isVirtual(data)) {
+                virtual.add(data);
+                continue;
+            }
+            // 先入暂存队列再登记脏区间：修复任务取走脏区间后再写库，对应读数一定已在队列中
+            pending.add(data);
+            long second = data.getCollectTime().toEpochSecond(ZoneOffset.UTC);
+            dirtyRanges.merge(data.getDevice().getId(), new long[]{second, second},
+                    (range, single) -> new long[]{Math.min(range[0], second), Math.max(range[1], second)});
+        }
+        received.addAndGet(lateReadings.size());
+        if (!virtual.isEmpty()) {
+            ingestPipeline.persistLoadTest(virtual);
+        }
+    }
+
+    /**
+     * 将暂存的迟到读数批量写库
+     */
+    public void flush() {
+        List<EnergyData> batch = new ArrayList<>();
+        EnergyData data;
+        while ((data = pending.poll()) != null) {
+            batch.add(data);
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<EnergyData> failedReadings = new ArrayList<>();
+        written.addAndGet(energyDataBatchWriter.writeAll(batch, EnergyDataBatchWriter.ENERGY_DATA_TABLE, failedReadings));
+        if (failedReadings.isEmpty()) {
+            log.info("迟到读数已写入 {} 条", batch.size());
+        } else {
+            failed.addAndGet(failedReadings.size());
+            log.error("迟到读数写入失败 {} 条，交给死信队列重试", failedReadings.size());
+            deadLetterQueue.add(failedReadings);
+        }
+    }
+
+    /**
+     * 取出并清空所有脏区间，供汇总修复任务使用
+     *
+     * @return 设备ID -> [起始时间, 结束时间]
+     */
+    public Map<Long, LocalDateTime[]> drainDirtyRanges() {
+        Map<Long, LocalDateTime[]> drained = new LinkedHashMap<>();
+        for (Long deviceId : dirtyRanges.keySet()) {
+            long[] range = dirtyRanges.remove(deviceId);
+            if (range != null) {
+                drained.put(deviceId, new LocalDateTime[]{
+                        LocalDateTime.ofEpochSecond(range[0], 0, ZoneOffset.UTC),
+                        LocalDateTime.ofEpochSecond(range[1], 0, ZoneOffset.UTC)});
+            }
+        }
+        return drained;
+    }
+
+    /**
+     * 获取迟到数据统计：接收、写入、失败条数，待写入条数及待修复的设备数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("received", received.get());
+        stats.put("written", written.get());
+        stats.put("failed", failed.get());
+        stats.put("pending", pending.size());
+        stats.put("dirtyDevices", dirtyRanges.size());
+        return stats;
+    }
+}
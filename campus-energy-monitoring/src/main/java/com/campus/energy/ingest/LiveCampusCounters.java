@@ -0,0 +1,646 @@
+package com.campus.energy.ingest;
+
+import com.campus.energy.dto.StatisticsDTO;
+import com.campus.energy.entity.Building;
+import com.campus.energy.entity.Device;
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.enums.AlertType;
+import com.campus.energy.enums.ChangeType;
+import com.campus.energy.enums.DeviceStatus;
+import com.campus.energy.event.AlertCreatedEvent;
+import com.campus.energy.event.AlertResolvedEvent;
+import com.campus.energy.event.BuildingChangedEvent;
+import com.campus.energy.event.DeviceChangedEvent;
+import com.campus.energy.event.DeviceStatusChangedEvent;
+import com.campus.energy.repository.AlertRepository;
+import com.campus.energy.repository.BuildingRepository;
+import com.campus.energy.repository.DeviceRepository;
+import com.campus.energy.repository.EnergyDataRepository;
+import com.campus.energy.service.EnergyRollupService;
+import com.campus.energy.storage.EnergyChunkStore;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 校园实时计数器（今日/本月用电量、设备状态、告警数量）
+ *
+ * 说明：
+ * 看板每10秒轮询一次概览，原先每次都从数据库重新统计今日与本月的用电量。
+ * 本组件在内存中维护每台设备当天与当月的最小/最大累计用电量，每接入一批读数即增量更新
+ * 设备、建筑与全校的用电量（用电量 = 最大值 - 最小值，与汇总表的统计口径一致）。
+ * 最小/最大值与读数到达顺序无关，乱序、迟到与回填的读数都可以直接合并。
+ *
+ * - 周期切换：零点清空当天计数，每月1日零点同时清空当月计数；
+ *   定时任务之外，读写时也会检查日期，读数日期晚于当前周期时立即切换
+ * - 设备状态、建筑与告警数量由领域事件（com.campus.energy.event）增量维护，在事务提交后处理，
+ *   先于概览统计缓存的失效处理
+ * - 启动时重建：用电量来自汇总表（未开启汇总时来自读数块或原始读数的分组查询），
+ *   按最小/最大值与重建期间接入的读数合并，不会互相覆盖
+ *
+ * 读取概览只遍历建筑，不访问数据库。
+ *
+ * 并发：各接入来源的每次提交都会调用 accumulate，不能在一把全局锁上排队。
+ * - 设备计数器放在 ConcurrentHashMap 中，最小/最大值的合并只锁单台设备的计数器
+ * - 建筑与全校的用电量、设备状态数、告警数使用 DoubleAdder / LongAdder / AtomicLong，无需加锁
+ * - 读写锁的读锁由接入、状态与告警事件、读取概览共享；
+ *   写锁只在周期切换、重建及设备/建筑的增删改（改变建筑归属与设备数）时获取，
+ *   保证这些操作看到并产生一致的整体状态
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LiveCampusCounters {
+
+    private final BuildingRepository buildingRepository;
+    private final DeviceRepository deviceRepository;
+    private final AlertRepository alertRepository;
+    private final EnergyDataRepository energyDataRepository;
+    private final EnergyRollupService energyRollupService;
+    private final EnergyChunkStore energyChunkStore;
+
+    @Value("${energy.live-counters.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 当前周期（当天），所在月份即当月周期
+     */
+    private volatile LocalDate day;
+
+    /**
+     * 读锁：接入与增量事件共享；写锁：周期切换、重建与建筑归属变化独占
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<Long, DeviceCounter> devices = new ConcurrentHashMap<>();
+    /**
+     * 只在写锁内增删，读锁内只读
+     */
+    private final Map<Long, BuildingCounter> buildings = new TreeMap<>();
+    private final Map<DeviceStatus, LongAdder> statusCounts = adders(DeviceStatus.class);
+    private final Map<AlertType, LongAdder> alertTypeCounts = adders(AlertType.class);
+    private final LongAdder todayAlertCount = new LongAdder();
+    private final AtomicLong unresolvedAlertCount = new AtomicLong();
+    private final DoubleAdder todayEnergy = new DoubleAdder();
+    private final DoubleAdder monthEnergy = new DoubleAdder();
+
+    private volatile boolean ready;
+    private volatile LocalDateTime rebuiltAt;
+    private volatile long rebuildMillis;
+
+    private final AtomicLong readings = new AtomicLong();
+    private final AtomicLong ignoredReadings = new AtomicLong();
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong rollovers = new AtomicLong();
+
+    /**
+     * 是否可以直接提供概览（已启用且启动重建成功）
+     */
+    public boolean isReady() {
+        return enabled && ready;
+    }
+
+    @PostConstruct
+    public void init() {
+        if (!enabled) {
+            log.info("实时计数器未启用（energy.live-counters.enabled=false），概览统计将查询数据库");
+            return;
+        }
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("实时计数器重建失败，概览统计将查询数据库: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 从数据库重建计数器：建筑、设备状态与告警数量整体替换，用电量按最小/最大值合并
+     */
+    public void rebuild() {
+        long started = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate today = now.toLocalDate();
+        LocalDateTime startOfDay = today.atStartOfDay();
+        LocalDateTime startOfMonth = today.withDayOfMonth(1).atStartOfDay();
+
+        List<Building> buildingList = buildingRepository.findAll();
+        List<Object[]> deviceRows = deviceRepository.findAllDeviceSummaries();
+        long todayAlerts = alertRepository.countTodayAlerts(startOfDay);
+        long unresolvedAlerts = alertRepository.countByIsResolvedFalse();
+        List<Object[]> alertTypeRows = alertRepository.countByAlertType();
+        Map<Long, double[]> dayRanges = getEnergyRangeByDevice(startOfDay, now);
+        Map<Long, double[]> monthRanges = getEnergyRangeByDevice(startOfMonth, now);
+
+        lock.writeLock().lock();
+        try {
+            rollIfNeeded(today);
+            buildings.clear();
+            for (Building building : buildingList) {
+                buildings.put(building.getId(), new BuildingCounter(building.getName()));
+            }
+            // 保留重建期间已接入读数的用电量范围，只替换设备的所属建筑与状态
+            Map<Long, DeviceCounter> previous = new HashMap<>(devices);
+            devices.clear();
+            for (Object[] row : deviceRows) {
+                DeviceCounter counter = previous.getOrDefault((Long) row[0], new DeviceCounter());
+                counter.buildingId = (Long) row[1];
+                counter.status = (DeviceStatus) row[2];
+                counter.registered = true;
+                devices.put((Long) row[0], counter);
+            }
+            // 跨过零点的重建不合并前一天的数据
+            if (today.equals(day)) {
+                dayRanges.forEach((deviceId, range) -> {
+                    DeviceCounter counter = devices.get(deviceId);
+                    if (counter != null) {
+                        merge(counter.day, range[0], range[1]);
+                    }
+                });
+                monthRanges.forEach((deviceId, range) -> {
+                    DeviceCounter counter = devices.get(deviceId);
+                    if (counter != null) {
+                        merge(counter.month, range[0], range[1]);
+                    }
+                });
+                todayAlertCount.reset();
+                todayAlertCount.add(todayAlerts);
+            }
+            unresolvedAlertCount.set(unresolvedAlerts);
+            alertTypeCounts.values().forEach(LongAdder::reset);
+            for (Object[] row : alertTypeRows) {
+                alertTypeCounts.get((AlertType) row[0]).add((Long) row[1]);
+            }
+            recomputeTotals();
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        rebuiltAt = LocalDateTime.now();
+        rebuildMillis = System.currentTimeMillis() - started;
+        log.info("实时计数器重建完成：{} 个建筑，{} 台设备，耗时 {} ms",
+                buildingList.size(), deviceRows.size(), rebuildMillis);
+    }
+
+    /**
+     * 合并一批读数（在接入流水线的实时状态阶段调用；历史回填写入后调用）
+     *
+     * 只持有读锁，多个接入线程并行合并；同一台设备的合并由该设备计数器的锁串行化。
+     */
+    public void accumulate(List<EnergyData> batch) {
+        if (!enabled || batch.isEmpty()) {
+            return;
+        }
+        // 读数日期晚于当前周期时先在写锁内切换，读锁内的日期不会再变化
+        LocalDate latest = LocalDate.now();
+        for (EnergyData data : batch) {
+            if (data.getCollectTime() != null && data.getCollectTime().toLocalDate().isAfter(latest)) {
+                latest = data.getCollectTime().toLocalDate();
+            }
+        }
+        advanceTo(latest);
+
+        int ignored = 0;
+        lock.readLock().lock();
+        try {
+            LocalDate current = day;
+            for (EnergyData data : batch) {
+                if (data.getTotalEnergy() == null || data.getCollectTime() == null) {
+                    ignored++;
+                    continue;
+                }
+                LocalDate date = data.getCollectTime().toLocalDate();
+                if (!YearMonth.from(date).equals(YearMonth.from(current))) {
+                    ignored++;
+                    continue;
+                }
+                DeviceCounter counter = devices.computeIfAbsent(data.getDevice().getId(),
+                        id -> unregisteredDevice(data.getDevice()));
+                double total = data.getTotalEnergy();
+                double monthDelta;
+                double dayDelta;
+                Long buildingId;
+                synchronized (counter) {
+                    monthDelta = merge(counter.month, total, total);
+                    dayDelta = date.equals(current) ? merge(counter.day, total, total) : 0.0;
+                    buildingId = counter.buildingId;
+                }
+                addEnergy(buildingId, dayDelta, monthDelta);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        readings.addAndGet(batch.size() - ignored);
+        ignoredReadings.addAndGet(ignored);
+    }
+
+    /**
+     * 零点切换周期（读写时也会检查日期，定时任务保证无读数时同样切换）
+     */
+    @Scheduled(cron = "${energy.live-counters.rollover-cron:0 0 0 * * ?}")
+    public void rolloverIfNeeded() {
+        if (enabled && day != null) {
+            advanceTo(LocalDate.now());
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        events.incrementAndGet();
+        lock.writeLock().lock();
+        try {
+            DeviceCounter counter = devices.get(event.deviceId());
+            if (event.type() == ChangeType.DELETED) {
+                if (counter != null) {
+                    devices.remove(event.deviceId());
+                    unregister(counter);
+                    addEnergy(counter.buildingId, -span(counter.day), -span(counter.month));
+                }
+                return;
+            }
+            if (counter == null) {
+                counter = new DeviceCounter();
+                devices.put(event.deviceId(), counter);
+            }
+            unregister(counter);
+            if (counter.buildingId != null && !counter.buildingId.equals(event.buildingId())) {
+                // 设备更换建筑：用电量随设备移动，全校合计不变
+                addBuildingEnergy(counter.buildingId, -span(counter.day), -span(counter.month));
+                addBuildingEnergy(event.buildingId(), span(counter.day), span(counter.month));
+            }
+            counter.buildingId = event.buildingId();
+            counter.status = event.status();
+            register(counter);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceStatusChanged(DeviceStatusChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        events.incrementAndGet();
+        lock.readLock().lock();
+        try {
+            DeviceCounter counter = devices.get(event.deviceId());
+            if (counter == null) {
+                return;
+            }
+            synchronized (counter) {
+                if (!counter.registered || counter.status == event.status()) {
+                    return;
+                }
+                if (counter.status != null) {
+                    statusCounts.get(counter.status).decrement();
+                }
+                statusCounts.get(event.status()).increment();
+                counter.status = event.status();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBuildingChanged(BuildingChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        events.incrementAndGet();
+        lock.writeLock().lock();
+        try {
+            if (event.type() == ChangeType.DELETED) {
+                buildings.remove(event.buildingId());
+            } else {
+                buildings.computeIfAbsent(event.buildingId(), id -> new BuildingCounter(event.name())).name = event.name();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlertCreated(AlertCreatedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        events.incrementAndGet();
+        // 读锁保证今日告警数的判断与累加不会与周期切换的清零交错
+        lock.readLock().lock();
+        try {
+            if (day != null && event.triggerTime().toLocalDate().equals(day)) {
+                todayAlertCount.increment();
+            }
+            unresolvedAlertCount.incrementAndGet();
+            alertTypeCounts.get(event.alertType()).increment();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlertResolved(AlertResolvedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        events.incrementAndGet();
+        unresolvedAlertCount.updateAndGet(count -> Math.max(0, count - 1));
+    }
+
+    /**
+     * 当前的概览统计（只遍历建筑，不访问数据库）
+     */
+    public StatisticsDTO getOverview() {
+        advanceTo(LocalDate.now());
+        lock.readLock().lock();
+        try {
+            List<StatisticsDTO.BuildingEnergyStats> buildingStats = new ArrayList<>(buildings.size());
+            buildings.forEach((buildingId, building) -> buildingStats.add(StatisticsDTO.BuildingEnergyStats.builder()
+                    .buildingId(buildingId)
+                    .buildingName(building.name)
+                    .deviceCount(building.deviceCount)
+                    .totalEnergy(Math.round(building.monthEnergy.sum() * 100.0) / 100.0)
+                    .build()));
+            Map<String, Long> alertTypeStats = new HashMap<>();
+            alertTypeCounts.forEach((type, count) -> {
+                if (count.sum() > 0) {
+                    alertTypeStats.put(type.getLabel(), count.sum());
+                }
+            });
+            return StatisticsDTO.builder()
+                    .buildingCount((long) buildings.size())
+                    .deviceCount(statusCounts.values().stream().mapToLong(LongAdder::sum).sum())
+                    .onlineDeviceCount(statusCounts.get(DeviceStatus.ONLINE).sum())
+                    .offlineDeviceCount(statusCounts.get(DeviceStatus.OFFLINE).sum())
+                    .todayAlertCount(todayAlertCount.sum())
+                    .unresolvedAlertCount(unresolvedAlertCount.get())
+                    .todayTotalEnergy(Math.round(Math.max(0.0, todayEnergy.sum()) * 1000.0) / 1000.0)
+                    .monthTotalEnergy(Math.round(Math.max(0.0, monthEnergy.sum()) * 1000.0) / 1000.0)
+                    .buildingEnergyStats(buildingStats)
+                    .alertTypeStats(alertTypeStats)
+                    .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 实时计数器统计
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ready", ready);
+        stats.put("day", day);
+        lock.readLock().lock();
+        try {
+            stats.put("buildings", buildings.size());
+        } finally {
+            lock.readLock().unlock();
+        }
+        stats.put("devices", devices.size());
+        stats.put("readings", readings.get());
+        stats.put("ignoredReadings", ignoredReadings.get());
+        stats.put("events", events.get());
+        stats.put("rollovers", rollovers.get());
+        stats.put("rebuiltAt", rebuiltAt);
+        stats.put("rebuildMillis", rebuildMillis);
+        return stats;
+    }
+
+    /**
+     * 按设备查询 [from, to] 内的累计用电量范围（与概览统计使用相同的数据来源）
+     */
+    private Map<Long, double[]> getEnergyRangeByDevice(LocalDateTime from, LocalDateTime to) {
+        if (energyRollupService.isEnabled()) {
+            return energyRollupService.getEnergyRangeByDevice(from, to);
+        }
+        if (energyChunkStore.isEnabled()) {
+            return energyChunkStore.getEnergyRangeByDevice(from, to);
+        }
+        Map<Long, double[]> result = new HashMap<>();
+        for (Object[] row : energyDataRepository.findEnergyRangePerDevice(from, to)) {
+            if (row[1] != null && row[2] != null) {
+                result.put((Long) row[0], new double[]{(Double) row[1], (Double) row[2]});
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 需要时在写锁内切换到 date 所在的周期（日期未变化时只读取一次 volatile 字段，不加锁）
+     */
+    private void advanceTo(LocalDate date) {
+        LocalDate current = day;
+        if (current != null && !date.isAfter(current)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            rollIfNeeded(date);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 调用方需持有写锁
+     */
+    private void rollIfNeeded(LocalDate today) {
+        if (day == null || today.isAfter(day)) {
+            rollover(today);
+        }
+    }
+
+    /**
+     * 切换到新的一天：清空当天计数；跨月时同时清空当月计数
+     */
+    private void rollover(LocalDate newDay) {
+        boolean newMonth = day == null || !YearMonth.from(day).equals(YearMonth.from(newDay));
+        for (DeviceCounter counter : devices.values()) {
+            reset(counter.day);
+            if (newMonth) {
+                reset(counter.month);
+            }
+        }
+        for (BuildingCounter building : buildings.values()) {
+            building.dayEnergy.reset();
+            if (newMonth) {
+                building.monthEnergy.reset();
+            }
+        }
+        todayEnergy.reset();
+        if (newMonth) {
+            monthEnergy.reset();
+        }
+        todayAlertCount.reset();
+        if (day != null) {
+            rollovers.incrementAndGet();
+            log.info("实时计数器切换周期: {} -> {}{}", day, newDay, newMonth ? "（新的月份）" : "");
+        }
+        day = newDay;
+    }
+
+    /**
+     * 由各设备的用电量范围重新计算建筑与全校的合计及各建筑设备数
+     */
+    private void recomputeTotals() {
+        todayEnergy.reset();
+        monthEnergy.reset();
+        statusCounts.values().forEach(LongAdder::reset);
+        for (BuildingCounter building : buildings.values()) {
+            building.deviceCount = 0;
+            building.dayEnergy.reset();
+            building.monthEnergy.reset();
+        }
+        for (DeviceCounter counter : devices.values()) {
+            if (counter.registered) {
+                counter.registered = false;
+                register(counter);
+            }
+            addEnergy(counter.buildingId, span(counter.day), span(counter.month));
+        }
+    }
+
+    private void register(DeviceCounter counter) {
+        if (counter.registered) {
+            return;
+        }
+        counter.registered = true;
+        if (counter.status != null) {
+            statusCounts.get(counter.status).increment();
+        }
+        BuildingCounter building = counter.buildingId != null ? buildings.get(counter.buildingId) : null;
+        if (building != null) {
+            building.deviceCount++;
+        }
+    }
+
+    private void unregister(DeviceCounter counter) {
+        if (!counter.registered) {
+            return;
+        }
+        counter.registered = false;
+        if (counter.status != null) {
+            statusCounts.get(counter.status).decrement();
+        }
+        BuildingCounter building = counter.buildingId != null ? buildings.get(counter.buildingId) : null;
+        if (building != null) {
+            building.deviceCount--;
+        }
+    }
+
+    private void addEnergy(Long buildingId, double dayDelta, double monthDelta) {
+        todayEnergy.add(dayDelta);
+        monthEnergy.add(monthDelta);
+        addBuildingEnergy(buildingId, dayDelta, monthDelta);
+    }
+
+    private void addBuildingEnergy(Long buildingId, double dayDelta, double monthDelta) {
+        BuildingCounter building = buildingId != null ? buildings.get(buildingId) : null;
+        if (building != null) {
+            building.dayEnergy.add(dayDelta);
+            building.monthEnergy.add(monthDelta);
+        }
+    }
+
+    /**
+     * 尚未通过事件或重建登记的设备（例如刚创建、事件尚未处理），只累计用电量，不计入设备数
+     */
+    private static DeviceCounter unregisteredDevice(Device device) {
+        DeviceCounter counter = new DeviceCounter();
+        counter.buildingId = device.getBuilding() != null ? device.getBuilding().getId() : null;
+        return counter;
+    }
+
+    /**
+     * 合并累计用电量范围
+     *
+     * @return 用电量的增量
+     */
+    private static double merge(double[] range, double min, double max) {
+        double before = span(range);
+        range[0] = Math.min(range[0], min);
+        range[1] = Math.max(range[1], max);
+        return span(range) - before;
+    }
+
+    private static double span(double[] range) {
+        return range[1] >= range[0] ? range[1] - range[0] : 0.0;
+    }
+
+    private static void reset(double[] range) {
+        range[0] = Double.POSITIVE_INFINITY;
+        range[1] = Double.NEGATIVE_INFINITY;
+    }
+
+    private static <E extends Enum<E>> Map<E, LongAdder> adders(Class<E> type) {
+        Map<E, LongAdder> map = new EnumMap<>(type);
+        for (E constant : type.getEnumConstants()) {
+            map.put(constant, new LongAdder());
+        }
+        return map;
+    }
+
+    private static double[] emptyRange() {
+        return new double[]{Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+    }
+
+    /**
+     * 单台设备的计数状态：当天与当月的 [最小, 最大] 累计用电量
+     * （读锁内由本对象的锁保护，写锁内可直接修改）
+     */
+    private static final class DeviceCounter {
+        private Long buildingId;
+        private DeviceStatus status;
+        private boolean registered;
+        private final double[] day = emptyRange();
+        private final double[] month = emptyRange();
+    }
+
+    /**
+     * 单个建筑的计数状态（名称与设备数只在写锁内修改，用电量可在读锁内并发累加）
+     */
+    private static final class BuildingCounter {
+        private String name;
+        private int deviceCount;
+        private final DoubleAdder dayEnergy = new DoubleAdder();
+        private final DoubleAdder monthEnergy = new DoubleAdder();
+
+        private BuildingCounter(String name) {
+            this.name = name;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.campus.energy.ingest;
+
+import com.campus.energy.entity.EnergyData;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 设备实时状态（每台设备最近一条读数）
+ *
+ * 由接入流水线的实时状态阶段更新，读取时不访问数据库。
+ * 乱序到达的旧读数不会覆盖较新的读数。
+ */
+@Component
+public class LiveReadingState {
+
+    /**
+     * 设备ID -> 最近一条读数
+     */
+    private final Map<Long, EnergyData> latestByDevice = new ConcurrentHashMap<>();
+
+    /**
+     * 用一条读数更新设备实时状态
+     */
+    public void update(EnergyData data) {
+        latestByDevice.merge(data.getDevice().getId(), data,
+                (current, incoming) -> incoming.getCollectTime().isBefore(current.getCollectTime()) ? current : incoming);
+    }
+
+    /**
+     * 获取设备最近一条读数
+     */
+    public Optional<EnergyData> getLatest(Long deviceId) {
+        return Optional.ofNullable(latestByDevice.get(deviceId));
+    }
+
+    /**
+     * 已有实时状态的设备数量
+     */
+    public int size() {
+        return latestByDevice.size();
+    }
+}
@@ -0,0 +1,57 @@
+package com.campus.energy.ingest;
+
+import com.campus.energy.entity.EnergyData;
+
+import java.util.List;
+
+/**
+ * 压测读数的接收端
+ *
+ * 说明：
+ * 压测的虚拟电表读数与真实读数走同一条接入路径（去重、重排、准入缓冲区、环形缓冲区），
+ * 吞吐、背压与延迟都反映真实流水线。虚拟电表没有设备记录，在各阶段的去向不同：
+ * - persistence：写入压测表 t_energy_data_load（不压缩、不进入死信队列）
+ * - alert：只执行告警策略判断并计数，不保存告警、不通知观察者
+ * - live-state / rollup：跳过，不影响实时状态、实时计数器与汇总表
+ * - 电表寄存器：不更新；去重窗口与重排状态在压测停止时释放（EnergyIngestService.releaseVirtualDeviceState）
+ *
+ * 写库与告警检查的结果回调给本接口（由 LoadGeneratorService 实现并注册到 IngestPipeline）。
+ */
+public interface LoadTestSink {
+
+    /**
+     * 虚拟电表与虚拟建筑的ID起始值，避免与真实设备ID混淆
+     */
+    long VIRTUAL_ID_BASE = 1_000_000_000L;
+
+    /**
+     * 是否为压测虚拟电表的读数
+     */
+    static boolean isVirtual(EnergyData data) {
+        return isVirtual(data.getDevice().getId());
+    }
+
+    /**
+     * 是否为压测虚拟电表的ID
+     */
+    static boolean isVirtual(Long deviceId) {
+        return deviceId >= VIRTUAL_ID_BASE;
+    }
+
+    /**
+     * 一批虚拟读数写入压测表后回调
+     *
+     * @param readings 本批读数
+     * @param written  写入成功的条数
+     * @param failed   写入失败的条数
+     */
+    void onPersisted(List<EnergyData> readings, int written, int failed);
+
+    /**
+     * 一批虚拟读数完成告警检查后回调
+     *
+     * @param checked   检查的读数条数
+     * @param triggered 触发的告警数
+     */
+    void onAlertsChecked(int checked, int triggered);
+}
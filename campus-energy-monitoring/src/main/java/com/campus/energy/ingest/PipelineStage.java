@@ -0,0 +1,160 @@
+package com.campus.energy.ingest;
+
+import com.campus.energy.entity.EnergyData;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * 流水线消费阶段
+ *
+ * 每个阶段一个线程，持有自己的序号，从环形缓冲区读取 (序号, cursor] 区间内
+ * 已发布的读数，一次最多 maxBatch 条，交给处理函数后再推进序号。
+ * 积压越多批次越大（自然批处理），空闲时短暂休眠。
+ *
+ * 处理函数抛出的异常只记录并计数，序号照常推进，避免单条坏数据阻塞整个流水线；
+ * 配置了失败处理函数的阶段（写库阶段）把处理失败的整批读数交给它（死信队列），不会丢弃。
+ */
+@Slf4j
+public class PipelineStage implements Runnable {
+
+    /**
+     * 无新数据时的休眠时间（纳秒）
+     */
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final String name;
+    private final ReadingRingBuffer ringBuffer;
+    private final Consumer<List<EnergyData>> handler;
+    private final Consumer<List<EnergyData>> failureHandler;
+    private final int maxBatch;
+
+    private final AtomicLong sequence = new AtomicLong(-1);
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+    private final AtomicLong totalHandleNanos = new AtomicLong();
+    private final AtomicLong lastHandleNanos = new AtomicLong();
+
+    private Thread thread;
+    private volatile boolean running;
+
+    public PipelineStage(String name, ReadingRingBuffer ringBuffer, int maxBatch,
+                         Consumer<List<EnergyData>> handler) {
+        this(name, ringBuffer, maxBatch, handler, null);
+    }
+
+    /**
+     * @param failureHandler 处理函数抛出异常时接收该批读数，为 null 时只记录错误
+     */
+    public PipelineStage(String name, ReadingRingBuffer ringBuffer, int maxBatch,
+                         Consumer<List<EnergyData>> handler, Consumer<List<EnergyData>> failureHandler) {
+        this.name = name;
+        this.ringBuffer = ringBuffer;
+        this.maxBatch = maxBatch;
+        this.handler = handler;
+        this.failureHandler = failureHandler;
+        ringBuffer.addGatingSequence(sequence);
+    }
+
+    public void start() {
+        running = true;
+        thread = new Thread(this, "ingest-" + name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 停止阶段：先处理完已发布的读数，最多等待 timeoutMillis
+     */
+    public void stop(long timeoutMillis) throws InterruptedException {
+        running = false;
+        thread.join(timeoutMillis);
+    }
+
+    @Override
+    public void run() {
+        while (true) {
+            long current = sequence.get();
+            long available = ringBuffer.getCursor();
+            if (available <= current) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+
+            long end = Math.min(available, current + maxBatch);
+            List<EnergyData> batch = new ArrayList<>((int) (end - current));
+            for (long seq = current + 1; seq <= end; seq++) {
+                batch.add(ringBuffer.get(seq));
+            }
+
+            long start = System.nanoTime();
+            try {
+                handler.accept(batch);
+            } catch (Exception e) {
+                errors.incrementAndGet();
+                log.error("流水线阶段[{}]处理 {} 条读数失败: {}", name, batch.size(), e.getMessage(), e);
+                if (failureHandler != null) {
+                    failureHandler.accept(batch);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+
+            processed.addAndGet(batch.size());
+            batches.incrementAndGet();
+            maxBatchSize.accumulateAndGet(batch.size(), Math::max);
+            totalHandleNanos.addAndGet(elapsed);
+            lastHandleNanos.set(elapsed);
+            sequence.set(end);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 本阶段落后于生产者的读数条数
+     */
+    public long getLag() {
+        return ringBuffer.getCursor() - sequence.get();
+    }
+
+    /**
+     * 本阶段累计处理的读数条数
+     */
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * 获取阶段统计：序号、积压、处理条数、批次数、平均/最大批大小、处理耗时
+     */
+    public Map<String, Object> getStats() {
+        long count = processed.get();
+        long batchCount = batches.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sequence", sequence.get());
+        stats.put("lag", getLag());
+        stats.put("processed", count);
+        stats.put("batches", batchCount);
+        stats.put("avgBatchSize", batchCount > 0 ? count / batchCount : 0);
+        stats.put("maxBatchSize", maxBatchSize.get());
+        stats.put("errors", errors.get());
+        stats.put("avgBatchMillis", batchCount > 0
+                ? Math.round(totalHandleNanos.get() / 10_000.0 / batchCount) / 100.0 : 0.0);
+        stats.put("lastBatchMillis", Math.round(lastHandleNanos.get() / 10_000.0) / 100.0);
+        return stats;
+    }
+}
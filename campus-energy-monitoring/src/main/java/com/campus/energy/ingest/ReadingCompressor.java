@@ -0,0 +1,319 @@
+package com.campus.energy.ingest;
+
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.enums.CompressionMode;
+import com.campus.energy.pattern.strategy.AlertStrategy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按设备的写库压缩（死区 / 旋转门）
+ *
+ * 说明：
+ * 稳定运行的电表连续上报的读数几乎相同，全部写库既占存储又拖慢查询。
+ * 压缩只作用于写库阶段，告警阶段与实时状态仍处理每一条读数。
+ *
+ * 对电压、电流、功率三个通道分别设置容差：
+ * - DEADBAND：三个通道相对上一条存储读数的变化都不超过容差时丢弃
+ * - SWINGING_DOOR：以上一条存储读数为轴维护每个通道的上/下门斜率，
+ *   只要后续读数都能由轴点到当前读数的直线在容差内重建，中间读数就不写库；
+ *   任一通道的门打开（下门斜率大于上门斜率）时，把上一条读数存为新的轴点
+ *
+ * 以下读数始终写库：
+ * - 异常读数及越过任一告警策略阈值（thresholdProximity ≥ 1）的读数
+ * - 距上一条存储读数超过 checkpoint-seconds 的读数，作为累计用电量检查点，
+ *   保证任意时间段的用电量统计误差不超过一个检查点间隔
+ *
+ * 每台设备暂存最近一条未写库的读数，转折发生时补写，以便读取时线性插值重建；
+ * 设备停止上报时由定时刷新在 max-hold-seconds 后补写。
+ */
+@Component
+@RequiredArgsConstructor
+public class ReadingCompressor {
+
+    /**
+     * 通道：电压、电流、功率
+     */
+    private static final int CHANNELS = 3;
+
+    private final List<AlertStrategy> alertStrategies;
+
+    @Value("${ingest.compression.mode:NONE}")
+    private CompressionMode mode;
+
+    @Value("${ingest.compression.voltage-tolerance:1.0}")
+    private double voltageTolerance;
+
+    @Value("${ingest.compression.current-tolerance:0.1}")
+    private double currentTolerance;
+
+    @Value("${ingest.compression.power-tolerance:20.0}")
+    private double powerTolerance;
+
+    /**
+     * 累计用电量检查点间隔（秒）：相邻两条存储读数的最大时间间隔
+     */
+    @Value("${ingest.compression.checkpoint-seconds:900}")
+    private long checkpointSeconds;
+
+    /**
+     * 暂存读数的最长等待时间（秒），超时后补写
+     */
+    @Value("${ingest.compression.max-hold-seconds:60}")
+    private long maxHoldSeconds;
+
+    private final Map<Long, DeviceState> states = new ConcurrentHashMap<>();
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong alertPoints = new AtomicLong();
+    private final AtomicLong checkpoints = new AtomicLong();
+    private final AtomicLong heldFlushes = new AtomicLong();
+
+    public boolean isEnabled() {
+        return mode != CompressionMode.NONE;
+    }
+
+    /**
+     * 相邻两条存储读数的最大时间间隔（秒），读取时超过该间隔的空档视为断线，不做插值
+     */
+    public long getCheckpointSeconds() {
+        return checkpointSeconds;
+    }
+
+    /**
+     * 压缩一批读数，返回需要写库的读数（按设备保持时间顺序）
+     */
+    public List<EnergyData> compress(List<EnergyData> batch) {
+        if (!isEnabled()) {
+            return batch;
+        }
+        List<EnergyData> out = new ArrayList<>(batch.size());
+        for (EnergyData data : batch) {
+            DeviceState state = states.computeIfAbsent(data.getDevice().getId(), id -> new DeviceState());
+            synchronized (state) {
+                offer(state, data, out);
+            }
+        }
+        received.addAndGet(batch.size());
+        stored.addAndGet(out.size());
+        return out;
+    }
+
+    /**
+     * 补写暂存超过 max-hold-seconds 的读数（设备停止上报时）
+     */
+    public List<EnergyData> flushStale() {
+        long deadline = System.currentTimeMillis() - maxHoldSeconds * 1000;
+        return flush(deadline);
+    }
+
+    /**
+     * 补写所有暂存读数（停止时调用）
+     */
+    public List<EnergyData> flushAll() {
+        return flush(Long.MAX_VALUE);
+    }
+
+    private List<EnergyData> flush(long heldBeforeMillis) {
+        List<EnergyData> out = new ArrayList<>();
+        if (!isEnabled()) {
+            return out;
+        }
+        for (DeviceState state : states.values()) {
+            synchronized (state) {
+                if (state.held != null && state.heldAtMillis <= heldBeforeMillis) {
+                    out.add(state.held);
+                    state.archive(state.held);
+                    state.held = null;
+                }
+            }
+        }
+        heldFlushes.addAndGet(out.size());
+        stored.addAndGet(out.size());
+        return out;
+    }
+
+    private void offer(DeviceState state, EnergyData data, List<EnergyData> out) {
+        long second = data.getCollectTime().toEpochSecond(ZoneOffset.UTC);
+        double[] values = valuesOf(data);
+
+        if (!state.archived || second <= state.pivotTime) {
+            emitHeld(state, out);
+            out.add(data);
+            state.archive(data);
+            return;
+        }
+        boolean alert = isAlertPoint(data);
+        boolean checkpoint = second - state.pivotTime >= checkpointSeconds;
+        if (alert || checkpoint) {
+            if (alert) {
+                alertPoints.incrementAndGet();
+            } else {
+                checkpoints.incrementAndGet();
+            }
+            emitHeld(state, out);
+            out.add(data);
+            state.archive(data);
+            return;
+        }
+
+        if (mode == CompressionMode.DEADBAND) {
+            if (exceedsDeadband(state.pivot, values)) {
+                // 补写变化前的最后一条读数，读取时插值不会把跳变摊到整个区间
+                emitHeld(state, out);
+                out.add(data);
+                state.archive(data);
+            } else {
+                state.hold(data);
+            }
+            return;
+        }
+
+        // 旋转门：收窄每个通道的上/下门斜率，门打开时以上一条读数为新的轴点
+        double dt = second - state.pivotTime;
+        boolean open = false;
+        double[] upper = new double[CHANNELS];
+        double[] lower = new double[CHANNELS];
+        for (int c = 0; c < CHANNELS; c++) {
+            upper[c] = Math.min(state.upperSlope[c], (values[c] + tolerance(c) - state.pivot[c]) / dt);
+            lower[c] = Math.max(state.lowerSlope[c], (values[c] - tolerance(c) - state.pivot[c]) / dt);
+            open |= lower[c] > upper[c];
+        }
+        if (!open) {
+            state.upperSlope = upper;
+            state.lowerSlope = lower;
+            state.hold(data);
+            return;
+        }
+        EnergyData pivot = state.held;
+        if (pivot == null) {
+            // 容差为0时首条读数即可能开门，直接存为轴点
+            out.add(data);
+            state.archive(data);
+            return;
+        }
+        out.add(pivot);
+        state.archive(pivot);
+        state.held = null;
+        // 新轴点到当前读数的门
+        double dt2 = second - state.pivotTime;
+        for (int c = 0; c < CHANNELS; c++) {
+            state.upperSlope[c] = (values[c] + tolerance(c) - state.pivot[c]) / dt2;
+            state.lowerSlope[c] = (values[c] - tolerance(c) - state.pivot[c]) / dt2;
+        }
+        state.hold(data);
+    }
+
+    private void emitHeld(DeviceState state, List<EnergyData> out) {
+        if (state.held != null) {
+            out.add(state.held);
+            state.held = null;
+        }
+    }
+
+    private boolean isAlertPoint(EnergyData data) {
+        if (Boolean.TRUE.equals(data.getIsAbnormal())) {
+            return true;
+        }
+        for (AlertStrategy strategy : alertStrategies) {
+            if (strategy.thresholdProximity(data.getDevice(), data) >= 1.0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean exceedsDeadband(double[] pivot, double[] values) {
+        for (int c = 0; c < CHANNELS; c++) {
+            if (Math.abs(values[c] - pivot[c]) > tolerance(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private double tolerance(int channel) {
+        return switch (channel) {
+            case 0 -> voltageTolerance;
+            case 1 -> currentTolerance;
+            default -> powerTolerance;
+        };
+    }
+
+    private static double[] valuesOf(EnergyData data) {
+        return new double[]{data.getVoltage(), data.getCurrent(), data.getPower()};
+    }
+
+    /**
+     * 获取压缩统计：接收条数、写库条数、压缩比，以及因告警、检查点、超时补写而保留的条数
+     */
+    public Map<String, Object> getStats() {
+        long in = received.get();
+        long kept = stored.get();
+        int held = 0;
+        for (DeviceState state : states.values()) {
+            synchronized (state) {
+                if (state.held != null) {
+                    held++;
+                }
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", mode);
+        stats.put("received", in);
+        stats.put("stored", kept);
+        stats.put("storedRatio", in > 0 ? Math.round(kept * 1000.0 / in) / 1000.0 : 1.0);
+        stats.put("alertPoints", alertPoints.get());
+        stats.put("checkpoints", checkpoints.get());
+        stats.put("heldFlushes", heldFlushes.get());
+        stats.put("heldDevices", held);
+        return stats;
+    }
+
+    /**
+     * 单台设备的压缩状态（调用方持有该对象的锁）
+     */
+    private static final class DeviceState {
+
+        private boolean archived;
+        private long pivotTime;
+        private final double[] pivot = new double[CHANNELS];
+        private double[] upperSlope = new double[CHANNELS];
+        private double[] lowerSlope = new double[CHANNELS];
+
+        /**
+         * 最近一条未写库的读数及其暂存时间（墙钟）
+         */
+        private EnergyData held;
+        private long heldAtMillis;
+
+        /**
+         * 以该读数为新的轴点（已写库）
+         */
+        private void archive(EnergyData data) {
+            archived = true;
+            pivotTime = data.getCollectTime().toEpochSecond(ZoneOffset.UTC);
+            pivot[0] = data.getVoltage();
+            pivot[1] = data.getCurrent();
+            pivot[2] = data.getPower();
+            Arrays.fill(upperSlope, Double.POSITIVE_INFINITY);
+            Arrays.fill(lowerSlope, Double.NEGATIVE_INFINITY);
+        }
+
+        private void hold(EnergyData data) {
+            held = data;
+            heldAtMillis = System.currentTimeMillis();
+        }
+    }
+}
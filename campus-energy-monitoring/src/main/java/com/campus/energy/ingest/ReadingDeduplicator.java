@@ -0,0 +1,150 @@
+package com.campus.energy.ingest;
+
+import com.campus.energy.entity.EnergyData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 读数去重器（幂等接入的快速路径）
+ *
+ * 说明：
+ * 网关重试会重复上报同一条读数，重复数据会使 MAX-MIN 用电量计算失真。
+ * 读数以 (设备ID, 采集时间) 作为幂等键，采集时间统一截断到秒（与 DATETIME 精度一致）。
+ *
+ * 每台设备保留最近 window-size 个已接收的采集时间（epoch秒，long数组环形存放），
+ * 命中即丢弃，不需要查询数据库。超出窗口的重复读数由
+ * t_energy_data 上的唯一键 uk_device_time 兜底（INSERT IGNORE）。
+ *
+ * 读数在接收时即登记；之后因过载被丢弃、或写库最终失败的读数通过 forget 移出窗口，
+ * 网关重发时可以重新接收，不会被误判为重复而永久丢失。
+ */
+@Component
+public class ReadingDeduplicator {
+
+    /**
+     * 每台设备保留的最近采集时间个数
+     */
+    @Value("${ingest.dedupe.window-size:32}")
+    private int windowSize;
+
+    private final Map<Long, DeviceWindow> windows = new ConcurrentHashMap<>();
+
+    private final AtomicLong checked = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong forgotten = new AtomicLong();
+
+    /**
+     * 截断采集时间并过滤掉已见过的读数（包括同一批次内的重复）
+     *
+     * @return 首次出现的读数
+     */
+    public List<EnergyData> filter(List<EnergyData> readings) {
+        List<EnergyData> fresh = new ArrayList<>(readings.size());
+        for (EnergyData data : readings) {
+            data.setCollectTime(data.getCollectTime().truncatedTo(ChronoUnit.SECONDS));
+            long second = data.getCollectTime().toEpochSecond(ZoneOffset.UTC);
+            DeviceWindow window = windows.computeIfAbsent(data.getDevice().getId(), id -> new DeviceWindow(windowSize));
+            if (window.addIfAbsent(second)) {
+                fresh.add(data);
+            }
+        }
+        checked.addAndGet(readings.size());
+        hits.addAndGet(readings.size() - fresh.size());
+        return fresh;
+    }
+
+    /**
+     * 将未能入库的读数移出窗口（过载丢弃、写库最终失败），允许重发的读数重新接收
+     */
+    public void forget(List<EnergyData> readings) {
+        for (EnergyData data : readings) {
+            DeviceWindow window = windows.get(data.getDevice().getId());
+            if (window != null && window.remove(data.getCollectTime().toEpochSecond(ZoneOffset.UTC))) {
+                forgotten.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 移除满足条件的设备的去重窗口（压测停止时释放虚拟电表的窗口）
+     *
+     * @return 移除的设备数
+     */
+    public int release(Predicate<Long> deviceFilter) {
+        int before = windows.size();
+        windows.keySet().removeIf(deviceFilter);
+        return before - windows.size();
+    }
+
+    /**
+     * 清空所有设备的去重窗口（模拟器进入可复现模式时调用，重复运行同一种子时读数可以重新接收）
+     */
+    public void reset() {
+        windows.clear();
+    }
+
+    /**
+     * 获取去重统计：检查条数、命中条数、移出窗口的条数、跟踪的设备数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("windowSize", windowSize);
+        stats.put("checked", checked.get());
+        stats.put("hits", hits.get());
+        stats.put("forgotten", forgotten.get());
+        stats.put("trackedDevices", windows.size());
+        return stats;
+    }
+
+    /**
+     * 单台设备最近采集时间窗口
+     */
+    private static final class DeviceWindow {
+
+        private final long[] seconds;
+        private int next;
+        private int size;
+
+        private DeviceWindow(int capacity) {
+            this.seconds = new long[capacity];
+        }
+
+        /**
+         * 不在窗口中时加入并返回 true，已存在时返回 false
+         */
+        synchronized boolean addIfAbsent(long second) {
+            for (int i = 0; i < size; i++) {
+                if (seconds[i] == second) {
+                    return false;
+                }
+            }
+            seconds[next] = second;
+            next = (next + 1) % seconds.length;
+            size = Math.min(size + 1, seconds.length);
+            return true;
+        }
+
+        /**
+         * 从窗口中移除，存在时返回 true（空出的槽位用一个不会出现的值占位）
+         */
+        synchronized boolean remove(long second) {
+            for (int i = 0; i < size; i++) {
+                if (seconds[i] == second) {
+                    seconds[i] = Long.MIN_VALUE;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
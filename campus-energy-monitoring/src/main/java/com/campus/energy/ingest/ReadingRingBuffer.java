@@ -0,0 +1,138 @@
+package com.campus.energy.ingest;
+
+import com.campus.energy.entity.EnergyData;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 读数环形缓冲区
+ *
+ * 说明：
+ * 启动时一次性分配容量为2的幂的槽位数组，运行期间不再扩容。
+ * 生产者按序号（sequence）写入槽位，每个消费阶段持有自己的序号，
+ * 各自独立读取；槽位只有在所有消费阶段都越过后才会被覆盖。
+ *
+ * - cursor：已发布的最大序号，初始为 -1
+ * - 槽位下标 = sequence & mask
+ * - 写入前检查最慢的消费阶段，缓冲区满时生产者等待
+ *
+ * 多个生产者（模拟器分片、网关接入线程、批量接口）通过 publish 上的锁串行发布，
+ * 每次发布一整批，锁内只做数组赋值，开销很小。
+ */
+public class ReadingRingBuffer {
+
+    /**
+     * 生产者等待空位时的休眠时间（纳秒）
+     */
+    private static final long PRODUCER_PARK_NANOS = 100_000;
+
+    private final EnergyData[] slots;
+    private final int mask;
+    private final AtomicLong cursor = new AtomicLong(-1);
+
+    /**
+     * 各消费阶段的序号，生产者据此判断槽位是否可覆盖
+     */
+    private final List<AtomicLong> gatingSequences = new CopyOnWriteArrayList<>();
+
+    private final Object publishLock = new Object();
+    private final AtomicLong producerWaitNanos = new AtomicLong();
+
+    public ReadingRingBuffer(int requestedCapacity) {
+        int capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+        this.slots = new EnergyData[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * 注册消费阶段的序号
+     */
+    public void addGatingSequence(AtomicLong sequence) {
+        sequence.set(cursor.get());
+        gatingSequences.add(sequence);
+    }
+
+    /**
+     * 发布一批读数，缓冲区空间不足时等待最慢的消费阶段
+     *
+     * @return 最后一条读数的序号
+     */
+    public long publish(List<EnergyData> readings) {
+        synchronized (publishLock) {
+            long next = cursor.get();
+            int from = 0;
+            while (from < readings.size()) {
+                int n = Math.min(readings.size() - from, slots.length);
+                awaitCapacity(next + n);
+                for (int i = 0; i < n; i++) {
+                    slots[(int) ((next + 1 + i) & mask)] = readings.get(from + i);
+                }
+                next += n;
+                cursor.set(next);
+                from += n;
+            }
+            return next;
+        }
+    }
+
+    /**
+     * 等待直到序号 target 对应的槽位已被所有消费阶段越过
+     */
+    private void awaitCapacity(long target) {
+        long wrapPoint = target - slots.length;
+        if (wrapPoint <= minimumGatingSequence()) {
+            return;
+        }
+        long start = System.nanoTime();
+        while (wrapPoint > minimumGatingSequence()) {
+            LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+        }
+        producerWaitNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    /**
+     * 已发布的最大序号
+     */
+    public long getCursor() {
+        return cursor.get();
+    }
+
+    /**
+     * 读取指定序号的槽位
+     */
+    public EnergyData get(long sequence) {
+        return slots[(int) (sequence & mask)];
+    }
+
+    public int getCapacity() {
+        return slots.length;
+    }
+
+    /**
+     * 最慢消费阶段的序号
+     */
+    public long minimumGatingSequence() {
+        long min = cursor.get();
+        for (AtomicLong sequence : gatingSequences) {
+            min = Math.min(min, sequence.get());
+        }
+        return min;
+    }
+
+    /**
+     * 尚未被所有阶段处理完的读数数量
+     */
+    public long getBacklog() {
+        return cursor.get() - minimumGatingSequence();
+    }
+
+    /**
+     * 生产者因缓冲区满累计等待的时间（毫秒）
+     */
+    public long getProducerWaitMillis() {
+        return producerWaitNanos.get() / 1_000_000;
+    }
+}
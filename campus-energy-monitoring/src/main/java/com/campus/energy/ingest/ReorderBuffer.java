@@ -0,0 +1,270 @@
+package com.campus.energy.ingest;
+
+import com.campus.energy.entity.Device;
+import com.campus.energy.entity.EnergyData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 按设备的乱序重排缓冲区
+ *
+ * 说明：
+ * 网关上报的读数可能迟到、乱序，而累计用电量单调递增、告警策略也假设按时间顺序到达，
+ * 乱序数据会导致用电量为负和误告警。
+ *
+ * 每台设备暂存最近 lateness-seconds 内的读数，按采集时间排序后输出：
+ * - 水位线 = 该设备已见最大采集时间 - lateness-seconds，不晚于水位线的读数按序输出
+ * - 设备停止上报时，由定时刷新把暂存超过 lateness-seconds（墙钟）的读数全部输出
+ * - 采集时间不晚于该设备上次输出时间的读数视为迟到数据，交给 LateDataPath
+ *
+ * 输出的读数由调用方发布到流水线；调用方需保证输出与发布在同一顺序锁内完成
+ * （见 EnergyIngestService），否则并发调用各自发布时同一设备的读数可能乱序进入流水线。
+ *
+ * 暂存数据以基本类型数组存放（采集时间 long[]，电压/电流/功率/累计用电量交错存放在 double[]），
+ * 不保留 EnergyData 对象，数万台设备的状态只占几MB。
+ */
+@Component
+public class ReorderBuffer {
+
+    /**
+     * 每条暂存读数在 values 数组中占用的槽位（电压、电流、功率、累计用电量）
+     */
+    private static final int STRIDE = 4;
+
+    /**
+     * 每台设备暂存数组的初始容量
+     */
+    private static final int INITIAL_CAPACITY = 2;
+
+    /**
+     * 允许的乱序时间窗口（秒），0 表示不等待，只做迟到判定
+     */
+    @Value("${ingest.reorder.lateness-seconds:10}")
+    private long latenessSeconds;
+
+    /**
+     * 每台设备最多暂存的读数条数，超出时提前输出最早的读数
+     */
+    @Value("${ingest.reorder.max-pending-per-device:64}")
+    private int maxPendingPerDevice;
+
+    private final Map<Long, DeviceState> states = new ConcurrentHashMap<>();
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong reordered = new AtomicLong();
+    private final AtomicLong late = new AtomicLong();
+    private final AtomicLong forcedEmits = new AtomicLong();
+
+    /**
+     * 接收一批读数，按序可输出的读数加入 emitted，迟到读数加入 lateReadings
+     */
+    public void offer(List<EnergyData> readings, List<EnergyData> emitted, List<EnergyData> lateReadings) {
+        long nowMillis = System.currentTimeMillis();
+        for (EnergyData data : readings) {
+            DeviceState state = states.computeIfAbsent(data.getDevice().getId(), id -> new DeviceState(data.getDevice()));
+            synchronized (state) {
+                long second = data.getCollectTime().toEpochSecond(ZoneOffset.UTC);
+                if (second <= state.lastEmitted) {
+                    late.incrementAndGet();
+                    lateReadings.add(data);
+                    continue;
+                }
+                if (state.insert(second, data, nowMillis)) {
+                    reordered.incrementAndGet();
+                }
+                if (state.size > maxPendingPerDevice) {
+                    forcedEmits.incrementAndGet();
+                    state.emitUpTo(state.times[0], emitted);
+                }
+                state.emitUpTo(state.maxSeen - latenessSeconds, emitted);
+            }
+        }
+        received.addAndGet(readings.size());
+    }
+
+    /**
+     * 定时刷新：输出暂存时间（墙钟）超过乱序窗口的设备读数
+     */
+    public void flushExpired(List<EnergyData> emitted) {
+        long deadline = System.currentTimeMillis() - latenessSeconds * 1000;
+        for (DeviceState state : states.values()) {
+            synchronized (state) {
+                if (state.size > 0 && state.firstPendingMillis <= deadline) {
+                    state.emitUpTo(Long.MAX_VALUE, emitted);
+                }
+            }
+        }
+    }
+
+    /**
+     * 输出所有设备的全部暂存读数（停止时调用）
+     */
+    public void flushAll(List<EnergyData> emitted) {
+        for (DeviceState state : states.values()) {
+            synchronized (state) {
+                state.emitUpTo(Long.MAX_VALUE, emitted);
+            }
+        }
+    }
+
+    /**
+     * 输出并移除满足条件的设备的重排状态（压测停止时释放虚拟电表的状态）
+     *
+     * @return 移除的设备数
+     */
+    public int release(Predicate<Long> deviceFilter, List<EnergyData> emitted) {
+        int removed = 0;
+        for (Iterator<Map.Entry<Long, DeviceState>> it = states.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, DeviceState> entry = it.next();
+            if (!deviceFilter.test(entry.getKey())) {
+                continue;
+            }
+            synchronized (entry.getValue()) {
+                entry.getValue().emitUpTo(Long.MAX_VALUE, emitted);
+                it.remove();
+            }
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * 清空所有设备的重排状态（含上次输出时间），暂存读数需先由 flushAll 输出
+     *
+     * 模拟器进入可复现模式时调用：虚拟时钟可能早于此前输出的读数，不清空会被全部判为迟到数据
+     */
+    public void reset() {
+        states.clear();
+    }
+
+    /**
+     * 获取重排统计：接收条数、乱序条数、迟到条数、暂存条数及状态内存估算
+     */
+    public Map<String, Object> getStats() {
+        long pending = 0;
+        long bytes = 0;
+        for (DeviceState state : states.values()) {
+            synchronized (state) {
+                pending += state.size;
+                bytes += state.footprintBytes();
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("latenessSeconds", latenessSeconds);
+        stats.put("received", received.get());
+        stats.put("reordered", reordered.get());
+        stats.put("late", late.get());
+        stats.put("forcedEmits", forcedEmits.get());
+        stats.put("pending", pending);
+        stats.put("trackedDevices", states.size());
+        stats.put("stateKilobytes", bytes / 1024);
+        return stats;
+    }
+
+    /**
+     * 单台设备的暂存状态（调用方持有该对象的锁）
+     */
+    private static final class DeviceState {
+
+        private final Device device;
+        private long lastEmitted = Long.MIN_VALUE;
+        private long maxSeen = Long.MIN_VALUE;
+        private long firstPendingMillis;
+        private long[] times = new long[INITIAL_CAPACITY];
+        private double[] values = new double[INITIAL_CAPACITY * STRIDE];
+        private byte[] abnormal = new byte[INITIAL_CAPACITY];
+        private int size;
+
+        private DeviceState(Device device) {
+            this.device = device;
+        }
+
+        /**
+         * 按采集时间有序插入
+         *
+         * @return 是否发生了乱序（不是追加在末尾）
+         */
+        private boolean insert(long second, EnergyData data, long nowMillis) {
+            if (size == times.length) {
+                grow();
+            }
+            int pos = size;
+            while (pos > 0 && times[pos - 1] > second) {
+                pos--;
+            }
+            if (pos < size) {
+                System.arraycopy(times, pos, times, pos + 1, size - pos);
+                System.arraycopy(values, pos * STRIDE, values, (pos + 1) * STRIDE, (size - pos) * STRIDE);
+                System.arraycopy(abnormal, pos, abnormal, pos + 1, size - pos);
+            }
+            times[pos] = second;
+            int base = pos * STRIDE;
+            values[base] = data.getVoltage();
+            values[base + 1] = data.getCurrent();
+            values[base + 2] = data.getPower();
+            values[base + 3] = data.getTotalEnergy();
+            abnormal[pos] = (byte) (Boolean.TRUE.equals(data.getIsAbnormal()) ? 1 : 0);
+
+            if (size == 0) {
+                firstPendingMillis = nowMillis;
+            }
+            size++;
+            maxSeen = Math.max(maxSeen, second);
+            return pos < size - 1;
+        }
+
+        /**
+         * 按序输出采集时间不晚于 watermark 的暂存读数
+         */
+        private void emitUpTo(long watermark, List<EnergyData> emitted) {
+            int n = 0;
+            while (n < size && times[n] <= watermark) {
+                int base = n * STRIDE;
+                emitted.add(EnergyData.builder()
+                        .device(device)
+                        .voltage(values[base])
+                        .current(values[base + 1])
+                        .power(values[base + 2])
+                        .totalEnergy(values[base + 3])
+                        .isAbnormal(abnormal[n] == 1)
+                        .collectTime(LocalDateTime.ofEpochSecond(times[n], 0, ZoneOffset.UTC))
+                        .build());
+                lastEmitted = times[n];
+                n++;
+            }
+            if (n == 0) {
+                return;
+            }
+            size -= n;
+            System.arraycopy(times, n, times, 0, size);
+            System.arraycopy(values, n * STRIDE, values, 0, size * STRIDE);
+            System.arraycopy(abnormal, n, abnormal, 0, size);
+            if (size > 0) {
+                // 剩余读数按本次输出时间重新计时
+                firstPendingMillis = System.currentTimeMillis();
+            }
+        }
+
+        private void grow() {
+            int capacity = times.length * 2;
+            times = Arrays.copyOf(times, capacity);
+            values = Arrays.copyOf(values, capacity * STRIDE);
+            abnormal = Arrays.copyOf(abnormal, capacity);
+        }
+
+        private long footprintBytes() {
+            return 64L + times.length * 8L + values.length * 8L + abnormal.length;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.campus.energy.ingest;
+
+import com.campus.energy.enums.RollupResolution;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * 单台设备单个聚合桶的汇总值（对应 t_energy_rollup 的一行）
+ *
+ * 说明：
+ * 电压、电流、功率各保存 最小/最大/合计/最后值，平均值 = 合计 / 条数，
+ * 这样两个桶可以直接合并（增量写库时即按此方式与已有行合并）。
+ * 累计用电量保存桶内最小值与最大值，桶的用电量 = 最大值 - 最小值；
+ * 多个连续桶的用电量 = 最大值中的最大 - 最小值中的最小，与按原始读数计算一致。
+ *
+ * 非线程安全，由单个线程累加。
+ */
+@Getter
+@Setter
+public class RollupBucket {
+
+    private final RollupResolution resolution;
+    private final Long deviceId;
+    private final LocalDateTime bucketStart;
+
+    private int sampleCount;
+
+    private double voltageMin = Double.POSITIVE_INFINITY;
+    private double voltageMax = Double.NEGATIVE_INFINITY;
+    private double voltageSum;
+    private double voltageLast;
+
+    private double currentMin = Double.POSITIVE_INFINITY;
+    private double currentMax = Double.NEGATIVE_INFINITY;
+    private double currentSum;
+    private double currentLast;
+
+    private double powerMin = Double.POSITIVE_INFINITY;
+    private double powerMax = Double.NEGATIVE_INFINITY;
+    private double powerSum;
+    private double powerLast;
+
+    private double energyMin = Double.POSITIVE_INFINITY;
+    private double energyMax = Double.NEGATIVE_INFINITY;
+
+    /**
+     * 最后值对应的采集时间
+     */
+    private LocalDateTime lastTime;
+
+    public RollupBucket(RollupResolution resolution, Long deviceId, LocalDateTime bucketStart) {
+        this.resolution = resolution;
+        this.deviceId = deviceId;
+        this.bucketStart = bucketStart;
+    }
+
+    /**
+     * 累加一条读数（读数可以乱序到达，最后值按采集时间取最晚的一条）
+     */
+    public void add(double voltage, double current, double power, double totalEnergy, LocalDateTime collectTime) {
+        sampleCount++;
+        voltageMin = Math.min(voltageMin, voltage);
+        voltageMax = Math.max(voltageMax, voltage);
+        voltageSum += voltage;
+        currentMin = Math.min(currentMin, current);
+        currentMax = Math.max(currentMax, current);
+        currentSum += current;
+        powerMin = Math.min(powerMin, power);
+        powerMax = Math.max(powerMax, power);
+        powerSum += power;
+        energyMin = Math.min(energyMin, totalEnergy);
+        energyMax = Math.max(energyMax, totalEnergy);
+        if (lastTime == null || !collectTime.isBefore(lastTime)) {
+            lastTime = collectTime;
+            voltageLast = voltage;
+            currentLast = current;
+            powerLast = power;
+        }
+    }
+
+    public double getVoltageAvg() {
+        return sampleCount > 0 ? voltageSum / sampleCount : 0.0;
+    }
+
+    public double getCurrentAvg() {
+        return sampleCount > 0 ? currentSum / sampleCount : 0.0;
+    }
+
+    public double getPowerAvg() {
+        return sampleCount > 0 ? powerSum / sampleCount : 0.0;
+    }
+
+    /**
+     * 桶内用电量（kWh）
+     */
+    public double getConsumption() {
+        return sampleCount > 0 ? energyMax - energyMin : 0.0;
+    }
+
+    /**
+     * 聚合桶的唯一键
+     */
+    public record Key(RollupResolution resolution, Long deviceId, LocalDateTime bucketStart) {
+    }
+}
@@ -5,7 +5,7 @@ import com.campus.energy.entity.EnergyData;
 import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * ============================================
@@ -24,8 +24,6 @@ import java.util.Random;
 @Component
 public class AbnormalEnergyDataFactory implements EnergyDataFactory {
     
-    private final Random random = new Random();
-    
     // 异常类型枚举
     private enum AbnormalType {
         POWER_OVERLOAD,     // 功率过载
@@ -34,8 +32,9 @@ public class AbnormalEnergyDataFactory implements EnergyDataFactory {
     }
     
     @Override
-    public EnergyData createEnergyData(Device device, Double lastTotalEnergy) {
-        LocalDateTime now = LocalDateTime.now();
+    public EnergyData createEnergyData(Device device, Double lastTotalEnergy,
+                                       LocalDateTime collectTime, double intervalSeconds,
+                                       RandomGenerator random) {
         
         // 随机选择一种异常类型
         AbnormalType abnormalType = AbnormalType.values()[random.nextInt(AbnormalType.values().length)];
@@ -75,7 +74,7 @@ public class AbnormalEnergyDataFactory implements EnergyDataFactory {
         double current = Math.round((power / voltage) * 100.0) / 100.0;
         
         // 计算累计用电量增量
-        double energyIncrement = (power / 1000.0) * (5.0 / 3600.0);
+        double energyIncrement = (power / 1000.0) * (intervalSeconds / 3600.0);
         double totalEnergy = (lastTotalEnergy != null ? lastTotalEnergy : 0.0) + energyIncrement;
         totalEnergy = Math.round(totalEnergy * 1000.0) / 1000.0;
         
@@ -85,7 +84,7 @@ public class AbnormalEnergyDataFactory implements EnergyDataFactory {
                 .current(current)
                 .power(power)
                 .totalEnergy(totalEnergy)
-                .collectTime(now)
+                .collectTime(collectTime)
                 .isAbnormal(true)
                 .build();
     }
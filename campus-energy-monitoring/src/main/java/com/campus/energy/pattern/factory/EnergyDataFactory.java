@@ -4,6 +4,8 @@ import com.campus.energy.entity.Device;
 import com.campus.energy.entity.EnergyData;
 
 import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * ============================================
@@ -31,9 +33,38 @@ import java.time.LocalDateTime;
 public interface EnergyDataFactory {
     
     /**
-     * 创建能耗数据
+     * 默认采集间隔（秒）
      */
-    EnergyData createEnergyData(Device device, Double lastTotalEnergy);
+    double DEFAULT_INTERVAL_SECONDS = 5.0;
+    
+    /**
+     * 创建能耗数据（采集时间为当前时间，采集间隔为默认值）
+     */
+    default EnergyData createEnergyData(Device device, Double lastTotalEnergy) {
+        return createEnergyData(device, lastTotalEnergy, LocalDateTime.now(), DEFAULT_INTERVAL_SECONDS);
+    }
+    
+    /**
+     * 按指定采集时间和采集间隔创建能耗数据（使用线程本地随机数）
+     * 
+     * @param collectTime 采集时间（历史回填时为过去的时间点）
+     * @param intervalSeconds 与上一条读数的间隔（秒），用于计算累计用电量增量
+     */
+    default EnergyData createEnergyData(Device device, Double lastTotalEnergy,
+                                        LocalDateTime collectTime, double intervalSeconds) {
+        return createEnergyData(device, lastTotalEnergy, collectTime, intervalSeconds, ThreadLocalRandom.current());
+    }
+    
+    /**
+     * 使用指定随机数发生器创建能耗数据
+     * 
+     * 可复现模拟时传入设备独立的种子随机流，相同种子生成完全相同的数据
+     * 
+     * @param random 随机数发生器（调用方保证不被多线程同时使用）
+     */
+    EnergyData createEnergyData(Device device, Double lastTotalEnergy,
+                                LocalDateTime collectTime, double intervalSeconds,
+                                RandomGenerator random);
     
     /**
      * 获取工厂名称
@@ -6,7 +6,7 @@ import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.Random;
+import java.util.random.RandomGenerator;
 
 /**
  * ============================================
@@ -28,23 +28,22 @@ public class NormalEnergyDataFactory implements EnergyDataFactory {
     private static final double STANDARD_VOLTAGE = 220.0;
     private static final double VOLTAGE_DEVIATION = 7.5; // 正态分布标准差
     
-    private final Random random = new Random();
-    
     @Override
-    public EnergyData createEnergyData(Device device, Double lastTotalEnergy) {
-        LocalDateTime now = LocalDateTime.now();
+    public EnergyData createEnergyData(Device device, Double lastTotalEnergy,
+                                       LocalDateTime collectTime, double intervalSeconds,
+                                       RandomGenerator random) {
         
         // 生成电压 (正态分布，均值220V，标准差7.5V)
-        double voltage = generateNormalVoltage();
+        double voltage = generateNormalVoltage(random);
         
         // 根据时间段生成功率
-        double power = generatePowerByTimeOfDay(device.getRatedPower(), now.toLocalTime());
+        double power = generatePowerByTimeOfDay(device.getRatedPower(), collectTime.toLocalTime(), random);
         
         // 根据公式 I = P / U 计算电流
         double current = Math.round((power / voltage) * 100.0) / 100.0;
         
-        // 计算累计用电量增量 (假设采集间隔5秒，转换为小时)
-        double energyIncrement = (power / 1000.0) * (5.0 / 3600.0);
+        // 计算累计用电量增量 (采集间隔转换为小时)
+        double energyIncrement = (power / 1000.0) * (intervalSeconds / 3600.0);
         double totalEnergy = (lastTotalEnergy != null ? lastTotalEnergy : 0.0) + energyIncrement;
         totalEnergy = Math.round(totalEnergy * 1000.0) / 1000.0;
         
@@ -54,7 +53,7 @@ public class NormalEnergyDataFactory implements EnergyDataFactory {
                 .current(current)
                 .power(Math.round(power * 100.0) / 100.0)
                 .totalEnergy(totalEnergy)
-                .collectTime(now)
+                .collectTime(collectTime)
                 .isAbnormal(false)
                 .build();
     }
@@ -62,7 +61,7 @@ public class NormalEnergyDataFactory implements EnergyDataFactory {
     /**
      * 生成正态分布的电压值
      */
-    private double generateNormalVoltage() {
+    private double generateNormalVoltage(RandomGenerator random) {
         double voltage = STANDARD_VOLTAGE + random.nextGaussian() * VOLTAGE_DEVIATION;
         // 确保电压在合理范围内 (210V - 235V)
         return Math.max(210.0, Math.min(235.0, voltage));
@@ -73,7 +72,7 @@ public class NormalEnergyDataFactory implements EnergyDataFactory {
      * - 日间模式 (08:00 - 22:00)：额定功率的20%-90%
      * - 夜间模式 (22:00 - 08:00)：10W-100W待机功率
      */
-    private double generatePowerByTimeOfDay(Double ratedPower, LocalTime currentTime) {
+    private double generatePowerByTimeOfDay(Double ratedPower, LocalTime currentTime, RandomGenerator random) {
         boolean isDaytime = currentTime.isAfter(LocalTime.of(8, 0)) 
                          && currentTime.isBefore(LocalTime.of(22, 0));
         
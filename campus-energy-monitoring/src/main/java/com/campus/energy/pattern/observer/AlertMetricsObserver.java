@@ -0,0 +1,66 @@
+package com.campus.energy.pattern.observer;
+
+import com.campus.energy.entity.Alert;
+import com.campus.energy.enums.AlertType;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ============================================
+ * 设计模式：Observer Pattern（观察者模式）- 具体观察者实现
+ * ============================================
+ * 
+ * 角色：ConcreteObserver（具体观察者）
+ * 
+ * 职责：统计告警触发次数（总数及按类型），用于衡量告警链路吞吐，
+ * 例如故障场景（告警风暴）期间每秒告警数。
+ * ============================================
+ */
+@Component  // Spring自动管理，单例模式，自动注册到AlertSubject
+public class AlertMetricsObserver implements AlertObserver {
+    
+    private final AtomicLong total = new AtomicLong();
+    private final Map<AlertType, AtomicLong> byType = new EnumMap<>(AlertType.class);
+    
+    public AlertMetricsObserver() {
+        for (AlertType type : AlertType.values()) {
+            byType.put(type, new AtomicLong());
+        }
+    }
+    
+    /**
+     * 观察者模式核心方法：当告警触发时执行
+     */
+    @Override
+    public void onAlertTriggered(Alert alert) {
+        total.incrementAndGet();
+        byType.get(alert.getAlertType()).incrementAndGet();
+    }
+    
+    /**
+     * 累计告警数
+     */
+    public long getTotal() {
+        return total.get();
+    }
+    
+    /**
+     * 按类型的累计告警数
+     */
+    public Map<AlertType, Long> getTotalsByType() {
+        Map<AlertType, Long> totals = new EnumMap<>(AlertType.class);
+        byType.forEach((type, count) -> totals.put(type, count.get()));
+        return totals;
+    }
+    
+    /**
+     * 获取观察者名称
+     */
+    @Override
+    public String getObserverName() {
+        return "告警统计观察者";
+    }
+}
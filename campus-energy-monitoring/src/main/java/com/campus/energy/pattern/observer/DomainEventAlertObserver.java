@@ -0,0 +1,46 @@
+package com.campus.energy.pattern.observer;
+
+import com.campus.energy.entity.Alert;
+import com.campus.energy.event.AlertCreatedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * ============================================
+ * 设计模式：Observer Pattern（观察者模式）- 具体观察者
+ * ============================================
+ * 
+ * 角色：ConcreteObserver（具体观察者）
+ * 
+ * 职责：把告警通知转发为 AlertCreatedEvent 领域事件，
+ * 供实时计数器等不属于告警链路的组件订阅，这些组件不需要实现 AlertObserver。
+ * 告警检查在事务中执行时，事件在事务提交后才被处理。
+ * ============================================
+ */
+@Component  // Spring自动管理，单例模式，自动注册到AlertSubject
+@RequiredArgsConstructor
+public class DomainEventAlertObserver implements AlertObserver {
+    
+    private final ApplicationEventPublisher eventPublisher;
+    
+    /**
+     * 观察者模式核心方法：当告警触发时执行
+     */
+    @Override
+    public void onAlertTriggered(Alert alert) {
+        // 数据库观察者可能尚未保存告警，触发时间以当前时间兜底
+        LocalDateTime triggerTime = alert.getTriggerTime() != null ? alert.getTriggerTime() : LocalDateTime.now();
+        eventPublisher.publishEvent(new AlertCreatedEvent(alert.getDevice().getId(), alert.getAlertType(), triggerTime));
+    }
+    
+    /**
+     * 获取观察者名称
+     */
+    @Override
+    public String getObserverName() {
+        return "领域事件观察者";
+    }
+}
@@ -50,6 +50,18 @@ public interface AlertStrategy {
      */
     Optional<Alert> checkAlert(Device device, EnergyData energyData);
     
+    /**
+     * 读数接近告警阈值的程度
+     * 
+     * 用于自适应采样：远离阈值的设备降低采样频率，接近阈值时恢复高频采样
+     * 
+     * @return 0 表示处于正常范围中心，1 表示到达告警阈值，大于1 表示已越过阈值；
+     *         默认返回0（不参与自适应采样判断）
+     */
+    default double thresholdProximity(Device device, EnergyData energyData) {
+        return 0.0;
+    }
+    
     /**
      * 获取策略名称
      * 
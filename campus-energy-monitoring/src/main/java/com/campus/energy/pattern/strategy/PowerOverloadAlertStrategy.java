@@ -7,7 +7,6 @@ import com.campus.energy.enums.AlertType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
 import java.util.Optional;
 
 /**
@@ -83,7 +82,7 @@ public class PowerOverloadAlertStrategy implements AlertStrategy {
                             device.getRatedPower(),     // 额定功率
                             overloadRatio * 100         // 过载比例（转换为百分比）
                     ))
-                    .triggerTime(LocalDateTime.now())  // 触发时间（当前时间）
+                    .triggerTime(energyData.getCollectTime())  // 触发时间（读数采集时间）
                     .isResolved(false)  // 初始状态：未处理
                     .build();  // 构建Alert对象
             
@@ -101,6 +100,14 @@ public class PowerOverloadAlertStrategy implements AlertStrategy {
         return Optional.empty();
     }
     
+    /**
+     * 功率相对过载阈值的比例：功率 / (额定功率 × 过载比例)
+     */
+    @Override
+    public double thresholdProximity(Device device, EnergyData energyData) {
+        return energyData.getPower() / (device.getRatedPower() * overloadRatio);
+    }
+    
     /**
      * 获取策略名称
      * 
@@ -7,7 +7,6 @@ import com.campus.energy.enums.AlertType;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
 import java.util.Optional;
 
 /**
@@ -140,7 +139,7 @@ public class VoltageAbnormalAlertStrategy implements AlertStrategy {
                             minVoltage,            // 电压下限
                             STANDARD_VOLTAGE       // 标准电压
                     ))
-                    .triggerTime(LocalDateTime.now())  // 触发时间（当前时间）
+                    .triggerTime(energyData.getCollectTime())  // 触发时间（读数采集时间）
                     .isResolved(false)  // 初始状态：未处理
                     .build();  // 构建Alert对象
             
@@ -181,7 +180,7 @@ public class VoltageAbnormalAlertStrategy implements AlertStrategy {
                             maxVoltage,            // 电压上限
                             STANDARD_VOLTAGE       // 标准电压
                     ))
-                    .triggerTime(LocalDateTime.now())  // 触发时间（当前时间）
+                    .triggerTime(energyData.getCollectTime())  // 触发时间（读数采集时间）
                     .isResolved(false)  // 初始状态：未处理
                     .build();  // 构建Alert对象
             
@@ -199,6 +198,18 @@ public class VoltageAbnormalAlertStrategy implements AlertStrategy {
         return Optional.empty();
     }
     
+    /**
+     * 电压偏离标准电压的程度：偏差 / (标准电压到同侧告警阈值的距离)
+     * 
+     * 例如：231V -> (231-220)/(242-220) = 0.5，198V -> 1.0
+     */
+    @Override
+    public double thresholdProximity(Device device, EnergyData energyData) {
+        double deviation = energyData.getVoltage() - STANDARD_VOLTAGE;
+        double limit = deviation >= 0 ? maxVoltage - STANDARD_VOLTAGE : STANDARD_VOLTAGE - minVoltage;
+        return Math.abs(deviation) / limit;
+    }
+    
     /**
      * 获取策略名称
      * 
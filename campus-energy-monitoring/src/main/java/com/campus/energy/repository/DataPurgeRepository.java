@@ -0,0 +1,101 @@
+package com.campus.energy.repository;
+
+import com.campus.energy.enums.RollupResolution;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * 过期数据分块清理
+ *
+ * 说明：
+ * 每次只删除 limit 行（DELETE ... ORDER BY ... LIMIT），每块自动提交，
+ * 行锁与 undo 都限定在一小块范围内，不会长时间阻塞模拟器对新数据的插入；
+ * 删除条件只涉及早于保留期的时间范围，与正在写入的最新时间段不重叠。
+ */
+@Repository
+@RequiredArgsConstructor
+public class DataPurgeRepository {
+
+    private static final String DELETE_RAW_SQL =
+            "DELETE FROM " + EnergyDataBatchWriter.ENERGY_DATA_TABLE +
+            " WHERE collect_time < ? ORDER BY collect_time LIMIT ?";
+
+    private static final String DELETE_ROLLUP_SQL =
+            "DELETE FROM " + EnergyRollupRepository.ROLLUP_TABLE +
+            " WHERE resolution = ? AND bucket_start < ? ORDER BY bucket_start LIMIT ?";
+
+    private static final String DELETE_CHUNK_SQL =
+            "DELETE FROM " + EnergyChunkRepository.CHUNK_TABLE +
+            " WHERE chunk_start < ? ORDER BY chunk_start LIMIT ?";
+
+    private static final String OLDEST_CHUNK_SQL =
+            "SELECT MIN(chunk_start) FROM " + EnergyChunkRepository.CHUNK_TABLE;
+
+    private static final String OLDEST_RAW_SQL =
+            "SELECT MIN(collect_time) FROM " + EnergyDataBatchWriter.ENERGY_DATA_TABLE;
+
+    private static final String AVG_ROW_BYTES_SQL =
+            "SELECT (DATA_LENGTH + INDEX_LENGTH) / NULLIF(TABLE_ROWS, 0) FROM information_schema.TABLES " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 删除一块早于 cutoff 的原始读数
+     *
+     * @return 实际删除的行数，小于 limit 表示已删完
+     */
+    public int deleteRawBefore(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.update(DELETE_RAW_SQL, Timestamp.valueOf(cutoff), limit);
+    }
+
+    /**
+     * 删除一批起始时间早于 cutoff 的读数分块（cutoff 须对齐到小时）
+     *
+     * @return 实际删除的块数，小于 limit 表示已删完
+     */
+    public int deleteChunksBefore(LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.update(DELETE_CHUNK_SQL, Timestamp.valueOf(cutoff), limit);
+    }
+
+    /**
+     * 删除一块指定粒度下早于 cutoff 的汇总行
+     *
+     * @return 实际删除的行数，小于 limit 表示已删完
+     */
+    public int deleteRollupsBefore(RollupResolution resolution, LocalDateTime cutoff, int limit) {
+        return jdbcTemplate.update(DELETE_ROLLUP_SQL, resolution.name(), Timestamp.valueOf(cutoff), limit);
+    }
+
+    /**
+     * 最早的原始读数采集时间，无数据时返回 null
+     */
+    public LocalDateTime findOldestRawTime() {
+        Timestamp oldest = jdbcTemplate.queryForObject(OLDEST_RAW_SQL, Timestamp.class);
+        return oldest != null ? oldest.toLocalDateTime() : null;
+    }
+
+    /**
+     * 最早的读数分块起始时间，无数据时返回 null
+     */
+    public LocalDateTime findOldestChunkStart() {
+        Timestamp oldest = jdbcTemplate.queryForObject(OLDEST_CHUNK_SQL, Timestamp.class);
+        return oldest != null ? oldest.toLocalDateTime() : null;
+    }
+
+    /**
+     * 表的平均每行占用空间（数据 + 索引，information_schema 统计值），用于估算可回收空间
+     */
+    public double averageRowBytes(String table) {
+        try {
+            Double bytes = jdbcTemplate.queryForObject(AVG_ROW_BYTES_SQL, Double.class, table);
+            return bytes != null ? bytes : 0.0;
+        } catch (Exception e) {
+            return 0.0;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -71,6 +72,11 @@ public interface DeviceRepository extends JpaRepository<Device, Long> {
      */
     Optional<Device> findBySerialNumber(String serialNumber);
     
+    /**
+     * 根据序列号批量查找设备
+     */
+    List<Device> findBySerialNumberIn(Collection<String> serialNumbers);
+    
     /**
      * 检查序列号是否存在
      */
@@ -112,6 +118,38 @@ public interface DeviceRepository extends JpaRepository<Device, Long> {
      */
     long countByBuildingId(Long buildingId);
     
+    /**
+     * 按状态分组统计设备数量（一次查询）
+     * 
+     * @return [状态, 设备数量]
+     */
+    @Query("SELECT d.status, COUNT(d) FROM Device d GROUP BY d.status")
+    List<Object[]> countGroupByStatus();
+    
+    /**
+     * 按建筑分组统计设备数量（一次查询）
+     * 
+     * @return [建筑ID, 设备数量]
+     */
+    @Query("SELECT d.building.id, COUNT(d) FROM Device d GROUP BY d.building.id")
+    List<Object[]> countGroupByBuildingId();
+    
+    /**
+     * 所有设备所属的建筑（只查询ID，不加载设备实体）
+     * 
+     * @return [设备ID, 建筑ID]
+     */
+    @Query("SELECT d.id, d.building.id FROM Device d")
+    List<Object[]> findAllDeviceBuildingIds();
+    
+    /**
+     * 所有设备的所属建筑与状态（只查询所需字段，不加载设备实体）
+     * 
+     * @return [设备ID, 建筑ID, 状态]
+     */
+    @Query("SELECT d.id, d.building.id, d.status FROM Device d")
+    List<Object[]> findAllDeviceSummaries();
+    
     /**
      * 根据设备名称模糊查询
      */
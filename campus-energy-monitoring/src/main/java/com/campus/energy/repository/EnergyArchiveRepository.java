@@ -0,0 +1,67 @@
+package com.campus.energy.repository;
+
+import com.campus.energy.storage.ReadingColumns;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * 冷数据归档的原始读数访问
+ *
+ * 说明：
+ * 按设备与时间范围读取原始读数（按采集时间升序，直接填入列式结构，不经过JPA实体），
+ * 段文件写入成功后再按同样的范围分块删除。
+ * 读取与删除都限定 id 不超过读取前的最大ID，归档过程中迟到写入的读数留在数据库中，下次归档时与段文件合并。
+ */
+@Repository
+@RequiredArgsConstructor
+public class EnergyArchiveRepository {
+
+    private static final String FIND_SQL =
+            "SELECT collect_time, voltage, current, power, total_energy, is_abnormal FROM " +
+            EnergyDataBatchWriter.ENERGY_DATA_TABLE +
+            " WHERE device_id = ? AND collect_time >= ? AND collect_time < ? AND id <= ? ORDER BY collect_time";
+
+    private static final String MAX_ID_SQL =
+            "SELECT MAX(id) FROM " + EnergyDataBatchWriter.ENERGY_DATA_TABLE +
+            " WHERE device_id = ? AND collect_time >= ? AND collect_time < ?";
+
+    private static final String DELETE_SQL =
+            "DELETE FROM " + EnergyDataBatchWriter.ENERGY_DATA_TABLE +
+            " WHERE device_id = ? AND collect_time >= ? AND collect_time < ? AND id <= ? LIMIT ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 设备在 [from, to) 内原始读数的最大ID，没有读数时返回 null
+     */
+    public Long findMaxId(Long deviceId, LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.queryForObject(MAX_ID_SQL, Long.class, deviceId,
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /**
+     * 读取设备在 [from, to) 内、ID 不超过 maxId 的原始读数
+     */
+    public ReadingColumns findReadings(Long deviceId, LocalDateTime from, LocalDateTime to, long maxId) {
+        ReadingColumns columns = new ReadingColumns(1024);
+        jdbcTemplate.query(FIND_SQL, rs -> {
+            columns.add(rs.getTimestamp(1).toLocalDateTime(), rs.getDouble(2), rs.getDouble(3),
+                    rs.getDouble(4), rs.getDouble(5), rs.getBoolean(6));
+        }, deviceId, Timestamp.valueOf(from), Timestamp.valueOf(to), maxId);
+        return columns;
+    }
+
+    /**
+     * 删除一块设备在 [from, to) 内、ID 不超过 maxId 的原始读数
+     *
+     * @return 实际删除的行数，小于 limit 表示已删完
+     */
+    public int deleteReadings(Long deviceId, LocalDateTime from, LocalDateTime to, long maxId, int limit) {
+        return jdbcTemplate.update(DELETE_SQL, deviceId, Timestamp.valueOf(from), Timestamp.valueOf(to),
+                maxId, limit);
+    }
+}
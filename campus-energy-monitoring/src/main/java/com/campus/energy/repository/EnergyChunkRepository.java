@@ -0,0 +1,259 @@
+package com.campus.energy.repository;
+
+import com.campus.energy.storage.ReadingBlockCodec;
+import com.campus.energy.storage.ReadingColumns;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 能耗读数分块表（t_energy_chunk）数据访问
+ *
+ * 说明：
+ * 每台设备每小时一行，payload 为列式压缩的读数（见 ReadingBlockCodec），
+ * 汇总列（条数、最小/最大/合计、异常条数）在写入时由读数计算，统计类查询不需要解码。
+ * 块在内存中追加，写库时整块替换（INSERT ... ON DUPLICATE KEY UPDATE），
+ * 主键 (device_id, chunk_start) 即按设备按时间的查询路径，只有按保留期清理使用 idx_chunk_start。
+ */
+@Repository
+@RequiredArgsConstructor
+public class EnergyChunkRepository {
+
+    /**
+     * 分块表
+     */
+    public static final String CHUNK_TABLE = "t_energy_chunk";
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO t_energy_chunk (device_id, chunk_start, sample_count, first_time, last_time, " +
+            "voltage_min, voltage_max, voltage_sum, current_min, current_max, current_sum, " +
+            "power_min, power_max, power_sum, energy_min, energy_max, abnormal_count, payload) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE sample_count = VALUES(sample_count), first_time = VALUES(first_time), " +
+            "last_time = VALUES(last_time), voltage_min = VALUES(voltage_min), voltage_max = VALUES(voltage_max), " +
+            "voltage_sum = VALUES(voltage_sum), current_min = VALUES(current_min), " +
+            "current_max = VALUES(current_max), current_sum = VALUES(current_sum), " +
+            "power_min = VALUES(power_min), power_max = VALUES(power_max), power_sum = VALUES(power_sum), " +
+            "energy_min = VALUES(energy_min), energy_max = VALUES(energy_max), " +
+            "abnormal_count = VALUES(abnormal_count), payload = VALUES(payload)";
+
+    private static final String FIND_ONE_SQL =
+            "SELECT payload FROM t_energy_chunk WHERE device_id = ? AND chunk_start = ?";
+
+    private static final String FIND_RANGE_SQL =
+            "SELECT chunk_start, payload FROM t_energy_chunk WHERE device_id = ? " +
+            "AND chunk_start >= ? AND chunk_start <= ? ORDER BY chunk_start";
+
+    private static final String FIND_LATEST_SQL =
+            "SELECT chunk_start, payload FROM t_energy_chunk WHERE device_id = ? AND chunk_start >= ? " +
+            "ORDER BY chunk_start DESC LIMIT 1";
+
+    private static final String FIND_LATEST_ALL_SQL =
+            "SELECT c.device_id, c.chunk_start, c.payload FROM t_energy_chunk c JOIN " +
+            "(SELECT device_id, MAX(chunk_start) AS latest FROM t_energy_chunk WHERE chunk_start >= ? " +
+            "GROUP BY device_id) l ON c.device_id = l.device_id AND c.chunk_start = l.latest";
+
+    private static final String COUNTS_SQL =
+            "SELECT chunk_start, sample_count FROM t_energy_chunk WHERE device_id = ? ORDER BY chunk_start DESC";
+
+    private static final String DEVICES_SQL =
+            "SELECT DISTINCT device_id FROM t_energy_chunk WHERE chunk_start >= ? AND chunk_start < ?";
+
+    private static final String ENERGY_RANGE_SQL =
+            "SELECT device_id, MIN(energy_min), MAX(energy_max) FROM t_energy_chunk " +
+            "WHERE chunk_start >= ? AND chunk_start <= ? GROUP BY device_id";
+
+    private static final String LATEST_TOTAL_SQL =
+            "SELECT device_id, MAX(energy_max) FROM t_energy_chunk GROUP BY device_id";
+
+    private static final String EARLIEST_SQL =
+            "SELECT device_id, MIN(first_time), MIN(energy_min) FROM t_energy_chunk GROUP BY device_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * 写入（整块替换）一批块
+     *
+     * @return 写入的压缩数据总字节数
+     */
+    public long upsert(Collection<ChunkWrite> chunks) {
+        if (chunks.isEmpty()) {
+            return 0;
+        }
+        List<Object[]> rows = new ArrayList<>(chunks.size());
+        long bytes = 0;
+        for (ChunkWrite chunk : chunks) {
+            byte[] payload = ReadingBlockCodec.encode(chunk.readings());
+            bytes += payload.length;
+            rows.add(new Object[]{chunk, payload});
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, rows, rows.size(),
+                (ps, row) -> bind(ps, (ChunkWrite) row[0], (byte[]) row[1]));
+        return bytes;
+    }
+
+    /**
+     * 读取单个块的全部读数，不存在时返回空
+     */
+    public ReadingColumns find(Long deviceId, LocalDateTime chunkStart) {
+        List<byte[]> payloads = jdbcTemplate.query(FIND_ONE_SQL, (rs, rowNum) -> rs.getBytes(1),
+                deviceId, Timestamp.valueOf(chunkStart));
+        return payloads.isEmpty() ? new ReadingColumns(0) : ReadingBlockCodec.decode(
+                ByteBuffer.wrap(payloads.get(0)), 0);
+    }
+
+    /**
+     * 读取设备起始时间在 [fromChunk, toChunk] 内的块，只解码时间在 [from, to]（纪元秒）内的读数
+     *
+     * @return 块起始时间 -> 读数，按时间升序
+     */
+    public Map<LocalDateTime, ReadingColumns> findRange(Long deviceId, LocalDateTime fromChunk,
+                                                        LocalDateTime toChunk, long from, long to) {
+        Map<LocalDateTime, ReadingColumns> result = new LinkedHashMap<>();
+        jdbcTemplate.query(FIND_RANGE_SQL, rs -> {
+            result.put(rs.getTimestamp(1).toLocalDateTime(),
+                    ReadingBlockCodec.decode(ByteBuffer.wrap(rs.getBytes(2)), 0, from, to));
+        }, deviceId, Timestamp.valueOf(fromChunk), Timestamp.valueOf(toChunk));
+        return result;
+    }
+
+    /**
+     * 设备在 sinceChunk 之后最新的块，不存在时返回 null
+     */
+    public Map.Entry<LocalDateTime, ReadingColumns> findLatest(Long deviceId, LocalDateTime sinceChunk) {
+        List<Map.Entry<LocalDateTime, ReadingColumns>> rows = jdbcTemplate.query(FIND_LATEST_SQL,
+                (rs, rowNum) -> Map.entry(rs.getTimestamp(1).toLocalDateTime(),
+                        ReadingBlockCodec.decode(ByteBuffer.wrap(rs.getBytes(2)), 0)),
+                deviceId, Timestamp.valueOf(sinceChunk));
+        return rows.isEmpty() ? null : rows.get(0);
+    }
+
+    /**
+     * 所有设备在 sinceChunk 之后最新的块（一次查询）
+     *
+     * @return 设备ID -> (块起始时间, 读数)
+     */
+    public Map<Long, Map.Entry<LocalDateTime, ReadingColumns>> findLatestForAllDevices(LocalDateTime sinceChunk) {
+        Map<Long, Map.Entry<LocalDateTime, ReadingColumns>> result = new HashMap<>();
+        jdbcTemplate.query(FIND_LATEST_ALL_SQL, rs -> {
+            result.put(rs.getLong(1), Map.entry(rs.getTimestamp(2).toLocalDateTime(),
+                    ReadingBlockCodec.decode(ByteBuffer.wrap(rs.getBytes(3)), 0)));
+        }, Timestamp.valueOf(sinceChunk));
+        return result;
+    }
+
+    /**
+     * 设备每个块的读数条数，按时间倒序（分页查询定位使用，不读取 payload）
+     */
+    public Map<LocalDateTime, Integer> findSampleCounts(Long deviceId) {
+        Map<LocalDateTime, Integer> result = new LinkedHashMap<>();
+        jdbcTemplate.query(COUNTS_SQL, rs -> {
+            result.put(rs.getTimestamp(1).toLocalDateTime(), rs.getInt(2));
+        }, deviceId);
+        return result;
+    }
+
+    /**
+     * 块起始时间在 [fromChunk, toChunk) 内有读数的设备
+     */
+    public Set<Long> findDeviceIds(LocalDateTime fromChunk, LocalDateTime toChunk) {
+        return new HashSet<>(jdbcTemplate.queryForList(DEVICES_SQL, Long.class,
+                Timestamp.valueOf(fromChunk), Timestamp.valueOf(toChunk)));
+    }
+
+    /**
+     * 按设备分组统计块起始时间在 [fromChunk, toChunk] 内的累计用电量范围（只读汇总列，不解码 payload）
+     *
+     * @return 设备ID -> [最小累计用电量, 最大累计用电量]
+     */
+    public Map<Long, double[]> findEnergyRangeByDevice(LocalDateTime fromChunk, LocalDateTime toChunk) {
+        Map<Long, double[]> result = new HashMap<>();
+        jdbcTemplate.query(ENERGY_RANGE_SQL, rs -> {
+            result.put(rs.getLong(1), new double[]{rs.getDouble(2), rs.getDouble(3)});
+        }, Timestamp.valueOf(fromChunk), Timestamp.valueOf(toChunk));
+        return result;
+    }
+
+    /**
+     * 每台设备的最新累计用电量（累计用电量单调递增，取最大值），格式与 EnergyDataRepository 一致
+     */
+    public List<Object[]> findLatestTotalEnergyPerDevice() {
+        return jdbcTemplate.query(LATEST_TOTAL_SQL, (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getDouble(2)});
+    }
+
+    /**
+     * 每台设备最早的采集时间与最小累计用电量，格式与 EnergyDataRepository 一致
+     */
+    public List<Object[]> findEarliestReadingPerDevice() {
+        return jdbcTemplate.query(EARLIEST_SQL, (rs, rowNum) -> new Object[]{
+                rs.getLong(1), rs.getTimestamp(2).toLocalDateTime(), rs.getDouble(3)});
+    }
+
+    private static void bind(PreparedStatement ps, ChunkWrite chunk, byte[] payload) throws SQLException {
+        ReadingColumns readings = chunk.readings();
+        int size = readings.getSize();
+        double[] voltage = readings.getVoltage();
+        double[] current = readings.getCurrent();
+        double[] power = readings.getPower();
+        double[] energy = readings.getTotalEnergy();
+        double voltageMin = Double.POSITIVE_INFINITY, voltageMax = Double.NEGATIVE_INFINITY, voltageSum = 0;
+        double currentMin = Double.POSITIVE_INFINITY, currentMax = Double.NEGATIVE_INFINITY, currentSum = 0;
+        double powerMin = Double.POSITIVE_INFINITY, powerMax = Double.NEGATIVE_INFINITY, powerSum = 0;
+        double energyMin = Double.POSITIVE_INFINITY, energyMax = Double.NEGATIVE_INFINITY;
+        int abnormal = 0;
+        for (int i = 0; i < size; i++) {
+            voltageMin = Math.min(voltageMin, voltage[i]);
+            voltageMax = Math.max(voltageMax, voltage[i]);
+            voltageSum += voltage[i];
+            currentMin = Math.min(currentMin, current[i]);
+            currentMax = Math.max(currentMax, current[i]);
+            currentSum += current[i];
+            powerMin = Math.min(powerMin, power[i]);
+            powerMax = Math.max(powerMax, power[i]);
+            powerSum += power[i];
+            energyMin = Math.min(energyMin, energy[i]);
+            energyMax = Math.max(energyMax, energy[i]);
+            if (readings.getAbnormal()[i]) {
+                abnormal++;
+            }
+        }
+        ps.setLong(1, chunk.deviceId());
+        ps.setTimestamp(2, Timestamp.valueOf(chunk.chunkStart()));
+        ps.setInt(3, size);
+        ps.setTimestamp(4, Timestamp.valueOf(readings.getCollectTime(0)));
+        ps.setTimestamp(5, Timestamp.valueOf(readings.getCollectTime(size - 1)));
+        ps.setDouble(6, voltageMin);
+        ps.setDouble(7, voltageMax);
+        ps.setDouble(8, voltageSum);
+        ps.setDouble(9, currentMin);
+        ps.setDouble(10, currentMax);
+        ps.setDouble(11, currentSum);
+        ps.setDouble(12, powerMin);
+        ps.setDouble(13, powerMax);
+        ps.setDouble(14, powerSum);
+        ps.setDouble(15, energyMin);
+        ps.setDouble(16, energyMax);
+        ps.setInt(17, abnormal);
+        ps.setBytes(18, payload);
+    }
+
+    /**
+     * 待写入的块（读数须已按时间升序去重且不为空）
+     */
+    public record ChunkWrite(Long deviceId, LocalDateTime chunkStart, ReadingColumns readings) {
+    }
+}
@@ -0,0 +1,221 @@
+package com.campus.energy.repository;
+
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.storage.EnergyChunkStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 能耗数据批量写入器
+ *
+ * 说明：
+ * EnergyData 使用 IDENTITY 主键，Hibernate 无法对其做 JDBC 批量插入，
+ * 逐条 save() 在设备数量较多时会成为瓶颈。
+ * 本类绕过 JPA，直接使用 JdbcTemplate 按块批量插入：
+ * - 每块数据在独立的短事务中提交
+ * - 配合 MySQL 连接参数 rewriteBatchedStatements=true，驱动会将一批语句改写为多行 INSERT
+ * - 主键仍由数据库自增生成，不需要在插入前获取ID，因此可以整块批量写入
+ * - 能耗数据表使用 INSERT IGNORE，(device_id, collect_time) 唯一键冲突的重复读数被忽略，
+ *   作为内存去重之外的兜底，不需要逐条 SELECT
+ *
+ * 某一块写入失败只影响该块：记录失败并继续写入其余块，返回实际写入的行数；
+ * 需要重试的调用方可以传入 failed 列表取回失败块中的读数。
+ *
+ * 同时统计写入行数、写入速率与每块刷新耗时，便于调整块大小。
+ *
+ * energy.storage.mode=CHUNK 时写入能耗数据表的读数改为追加到按设备按小时分块的存储（EnergyChunkStore），
+ * 由其定时整块写入 t_energy_chunk；压测表不受影响。
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class EnergyDataBatchWriter {
+
+    /**
+     * 能耗数据表
+     */
+    public static final String ENERGY_DATA_TABLE = "t_energy_data";
+
+    /**
+     * 压测数据表（与能耗数据表结构相同，无外键，供虚拟电表压测写入）
+     */
+    public static final String LOAD_TEST_TABLE = "t_energy_data_load";
+
+    private static final String INSERT_SQL =
+            "INSERT %s INTO %s (device_id, voltage, current, power, total_energy, is_abnormal, collect_time) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EnergyChunkStore energyChunkStore;
+
+    /**
+     * 每块写入的行数
+     */
+    @Value("${ingest.batch-size:500}")
+    private int batchSize;
+
+    private final AtomicLong totalRows = new AtomicLong();
+    private final AtomicLong totalChunks = new AtomicLong();
+    private final AtomicLong failedChunks = new AtomicLong();
+    private final AtomicLong ignoredDuplicates = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private final AtomicLong maxFlushNanos = new AtomicLong();
+    private final AtomicLong lastFlushNanos = new AtomicLong();
+
+    /**
+     * 批量写入能耗数据，按 batchSize 切块，每块独立事务
+     *
+     * @return 成功写入的行数
+     */
+    public int writeAll(List<EnergyData> readings) {
+        return writeAll(readings, ENERGY_DATA_TABLE);
+    }
+
+    /**
+     * 批量写入到指定表（ENERGY_DATA_TABLE 或 LOAD_TEST_TABLE）
+     */
+    public int writeAll(List<EnergyData> readings, String table) {
+        return writeAll(readings, table, new ArrayList<>());
+    }
+
+    /**
+     * 批量写入到指定表，写入失败的块中的读数加入 failed（由调用方重试）
+     *
+     * @return 成功写入的行数
+     */
+    public int writeAll(List<EnergyData> readings, String table, List<EnergyData> failed) {
+        return write(readings, table, failed, false);
+    }
+
+    /**
+     * 按顺序写入到指定表，遇到写入失败的块即停止：该块及之后的读数全部加入 failed
+     *
+     * 成功写入的总是 readings 的前缀，调用方可以从第一条失败的读数处继续（如历史回填的断点续传）
+     *
+     * @return 成功写入的行数
+     */
+    public int writeInOrder(List<EnergyData> readings, String table, List<EnergyData> failed) {
+        return write(readings, table, failed, true);
+    }
+
+    private int write(List<EnergyData> readings, String table, List<EnergyData> failed, boolean stopOnFailure) {
+        if (!ENERGY_DATA_TABLE.equals(table) && !LOAD_TEST_TABLE.equals(table)) {
+            throw new IllegalArgumentException("不支持的目标表: " + table);
+        }
+        if (ENERGY_DATA_TABLE.equals(table) && energyChunkStore.isEnabled()) {
+            return energyChunkStore.append(readings);
+        }
+        // 压测表没有唯一键，保持普通 INSERT
+        String sql = String.format(INSERT_SQL, ENERGY_DATA_TABLE.equals(table) ? "IGNORE" : "", table);
+        int written = 0;
+        for (int from = 0; from < readings.size(); from += batchSize) {
+            List<EnergyData> chunk = readings.subList(from, Math.min(from + batchSize, readings.size()));
+            try {
+                written += flushChunk(sql, chunk);
+            } catch (RuntimeException e) {
+                if (stopOnFailure) {
+                    failed.addAll(readings.subList(from, readings.size()));
+                    break;
+                }
+                // 只放弃失败的这一块，其余块照常写入
+                failed.addAll(chunk);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * 在独立事务中写入一块数据
+     */
+    private int flushChunk(String sql, List<EnergyData> chunk) {
+        long start = System.nanoTime();
+        try {
+            int[][] counts = transactionTemplate.execute(status ->
+                    jdbcTemplate.batchUpdate(sql, chunk, chunk.size(), (ps, data) -> {
+                        ps.setLong(1, data.getDevice().getId());
+                        ps.setDouble(2, data.getVoltage());
+                        ps.setDouble(3, data.getCurrent());
+                        ps.setDouble(4, data.getPower());
+                        ps.setDouble(5, data.getTotalEnergy());
+                        ps.setBoolean(6, Boolean.TRUE.equals(data.getIsAbnormal()));
+                        ps.setTimestamp(7, Timestamp.valueOf(data.getCollectTime()));
+                    }));
+            ignoredDuplicates.addAndGet(countIgnored(counts));
+        } catch (RuntimeException e) {
+            failedChunks.incrementAndGet();
+            log.error("能耗数据批量写入失败，本块 {} 条: {}", chunk.size(), e.getMessage());
+            throw e;
+        }
+
+        long elapsed = System.nanoTime() - start;
+        totalRows.addAndGet(chunk.size());
+        totalChunks.incrementAndGet();
+        totalFlushNanos.addAndGet(elapsed);
+        lastFlushNanos.set(elapsed);
+        maxFlushNanos.accumulateAndGet(elapsed, Math::max);
+
+        log.debug("批量写入 {} 条能耗数据，耗时 {} ms", chunk.size(), elapsed / 1_000_000.0);
+        return chunk.size();
+    }
+
+    /**
+     * 统计被 INSERT IGNORE 忽略的行（影响行数为0）
+     * 驱动改写为多行 INSERT 时返回 SUCCESS_NO_INFO，此时无法逐条区分，不计入
+     */
+    private static long countIgnored(int[][] counts) {
+        long ignored = 0;
+        if (counts != null) {
+            for (int[] batch : counts) {
+                for (int count : batch) {
+                    if (count == 0) {
+                        ignored++;
+                    }
+                }
+            }
+        }
+        return ignored;
+    }
+
+    /**
+     * 获取写入统计信息
+     * - rowsPerSecond：按累计刷新耗时计算的数据库吸收速率
+     * - avgFlushMillis / maxFlushMillis / lastFlushMillis：每块刷新耗时
+     * - ignoredDuplicates：唯一键兜底忽略的重复行（尽力统计）
+     */
+    public Map<String, Object> getStats() {
+        long rows = totalRows.get();
+        long chunks = totalChunks.get();
+        long nanos = totalFlushNanos.get();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("batchSize", batchSize);
+        stats.put("totalRows", rows);
+        stats.put("totalChunks", chunks);
+        stats.put("failedChunks", failedChunks.get());
+        stats.put("ignoredDuplicates", ignoredDuplicates.get());
+        stats.put("rowsPerSecond", nanos > 0 ? Math.round(rows * 1_000_000_000.0 / nanos) : 0);
+        stats.put("avgFlushMillis", chunks > 0 ? round(nanos / 1_000_000.0 / chunks) : 0.0);
+        stats.put("maxFlushMillis", round(maxFlushNanos.get() / 1_000_000.0));
+        stats.put("lastFlushMillis", round(lastFlushNanos.get() / 1_000_000.0));
+        if (energyChunkStore.isEnabled()) {
+            stats.put("chunkStorage", energyChunkStore.getStats());
+        }
+        return stats;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100.0) / 100.0;
+    }
+}
@@ -0,0 +1,282 @@
+package com.campus.energy.repository;
+
+import com.campus.energy.enums.PartitionGranularity;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 能耗数据表分区维护
+ *
+ * 说明：
+ * t_energy_data 按 TO_DAYS(collect_time) 做 RANGE 分区，最后一个分区 p_future 为 MAXVALUE 兜底分区。
+ * 本类在启动时和每天定时执行一次维护：
+ * - 预建：把 p_future 拆分出当前周期及之后 ahead 个周期的分区（REORGANIZE PARTITION），
+ *   p_future 中通常没有数据，拆分只修改元数据；第一个新分区同时承接上一个边界之后的全部旧数据
+ * - 保留：上界早于 今天 - retention-days 的分区整体 DROP PARTITION，
+ *   只修改元数据、立即释放空间，不产生逐行 DELETE 的 undo/binlog 和锁等待；retention-days 为0时不删除
+ *
+ * 仅对 MySQL 且已分区的表生效；表未分区（旧库未升级）或数据库不支持时只记录日志，不影响接入。
+ */
+@Slf4j
+@Repository
+@RequiredArgsConstructor
+public class EnergyDataPartitionManager {
+
+    /**
+     * 兜底分区名
+     */
+    public static final String FUTURE_PARTITION = "p_future";
+
+    /**
+     * MySQL TO_DAYS('1970-01-01')
+     */
+    private static final long TO_DAYS_EPOCH = 719528;
+
+    private static final String PARTITIONS_SQL =
+            "SELECT PARTITION_NAME, PARTITION_DESCRIPTION, TABLE_ROWS, DATA_LENGTH, INDEX_LENGTH " +
+            "FROM information_schema.PARTITIONS WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? " +
+            "ORDER BY PARTITION_ORDINAL_POSITION";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${energy.partition.enabled:true}")
+    private boolean enabled;
+
+    @Value("${energy.partition.granularity:MONTH}")
+    private PartitionGranularity granularity;
+
+    /**
+     * 预建分区数（当前周期之后）
+     */
+    @Value("${energy.partition.ahead:3}")
+    private int ahead;
+
+    /**
+     * 原始读数保留天数，0表示不删除
+     */
+    @Value("${energy.partition.retention-days:0}")
+    private int retentionDays;
+
+    private volatile String lastMaintainedAt;
+    private volatile String lastError;
+    private volatile List<String> lastCreated = List.of();
+    private volatile List<String> lastDropped = List.of();
+
+    @PostConstruct
+    public void init() {
+        maintain();
+    }
+
+    /**
+     * 每天定时预建分区、删除过期分区
+     */
+    @Scheduled(cron = "${energy.partition.cron:0 10 0 * * ?}")
+    public void scheduledMaintain() {
+        maintain();
+    }
+
+    /**
+     * 执行一次分区维护
+     *
+     * @return 本次维护结果：新建与删除的分区
+     */
+    public synchronized Map<String, Object> maintain() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("enabled", enabled);
+        if (!enabled) {
+            return result;
+        }
+        try {
+            List<PartitionInfo> partitions = listPartitions();
+            if (partitions.isEmpty() || !FUTURE_PARTITION.equals(partitions.get(partitions.size() - 1).name())) {
+                log.warn("{} 未按 collect_time 分区或缺少兜底分区 {}，跳过分区维护（升级方法见 sql/schema.sql）",
+                        EnergyDataBatchWriter.ENERGY_DATA_TABLE, FUTURE_PARTITION);
+                lastError = "表未分区";
+                result.put("partitioned", false);
+                return result;
+            }
+            LocalDate today = LocalDate.now();
+            List<String> created = createAhead(partitions, today);
+            List<String> dropped = dropExpired(partitions, today);
+            lastCreated = created;
+            lastDropped = dropped;
+            lastError = null;
+            lastMaintainedAt = LocalDateTime.now().toString();
+            if (!created.isEmpty() || !dropped.isEmpty()) {
+                log.info("能耗数据分区维护完成: 新建 {}, 删除 {}", created, dropped);
+            }
+            result.put("partitioned", true);
+            result.put("created", created);
+            result.put("dropped", dropped);
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            log.warn("能耗数据分区维护失败: {}", e.getMessage());
+            result.put("error", e.getMessage());
+        }
+        return result;
+    }
+
+    /**
+     * 从 p_future 拆分出直到 当前周期 + ahead 的分区
+     */
+    private List<String> createAhead(List<PartitionInfo> partitions, LocalDate today) {
+        LocalDate bound = lastBound(partitions);
+        LocalDate target = granularity.periodStart(today);
+        for (int i = 0; i <= ahead; i++) {
+            target = granularity.next(target);
+        }
+        List<String> names = new ArrayList<>();
+        StringBuilder ddl = new StringBuilder();
+        // 第一个新分区从当前周期开始命名，承接上一个边界到当前周期之间的数据，不为空档期补建空分区
+        LocalDate start = bound == null ? granularity.periodStart(today)
+                : max(granularity.periodStart(bound), granularity.periodStart(today));
+        LocalDate next = granularity.next(start);
+        while (!next.isAfter(target)) {
+            if (bound == null || next.isAfter(bound)) {
+                String name = granularity.partitionName(start);
+                names.add(name);
+                ddl.append("PARTITION ").append(name)
+                        .append(" VALUES LESS THAN (TO_DAYS('").append(next).append("')), ");
+            }
+            start = next;
+            next = granularity.next(start);
+        }
+        if (names.isEmpty()) {
+            return names;
+        }
+        jdbcTemplate.execute("ALTER TABLE " + EnergyDataBatchWriter.ENERGY_DATA_TABLE
+                + " REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO (" + ddl
+                + "PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN MAXVALUE)");
+        return names;
+    }
+
+    /**
+     * 删除上界不晚于 今天 - retention-days 的分区
+     */
+    private List<String> dropExpired(List<PartitionInfo> partitions, LocalDate today) {
+        if (retentionDays <= 0) {
+            return List.of();
+        }
+        return dropBefore(partitions, today.minusDays(retentionDays)).stream().map(PartitionInfo::name).toList();
+    }
+
+    /**
+     * 删除上界不晚于 cutoff 的分区（分区内数据全部早于 cutoff），表未分区时不做任何操作
+     *
+     * @return 被删除的分区（含删除前的行数估计与占用空间）
+     */
+    public synchronized List<PartitionInfo> dropPartitionsBefore(LocalDate cutoff) {
+        if (!enabled) {
+            return List.of();
+        }
+        List<PartitionInfo> partitions = listPartitions();
+        if (partitions.isEmpty()) {
+            return List.of();
+        }
+        List<PartitionInfo> dropped = dropBefore(partitions, cutoff);
+        if (!dropped.isEmpty()) {
+            lastDropped = dropped.stream().map(PartitionInfo::name).toList();
+            log.info("能耗数据分区已删除: {}", lastDropped);
+        }
+        return dropped;
+    }
+
+    private List<PartitionInfo> dropBefore(List<PartitionInfo> partitions, LocalDate cutoff) {
+        List<PartitionInfo> expired = new ArrayList<>();
+        for (PartitionInfo partition : partitions) {
+            if (partition.upperBound() != null && !partition.upperBound().isAfter(cutoff)) {
+                expired.add(partition);
+            }
+        }
+        if (!expired.isEmpty()) {
+            jdbcTemplate.execute("ALTER TABLE " + EnergyDataBatchWriter.ENERGY_DATA_TABLE + " DROP PARTITION "
+                    + String.join(", ", expired.stream().map(PartitionInfo::name).toList()));
+        }
+        return expired;
+    }
+
+    /**
+     * 读取分区列表（按分区顺序），表未分区时返回空列表
+     */
+    public List<PartitionInfo> listPartitions() {
+        List<PartitionInfo> partitions = jdbcTemplate.query(PARTITIONS_SQL, (rs, i) -> {
+            String name = rs.getString("PARTITION_NAME");
+            String description = rs.getString("PARTITION_DESCRIPTION");
+            LocalDate upperBound = description == null || "MAXVALUE".equalsIgnoreCase(description)
+                    ? null : LocalDate.ofEpochDay(Long.parseLong(description) - TO_DAYS_EPOCH);
+            return new PartitionInfo(name, upperBound, rs.getLong("TABLE_ROWS"),
+                    rs.getLong("DATA_LENGTH") + rs.getLong("INDEX_LENGTH"));
+        }, EnergyDataBatchWriter.ENERGY_DATA_TABLE);
+        // 未分区的表在 PARTITIONS 中也有一行，PARTITION_NAME 为空
+        partitions.removeIf(p -> p.name() == null);
+        return partitions;
+    }
+
+    private static LocalDate lastBound(List<PartitionInfo> partitions) {
+        LocalDate bound = null;
+        for (PartitionInfo partition : partitions) {
+            if (partition.upperBound() != null) {
+                bound = partition.upperBound();
+            }
+        }
+        return bound;
+    }
+
+    private static LocalDate max(LocalDate a, LocalDate b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    /**
+     * 获取分区状态：配置、最近一次维护结果及各分区的行数估计与占用空间
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("granularity", granularity);
+        stats.put("ahead", ahead);
+        stats.put("retentionDays", retentionDays);
+        stats.put("lastMaintainedAt", lastMaintainedAt);
+        stats.put("lastCreated", lastCreated);
+        stats.put("lastDropped", lastDropped);
+        stats.put("lastError", lastError);
+        if (enabled) {
+            try {
+                List<Map<String, Object>> partitions = new ArrayList<>();
+                for (PartitionInfo partition : listPartitions()) {
+                    Map<String, Object> item = new LinkedHashMap<>();
+                    item.put("name", partition.name());
+                    item.put("lessThan", partition.upperBound() != null ? partition.upperBound().toString() : "MAXVALUE");
+                    item.put("rows", partition.rows());
+                    item.put("bytes", partition.bytes());
+                    partitions.add(item);
+                }
+                stats.put("partitions", partitions);
+            } catch (Exception e) {
+                stats.put("partitions", List.of());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * 分区信息
+     *
+     * @param upperBound 分区上界（不含），MAXVALUE 分区为 null
+     * @param rows 行数估计（information_schema 统计值）
+     * @param bytes 数据与索引占用空间（字节）
+     */
+    public record PartitionInfo(String name, LocalDate upperBound, long rows, long bytes) {
+    }
+}
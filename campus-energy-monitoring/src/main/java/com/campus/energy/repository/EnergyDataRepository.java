@@ -14,6 +14,11 @@ import java.util.Optional;
 
 /**
  * 能耗数据数据访问层
+ *
+ * 说明：
+ * t_energy_data 按 collect_time 分区，查询都应带 collect_time 的范围条件，
+ * 以便 MySQL 只扫描命中的分区（分区裁剪）。查询“最新”数据时同样以回看时间 since 为下界，
+ * 只有启动加载、历史回填等低频操作才允许跨全部分区扫描。
  */
 @Repository
 public interface EnergyDataRepository extends JpaRepository<EnergyData, Long> {
@@ -24,10 +29,16 @@ public interface EnergyDataRepository extends JpaRepository<EnergyData, Long> {
     Page<EnergyData> findByDeviceId(Long deviceId, Pageable pageable);
     
     /**
-     * 根据设备ID查找最新的能耗数据
+     * 根据设备ID查找最新的能耗数据（跨全部分区，仅在回看窗口内无数据时使用）
      */
     Optional<EnergyData> findTopByDeviceIdOrderByCollectTimeDesc(Long deviceId);
     
+    /**
+     * 根据设备ID查找 since 之后最新的能耗数据（只扫描 since 之后的分区）
+     */
+    Optional<EnergyData> findTopByDeviceIdAndCollectTimeGreaterThanEqualOrderByCollectTimeDesc(Long deviceId,
+                                                                                          LocalDateTime since);
+    
     /**
      * 根据设备ID和时间范围查找能耗数据
      */
@@ -55,16 +66,33 @@ public interface EnergyDataRepository extends JpaRepository<EnergyData, Long> {
                                       @Param("endTime") LocalDateTime endTime);
     
     /**
-     * 查找所有设备的最新能耗数据
+     * 按设备分组统计指定时间范围内的用电量（一次查询，没有读数的设备不返回）
+     * 
+     * @return [设备ID, 用电量]
      */
-    @Query("SELECT e FROM EnergyData e WHERE e.collectTime = " +
-           "(SELECT MAX(e2.collectTime) FROM EnergyData e2 WHERE e2.device.id = e.device.id)")
-    List<EnergyData> findLatestEnergyDataForAllDevices();
+    @Query("SELECT e.device.id, MAX(e.totalEnergy) - MIN(e.totalEnergy) FROM EnergyData e " +
+           "WHERE e.collectTime BETWEEN :startTime AND :endTime GROUP BY e.device.id")
+    List<Object[]> calculateEnergyConsumptionPerDevice(@Param("startTime") LocalDateTime startTime,
+                                                       @Param("endTime") LocalDateTime endTime);
     
     /**
-     * 查找异常数据
+     * 按设备分组统计指定时间范围内的最小与最大累计用电量（一次查询）
+     * 
+     * @return [设备ID, 最小累计用电量, 最大累计用电量]
      */
-    List<EnergyData> findByIsAbnormalTrue();
+    @Query("SELECT e.device.id, MIN(e.totalEnergy), MAX(e.totalEnergy) FROM EnergyData e " +
+           "WHERE e.collectTime BETWEEN :startTime AND :endTime GROUP BY e.device.id")
+    List<Object[]> findEnergyRangePerDevice(@Param("startTime") LocalDateTime startTime,
+                                            @Param("endTime") LocalDateTime endTime);
+    
+    /**
+     * 查找所有设备在 since 之后的最新能耗数据
+     * 外层与子查询都带 collect_time 下界，两者都只扫描 since 之后的分区
+     */
+    @Query("SELECT e FROM EnergyData e WHERE e.collectTime >= :since AND e.collectTime = " +
+           "(SELECT MAX(e2.collectTime) FROM EnergyData e2 WHERE e2.device.id = e.device.id " +
+           "AND e2.collectTime >= :since)")
+    List<EnergyData> findLatestEnergyDataForAllDevices(@Param("since") LocalDateTime since);
     
     /**
      * 根据时间范围查找异常数据
@@ -80,10 +108,32 @@ public interface EnergyDataRepository extends JpaRepository<EnergyData, Long> {
     long countByCollectTimeBetween(LocalDateTime startTime, LocalDateTime endTime);
     
     /**
-     * 获取设备最新累计用电量
+     * 获取设备在 since 之后的最新累计用电量
+     */
+    @Query("SELECT e.totalEnergy FROM EnergyData e WHERE e.device.id = :deviceId " +
+           "AND e.collectTime >= :since ORDER BY e.collectTime DESC LIMIT 1")
+    Optional<Double> findLatestTotalEnergyByDeviceId(@Param("deviceId") Long deviceId,
+                                                     @Param("since") LocalDateTime since);
+    
+    /**
+     * 获取设备最新累计用电量（跨全部分区，仅在回看窗口内无数据时使用）
      */
     @Query("SELECT e.totalEnergy FROM EnergyData e WHERE e.device.id = :deviceId " +
            "ORDER BY e.collectTime DESC LIMIT 1")
     Optional<Double> findLatestTotalEnergyByDeviceId(@Param("deviceId") Long deviceId);
+    
+    /**
+     * 一次性获取所有设备的最新累计用电量
+     * 累计用电量单调递增，因此每台设备的最大值即最新值
+     * 仅在启动时调用一次，允许跨全部分区扫描
+     */
+    @Query("SELECT e.device.id, MAX(e.totalEnergy) FROM EnergyData e GROUP BY e.device.id")
+    List<Object[]> findLatestTotalEnergyPerDevice();
+    
+    /**
+     * 获取每台设备最早的采集时间与最小累计用电量（历史回填的续传起点）
+     * 仅在启动回填时调用，允许跨全部分区扫描
+     */
+    @Query("SELECT e.device.id, MIN(e.collectTime), MIN(e.totalEnergy) FROM EnergyData e GROUP BY e.device.id")
+    List<Object[]> findEarliestReadingPerDevice();
 }
-
@@ -0,0 +1,232 @@
+package com.campus.energy.repository;
+
+import com.campus.energy.enums.RollupResolution;
+import com.campus.energy.ingest.RollupBucket;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 能耗汇总表（t_energy_rollup）数据访问
+ *
+ * 说明：
+ * 汇总行按 (resolution, device_id, bucket_start) 唯一，使用 INSERT ... ON DUPLICATE KEY UPDATE 增量合并：
+ * 最小/最大值取 LEAST/GREATEST，合计与条数相加，最后值按 last_time 取较晚的一条。
+ * MySQL 按书写顺序计算赋值，last_time 必须放在最后更新。
+ */
+@Repository
+@RequiredArgsConstructor
+public class EnergyRollupRepository {
+
+    /**
+     * 汇总表
+     */
+    public static final String ROLLUP_TABLE = "t_energy_rollup";
+
+    private static final String COLUMNS =
+            "resolution, device_id, bucket_start, sample_count, " +
+            "voltage_min, voltage_max, voltage_sum, voltage_last, " +
+            "current_min, current_max, current_sum, current_last, " +
+            "power_min, power_max, power_sum, power_last, " +
+            "energy_min, energy_max, last_time";
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO t_energy_rollup (" + COLUMNS + ") " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE " +
+            "sample_count = sample_count + VALUES(sample_count), " +
+            "voltage_min = LEAST(voltage_min, VALUES(voltage_min)), " +
+            "voltage_max = GREATEST(voltage_max, VALUES(voltage_max)), " +
+            "voltage_sum = voltage_sum + VALUES(voltage_sum), " +
+            "voltage_last = IF(VALUES(last_time) >= last_time, VALUES(voltage_last), voltage_last), " +
+            "current_min = LEAST(current_min, VALUES(current_min)), " +
+            "current_max = GREATEST(current_max, VALUES(current_max)), " +
+            "current_sum = current_sum + VALUES(current_sum), " +
+            "current_last = IF(VALUES(last_time) >= last_time, VALUES(current_last), current_last), " +
+            "power_min = LEAST(power_min, VALUES(power_min)), " +
+            "power_max = GREATEST(power_max, VALUES(power_max)), " +
+            "power_sum = power_sum + VALUES(power_sum), " +
+            "power_last = IF(VALUES(last_time) >= last_time, VALUES(power_last), power_last), " +
+            "energy_min = LEAST(energy_min, VALUES(energy_min)), " +
+            "energy_max = GREATEST(energy_max, VALUES(energy_max)), " +
+            "last_time = GREATEST(last_time, VALUES(last_time))";
+
+    private static final String DELETE_RANGE_SQL =
+            "DELETE FROM t_energy_rollup WHERE resolution = ? AND device_id = ? " +
+            "AND bucket_start >= ? AND bucket_start < ?";
+
+    private static final String FIND_SQL =
+            "SELECT " + COLUMNS + " FROM t_energy_rollup WHERE resolution = ? AND device_id = ? " +
+            "AND bucket_start >= ? AND bucket_start <= ? ORDER BY bucket_start";
+
+    private static final String CONSUMPTION_SQL =
+            "SELECT device_id, MAX(energy_max) - MIN(energy_min) FROM t_energy_rollup " +
+            "WHERE resolution = ? AND bucket_start >= ? AND bucket_start <= ? GROUP BY device_id";
+
+    private static final String ENERGY_RANGE_SQL =
+            "SELECT device_id, MIN(energy_min), MAX(energy_max) FROM t_energy_rollup " +
+            "WHERE resolution = ? AND bucket_start >= ? AND bucket_start <= ? GROUP BY device_id";
+
+    private static final String RAW_SQL =
+            "SELECT voltage, current, power, total_energy, collect_time FROM t_energy_data " +
+            "WHERE device_id = ? AND collect_time >= ? AND collect_time < ?";
+
+    private static final String RAW_DEVICES_SQL =
+            "SELECT DISTINCT device_id FROM t_energy_data WHERE collect_time >= ? AND collect_time < ?";
+
+    private static final String ROLLUP_DEVICES_SQL =
+            "SELECT DISTINCT device_id FROM t_energy_rollup WHERE resolution = ? " +
+            "AND bucket_start >= ? AND bucket_start < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * 将汇总桶增量合并到汇总表
+     */
+    public void upsert(Collection<RollupBucket> buckets) {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPSERT_SQL, buckets, buckets.size(), EnergyRollupRepository::bind);
+    }
+
+    /**
+     * 用重新计算的汇总桶替换设备在 [from, to) 内的汇总行（单个事务）
+     */
+    public void replace(RollupResolution resolution, Long deviceId, LocalDateTime from, LocalDateTime to,
+                        Collection<RollupBucket> buckets) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.update(DELETE_RANGE_SQL, resolution.name(), deviceId,
+                    Timestamp.valueOf(from), Timestamp.valueOf(to));
+            upsert(buckets);
+        });
+    }
+
+    /**
+     * 查询设备在 [from, to] 内开始的汇总桶，按时间升序
+     */
+    public List<RollupBucket> findByDevice(RollupResolution resolution, Long deviceId,
+                                           LocalDateTime from, LocalDateTime to) {
+        return jdbcTemplate.query(FIND_SQL, EnergyRollupRepository::mapBucket, resolution.name(), deviceId,
+                Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /**
+     * 按设备统计 [from, to] 内开始的汇总桶的用电量（一次分组查询）
+     *
+     * @return 设备ID -> 用电量(kWh)，没有汇总数据的设备不在结果中
+     */
+    public Map<Long, Double> sumConsumptionByDevice(RollupResolution resolution,
+                                                    LocalDateTime from, LocalDateTime to) {
+        Map<Long, Double> result = new HashMap<>();
+        jdbcTemplate.query(CONSUMPTION_SQL, rs -> {
+            result.put(rs.getLong(1), rs.getDouble(2));
+        }, resolution.name(), Timestamp.valueOf(from), Timestamp.valueOf(to));
+        return result;
+    }
+
+    /**
+     * 按设备统计 [from, to] 内开始的汇总桶的累计用电量范围（一次分组查询）
+     *
+     * @return 设备ID -> [最小累计用电量, 最大累计用电量]
+     */
+    public Map<Long, double[]> findEnergyRangeByDevice(RollupResolution resolution,
+                                                       LocalDateTime from, LocalDateTime to) {
+        Map<Long, double[]> result = new HashMap<>();
+        jdbcTemplate.query(ENERGY_RANGE_SQL, rs -> {
+            result.put(rs.getLong(1), new double[]{rs.getDouble(2), rs.getDouble(3)});
+        }, resolution.name(), Timestamp.valueOf(from), Timestamp.valueOf(to));
+        return result;
+    }
+
+    /**
+     * 从原始读数重新计算设备在 [from, to) 内的汇总桶（修复任务使用，只扫描命中的分区）
+     */
+    public Collection<RollupBucket> aggregateRaw(RollupResolution resolution, Long deviceId,
+                                                 LocalDateTime from, LocalDateTime to) {
+        Map<LocalDateTime, RollupBucket> buckets = new LinkedHashMap<>();
+        jdbcTemplate.query(RAW_SQL, rs -> {
+            LocalDateTime collectTime = rs.getTimestamp(5).toLocalDateTime();
+            buckets.computeIfAbsent(resolution.floor(collectTime),
+                            start -> new RollupBucket(resolution, deviceId, start))
+                    .add(rs.getDouble(1), rs.getDouble(2), rs.getDouble(3), rs.getDouble(4), collectTime);
+        }, deviceId, Timestamp.valueOf(from), Timestamp.valueOf(to));
+        return new ArrayList<>(buckets.values());
+    }
+
+    /**
+     * [from, to) 内有原始读数的设备
+     */
+    public Set<Long> findRawDeviceIds(LocalDateTime from, LocalDateTime to) {
+        return new HashSet<>(jdbcTemplate.queryForList(RAW_DEVICES_SQL, Long.class,
+                Timestamp.valueOf(from), Timestamp.valueOf(to)));
+    }
+
+    /**
+     * [from, to) 内有指定粒度汇总行的设备
+     */
+    public Set<Long> findRollupDeviceIds(RollupResolution resolution, LocalDateTime from, LocalDateTime to) {
+        return new HashSet<>(jdbcTemplate.queryForList(ROLLUP_DEVICES_SQL, Long.class, resolution.name(),
+                Timestamp.valueOf(from), Timestamp.valueOf(to)));
+    }
+
+    private static void bind(PreparedStatement ps, RollupBucket bucket) throws SQLException {
+        ps.setString(1, bucket.getResolution().name());
+        ps.setLong(2, bucket.getDeviceId());
+        ps.setTimestamp(3, Timestamp.valueOf(bucket.getBucketStart()));
+        ps.setInt(4, bucket.getSampleCount());
+        ps.setDouble(5, bucket.getVoltageMin());
+        ps.setDouble(6, bucket.getVoltageMax());
+        ps.setDouble(7, bucket.getVoltageSum());
+        ps.setDouble(8, bucket.getVoltageLast());
+        ps.setDouble(9, bucket.getCurrentMin());
+        ps.setDouble(10, bucket.getCurrentMax());
+        ps.setDouble(11, bucket.getCurrentSum());
+        ps.setDouble(12, bucket.getCurrentLast());
+        ps.setDouble(13, bucket.getPowerMin());
+        ps.setDouble(14, bucket.getPowerMax());
+        ps.setDouble(15, bucket.getPowerSum());
+        ps.setDouble(16, bucket.getPowerLast());
+        ps.setDouble(17, bucket.getEnergyMin());
+        ps.setDouble(18, bucket.getEnergyMax());
+        ps.setTimestamp(19, Timestamp.valueOf(bucket.getLastTime()));
+    }
+
+    private static RollupBucket mapBucket(ResultSet rs, int rowNum) throws SQLException {
+        RollupBucket bucket = new RollupBucket(RollupResolution.valueOf(rs.getString("resolution")),
+                rs.getLong("device_id"), rs.getTimestamp("bucket_start").toLocalDateTime());
+        bucket.setSampleCount(rs.getInt("sample_count"));
+        bucket.setVoltageMin(rs.getDouble("voltage_min"));
+        bucket.setVoltageMax(rs.getDouble("voltage_max"));
+        bucket.setVoltageSum(rs.getDouble("voltage_sum"));
+        bucket.setVoltageLast(rs.getDouble("voltage_last"));
+        bucket.setCurrentMin(rs.getDouble("current_min"));
+        bucket.setCurrentMax(rs.getDouble("current_max"));
+        bucket.setCurrentSum(rs.getDouble("current_sum"));
+        bucket.setCurrentLast(rs.getDouble("current_last"));
+        bucket.setPowerMin(rs.getDouble("power_min"));
+        bucket.setPowerMax(rs.getDouble("power_max"));
+        bucket.setPowerSum(rs.getDouble("power_sum"));
+        bucket.setPowerLast(rs.getDouble("power_last"));
+        bucket.setEnergyMin(rs.getDouble("energy_min"));
+        bucket.setEnergyMax(rs.getDouble("energy_max"));
+        bucket.setLastTime(rs.getTimestamp("last_time").toLocalDateTime());
+        return bucket;
+    }
+}
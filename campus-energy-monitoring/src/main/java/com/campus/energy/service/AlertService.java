@@ -5,6 +5,7 @@ import com.campus.energy.entity.Alert;
 import com.campus.energy.entity.Device;
 import com.campus.energy.entity.EnergyData;
 import com.campus.energy.enums.AlertType;
+import com.campus.energy.event.AlertResolvedEvent;
 import com.campus.energy.exception.BusinessException;
 import com.campus.energy.pattern.observer.AlertSubject;
 import com.campus.energy.pattern.strategy.AlertStrategy;
@@ -12,6 +13,7 @@ import com.campus.energy.repository.AlertRepository;
 import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -94,6 +96,7 @@ public class AlertService {
     // ============================================
     private final AlertSubject alertSubject;
     private final List<AlertStrategy> alertStrategies;
+    private final ApplicationEventPublisher eventPublisher;  // 领域事件：告警处理
     @PostConstruct
     public void init() {
         log.info("告警服务初始化，已加载 {} 个告警策略", alertStrategies.size());
@@ -139,6 +142,21 @@ public class AlertService {
         }
     }
     
+    /**
+     * 只执行告警策略判断，返回触发的告警数（不保存告警、不通知观察者）
+     *
+     * 压测虚拟电表没有设备记录，告警阶段用它统计策略判断结果
+     */
+    public int countTriggeredAlerts(Device device, EnergyData energyData) {
+        int triggered = 0;
+        for (AlertStrategy strategy : alertStrategies) {
+            if (strategy.checkAlert(device, energyData).isPresent()) {
+                triggered++;
+            }
+        }
+        return triggered;
+    }
+    
     /**
      * 获取所有告警记录（分页）
      */
@@ -212,12 +230,16 @@ public class AlertService {
         Alert alert = alertRepository.findById(alertId)
                 .orElseThrow(() -> new BusinessException("告警不存在，ID: " + alertId));
         
+        boolean wasResolved = Boolean.TRUE.equals(alert.getIsResolved());
         alert.setIsResolved(true);
         alert.setResolvedAt(LocalDateTime.now());
         alert.setResolveNote(resolveNote);
         
         alert = alertRepository.save(alert);
         log.info("告警已处理，ID: {}", alertId);
+        if (!wasResolved) {
+            eventPublisher.publishEvent(new AlertResolvedEvent(alert.getId(), alert.getAlertType()));
+        }
         
         return convertToDTO(alert);
     }
@@ -0,0 +1,238 @@
+package com.campus.energy.service;
+
+import com.campus.energy.exception.BusinessException;
+import com.campus.energy.repository.DataPurgeRepository;
+import com.campus.energy.repository.EnergyArchiveRepository;
+import com.campus.energy.repository.EnergyDataBatchWriter;
+import com.campus.energy.repository.EnergyRollupRepository;
+import com.campus.energy.storage.ArchiveSegmentStore;
+import com.campus.energy.storage.EnergyChunkStore;
+import com.campus.energy.storage.ReadingColumns;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 冷数据归档服务
+ *
+ * 说明：
+ * 早于 hot-days 天的原始读数按设备、按天编码为列式段文件（见 ArchiveSegmentStore）写入本地磁盘，
+ * 段文件刷盘并原子重命名后，再分块删除数据库中对应的原始读数。每次执行按以下顺序逐天处理：
+ * 1. 降采样：为缺少汇总的设备从原始读数生成各粒度汇总（与数据生命周期任务一致）
+ * 2. 逐台设备读出当天的原始读数，写入段文件，删除数据库中的这些读数
+ * 3. 登记原始读数边界，汇总修复任务不再从已归档的时间段重新计算
+ *
+ * 写段文件后、删除读数前中断时，下次执行会把剩余读数与已有段文件合并，不会丢失或重复。
+ * 时间范围查询（EnergyDataService）自动合并数据库读数与段文件读数。
+ * 归档的读数不再保留数据库ID，异常读数的告警记录不受影响。
+ * 分块存储模式（energy.storage.mode=CHUNK）下读数在库内已按块压缩，不执行归档。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ArchiveService {
+
+    private final ArchiveSegmentStore archiveSegmentStore;
+    private final EnergyArchiveRepository energyArchiveRepository;
+    private final EnergyRollupRepository energyRollupRepository;
+    private final DataPurgeRepository dataPurgeRepository;
+    private final EnergyRollupService energyRollupService;
+    private final EnergyChunkStore energyChunkStore;
+
+    @Value("${energy.archive.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 数据库中保留的天数，更早的原始读数归档到段文件
+     */
+    @Value("${energy.archive.hot-days:7}")
+    private int hotDays;
+
+    /**
+     * 每块删除的行数
+     */
+    @Value("${energy.archive.chunk-size:2000}")
+    private int chunkSize;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "data-archive");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean running;
+    private volatile boolean stopRequested;
+    private volatile String lastError;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile LocalDate currentDay;
+    private volatile long daysTotal;
+
+    private final AtomicLong daysDone = new AtomicLong();
+    private final AtomicLong segmentsWritten = new AtomicLong();
+    private final AtomicLong rowsArchived = new AtomicLong();
+    private final AtomicLong segmentBytes = new AtomicLong();
+
+    /**
+     * 归档读数在数据库中的估算占用（行数 × 平均行大小）
+     */
+    private final AtomicLong rowBytes = new AtomicLong();
+
+    /**
+     * 启动时按最晚的归档日期恢复原始读数边界
+     */
+    @PostConstruct
+    public void init() {
+        LocalDate latest = archiveSegmentStore.findLatestDay();
+        if (latest != null) {
+            energyRollupService.setRawHorizon(latest.plusDays(1).atStartOfDay());
+        }
+    }
+
+    /**
+     * 定时执行（默认每天凌晨），未启用时跳过
+     */
+    @Scheduled(cron = "${energy.archive.cron:0 0 2 * * ?}")
+    public void scheduledRun() {
+        if (enabled && !running && !energyChunkStore.isEnabled()) {
+            start();
+        }
+    }
+
+    /**
+     * 在后台线程中启动一次归档
+     */
+    public synchronized void start() {
+        if (running) {
+            throw new BusinessException("归档任务已在运行中");
+        }
+        if (hotDays <= 0) {
+            throw new BusinessException("归档保留天数配置无效: " + hotDays);
+        }
+        if (energyChunkStore.isEnabled()) {
+            throw new BusinessException("分块存储模式下读数已按块压缩存储，不需要归档");
+        }
+        running = true;
+        stopRequested = false;
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        lastError = null;
+        daysTotal = 0;
+        daysDone.set(0);
+        segmentsWritten.set(0);
+        rowsArchived.set(0);
+        segmentBytes.set(0);
+        rowBytes.set(0);
+        executor.submit(this::run);
+    }
+
+    /**
+     * 请求停止（当前设备完成后停止，下次执行从剩余部分继续）
+     */
+    public void stop() {
+        if (running) {
+            stopRequested = true;
+            log.info("归档任务停止中");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopRequested = true;
+        executor.shutdownNow();
+    }
+
+    private void run() {
+        try {
+            LocalDate cutoffDay = LocalDate.now().minusDays(hotDays);
+            LocalDateTime oldest = dataPurgeRepository.findOldestRawTime();
+            if (oldest != null && oldest.toLocalDate().isBefore(cutoffDay)) {
+                double avgRowBytes = dataPurgeRepository.averageRowBytes(EnergyDataBatchWriter.ENERGY_DATA_TABLE);
+                LocalDate day = oldest.toLocalDate();
+                daysTotal = ChronoUnit.DAYS.between(day, cutoffDay);
+                for (; day.isBefore(cutoffDay) && !stopRequested; day = day.plusDays(1)) {
+                    currentDay = day;
+                    archiveDay(day, avgRowBytes);
+                    if (!stopRequested) {
+                        daysDone.incrementAndGet();
+                    }
+                }
+                currentDay = null;
+            }
+            log.info("归档任务{}: 写入段文件 {} 个，归档读数 {} 行，段文件 {} 字节（数据库中约 {} 字节）",
+                    stopRequested ? "已停止" : "完成", segmentsWritten.get(), rowsArchived.get(),
+                    segmentBytes.get(), rowBytes.get());
+        } catch (Exception e) {
+            lastError = e.getMessage();
+            log.error("归档任务失败: {}", e.getMessage(), e);
+        } finally {
+            finishedAt = LocalDateTime.now();
+            running = false;
+        }
+    }
+
+    private void archiveDay(LocalDate day, double avgRowBytes) {
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = start.plusDays(1);
+        energyRollupService.downsampleDay(day);
+        for (Long deviceId : energyRollupRepository.findRawDeviceIds(start, end)) {
+            if (stopRequested) {
+                return;
+            }
+            Long maxId = energyArchiveRepository.findMaxId(deviceId, start, end);
+            if (maxId == null) {
+                continue;
+            }
+            ReadingColumns readings = energyArchiveRepository.findReadings(deviceId, start, end, maxId);
+            segmentBytes.addAndGet(archiveSegmentStore.write(deviceId, day, readings));
+            segmentsWritten.incrementAndGet();
+            int deleted;
+            do {
+                deleted = energyArchiveRepository.deleteReadings(deviceId, start, end, maxId, chunkSize);
+            } while (deleted >= chunkSize);
+            rowsArchived.addAndGet(readings.getSize());
+            rowBytes.addAndGet(Math.round(readings.getSize() * avgRowBytes));
+        }
+        // 当天已全部归档，汇总修复不再从原始读数重新计算这一天
+        energyRollupService.setRawHorizon(end);
+    }
+
+    /**
+     * 获取归档任务状态：进度、归档行数、段文件大小与压缩比
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("hotDays", hotDays);
+        status.put("running", running);
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        status.put("lastError", lastError);
+        status.put("daysTotal", daysTotal);
+        status.put("daysDone", daysDone.get());
+        status.put("currentDay", currentDay);
+        status.put("segmentsWritten", segmentsWritten.get());
+        status.put("rowsArchived", rowsArchived.get());
+        status.put("segmentBytes", segmentBytes.get());
+        status.put("rowBytes", rowBytes.get());
+        status.put("compressionRatio", segmentBytes.get() > 0
+                ? Math.round((double) rowBytes.get() / segmentBytes.get() * 10) / 10.0 : null);
+        status.put("bytesPerReading", rowsArchived.get() > 0
+                ? Math.round((double) segmentBytes.get() / rowsArchived.get() * 100) / 100.0 : null);
+        status.put("store", archiveSegmentStore.getStats());
+        return status;
+    }
+}
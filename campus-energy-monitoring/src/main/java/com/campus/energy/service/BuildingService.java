@@ -2,11 +2,14 @@ package com.campus.energy.service;
 
 import com.campus.energy.dto.BuildingDTO;
 import com.campus.energy.entity.Building;
+import com.campus.energy.enums.ChangeType;
+import com.campus.energy.event.BuildingChangedEvent;
 import com.campus.energy.exception.BusinessException;
 import com.campus.energy.repository.BuildingRepository;
 import com.campus.energy.repository.DeviceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -77,6 +80,7 @@ public class BuildingService {
     // ============================================
     private final BuildingRepository buildingRepository;  // 子系统：建筑数据访问层
     private final DeviceRepository deviceRepository;  // 子系统：设备数据访问层
+    private final ApplicationEventPublisher eventPublisher;  // 领域事件：建筑变更
     
     /**
      * 获取所有建筑列表
@@ -121,6 +125,7 @@ public class BuildingService {
         
         building = buildingRepository.save(building);
         log.info("创建建筑成功: {}", building.getName());
+        eventPublisher.publishEvent(new BuildingChangedEvent(building.getId(), building.getName(), ChangeType.CREATED));
         
         return convertToDTO(building);
     }
@@ -147,6 +152,7 @@ public class BuildingService {
         
         building = buildingRepository.save(building);
         log.info("更新建筑成功: {}", building.getName());
+        eventPublisher.publishEvent(new BuildingChangedEvent(building.getId(), building.getName(), ChangeType.UPDATED));
         
         return convertToDTO(building);
     }
@@ -199,6 +205,7 @@ public class BuildingService {
         // ============================================
         buildingRepository.delete(building);
         log.info("删除建筑成功: {}", building.getName());
+        eventPublisher.publishEvent(new BuildingChangedEvent(building.getId(), building.getName(), ChangeType.DELETED));
     }
     
     /**
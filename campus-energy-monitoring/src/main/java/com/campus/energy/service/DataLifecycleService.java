@@ -0,0 +1,350 @@
+package com.campus.energy.service;
+
+import com.campus.energy.enums.RollupResolution;
+import com.campus.energy.exception.BusinessException;
+import com.campus.energy.repository.DataPurgeRepository;
+import com.campus.energy.repository.EnergyChunkRepository;
+import com.campus.energy.repository.EnergyDataBatchWriter;
+import com.campus.energy.repository.EnergyDataPartitionManager;
+import com.campus.energy.repository.EnergyRollupRepository;
+import com.campus.energy.storage.EnergyChunkStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 数据生命周期服务（保留期与降采样）
+ *
+ * 说明：
+ * 原始读数与汇总数据按粒度分别设置保留天数（0表示永久保留），例如：
+ * 原始读数14天、1分钟汇总180天、15分钟汇总365天、1小时与1天汇总永久。
+ *
+ * 每次执行按以下顺序：
+ * 1. 降采样：逐天检查即将清理的原始读数，为缺少汇总的设备从原始读数生成各粒度汇总，
+ *    保证清理后统计与趋势查询仍有完整的汇总数据
+ * 2. 清理原始读数：先整体删除完全过期的分区（只修改元数据），
+ *    剩余的过期行（未分区的表或跨越保留边界的分区）按 chunk-size 分块删除，块间暂停 chunk-pause-millis
+ * 3. 清理汇总数据：各粒度按保留期分块删除
+ *
+ * 分块删除每块自动提交，不会长时间持有锁阻塞模拟器写入；任务在独立线程中执行，不占用定时任务线程。
+ * 释放的空间按删除前的分区大小（整体删除分区）或表的平均行大小（分块删除）估算；
+ * InnoDB 分块删除释放的页会被后续写入复用，不会立即归还操作系统。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class DataLifecycleService {
+
+    private final DataPurgeRepository dataPurgeRepository;
+    private final EnergyDataPartitionManager partitionManager;
+    private final EnergyRollupService energyRollupService;
+    private final EnergyChunkStore energyChunkStore;
+
+    @Value("${energy.lifecycle.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 原始读数保留天数，0表示永久保留
+     */
+    @Value("${energy.lifecycle.raw-retention-days:14}")
+    private int rawRetentionDays;
+
+    @Value("${energy.lifecycle.minute-retention-days:180}")
+    private int minuteRetentionDays;
+
+    @Value("${energy.lifecycle.quarter-hour-retention-days:365}")
+    private int quarterHourRetentionDays;
+
+    @Value("${energy.lifecycle.hour-retention-days:0}")
+    private int hourRetentionDays;
+
+    @Value("${energy.lifecycle.day-retention-days:0}")
+    private int dayRetentionDays;
+
+    /**
+     * 每块删除的行数
+     */
+    @Value("${energy.lifecycle.chunk-size:2000}")
+    private int chunkSize;
+
+    /**
+     * 块间暂停（毫秒），让出锁与IO给写入
+     */
+    @Value("${energy.lifecycle.chunk-pause-millis:100}")
+    private long chunkPauseMillis;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "data-lifecycle");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile boolean running;
+    private volatile boolean stopRequested;
+    private volatile String phase = "IDLE";
+    private volatile String lastError;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+    private volatile LocalDateTime rawCutoff;
+    private volatile LocalDate currentDay;
+    private volatile long daysTotal;
+
+    private final AtomicLong daysDone = new AtomicLong();
+    private final AtomicLong devicesDownsampled = new AtomicLong();
+    private final AtomicLong rawRowsDeleted = new AtomicLong();
+    private final AtomicLong chunkRowsDeleted = new AtomicLong();
+    private final AtomicLong rawBytesReclaimed = new AtomicLong();
+    private final AtomicLong rollupRowsDeleted = new AtomicLong();
+    private final AtomicLong rollupBytesReclaimed = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+    private volatile List<String> droppedPartitions = List.of();
+
+    /**
+     * 累计（自启动以来）释放的行数与估算字节数
+     */
+    private final AtomicLong totalRowsReclaimed = new AtomicLong();
+    private final AtomicLong totalBytesReclaimed = new AtomicLong();
+    private volatile int runs;
+
+    /**
+     * 启动时恢复原始读数清理边界（边界只保存在内存中），
+     * 避免重启后汇总重建从已清理的原始读数重新计算而覆盖已有汇总
+     */
+    @PostConstruct
+    public void init() {
+        if (enabled && rawRetentionDays > 0) {
+            energyRollupService.setRawHorizon(LocalDate.now().minusDays(rawRetentionDays).atStartOfDay());
+        }
+    }
+
+    /**
+     * 定时执行（默认每天凌晨），未启用时跳过
+     */
+    @Scheduled(cron = "${energy.lifecycle.cron:0 30 1 * * ?}")
+    public void scheduledRun() {
+        if (enabled && !running) {
+            start();
+        }
+    }
+
+    /**
+     * 在后台线程中启动一次生命周期任务
+     */
+    public synchronized void start() {
+        if (running) {
+            throw new BusinessException("数据生命周期任务已在运行中");
+        }
+        running = true;
+        stopRequested = false;
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        lastError = null;
+        daysTotal = 0;
+        daysDone.set(0);
+        devicesDownsampled.set(0);
+        rawRowsDeleted.set(0);
+        chunkRowsDeleted.set(0);
+        rawBytesReclaimed.set(0);
+        rollupRowsDeleted.set(0);
+        rollupBytesReclaimed.set(0);
+        chunks.set(0);
+        droppedPartitions = List.of();
+        executor.submit(this::run);
+    }
+
+    /**
+     * 请求停止（当前块完成后停止，已删除的数据不恢复，下次执行从剩余部分继续）
+     */
+    public void stop() {
+        if (running) {
+            stopRequested = true;
+            log.info("数据生命周期任务停止中");
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stopRequested = true;
+        executor.shutdownNow();
+    }
+
+    private void run() {
+        try {
+            if (rawRetentionDays > 0 && energyRollupService.isEnabled()) {
+                purgeRaw(LocalDate.now().minusDays(rawRetentionDays));
+            } else if (rawRetentionDays > 0) {
+                // 未维护汇总时清理原始读数会丢失历史统计，跳过
+                log.warn("汇总未启用，跳过原始读数清理");
+            }
+            for (Map.Entry<RollupResolution, Integer> entry : rollupRetention().entrySet()) {
+                if (entry.getValue() > 0 && !stopRequested) {
+                    purgeRollups(entry.getKey(), LocalDate.now().minusDays(entry.getValue()).atStartOfDay());
+                }
+            }
+            phase = stopRequested ? "STOPPED" : "DONE";
+            log.info("数据生命周期任务完成: 原始读数删除 {} 行（约 {} 字节），汇总删除 {} 行（约 {} 字节），删除分区 {}",
+                    rawRowsDeleted.get(), rawBytesReclaimed.get(), rollupRowsDeleted.get(),
+                    rollupBytesReclaimed.get(), droppedPartitions);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            phase = "STOPPED";
+        } catch (Exception e) {
+            phase = "FAILED";
+            lastError = e.getMessage();
+            log.error("数据生命周期任务失败: {}", e.getMessage(), e);
+        } finally {
+            totalRowsReclaimed.addAndGet(rawRowsDeleted.get() + chunkRowsDeleted.get() + rollupRowsDeleted.get());
+            totalBytesReclaimed.addAndGet(rawBytesReclaimed.get() + rollupBytesReclaimed.get());
+            runs++;
+            finishedAt = LocalDateTime.now();
+            running = false;
+        }
+    }
+
+    /**
+     * 先降采样，再清理 cutoff 之前的原始读数
+     */
+    private void purgeRaw(LocalDate cutoffDay) throws InterruptedException {
+        LocalDateTime cutoff = cutoffDay.atStartOfDay();
+        rawCutoff = cutoff;
+        LocalDateTime oldest = energyChunkStore.isEnabled()
+                ? dataPurgeRepository.findOldestChunkStart()
+                : dataPurgeRepository.findOldestRawTime();
+        if (oldest == null || !oldest.isBefore(cutoff)) {
+            return;
+        }
+
+        phase = "DOWNSAMPLE";
+        LocalDate day = oldest.toLocalDate();
+        daysTotal = ChronoUnit.DAYS.between(day, cutoffDay);
+        for (; day.isBefore(cutoffDay); day = day.plusDays(1)) {
+            if (stopRequested) {
+                return;
+            }
+            currentDay = day;
+            devicesDownsampled.addAndGet(energyRollupService.downsampleDay(day));
+            daysDone.incrementAndGet();
+        }
+        currentDay = null;
+        // 修复任务不再为清理范围内的时间桶从原始读数重新计算
+        energyRollupService.setRawHorizon(cutoff);
+
+        phase = "DROP_PARTITIONS";
+        List<String> dropped = new ArrayList<>();
+        for (EnergyDataPartitionManager.PartitionInfo partition : partitionManager.dropPartitionsBefore(cutoffDay)) {
+            dropped.add(partition.name());
+            rawRowsDeleted.addAndGet(partition.rows());
+            rawBytesReclaimed.addAndGet(partition.bytes());
+        }
+        droppedPartitions = dropped;
+
+        phase = "PURGE_RAW";
+        double rowBytes = dataPurgeRepository.averageRowBytes(EnergyDataBatchWriter.ENERGY_DATA_TABLE);
+        int deleted;
+        do {
+            deleted = dataPurgeRepository.deleteRawBefore(cutoff, chunkSize);
+            rawRowsDeleted.addAndGet(deleted);
+            rawBytesReclaimed.addAndGet(Math.round(deleted * rowBytes));
+            pauseBetweenChunks();
+        } while (deleted >= chunkSize && !stopRequested);
+
+        if (energyChunkStore.isEnabled()) {
+            // 分块存储下原始读数在分块表中，按块删除（每块为一台设备一小时的读数）
+            phase = "PURGE_CHUNKS";
+            double chunkBytes = dataPurgeRepository.averageRowBytes(EnergyChunkRepository.CHUNK_TABLE);
+            do {
+                deleted = dataPurgeRepository.deleteChunksBefore(cutoff, chunkSize);
+                chunkRowsDeleted.addAndGet(deleted);
+                rawBytesReclaimed.addAndGet(Math.round(deleted * chunkBytes));
+                pauseBetweenChunks();
+            } while (deleted >= chunkSize && !stopRequested);
+        }
+    }
+
+    /**
+     * 分块清理指定粒度 cutoff 之前的汇总行
+     */
+    private void purgeRollups(RollupResolution resolution, LocalDateTime cutoff) throws InterruptedException {
+        phase = "PURGE_" + resolution.name();
+        double rowBytes = dataPurgeRepository.averageRowBytes(EnergyRollupRepository.ROLLUP_TABLE);
+        int deleted;
+        do {
+            deleted = dataPurgeRepository.deleteRollupsBefore(resolution, cutoff, chunkSize);
+            rollupRowsDeleted.addAndGet(deleted);
+            rollupBytesReclaimed.addAndGet(Math.round(deleted * rowBytes));
+            pauseBetweenChunks();
+        } while (deleted >= chunkSize && !stopRequested);
+    }
+
+    private void pauseBetweenChunks() throws InterruptedException {
+        chunks.incrementAndGet();
+        if (chunkPauseMillis > 0) {
+            Thread.sleep(chunkPauseMillis);
+        }
+    }
+
+    private Map<RollupResolution, Integer> rollupRetention() {
+        Map<RollupResolution, Integer> retention = new EnumMap<>(RollupResolution.class);
+        retention.put(RollupResolution.MINUTE_1, minuteRetentionDays);
+        retention.put(RollupResolution.MINUTE_15, quarterHourRetentionDays);
+        retention.put(RollupResolution.HOUR_1, hourRetentionDays);
+        retention.put(RollupResolution.DAY_1, dayRetentionDays);
+        return retention;
+    }
+
+    /**
+     * 获取生命周期任务状态：保留策略、当前阶段与进度、本次及累计释放的行数与估算字节数
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> policy = new LinkedHashMap<>();
+        policy.put("RAW", rawRetentionDays);
+        rollupRetention().forEach((resolution, days) -> policy.put(resolution.name(), days));
+
+        Map<String, Object> progress = new LinkedHashMap<>();
+        progress.put("rawCutoff", rawCutoff);
+        progress.put("daysTotal", daysTotal);
+        progress.put("daysDone", daysDone.get());
+        progress.put("currentDay", currentDay);
+        progress.put("devicesDownsampled", devicesDownsampled.get());
+        progress.put("droppedPartitions", droppedPartitions);
+        progress.put("chunks", chunks.get());
+        progress.put("rawRowsDeleted", rawRowsDeleted.get());
+        progress.put("chunkRowsDeleted", chunkRowsDeleted.get());
+        progress.put("rawBytesReclaimed", rawBytesReclaimed.get());
+        progress.put("rollupRowsDeleted", rollupRowsDeleted.get());
+        progress.put("rollupBytesReclaimed", rollupBytesReclaimed.get());
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("enabled", enabled);
+        status.put("retentionDays", policy);
+        status.put("chunkSize", chunkSize);
+        status.put("chunkPauseMillis", chunkPauseMillis);
+        status.put("running", running);
+        status.put("phase", phase);
+        status.put("startedAt", startedAt);
+        status.put("finishedAt", finishedAt);
+        status.put("lastError", lastError);
+        status.put("progress", progress);
+        status.put("runs", runs);
+        status.put("totalRowsReclaimed", totalRowsReclaimed.get());
+        status.put("totalBytesReclaimed", totalBytesReclaimed.get());
+        status.put("partitions", partitionManager.getStats());
+        return status;
+    }
+}
@@ -3,12 +3,16 @@ package com.campus.energy.service;
 import com.campus.energy.dto.DeviceDTO;
 import com.campus.energy.entity.Building;
 import com.campus.energy.entity.Device;
+import com.campus.energy.enums.ChangeType;
 import com.campus.energy.enums.DeviceStatus;
+import com.campus.energy.event.DeviceChangedEvent;
+import com.campus.energy.event.DeviceStatusChangedEvent;
 import com.campus.energy.exception.BusinessException;
 import com.campus.energy.repository.BuildingRepository;
 import com.campus.energy.repository.DeviceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -59,6 +63,7 @@ public class DeviceService {
     // ============================================
     private final DeviceRepository deviceRepository;  // 子系统：设备数据访问层
     private final BuildingRepository buildingRepository;  // 子系统：建筑数据访问层
+    private final ApplicationEventPublisher eventPublisher;  // 领域事件：设备变更与状态变更
 
     public List<DeviceDTO> getAllDevices() {
         // ============================================
@@ -140,6 +145,7 @@ public class DeviceService {
                 .serialNumber(dto.getSerialNumber())  // 设置设备序列号
                 .status(dto.getStatus() != null ? dto.getStatus() : DeviceStatus.ONLINE)  // 设置状态，默认ONLINE
                 .ratedPower(dto.getRatedPower())  // 设置额定功率
+                .sampleInterval(dto.getSampleInterval())  // 设置采样间隔
                 .building(building)  // 设置关联建筑对象
                 .roomNumber(dto.getRoomNumber())  // 设置房间号
                 .usageDescription(dto.getUsageDescription())  // 设置用途描述
@@ -147,6 +153,8 @@ public class DeviceService {
         
         device = deviceRepository.save(device);
         log.info("创建设备成功: {} (SN: {})", device.getName(), device.getSerialNumber());
+        eventPublisher.publishEvent(new DeviceChangedEvent(
+                device.getId(), building.getId(), device.getStatus(), ChangeType.CREATED));
         
         return convertToDTO(device);
     }
@@ -176,18 +184,25 @@ public class DeviceService {
         Building building = buildingRepository.findById(dto.getBuildingId())
                 .orElseThrow(() -> new BusinessException("建筑不存在，ID: " + dto.getBuildingId()));
         
+        DeviceStatus previousStatus = device.getStatus();
         device.setName(dto.getName());
         device.setSerialNumber(dto.getSerialNumber());
         if (dto.getStatus() != null) {
             device.setStatus(dto.getStatus());
         }
         device.setRatedPower(dto.getRatedPower());
+        device.setSampleInterval(dto.getSampleInterval());
         device.setBuilding(building);
         device.setRoomNumber(dto.getRoomNumber());
         device.setUsageDescription(dto.getUsageDescription());
         
         device = deviceRepository.save(device);
         log.info("更新设备成功: {}", device.getName());
+        eventPublisher.publishEvent(new DeviceChangedEvent(
+                device.getId(), building.getId(), device.getStatus(), ChangeType.UPDATED));
+        if (previousStatus != device.getStatus()) {
+            eventPublisher.publishEvent(new DeviceStatusChangedEvent(device.getId(), previousStatus, device.getStatus()));
+        }
         
         return convertToDTO(device);
     }
@@ -200,9 +215,13 @@ public class DeviceService {
         Device device = deviceRepository.findById(id)
                 .orElseThrow(() -> new BusinessException("设备不存在，ID: " + id));
         
+        DeviceStatus previousStatus = device.getStatus();
         device.setStatus(status);
         device = deviceRepository.save(device);
         log.info("更新设备状态: {} -> {}", device.getName(), status);
+        if (previousStatus != status) {
+            eventPublisher.publishEvent(new DeviceStatusChangedEvent(device.getId(), previousStatus, status));
+        }
         
         return convertToDTO(device);
     }
@@ -217,6 +236,8 @@ public class DeviceService {
         
         deviceRepository.delete(device);
         log.info("删除设备成功: {} (SN: {})", device.getName(), device.getSerialNumber());
+        eventPublisher.publishEvent(new DeviceChangedEvent(
+                device.getId(), device.getBuilding().getId(), device.getStatus(), ChangeType.DELETED));
     }
     
     /**
@@ -239,6 +260,7 @@ public class DeviceService {
                 .status(device.getStatus())  // 设置设备状态（枚举）
                 .statusLabel(device.getStatus().getLabel())  // 设置状态描述（字符串）
                 .ratedPower(device.getRatedPower())  // 设置额定功率
+                .sampleInterval(device.getSampleInterval())  // 设置采样间隔
                 .buildingId(device.getBuilding().getId())  // 设置建筑ID（关联对象转ID）
                 .buildingName(device.getBuilding().getName())  // 设置建筑名称（关联对象转名称）
                 .roomNumber(device.getRoomNumber())  // 设置房间号
@@ -1,19 +1,37 @@
 package com.campus.energy.service;
 
 import com.campus.energy.dto.EnergyDataDTO;
+import com.campus.energy.dto.EnergyRollupDTO;
 import com.campus.energy.entity.Device;
 import com.campus.energy.entity.EnergyData;
+import com.campus.energy.enums.RollupResolution;
+import com.campus.energy.exception.BusinessException;
+import com.campus.energy.ingest.ReadingCompressor;
+import com.campus.energy.ingest.RollupBucket;
+import com.campus.energy.repository.DeviceRepository;
 import com.campus.energy.repository.EnergyDataRepository;
+import com.campus.energy.storage.ArchiveSegmentStore;
+import com.campus.energy.storage.EnergyChunkStore;
+import com.campus.energy.storage.ReadingColumns;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -50,6 +68,9 @@ import java.util.stream.Collectors;
  * 
  * - Subsystem（子系统）：
  *   - EnergyDataRepository：能耗数据访问层
+ *   - EnergyRollupService：多粒度汇总数据（统计与大范围查询）
+ *   - ArchiveSegmentStore：冷数据归档段文件（已移出数据库的历史原始读数）
+ *   - EnergyChunkStore：按设备按小时分块的读数存储（energy.storage.mode=CHUNK 时替代 EnergyDataRepository）
  *   - Entity/DTO转换逻辑
  *   - 业务逻辑（如分页、时间范围查询、用电量计算）
  * 
@@ -82,6 +103,16 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class EnergyDataService {
     
+    /**
+     * 插值重建后单次查询最多返回的点数
+     */
+    private static final int MAX_RECONSTRUCTED_POINTS = 100_000;
+    
+    /**
+     * 分块存储下“跨全部数据”查询的下界
+     */
+    private static final LocalDateTime EPOCH = LocalDateTime.of(1970, 1, 1, 0, 0);
+    
     // ============================================
     // 设计模式：Facade Pattern（外观模式）- 子系统
     // ============================================
@@ -90,12 +121,33 @@ public class EnergyDataService {
     // Controller（客户端）不需要直接访问Repository
     // ============================================
     private final EnergyDataRepository energyDataRepository;  // 子系统：能耗数据访问层
+    private final ReadingCompressor readingCompressor;
+    private final EnergyRollupService energyRollupService;
+    private final DeviceRepository deviceRepository;
+    private final ArchiveSegmentStore archiveSegmentStore;
+    private final EnergyChunkStore energyChunkStore;
+    
+    /**
+     * 设备未配置采样间隔时的默认间隔（毫秒），用作插值重建的步长
+     */
+    @Value("${simulator.interval:5000}")
+    private long defaultIntervalMillis;
+    
+    /**
+     * 查询最新数据时的回看天数，查询只扫描该窗口内的分区
+     */
+    @Value("${energy.partition.latest-lookback-days:7}")
+    private int latestLookbackDays;
     
     /**
      * 保存能耗数据
      */
     @Transactional
     public EnergyData saveEnergyData(EnergyData energyData) {
+        if (energyChunkStore.isEnabled()) {
+            energyChunkStore.append(List.of(energyData));
+            return energyData;
+        }
         return energyDataRepository.save(energyData);
     }
 
@@ -126,35 +178,300 @@ public class EnergyDataService {
         // 调用EnergyDataRepository获取分页数据
         // 外观模式：封装Entity到DTO的转换
         // ============================================
+        if (energyChunkStore.isEnabled()) {
+            return findChunkedPage(deviceId, pageable).map(this::convertToDTO);
+        }
         return energyDataRepository.findByDeviceId(deviceId, pageable)
                 .map(this::convertToDTO);  // 外观模式：封装转换逻辑
     }
     
+    /**
+     * 分块存储下的分页查询（按采集时间倒序）
+     * 先按各块的读数条数定位覆盖本页的块，只解码这些块
+     */
+    private Page<EnergyData> findChunkedPage(Long deviceId, Pageable pageable) {
+        Map<LocalDateTime, Integer> counts = energyChunkStore.getSampleCounts(deviceId);
+        long total = counts.values().stream().mapToLong(Integer::longValue).sum();
+        long offset = pageable.getOffset();
+        int size = pageable.getPageSize();
+        long skipped = 0;
+        long skipInWindow = 0;
+        LocalDateTime newest = null;
+        LocalDateTime oldest = null;
+        for (Map.Entry<LocalDateTime, Integer> entry : counts.entrySet()) {
+            long next = skipped + entry.getValue();
+            if (newest == null && next > offset) {
+                newest = entry.getKey();
+                skipInWindow = offset - skipped;
+            }
+            if (newest != null) {
+                oldest = entry.getKey();
+                if (next >= offset + size) {
+                    break;
+                }
+            }
+            skipped = next;
+        }
+        if (newest == null) {
+            return new PageImpl<>(List.of(), pageable, total);
+        }
+        Device device = deviceRepository.findById(deviceId)
+                .orElseThrow(() -> new BusinessException("设备不存在，ID: " + deviceId));
+        List<EnergyData> readings = toEntities(device,
+                energyChunkStore.read(deviceId, oldest, newest.plusHours(1).minusSeconds(1)));
+        Collections.reverse(readings);
+        int from = (int) Math.min(skipInWindow, readings.size());
+        return new PageImpl<>(readings.subList(from, Math.min(from + size, readings.size())), pageable, total);
+    }
+    
     /**
      * 获取设备最新的能耗数据
      */
     public Optional<EnergyDataDTO> getLatestEnergyData(Long deviceId) {
-        return energyDataRepository.findTopByDeviceIdOrderByCollectTimeDesc(deviceId)
-                .map(this::convertToDTO);
+        if (energyChunkStore.isEnabled()) {
+            ReadingColumns recent = energyChunkStore.findLatest(deviceId, latestSince());
+            ReadingColumns latest = recent.isEmpty() ? energyChunkStore.findLatest(deviceId, EPOCH) : recent;
+            return latest.isEmpty() ? Optional.empty()
+                    : deviceRepository.findById(deviceId).map(device -> convertToDTO(toEntities(device, latest).get(0)));
+        }
+        // 先只扫描回看窗口内的分区，长期离线的设备再回退到全分区查询
+        Optional<EnergyData> latest = energyDataRepository
+                .findTopByDeviceIdAndCollectTimeGreaterThanEqualOrderByCollectTimeDesc(deviceId, latestSince());
+        if (latest.isEmpty()) {
+            latest = energyDataRepository.findTopByDeviceIdOrderByCollectTimeDesc(deviceId);
+        }
+        return latest.map(this::convertToDTO);
     }
     
     /**
-     * 获取设备在指定时间范围内的能耗数据
+     * 获取设备在指定时间范围内的能耗数据（合并数据库读数与已归档的段文件读数）
      */
     public List<EnergyDataDTO> getEnergyDataByTimeRange(Long deviceId, 
                                                          LocalDateTime startTime, 
                                                          LocalDateTime endTime) {
-        return energyDataRepository.findByDeviceIdAndTimeRange(deviceId, startTime, endTime)
+        return findStoredReadings(deviceId, startTime, endTime)
                 .stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
     }
     
     /**
-     * 获取所有设备的最新能耗数据
+     * 获取设备在指定时间范围内的能耗数据，可选插值重建
+     * 
+     * 写库压缩（死区/旋转门）后，相邻两条存储读数之间被丢弃的读数可由线性插值在容差内重建。
+     * interpolate=true 时按设备采样间隔在相邻存储读数之间补出插值点（interpolated=true），
+     * 间隔超过压缩检查点间隔的空档视为设备断线，不做插值。
+     */
+    public List<EnergyDataDTO> getEnergyDataByTimeRange(Long deviceId,
+                                                         LocalDateTime startTime,
+                                                         LocalDateTime endTime,
+                                                         boolean interpolate) {
+        if (!interpolate) {
+            return getEnergyDataByTimeRange(deviceId, startTime, endTime);
+        }
+        // 查询结果按采集时间倒序
+        List<EnergyData> stored = findStoredReadings(deviceId, startTime, endTime);
+        if (stored.size() < 2) {
+            return stored.stream().map(this::convertToDTO).collect(Collectors.toList());
+        }
+        Device device = stored.get(0).getDevice();
+        long stepSeconds = device.getSampleInterval() != null
+                ? device.getSampleInterval()
+                : Math.max(1, defaultIntervalMillis / 1000);
+        long maxGapSeconds = readingCompressor.getCheckpointSeconds();
+        
+        List<EnergyDataDTO> result = new ArrayList<>();
+        for (int i = 0; i < stored.size(); i++) {
+            EnergyData newer = stored.get(i);
+            result.add(convertToDTO(newer));
+            if (i + 1 == stored.size()) {
+                break;
+            }
+            EnergyData older = stored.get(i + 1);
+            long gap = Duration.between(older.getCollectTime(), newer.getCollectTime()).getSeconds();
+            if (gap > maxGapSeconds) {
+                continue;
+            }
+            for (long offset = (gap - 1) / stepSeconds * stepSeconds; offset > 0; offset -= stepSeconds) {
+                result.add(interpolate(older, newer, offset, gap));
+            }
+            if (result.size() > MAX_RECONSTRUCTED_POINTS) {
+                throw new BusinessException("插值重建后数据点超过 " + MAX_RECONSTRUCTED_POINTS + " 个，请缩小时间范围");
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 获取设备在指定时间范围内的能耗数据，可指定汇总粒度
+     * 
+     * resolution 为空时自动选择：原始读数点数不超过 energy.rollup.max-points 时返回原始读数，
+     * 否则返回点数不超过该值的最细汇总粒度；插值重建只作用于原始读数。
+     * 按汇总粒度返回时每个点为一个时间桶：电压/电流/功率为平均值，累计用电量为桶结束时的值，
+     * collectTime 为时间桶起始时间，sampleCount 为桶内读数条数。
+     */
+    public List<EnergyDataDTO> getEnergyDataByTimeRange(Long deviceId,
+                                                         LocalDateTime startTime,
+                                                         LocalDateTime endTime,
+                                                         boolean interpolate,
+                                                         RollupResolution resolution) {
+        if (resolution == null) {
+            resolution = interpolate ? RollupResolution.RAW
+                    : energyRollupService.chooseResolution(startTime, endTime, sampleIntervalSeconds(deviceId));
+        }
+        if (resolution == RollupResolution.RAW) {
+            return getEnergyDataByTimeRange(deviceId, startTime, endTime, interpolate);
+        }
+        Device device = deviceRepository.findById(deviceId)
+                .orElseThrow(() -> new BusinessException("设备不存在，ID: " + deviceId));
+        List<RollupBucket> buckets = energyRollupService.getRollups(deviceId, resolution, startTime, endTime);
+        // 与原始读数查询一致，按时间倒序返回
+        List<EnergyDataDTO> result = new ArrayList<>(buckets.size());
+        for (int i = buckets.size() - 1; i >= 0; i--) {
+            RollupBucket bucket = buckets.get(i);
+            result.add(EnergyDataDTO.builder()
+                    .deviceId(device.getId())
+                    .deviceName(device.getName())
+                    .deviceSerialNumber(device.getSerialNumber())
+                    .voltage(round(bucket.getVoltageAvg(), 100.0))
+                    .current(round(bucket.getCurrentAvg(), 100.0))
+                    .power(round(bucket.getPowerAvg(), 100.0))
+                    .totalEnergy(round(bucket.getEnergyMax(), 1000.0))
+                    .collectTime(bucket.getBucketStart())
+                    .interpolated(false)
+                    .sampleCount(bucket.getSampleCount())
+                    .build());
+        }
+        return result;
+    }
+    
+    /**
+     * 获取设备在指定时间范围内的汇总数据（最小/最大/平均/最后值与用电量），按时间升序
+     */
+    public List<EnergyRollupDTO> getRollups(Long deviceId, RollupResolution resolution,
+                                            LocalDateTime startTime, LocalDateTime endTime) {
+        if (resolution == RollupResolution.RAW) {
+            throw new BusinessException("汇总查询不支持 RAW 粒度，请使用时间范围查询接口");
+        }
+        return energyRollupService.getRollups(deviceId, resolution, startTime, endTime).stream()
+                .map(this::convertToRollupDTO)
+                .collect(Collectors.toList());
+    }
+    
+    /**
+     * 查询设备在时间范围内的存储读数，按采集时间倒序
+     * 
+     * 数据库中的热数据与归档段文件中的冷数据合并返回；归档过程中两边可能短暂同时存在同一时刻的读数，
+     * 以数据库中的为准。归档读数没有数据库ID。
+     */
+    private List<EnergyData> findStoredReadings(Long deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        List<EnergyData> stored = energyChunkStore.isEnabled()
+                ? findChunkedReadings(deviceId, startTime, endTime)
+                : energyDataRepository.findByDeviceIdAndTimeRange(deviceId, startTime, endTime);
+        ReadingColumns archived = archiveSegmentStore.read(deviceId, startTime, endTime);
+        if (archived.isEmpty()) {
+            return stored;
+        }
+        Device device = !stored.isEmpty() ? stored.get(0).getDevice()
+                : deviceRepository.findById(deviceId)
+                        .orElseThrow(() -> new BusinessException("设备不存在，ID: " + deviceId));
+        Set<LocalDateTime> hotTimes = new HashSet<>();
+        for (EnergyData data : stored) {
+            hotTimes.add(data.getCollectTime());
+        }
+        List<EnergyData> merged = new ArrayList<>(stored.size() + archived.getSize());
+        merged.addAll(stored);
+        for (EnergyData data : toEntities(device, archived)) {
+            if (!hotTimes.contains(data.getCollectTime())) {
+                merged.add(data);
+            }
+        }
+        merged.sort(Comparator.comparing(EnergyData::getCollectTime).reversed());
+        return merged;
+    }
+    
+    /**
+     * 分块存储下查询设备在时间范围内的读数，按采集时间倒序
+     */
+    private List<EnergyData> findChunkedReadings(Long deviceId, LocalDateTime startTime, LocalDateTime endTime) {
+        ReadingColumns readings = energyChunkStore.read(deviceId, startTime, endTime);
+        if (readings.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Device device = deviceRepository.findById(deviceId)
+                .orElseThrow(() -> new BusinessException("设备不存在，ID: " + deviceId));
+        List<EnergyData> result = toEntities(device, readings);
+        Collections.reverse(result);
+        return result;
+    }
+    
+    /**
+     * 将列式读数转换为实体（不持久化，没有数据库ID），顺序不变
+     */
+    private static List<EnergyData> toEntities(Device device, ReadingColumns readings) {
+        List<EnergyData> result = new ArrayList<>(readings.getSize());
+        for (int i = 0; i < readings.getSize(); i++) {
+            result.add(EnergyData.builder()
+                    .device(device)
+                    .voltage(readings.getVoltage()[i])
+                    .current(readings.getCurrent()[i])
+                    .power(readings.getPower()[i])
+                    .totalEnergy(readings.getTotalEnergy()[i])
+                    .isAbnormal(readings.getAbnormal()[i])
+                    .collectTime(readings.getCollectTime(i))
+                    .build());
+        }
+        return result;
+    }
+    
+    private double sampleIntervalSeconds(Long deviceId) {
+        return deviceRepository.findById(deviceId)
+                .map(Device::getSampleInterval)
+                .map(Integer::doubleValue)
+                .orElse(defaultIntervalMillis / 1000.0);
+    }
+    
+    /**
+     * 在两条存储读数之间线性插值，offset 为距较早读数的秒数
+     */
+    private EnergyDataDTO interpolate(EnergyData older, EnergyData newer, long offset, long gap) {
+        double ratio = (double) offset / gap;
+        Device device = newer.getDevice();
+        return EnergyDataDTO.builder()
+                .deviceId(device.getId())
+                .deviceName(device.getName())
+                .deviceSerialNumber(device.getSerialNumber())
+                .voltage(lerp(older.getVoltage(), newer.getVoltage(), ratio, 100.0))
+                .current(lerp(older.getCurrent(), newer.getCurrent(), ratio, 100.0))
+                .power(lerp(older.getPower(), newer.getPower(), ratio, 100.0))
+                .totalEnergy(lerp(older.getTotalEnergy(), newer.getTotalEnergy(), ratio, 1000.0))
+                .isAbnormal(false)
+                .collectTime(older.getCollectTime().plusSeconds(offset))
+                .interpolated(true)
+                .build();
+    }
+    
+    private static double lerp(double from, double to, double ratio, double scale) {
+        return Math.round((from + (to - from) * ratio) * scale) / scale;
+    }
+    
+    private static double round(double value, double scale) {
+        return Math.round(value * scale) / scale;
+    }
+    
+    /**
+     * 获取所有设备的最新能耗数据（回看窗口内无数据的设备视为离线，不返回）
      */
     public List<EnergyDataDTO> getLatestEnergyDataForAllDevices() {
-        return energyDataRepository.findLatestEnergyDataForAllDevices()
+        if (energyChunkStore.isEnabled()) {
+            Map<Long, ReadingColumns> latest = energyChunkStore.findLatestForAllDevices(latestSince());
+            List<EnergyDataDTO> result = new ArrayList<>(latest.size());
+            for (Device device : deviceRepository.findAllById(latest.keySet())) {
+                result.add(convertToDTO(toEntities(device, latest.get(device.getId())).get(0)));
+            }
+            return result;
+        }
+        return energyDataRepository.findLatestEnergyDataForAllDevices(latestSince())
                 .stream()
                 .map(this::convertToDTO)
                 .collect(Collectors.toList());
@@ -162,10 +479,27 @@ public class EnergyDataService {
     
     /**
      * 计算设备在指定时间范围内的用电量
+     * 优先读取汇总数据，设备在该范围内没有汇总数据（如汇总尚未重建）时回退到原始读数
      */
     public Double calculateEnergyConsumption(Long deviceId, 
                                              LocalDateTime startTime, 
                                              LocalDateTime endTime) {
+        if (energyRollupService.isEnabled()) {
+            Double consumption = energyRollupService.getConsumption(deviceId, startTime, endTime);
+            if (consumption != null) {
+                return Math.round(consumption * 1000.0) / 1000.0;
+            }
+        }
+        if (energyChunkStore.isEnabled()) {
+            ReadingColumns readings = energyChunkStore.read(deviceId, startTime, endTime);
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < readings.getSize(); i++) {
+                min = Math.min(min, readings.getTotalEnergy()[i]);
+                max = Math.max(max, readings.getTotalEnergy()[i]);
+            }
+            return readings.isEmpty() ? 0.0 : max - min;
+        }
         return energyDataRepository.calculateEnergyConsumption(deviceId, startTime, endTime);
     }
     
@@ -173,7 +507,22 @@ public class EnergyDataService {
      * 获取设备最新的累计用电量
      */
     public Optional<Double> getLatestTotalEnergy(Long deviceId) {
-        return energyDataRepository.findLatestTotalEnergyByDeviceId(deviceId);
+        if (energyChunkStore.isEnabled()) {
+            ReadingColumns latest = energyChunkStore.findLatest(deviceId, latestSince());
+            if (latest.isEmpty()) {
+                latest = energyChunkStore.findLatest(deviceId, EPOCH);
+            }
+            return latest.isEmpty() ? Optional.empty() : Optional.of(latest.getTotalEnergy()[0]);
+        }
+        Optional<Double> total = energyDataRepository.findLatestTotalEnergyByDeviceId(deviceId, latestSince());
+        return total.isPresent() ? total : energyDataRepository.findLatestTotalEnergyByDeviceId(deviceId);
+    }
+    
+    /**
+     * 查询最新数据的回看下界，使查询只扫描最近的分区
+     */
+    private LocalDateTime latestSince() {
+        return LocalDateTime.now().minusDays(latestLookbackDays);
     }
     
     /**
@@ -202,7 +551,33 @@ public class EnergyDataService {
                 .totalEnergy(energyData.getTotalEnergy())
                 .isAbnormal(energyData.getIsAbnormal())
                 .collectTime(energyData.getCollectTime())
+                .interpolated(false)
+                .build();
+    }
+    
+    /**
+     * 将汇总桶转换为DTO
+     */
+    private EnergyRollupDTO convertToRollupDTO(RollupBucket bucket) {
+        return EnergyRollupDTO.builder()
+                .deviceId(bucket.getDeviceId())
+                .resolution(bucket.getResolution())
+                .bucketStart(bucket.getBucketStart())
+                .sampleCount(bucket.getSampleCount())
+                .voltageMin(bucket.getVoltageMin())
+                .voltageMax(bucket.getVoltageMax())
+                .voltageAvg(round(bucket.getVoltageAvg(), 100.0))
+                .voltageLast(bucket.getVoltageLast())
+                .currentMin(bucket.getCurrentMin())
+                .currentMax(bucket.getCurrentMax())
+                .currentAvg(round(bucket.getCurrentAvg(), 100.0))
+                .currentLast(bucket.getCurrentLast())
+                .powerMin(bucket.getPowerMin())
+                .powerMax(bucket.getPowerMax())
+                .powerAvg(round(bucket.getPowerAvg(), 100.0))
+                .powerLast(bucket.getPowerLast())
+                .consumption(round(bucket.getConsumption(), 1000.0))
+                .totalEnergy(bucket.getEnergyMax())
                 .build();
     }
 }
-
@@ -0,0 +1,444 @@
+package com.campus.energy.service;
+
+import com.campus.energy.dto.ingest.BulkIngestResultDTO;
+import com.campus.energy.dto.ingest.EnergyReadingRequest;
+import com.campus.energy.entity.Device;
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.enums.DeviceStatus;
+import com.campus.energy.ingest.IngestOutcome;
+import com.campus.energy.ingest.IngestPipeline;
+import com.campus.energy.ingest.LateDataPath;
+import com.campus.energy.ingest.LiveCampusCounters;
+import com.campus.energy.ingest.LoadTestSink;
+import com.campus.energy.ingest.ReadingDeduplicator;
+import com.campus.energy.ingest.ReorderBuffer;
+import com.campus.energy.repository.DeviceRepository;
+import com.campus.energy.simulator.MeterRegister;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * 能耗数据接入服务
+ *
+ * 所有读数来源（模拟器、批量接入接口、网关TCP接入）共用的接入路径：
+ * 去重 -> 更新电表寄存器 -> 按设备乱序重排 -> 发布到接入流水线（IngestPipeline），
+ * 写库、告警检查、实时状态与实时计数器更新由流水线各阶段异步完成。
+ *
+ * 电表寄存器在接收时同步更新，保证模拟器下一轮生成读数时
+ * 拿到的累计用电量不受重排等待和写库阶段积压影响。
+ *
+ * 幂等：以 (设备ID, 采集时间截断到秒) 为键，重复读数在内存窗口中直接丢弃，
+ * 超出窗口的重复由数据库唯一键兜底。过载丢弃或写库最终失败的读数会移出窗口，重发时重新接收。
+ *
+ * 乱序：读数在 ReorderBuffer 中按设备暂存一个乱序窗口后按采集时间顺序输出，
+ * 超出窗口的迟到读数交给 LateDataPath 直接写库并登记脏区间。
+ * 重排输出与发布到流水线在同一把锁（publishLock）内完成：并发的接入与定时刷新
+ * 按输出的先后顺序进入准入缓冲区（FIFO），同一设备的读数在环形缓冲区中保持时间顺序。
+ *
+ * 批量接入：
+ * 请求体为 JSON 数组或 NDJSON（每行一条），使用 Jackson 流式解析逐条读取，
+ * 不在内存中构建整个文档；每满 bulk-batch-size 条校验并入库一次。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EnergyIngestService {
+
+    /**
+     * 每批次最多返回的拒绝原因条数
+     */
+    private static final int MAX_ERRORS_PER_BATCH = 10;
+
+    /**
+     * 允许的采集时间超前量（分钟），用于容忍网关时钟偏差
+     */
+    private static final long MAX_CLOCK_SKEW_MINUTES = 5;
+
+    /**
+     * 读数的物理上限：电压(V)、电流(A)、功率(W)，超出视为采集或传输错误
+     */
+    private static final double MAX_VOLTAGE = 500;
+    private static final double MAX_CURRENT = 1000;
+    private static final double MAX_POWER = MAX_VOLTAGE * MAX_CURRENT;
+
+    private final IngestPipeline ingestPipeline;
+    private final ReadingDeduplicator readingDeduplicator;
+    private final ReorderBuffer reorderBuffer;
+    private final LateDataPath lateDataPath;
+    private final MeterRegister meterRegister;
+    private final LiveCampusCounters liveCampusCounters;
+    private final DeviceRepository deviceRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${ingest.bulk-batch-size:1000}")
+    private int bulkBatchSize;
+
+    /**
+     * 重排输出与发布的顺序锁：释放出的读数必须按输出顺序进入流水线
+     */
+    private final ReentrantLock publishLock = new ReentrantLock();
+
+    /**
+     * 重排输出后在准入缓冲区因过载被丢弃（降采样、丢弃最旧、关闭拒绝）的条数，包括定时刷新与停止时的输出
+     */
+    private final AtomicLong shedReadings = new AtomicLong();
+
+    /**
+     * 接入一批已构建好的读数
+     *
+     * @return 接收条数
+     */
+    public int ingest(List<EnergyData> readings) {
+        return submit(readings).accepted();
+    }
+
+    /**
+     * 接入一批已构建好的读数，不更新电表寄存器（可复现模式的读数由 SeededSimulation 维护累计用电量）
+     *
+     * @return 接收条数
+     */
+    public int ingestWithoutMeterRegister(List<EnergyData> readings) {
+        return submit(readings, false).accepted();
+    }
+
+    /**
+     * 接入一批已构建好的读数，返回接收、重复与过载丢弃的条数
+     *
+     * 过载时按准入策略处理（阻塞、丢弃最旧或降采样）
+     */
+    public IngestOutcome submit(List<EnergyData> readings) {
+        return submit(readings, true);
+    }
+
+    private IngestOutcome submit(List<EnergyData> readings, boolean updateMeterRegister) {
+        if (readings.isEmpty()) {
+            return new IngestOutcome(0, 0, 0);
+        }
+
+        List<EnergyData> fresh = readingDeduplicator.filter(readings);
+        // 电表寄存器在重排之前更新（取较大值），模拟器下一轮不受重排等待影响
+        // 压测虚拟电表不登记到电表寄存器（10万台虚拟电表会常驻内存）
+        if (updateMeterRegister) {
+            fresh.stream()
+                    .filter(data -> !LoadTestSink.isVirtual(data))
+                    .forEach(data -> meterRegister.update(data.getDevice().getId(), data.getTotalEnergy()));
+        }
+
+        List<EnergyData> ordered = new ArrayList<>(fresh.size());
+        List<EnergyData> late = new ArrayList<>();
+        int shed;
+        publishLock.lock();
+        try {
+            reorderBuffer.offer(fresh, ordered, late);
+            // 暂存在重排缓冲区中的读数视为已接收，过载丢弃只针对本次输出的读数
+            shed = publishOrdered(ordered);
+        } finally {
+            publishLock.unlock();
+        }
+        if (!late.isEmpty()) {
+            lateDataPath.accept(late);
+            // 按序输出的读数由流水线的实时状态阶段计入实时计数器（过载丢弃的不计入）；
+            // 迟到读数不进入流水线，在此计入（计数器只合并最小/最大累计用电量，与到达顺序无关）
+            liveCampusCounters.accumulate(late.stream().filter(data -> !LoadTestSink.isVirtual(data)).toList());
+        }
+        return new IngestOutcome(fresh.size() - shed, readings.size() - fresh.size(), shed);
+    }
+
+    /**
+     * 定时刷新：输出重排缓冲区中等待超时的读数，写入迟到读数及压缩暂存超时的读数
+     *
+     * 输出时因过载被丢弃的读数与 submit 一样计入 shed 统计；
+     * BLOCK 策略下可能在此等待空位，定时任务线程池配置了多个线程，不影响其他定时任务
+     */
+    @Scheduled(fixedDelayString = "${ingest.reorder.flush-interval:1000}")
+    public void flushReorderBuffer() {
+        publishLock.lock();
+        try {
+            List<EnergyData> ordered = new ArrayList<>();
+            reorderBuffer.flushExpired(ordered);
+            publishOrdered(ordered);
+        } finally {
+            publishLock.unlock();
+        }
+        lateDataPath.flush();
+        ingestPipeline.flushCompression();
+    }
+
+    /**
+     * 停止前输出重排缓冲区中的全部暂存读数
+     */
+    @PreDestroy
+    public void shutdown() {
+        publishLock.lock();
+        try {
+            List<EnergyData> ordered = new ArrayList<>();
+            reorderBuffer.flushAll(ordered);
+            publishOrdered(ordered);
+        } finally {
+            publishLock.unlock();
+        }
+        lateDataPath.flush();
+    }
+
+    /**
+     * 重置按设备的接入状态：输出重排缓冲区中的暂存读数后清空重排状态与去重窗口
+     *
+     * 模拟器进入可复现模式时调用，虚拟时钟早于此前读数时不会被判为迟到或重复
+     */
+    public void resetDeviceState() {
+        publishLock.lock();
+        try {
+            List<EnergyData> ordered = new ArrayList<>();
+            reorderBuffer.flushAll(ordered);
+            publishOrdered(ordered);
+            reorderBuffer.reset();
+            readingDeduplicator.reset();
+        } finally {
+            publishLock.unlock();
+        }
+        log.info("已重置接入的重排状态与去重窗口");
+    }
+
+    /**
+     * 发布重排输出的读数（调用方持有 publishLock），返回并累计因过载被丢弃的条数
+     */
+    private int publishOrdered(List<EnergyData> ordered) {
+        int shed = ordered.size() - ingestPipeline.publish(ordered);
+        if (shed > 0) {
+            shedReadings.addAndGet(shed);
+        }
+        return shed;
+    }
+
+    /**
+     * 释放压测虚拟电表的按设备接入状态：输出其重排暂存读数后移除重排状态与去重窗口
+     *
+     * 压测停止时调用，否则每台虚拟电表的去重窗口与重排数组会一直占用内存
+     */
+    public void releaseVirtualDeviceState() {
+        int reorderReleased;
+        int dedupeReleased;
+        publishLock.lock();
+        try {
+            List<EnergyData> ordered = new ArrayList<>();
+            reorderReleased = reorderBuffer.release(LoadTestSink::isVirtual, ordered);
+            publishOrdered(ordered);
+            dedupeReleased = readingDeduplicator.release(LoadTestSink::isVirtual);
+        } finally {
+            publishLock.unlock();
+        }
+        log.info("已释放压测虚拟电表的接入状态：重排 {} 台，去重窗口 {} 台", reorderReleased, dedupeReleased);
+    }
+
+    /**
+     * 接入是否处于过载状态
+     */
+    public boolean isOverloaded() {
+        return ingestPipeline.isOverloaded();
+    }
+
+    /**
+     * 获取接入流水线统计
+     */
+    public Map<String, Object> getPipelineStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(ingestPipeline.getStats());
+        stats.put("dedupe", readingDeduplicator.getStats());
+        stats.put("reorder", reorderBuffer.getStats());
+        stats.put("shed", shedReadings.get());
+        stats.put("late", lateDataPath.getStats());
+        stats.put("liveCounters", liveCampusCounters.getStats());
+        return stats;
+    }
+
+    /**
+     * 流式解析并接入批量读数（JSON 数组或 NDJSON）
+     */
+    public BulkIngestResultDTO ingestBulk(InputStream body) throws IOException {
+        BulkIngestResultDTO result = new BulkIngestResultDTO();
+        Map<String, Device> deviceCache = new HashMap<>();
+        List<EnergyReadingRequest> pending = new ArrayList<>(bulkBatchSize);
+
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            JsonToken token = parser.nextToken();
+            boolean array = token == JsonToken.START_ARRAY;
+            if (array) {
+                token = parser.nextToken();
+            }
+
+            try {
+                while (token == JsonToken.START_OBJECT) {
+                    pending.add(objectMapper.readValue(parser, EnergyReadingRequest.class));
+                    if (pending.size() >= bulkBatchSize) {
+                        processBatch(pending, deviceCache, result);
+                        pending = new ArrayList<>(bulkBatchSize);
+                    }
+                    token = parser.nextToken();
+                }
+                if (token != null && !(array && token == JsonToken.END_ARRAY)) {
+                    result.setParseError("第 " + (result.getAccepted() + result.getRejected() + pending.size() + 1)
+                            + " 条记录不是JSON对象");
+                }
+            } catch (JsonProcessingException e) {
+                result.setParseError("第 " + (result.getAccepted() + result.getRejected() + pending.size() + 1)
+                        + " 条记录解析失败: " + e.getOriginalMessage());
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            processBatch(pending, deviceCache, result);
+        }
+
+        log.info("批量接入完成：接收 {} 条，重复 {} 条，拒绝 {} 条，{} 个批次",
+                result.getAccepted(), result.getDuplicates(), result.getRejected(), result.getBatches().size());
+        return result;
+    }
+
+    /**
+     * 校验并接入一个批次
+     */
+    private void processBatch(List<EnergyReadingRequest> requests, Map<String, Device> deviceCache,
+                              BulkIngestResultDTO result) {
+        resolveDevices(requests, deviceCache);
+
+        List<EnergyData> readings = new ArrayList<>(requests.size());
+        List<String> errors = new ArrayList<>();
+        int rejected = 0;
+        int index = 0;
+
+        for (EnergyReadingRequest request : requests) {
+            index++;
+            String error = validate(request, deviceCache);
+            if (error != null) {
+                rejected++;
+                if (errors.size() < MAX_ERRORS_PER_BATCH) {
+                    errors.add("#" + index + " " + error);
+                }
+                continue;
+            }
+            readings.add(toEnergyData(request, deviceCache.get(request.getSerialNumber())));
+        }
+
+        int accepted = 0;
+        int duplicates = 0;
+        try {
+            IngestOutcome outcome = submit(readings);
+            accepted = outcome.accepted();
+            duplicates = outcome.duplicates();
+            if (outcome.shed() > 0) {
+                rejected += outcome.shed();
+                errors.add("接入过载，未接收 " + outcome.shed() + " 条");
+            }
+        } catch (Exception e) {
+            log.error("批量接入失败: {}", e.getMessage(), e);
+            rejected += readings.size();
+            accepted = 0;
+            duplicates = 0;
+            errors.add("接入失败: " + e.getMessage());
+        }
+
+        result.setAccepted(result.getAccepted() + accepted);
+        result.setRejected(result.getRejected() + rejected);
+        result.setDuplicates(result.getDuplicates() + duplicates);
+        result.getBatches().add(BulkIngestResultDTO.BatchSummary.builder()
+                .index(result.getBatches().size())
+                .accepted(accepted)
+                .rejected(rejected)
+                .duplicates(duplicates)
+                .errors(errors)
+                .build());
+    }
+
+    /**
+     * 一次查询批量解析本批次中尚未缓存的设备序列号
+     */
+    private void resolveDevices(List<EnergyReadingRequest> requests, Map<String, Device> deviceCache) {
+        Set<String> unknown = requests.stream()
+                .map(EnergyReadingRequest::getSerialNumber)
+                .filter(sn -> sn != null && !deviceCache.containsKey(sn))
+                .collect(Collectors.toSet());
+        if (unknown.isEmpty()) {
+            return;
+        }
+        deviceRepository.findBySerialNumberIn(unknown)
+                .forEach(device -> deviceCache.put(device.getSerialNumber(), device));
+        // 不存在的序列号也放入缓存，避免重复查询
+        unknown.forEach(sn -> deviceCache.putIfAbsent(sn, null));
+    }
+
+    /**
+     * 校验单条读数，返回拒绝原因，通过时返回null
+     */
+    private String validate(EnergyReadingRequest request, Map<String, Device> deviceCache) {
+        if (request.getSerialNumber() == null || request.getSerialNumber().isBlank()) {
+            return "缺少设备序列号";
+        }
+        Device device = deviceCache.get(request.getSerialNumber());
+        if (device == null) {
+            return "设备不存在: " + request.getSerialNumber();
+        }
+        if (device.getStatus() == DeviceStatus.DECOMMISSIONED) {
+            return "设备已停用: " + request.getSerialNumber();
+        }
+        if (request.getCollectTime() == null) {
+            return "缺少采集时间";
+        }
+        if (request.getCollectTime().isAfter(LocalDateTime.now().plusMinutes(MAX_CLOCK_SKEW_MINUTES))) {
+            return "采集时间晚于当前时间: " + request.getCollectTime();
+        }
+        // NaN 与任何数比较都为 false、1e400 解析为 Infinity，先排除非有限值再比较范围
+        if (!inRange(request.getVoltage(), Double.MIN_VALUE, MAX_VOLTAGE)) {
+            return "电压无效: " + request.getVoltage();
+        }
+        if (!inRange(request.getCurrent(), 0, MAX_CURRENT)) {
+            return "电流无效: " + request.getCurrent();
+        }
+        if (!inRange(request.getPower(), 0, MAX_POWER)) {
+            return "功率无效: " + request.getPower();
+        }
+        if (!inRange(request.getTotalEnergy(), 0, Double.MAX_VALUE)) {
+            return "累计用电量无效: " + request.getTotalEnergy();
+        }
+        return null;
+    }
+
+    /**
+     * 非空、有限且在 [min, max] 范围内
+     */
+    private static boolean inRange(Double value, double min, double max) {
+        return value != null && Double.isFinite(value) && value >= min && value <= max;
+    }
+
+    private EnergyData toEnergyData(EnergyReadingRequest request, Device device) {
+        return EnergyData.builder()
+                .device(device)
+                .voltage(request.getVoltage())
+                .current(request.getCurrent())
+                .power(request.getPower())
+                .totalEnergy(request.getTotalEnergy())
+                .collectTime(request.getCollectTime().truncatedTo(ChronoUnit.SECONDS))
+                .isAbnormal(false)
+                .build();
+    }
+}
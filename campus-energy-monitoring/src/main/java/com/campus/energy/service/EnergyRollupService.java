@@ -0,0 +1,379 @@
+package com.campus.energy.service;
+
+import com.campus.energy.entity.Device;
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.enums.RollupResolution;
+import com.campus.energy.exception.BusinessException;
+import com.campus.energy.ingest.LateDataPath;
+import com.campus.energy.ingest.RollupBucket;
+import com.campus.energy.repository.DeviceRepository;
+import com.campus.energy.repository.EnergyRollupRepository;
+import com.campus.energy.storage.EnergyChunkStore;
+import com.campus.energy.storage.ReadingColumns;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多粒度能耗汇总服务（1分钟 / 15分钟 / 1小时 / 1天）
+ *
+ * 说明：
+ * 统计接口原先每次都从5秒一条的原始读数重新计算，一个月的建筑用电量要扫描每台设备一个月的原始行。
+ * 汇总表 t_energy_rollup 按设备、按粒度保存每个时间桶的 最小/最大/平均/最后值 与用电量，
+ * 统计与范围查询直接读取汇总行。
+ *
+ * 维护方式：
+ * - 增量：接入流水线的 rollup 阶段对每批读数按 (粒度, 设备, 时间桶) 在内存中合并，
+ *   再批量 INSERT ... ON DUPLICATE KEY UPDATE 到汇总表；该阶段处理全部读数，不受写库压缩影响
+ * - 修复：迟到数据、历史回填不经过流水线，按设备登记脏区间；修复任务定时从原始读数
+ *   重新计算脏区间覆盖的时间桶并整体替换。只修复已结束 settle-seconds 的时间桶，
+ *   避免与流水线仍在累加的当前时间桶冲突，未结束的部分留到下一轮
+ *
+ * 开启写库压缩时原始读数不完整，修复后的条数与平均值按已存储的读数计算（最小/最大值与用电量不受影响）。
+ * 原始读数按保留期清理后（见 DataLifecycleService），清理范围内的时间桶不再从原始读数重新计算。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class EnergyRollupService {
+
+    private final EnergyRollupRepository energyRollupRepository;
+    private final DeviceRepository deviceRepository;
+    private final LateDataPath lateDataPath;
+    private final EnergyChunkStore energyChunkStore;
+
+    @Value("${energy.rollup.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 时间桶结束后等待多久（秒）才允许修复，需大于乱序窗口与流水线积压
+     */
+    @Value("${energy.rollup.settle-seconds:120}")
+    private long settleSeconds;
+
+    /**
+     * 自动选择粒度时单次返回的最大点数
+     */
+    @Value("${energy.rollup.max-points:2000}")
+    private int maxPoints;
+
+    /**
+     * 粒度 -> 设备ID -> 待修复区间 [起始, 结束)（epoch秒）
+     */
+    private final Map<RollupResolution, Map<Long, long[]>> dirty = newDirtyRanges();
+
+    /**
+     * 原始读数已清理到该时间（不含），之前的时间桶只保留汇总，不再从原始读数重新计算
+     */
+    private volatile long rawHorizon = Long.MIN_VALUE;
+
+    private final AtomicLong accumulated = new AtomicLong();
+    private final AtomicLong upsertedBuckets = new AtomicLong();
+    private final AtomicLong repairedBuckets = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 流水线 rollup 阶段：把一批读数合并到各粒度的汇总表
+     */
+    public void accumulate(List<EnergyData> batch) {
+        if (!enabled || batch.isEmpty()) {
+            return;
+        }
+        Map<RollupBucket.Key, RollupBucket> buckets = new LinkedHashMap<>();
+        for (EnergyData data : batch) {
+            Long deviceId = data.getDevice().getId();
+            for (RollupResolution resolution : RollupResolution.rollups()) {
+                LocalDateTime start = resolution.floor(data.getCollectTime());
+                buckets.computeIfAbsent(new RollupBucket.Key(resolution, deviceId, start),
+                                key -> new RollupBucket(resolution, deviceId, start))
+                        .add(data.getVoltage(), data.getCurrent(), data.getPower(),
+                                data.getTotalEnergy(), data.getCollectTime());
+            }
+        }
+        try {
+            energyRollupRepository.upsert(buckets.values());
+            accumulated.addAndGet(batch.size());
+            upsertedBuckets.addAndGet(buckets.size());
+        } catch (Exception e) {
+            // 丢失的增量登记为脏区间，由修复任务从原始读数重新计算
+            failedBatches.incrementAndGet();
+            log.error("汇总数据增量写入失败 {} 条读数: {}", batch.size(), e.getMessage());
+            batch.forEach(data -> markDirty(data.getDevice().getId(), data.getCollectTime(), data.getCollectTime()));
+        }
+    }
+
+    /**
+     * 登记设备需要修复的时间范围（闭区间）
+     */
+    public void markDirty(Long deviceId, LocalDateTime from, LocalDateTime to) {
+        if (!enabled) {
+            return;
+        }
+        for (RollupResolution resolution : RollupResolution.rollups()) {
+            long start = epochSecond(resolution.floor(from));
+            long end = epochSecond(resolution.floor(to)) + resolution.getSeconds();
+            dirty.get(resolution).merge(deviceId, new long[]{start, end},
+                    (range, added) -> new long[]{Math.min(range[0], start), Math.max(range[1], end)});
+        }
+    }
+
+    /**
+     * 重建所有设备在指定时间范围内的汇总数据（升级后为已有原始读数生成汇总时使用）
+     *
+     * @return 登记的设备数
+     */
+    public int rebuild(LocalDateTime from, LocalDateTime to) {
+        if (!to.isAfter(from)) {
+            throw new BusinessException("结束时间必须晚于开始时间");
+        }
+        if (!enabled) {
+            throw new BusinessException("汇总未启用（energy.rollup.enabled=false）");
+        }
+        List<Device> devices = deviceRepository.findAll();
+        devices.forEach(device -> markDirty(device.getId(), from, to));
+        log.info("已登记 {} 台设备的汇总重建: {} ~ {}", devices.size(), from, to);
+        return devices.size();
+    }
+
+    /**
+     * 修复任务：合并迟到数据的脏区间，重新计算已结束的时间桶
+     */
+    @Scheduled(fixedDelayString = "${energy.rollup.repair-interval:60000}")
+    public void repair() {
+        if (!enabled) {
+            return;
+        }
+        // 先取脏区间再写库：迟到读数先入暂存队列再登记脏区间，取到的区间对应的读数在此次写库中一定已落库
+        lateDataPath.drainDirtyRanges().forEach((deviceId, range) -> markDirty(deviceId, range[0], range[1]));
+        lateDataPath.flush();
+
+        long settled = epochSecond(LocalDateTime.now()) - settleSeconds;
+        for (RollupResolution resolution : RollupResolution.rollups()) {
+            long closedEnd = settled - Math.floorMod(settled, resolution.getSeconds());
+            Map<Long, long[]> ranges = dirty.get(resolution);
+            for (Long deviceId : ranges.keySet()) {
+                long[] range = ranges.remove(deviceId);
+                if (range != null && range[0] < rawHorizon) {
+                    // 原始读数已清理的部分无法重新计算，保留已有汇总
+                    range = range[1] > rawHorizon ? new long[]{rawHorizon, range[1]} : null;
+                }
+                if (range == null || range[0] >= closedEnd) {
+                    if (range != null) {
+                        putBack(ranges, deviceId, range);
+                    }
+                    continue;
+                }
+                long end = Math.min(range[1], closedEnd);
+                try {
+                    recompute(resolution, deviceId, range[0], end);
+                    if (end < range[1]) {
+                        putBack(ranges, deviceId, new long[]{end, range[1]});
+                    }
+                } catch (Exception e) {
+                    putBack(ranges, deviceId, range);
+                    log.error("设备[{}] {} 汇总修复失败: {}", deviceId, resolution, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * 降采样：为某一天有原始读数但缺少汇总的设备，从原始读数同步生成各粒度汇总
+     * （清理原始读数前调用，保证清理后汇总完整）
+     *
+     * @return 生成汇总的设备数
+     */
+    public int downsampleDay(LocalDate day) {
+        if (!enabled) {
+            return 0;
+        }
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = start.plusDays(1);
+        Set<Long> missing = energyChunkStore.isEnabled()
+                ? energyChunkStore.findDeviceIds(start, end)
+                : energyRollupRepository.findRawDeviceIds(start, end);
+        missing.removeAll(energyRollupRepository.findRollupDeviceIds(RollupResolution.DAY_1, start, end));
+        for (Long deviceId : missing) {
+            for (RollupResolution resolution : RollupResolution.rollups()) {
+                recompute(resolution, deviceId, epochSecond(start), epochSecond(end));
+            }
+        }
+        return missing.size();
+    }
+
+    /**
+     * 登记原始读数已清理到的时间（不含）
+     */
+    public void setRawHorizon(LocalDateTime horizon) {
+        rawHorizon = Math.max(rawHorizon, epochSecond(horizon));
+    }
+
+    private void recompute(RollupResolution resolution, Long deviceId, long from, long to) {
+        LocalDateTime start = LocalDateTime.ofEpochSecond(from, 0, ZoneOffset.UTC);
+        LocalDateTime end = LocalDateTime.ofEpochSecond(to, 0, ZoneOffset.UTC);
+        var buckets = energyChunkStore.isEnabled()
+                ? aggregateChunks(resolution, deviceId, start, end)
+                : energyRollupRepository.aggregateRaw(resolution, deviceId, start, end);
+        energyRollupRepository.replace(resolution, deviceId, start, end, buckets);
+        repairedBuckets.addAndGet(buckets.size());
+        log.debug("设备[{}] {} 汇总已修复: {} ~ {}，{} 个时间桶", deviceId, resolution, start, end, buckets.size());
+    }
+
+    /**
+     * 分块存储下从读数块计算 [from, to) 内的汇总桶
+     */
+    private Collection<RollupBucket> aggregateChunks(RollupResolution resolution, Long deviceId,
+                                                     LocalDateTime from, LocalDateTime to) {
+        ReadingColumns readings = energyChunkStore.read(deviceId, from, to.minusSeconds(1));
+        Map<LocalDateTime, RollupBucket> buckets = new LinkedHashMap<>();
+        for (int i = 0; i < readings.getSize(); i++) {
+            LocalDateTime collectTime = readings.getCollectTime(i);
+            buckets.computeIfAbsent(resolution.floor(collectTime),
+                            start -> new RollupBucket(resolution, deviceId, start))
+                    .add(readings.getVoltage()[i], readings.getCurrent()[i], readings.getPower()[i],
+                            readings.getTotalEnergy()[i], collectTime);
+        }
+        return new ArrayList<>(buckets.values());
+    }
+
+    private static void putBack(Map<Long, long[]> ranges, Long deviceId, long[] range) {
+        ranges.merge(deviceId, range, (current, back) ->
+                new long[]{Math.min(current[0], back[0]), Math.max(current[1], back[1])});
+    }
+
+    /**
+     * 查询设备在 [from, to] 内的汇总桶
+     */
+    public List<RollupBucket> getRollups(Long deviceId, RollupResolution resolution,
+                                         LocalDateTime from, LocalDateTime to) {
+        return energyRollupRepository.findByDevice(resolution, deviceId, resolution.floor(from), to);
+    }
+
+    /**
+     * 按设备统计 [from, to] 内的用电量（一次分组查询）
+     *
+     * @return 设备ID -> 用电量(kWh)
+     */
+    public Map<Long, Double> getConsumptionByDevice(LocalDateTime from, LocalDateTime to) {
+        RollupResolution resolution = consumptionResolution(from, to);
+        return energyRollupRepository.sumConsumptionByDevice(resolution, resolution.floor(from), to);
+    }
+
+    /**
+     * 按设备统计 [from, to] 内的累计用电量范围（一次分组查询，实时计数器启动重建使用）
+     *
+     * @return 设备ID -> [最小累计用电量, 最大累计用电量]
+     */
+    public Map<Long, double[]> getEnergyRangeByDevice(LocalDateTime from, LocalDateTime to) {
+        RollupResolution resolution = consumptionResolution(from, to);
+        return energyRollupRepository.findEnergyRangeByDevice(resolution, resolution.floor(from), to);
+    }
+
+    /**
+     * 统计单台设备在 [from, to] 内的用电量
+     *
+     * @return 用电量(kWh)，没有汇总数据时返回 null
+     */
+    public Double getConsumption(Long deviceId, LocalDateTime from, LocalDateTime to) {
+        RollupResolution resolution = consumptionResolution(from, to);
+        List<RollupBucket> buckets = energyRollupRepository.findByDevice(resolution, deviceId, resolution.floor(from), to);
+        if (buckets.isEmpty()) {
+            return null;
+        }
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (RollupBucket bucket : buckets) {
+            min = Math.min(min, bucket.getEnergyMin());
+            max = Math.max(max, bucket.getEnergyMax());
+        }
+        return max - min;
+    }
+
+    /**
+     * 统计用电量使用的粒度：起止时间都对齐桶边界（或截止到当前时间）的最粗粒度，
+     * 否则使用1分钟粒度（误差不超过首尾各一分钟）
+     *
+     * 调用方通常在调用前取 LocalDateTime.now() 作为结束时间，比这里读到的当前时间略早；
+     * 结束时间距当前时间不超过一个最细汇总桶（1分钟）即视为截止到当前时间，
+     * 当前桶之后还没有读数，最后一个桶的最大值就是截至现在的值
+     */
+    private RollupResolution consumptionResolution(LocalDateTime from, LocalDateTime to) {
+        boolean openEnded = !to.isBefore(LocalDateTime.now().minusSeconds(RollupResolution.MINUTE_1.getSeconds()));
+        List<RollupResolution> rollups = RollupResolution.rollups();
+        for (int i = rollups.size() - 1; i > 0; i--) {
+            RollupResolution resolution = rollups.get(i);
+            boolean endAligned = openEnded || resolution.isAligned(to) || resolution.isAligned(to.plusSeconds(1));
+            if (resolution.isAligned(from) && endAligned
+                    && Duration.between(from, to).getSeconds() >= resolution.getSeconds() - 1) {
+                return resolution;
+            }
+        }
+        return RollupResolution.MINUTE_1;
+    }
+
+    /**
+     * 自动选择范围查询的粒度：返回点数不超过 max-points 的最细粒度
+     *
+     * @param rawIntervalSeconds 原始读数间隔（秒）
+     */
+    public RollupResolution chooseResolution(LocalDateTime from, LocalDateTime to, double rawIntervalSeconds) {
+        long span = Math.max(1, Duration.between(from, to).getSeconds());
+        if (!enabled || span / Math.max(1.0, rawIntervalSeconds) <= maxPoints) {
+            return RollupResolution.RAW;
+        }
+        for (RollupResolution resolution : RollupResolution.rollups()) {
+            if (span / resolution.getSeconds() <= maxPoints) {
+                return resolution;
+            }
+        }
+        return RollupResolution.DAY_1;
+    }
+
+    private static Map<RollupResolution, Map<Long, long[]>> newDirtyRanges() {
+        Map<RollupResolution, Map<Long, long[]>> ranges = new EnumMap<>(RollupResolution.class);
+        for (RollupResolution resolution : RollupResolution.rollups()) {
+            ranges.put(resolution, new ConcurrentHashMap<>());
+        }
+        return ranges;
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    /**
+     * 获取汇总统计：累加的读数条数、写入/修复的时间桶数、失败批次及各粒度待修复的设备数
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("accumulatedReadings", accumulated.get());
+        stats.put("upsertedBuckets", upsertedBuckets.get());
+        stats.put("repairedBuckets", repairedBuckets.get());
+        stats.put("failedBatches", failedBatches.get());
+        Map<String, Object> pending = new LinkedHashMap<>();
+        dirty.forEach((resolution, ranges) -> pending.put(resolution.name(), ranges.size()));
+        stats.put("dirtyDevices", pending);
+        return stats;
+    }
+}
@@ -0,0 +1,257 @@
+package com.campus.energy.service;
+
+import com.campus.energy.dto.StatisticsDTO;
+import com.campus.energy.event.AlertCreatedEvent;
+import com.campus.energy.event.AlertResolvedEvent;
+import com.campus.energy.event.BuildingChangedEvent;
+import com.campus.energy.event.DeviceChangedEvent;
+import com.campus.energy.event.DeviceStatusChangedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 概览统计缓存
+ *
+ * 说明：
+ * 每个打开的看板都会轮询概览，N 个看板意味着 N 次相同的计算。
+ * 本缓存保存最近一次计算的 StatisticsDTO：
+ * - 过期：超过 ttl-millis 后下次读取重新计算（用电量随读数持续变化，只能按时间过期）
+ * - 失效：设备状态变更、告警触发/处理、建筑与设备增删改的领域事件提交后立即失效，
+ *   事件在实时计数器之后处理，失效后的计算一定能看到事件带来的变化
+ * - 合并加载：未命中时只有一个线程计算，同时到达的其他请求等待同一结果，
+ *   计算量与看板数量无关
+ *
+ * 计算开始后发生的失效会丢弃该次结果（仍返回给已在等待的请求），不会把旧数据重新写入缓存。
+ * 部分统计项超时或失败（degradedSections 非空）的结果含有兜底的旧数据，
+ * 只按较短的 degraded-ttl-millis 缓存（为 0 时不缓存），数据库恢复后尽快重新计算。
+ */
+@Slf4j
+@Component
+public class StatisticsOverviewCache {
+
+    @Value("${statistics.cache.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * 缓存有效期（毫秒）
+     */
+    @Value("${statistics.cache.ttl-millis:5000}")
+    private long ttlMillis;
+
+    /**
+     * 降级结果（部分统计项使用兜底数据）的缓存有效期（毫秒），为 0 时不缓存
+     */
+    @Value("${statistics.cache.degraded-ttl-millis:1000}")
+    private long degradedTtlMillis;
+
+    /**
+     * 失效版本号，每次失效加一；缓存条目只在版本一致时有效
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    private volatile CachedOverview cached;
+
+    /**
+     * 正在进行的计算（由 this 保护）
+     */
+    private CompletableFuture<StatisticsDTO> loading;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong loadFailures = new AtomicLong();
+    private final AtomicLong degradedLoads = new AtomicLong();
+    private final AtomicLong totalLoadMillis = new AtomicLong();
+    private volatile long lastLoadMillis;
+    private volatile LocalDateTime lastInvalidatedAt;
+    private volatile String lastInvalidationReason;
+
+    /**
+     * 读取概览统计，未命中时由 loader 计算（同一时刻只计算一次）
+     */
+    public StatisticsDTO get(Supplier<StatisticsDTO> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        CachedOverview current = cached;
+        if (isFresh(current)) {
+            hits.incrementAndGet();
+            return current.value();
+        }
+
+        CompletableFuture<StatisticsDTO> future;
+        boolean owner = false;
+        synchronized (this) {
+            current = cached;
+            if (isFresh(current)) {
+                hits.incrementAndGet();
+                return current.value();
+            }
+            if (loading == null) {
+                loading = new CompletableFuture<>();
+                owner = true;
+                misses.incrementAndGet();
+            } else {
+                coalesced.incrementAndGet();
+            }
+            future = loading;
+        }
+
+        if (owner) {
+            load(loader, future);
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 立即失效（下次读取重新计算）
+     */
+    public void invalidate(String reason) {
+        version.incrementAndGet();
+        synchronized (this) {
+            cached = null;
+            // 失效前开始的计算结果可能不包含本次变化，之后的请求不再等待它
+            loading = null;
+        }
+        invalidations.incrementAndGet();
+        lastInvalidatedAt = LocalDateTime.now();
+        lastInvalidationReason = reason;
+        log.debug("概览统计缓存失效: {}", reason);
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceChanged(DeviceChangedEvent event) {
+        invalidate("设备" + event.type().getLabel() + ": " + event.deviceId());
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDeviceStatusChanged(DeviceStatusChangedEvent event) {
+        invalidate("设备状态变更: " + event.deviceId() + " " + event.previousStatus() + " -> " + event.status());
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBuildingChanged(BuildingChangedEvent event) {
+        invalidate("建筑" + event.type().getLabel() + ": " + event.buildingId());
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlertCreated(AlertCreatedEvent event) {
+        invalidate("告警触发: " + event.alertType().getLabel());
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlertResolved(AlertResolvedEvent event) {
+        invalidate("告警处理: " + event.alertId());
+    }
+
+    /**
+     * 缓存统计：命中率、合并的请求数、失效次数与当前缓存的数据年龄
+     */
+    public Map<String, Object> getStats() {
+        long hitCount = hits.get();
+        long missCount = misses.get();
+        long coalescedCount = coalesced.get();
+        long requests = hitCount + missCount + coalescedCount;
+        long loads = missCount - loadFailures.get();
+        CachedOverview current = cached;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("ttlMillis", ttlMillis);
+        stats.put("degradedTtlMillis", degradedTtlMillis);
+        stats.put("requests", requests);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("coalesced", coalescedCount);
+        // 合并等待的请求同样没有触发计算，计入命中率
+        stats.put("hitRate", requests > 0 ? Math.round((hitCount + coalescedCount) * 10000.0 / requests) / 100.0 : 0.0);
+        stats.put("loadFailures", loadFailures.get());
+        stats.put("degradedLoads", degradedLoads.get());
+        stats.put("lastLoadMillis", lastLoadMillis);
+        stats.put("avgLoadMillis", loads > 0 ? Math.round(totalLoadMillis.get() * 100.0 / loads) / 100.0 : 0.0);
+        stats.put("cached", isFresh(current));
+        stats.put("cachedDegraded", isFresh(current) && isDegraded(current.value()));
+        stats.put("ageMillis", current != null ? System.currentTimeMillis() - current.loadedAtMillis() : null);
+        stats.put("loadedAt", current != null ? current.loadedAt() : null);
+        stats.put("invalidations", invalidations.get());
+        stats.put("lastInvalidatedAt", lastInvalidatedAt);
+        stats.put("lastInvalidationReason", lastInvalidationReason);
+        return stats;
+    }
+
+    private void load(Supplier<StatisticsDTO> loader, CompletableFuture<StatisticsDTO> future) {
+        long loadVersion = version.get();
+        long started = System.currentTimeMillis();
+        try {
+            StatisticsDTO value = loader.get();
+            lastLoadMillis = System.currentTimeMillis() - started;
+            totalLoadMillis.addAndGet(lastLoadMillis);
+            boolean degraded = isDegraded(value);
+            if (degraded) {
+                degradedLoads.incrementAndGet();
+            }
+            long entryTtl = degraded ? degradedTtlMillis : ttlMillis;
+            synchronized (this) {
+                if (version.get() == loadVersion && entryTtl > 0) {
+                    cached = new CachedOverview(value, loadVersion, entryTtl,
+                            System.currentTimeMillis(), LocalDateTime.now());
+                } else if (degraded) {
+                    // 不缓存降级结果，也不保留更早的缓存
+                    cached = null;
+                }
+                if (loading == future) {
+                    loading = null;
+                }
+            }
+            future.complete(value);
+        } catch (RuntimeException e) {
+            loadFailures.incrementAndGet();
+            synchronized (this) {
+                if (loading == future) {
+                    loading = null;
+                }
+            }
+            future.completeExceptionally(e);
+        }
+    }
+
+    private boolean isFresh(CachedOverview entry) {
+        return entry != null && entry.version() == version.get()
+                && System.currentTimeMillis() - entry.loadedAtMillis() < entry.ttlMillis();
+    }
+
+    private static boolean isDegraded(StatisticsDTO value) {
+        return value.getDegradedSections() != null && !value.getDegradedSections().isEmpty();
+    }
+
+    /**
+     * 缓存的概览统计
+     */
+    private record CachedOverview(StatisticsDTO value, long version, long ttlMillis,
+                                  long loadedAtMillis, LocalDateTime loadedAt) {
+    }
+}
@@ -1,17 +1,42 @@
 package com.campus.energy.service;
 
 import com.campus.energy.dto.StatisticsDTO;
+import com.campus.energy.entity.Building;
 import com.campus.energy.enums.DeviceStatus;
+import com.campus.energy.ingest.LiveCampusCounters;
 import com.campus.energy.repository.AlertRepository;
 import com.campus.energy.repository.BuildingRepository;
 import com.campus.energy.repository.DeviceRepository;
 import com.campus.energy.repository.EnergyDataRepository;
+import com.campus.energy.storage.EnergyChunkStore;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -31,6 +56,10 @@ import java.util.stream.Collectors;
  *   - DeviceRepository：设备数据访问
  *   - AlertRepository：告警数据访问
  *   - EnergyDataRepository：能耗数据访问
+ *   - EnergyRollupService：多粒度汇总数据（用电量统计读取汇总表，不扫描原始读数）
+ *   - EnergyChunkStore：分块存储模式下的读数块（未开启汇总时从块的汇总列统计用电量）
+ *   - LiveCampusCounters：内存中增量维护的实时计数器（可用时概览直接读取，不访问数据库）
+ *   - StatisticsOverviewCache：概览统计缓存（短时过期 + 领域事件失效，并发未命中只计算一次）
  * 
  * - Client（客户端）：StatisticsController
  *   - 只需要调用getOverviewStatistics()一个方法
@@ -69,6 +98,14 @@ import java.util.stream.Collectors;
  * ============================================
  * 
  * 统计数据服务层
+ * 
+ * 查询次数：概览中的每一项都由固定次数的分组查询得到（按状态/建筑/设备 GROUP BY），
+ * 不随设备数与建筑数增长：设备状态1次、告警2次、今日与本月用电量各1次（按设备分组，
+ * 建筑用电量复用本月结果）、建筑列表1次、各建筑设备数1次、设备所属建筑1次、告警类型1次。
+ * 
+ * 并发执行：各统计项互不依赖，提交到专用的有界线程池同时执行，每项单独计时并设置超时；
+ * 超时或失败的项使用该项上一次成功的结果（没有时为空），其余项照常返回，
+ * 各项耗时与降级的项随结果一起返回（sectionTimings / degradedSections）。
  */
 @Slf4j
 @Service
@@ -96,6 +133,71 @@ public class StatisticsService {
     private final DeviceRepository deviceRepository;  // 子系统：设备数据访问层
     private final AlertRepository alertRepository;  // 子系统：告警数据访问层
     private final EnergyDataRepository energyDataRepository;  // 子系统：能耗数据访问层
+    private final EnergyRollupService energyRollupService;  // 子系统：多粒度汇总数据
+    private final EnergyChunkStore energyChunkStore;  // 子系统：分块存储的读数
+    private final LiveCampusCounters liveCampusCounters;  // 子系统：实时计数器
+    private final StatisticsOverviewCache statisticsOverviewCache;  // 子系统：概览统计缓存
+    private final PlatformTransactionManager transactionManager;  // 子系统：统计项的只读事务（查询超时）
+    
+    private static final String SECTION_BUILDING_COUNT = "buildingCount";
+    private static final String SECTION_DEVICE_STATUS = "deviceStatus";
+    private static final String SECTION_TODAY_ALERTS = "todayAlerts";
+    private static final String SECTION_UNRESOLVED_ALERTS = "unresolvedAlerts";
+    private static final String SECTION_TODAY_ENERGY = "todayEnergy";
+    private static final String SECTION_MONTH_ENERGY = "monthEnergy";
+    private static final String SECTION_BUILDINGS = "buildings";
+    private static final String SECTION_ALERT_TYPES = "alertTypes";
+    private static final List<String> SECTIONS = List.of(SECTION_BUILDING_COUNT, SECTION_DEVICE_STATUS,
+            SECTION_TODAY_ALERTS, SECTION_UNRESOLVED_ALERTS, SECTION_TODAY_ENERGY, SECTION_MONTH_ENERGY,
+            SECTION_BUILDINGS, SECTION_ALERT_TYPES);
+    
+    /**
+     * 概览统计并发执行的线程数（同时占用的数据库连接数不超过该值）
+     */
+    @Value("${statistics.overview.parallelism:4}")
+    private int parallelism;
+    
+    /**
+     * 单个统计项的超时时间（毫秒）
+     */
+    @Value("${statistics.overview.section-timeout-millis:3000}")
+    private long sectionTimeoutMillis;
+    
+    private ThreadPoolExecutor overviewExecutor;
+    
+    /**
+     * 各统计项的只读事务，事务超时即查询超时：超时的查询由数据库取消，不会继续占用线程与连接
+     */
+    private TransactionTemplate sectionTransaction;
+    
+    /**
+     * 各统计项上一次成功的结果，超时或失败时作为兜底
+     */
+    private final Map<String, Object> lastSectionResults = new ConcurrentHashMap<>();
+    
+    @PostConstruct
+    public void initOverviewExecutor() {
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 队列有界：数据库持续变慢时拒绝新任务（该项直接降级），而不是无限堆积
+        overviewExecutor = new ThreadPoolExecutor(parallelism, parallelism, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(parallelism * SECTIONS.size()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "overview-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        overviewExecutor.allowCoreThreadTimeOut(true);
+        
+        sectionTransaction = new TransactionTemplate(transactionManager);
+        sectionTransaction.setReadOnly(true);
+        sectionTransaction.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(sectionTimeoutMillis + 999)));
+    }
+    
+    @PreDestroy
+    public void shutdownOverviewExecutor() {
+        overviewExecutor.shutdownNow();
+    }
     
     /**
      * 获取系统概览统计数据
@@ -124,110 +226,244 @@ public class StatisticsService {
      * ============================================
      */
     public StatisticsDTO getOverviewStatistics() {
+        // 所有看板共用缓存中的结果，未命中时只计算一次
+        return statisticsOverviewCache.get(this::computeOverviewStatistics);
+    }
+    
+    /**
+     * 概览统计缓存的命中率与数据年龄
+     */
+    public Map<String, Object> getOverviewCacheStats() {
+        return statisticsOverviewCache.getStats();
+    }
+    
+    /**
+     * 计算系统概览统计数据（缓存未命中时执行）
+     */
+    private StatisticsDTO computeOverviewStatistics() {
+        long started = System.nanoTime();
+        // 实时计数器可用时直接读取内存中的计数（只遍历建筑），否则按下面的分组查询统计
+        if (liveCampusCounters.isReady()) {
+            StatisticsDTO overview = liveCampusCounters.getOverview();
+            Map<String, Long> timings = new LinkedHashMap<>();
+            timings.put("liveCounters", elapsedMillis(started));
+            overview.setSectionTimings(timings);
+            overview.setDegradedSections(List.of());
+            return overview;
+        }
+        
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime startOfDay = now.toLocalDate().atStartOfDay();
         LocalDateTime startOfMonth = now.withDayOfMonth(1).toLocalDate().atStartOfDay();
+        Map<String, Long> timings = new ConcurrentHashMap<>();
         
         // ============================================
         // 外观模式：封装子系统调用
-        // 调用BuildingRepository获取基础统计
-        // ============================================
-        // 基础统计
-        long buildingCount = buildingRepository.count();
-        
-        // ============================================
-        // 外观模式：封装子系统调用
-        // 调用DeviceRepository获取设备统计
+        // 各统计项互不依赖，同时提交到概览线程池执行，总耗时取决于最慢的一项
         // ============================================
-        long deviceCount = deviceRepository.count();
-        long onlineDeviceCount = deviceRepository.countByStatus(DeviceStatus.ONLINE);
-        long offlineDeviceCount = deviceRepository.countByStatus(DeviceStatus.OFFLINE);
+        CompletableFuture<Long> buildingCountFuture = submitSection(SECTION_BUILDING_COUNT,
+                buildingRepository::count, timings);
+        CompletableFuture<Map<DeviceStatus, Long>> statusCountsFuture = submitSection(SECTION_DEVICE_STATUS,
+                this::countDevicesByStatus, timings);
+        CompletableFuture<Long> todayAlertFuture = submitSection(SECTION_TODAY_ALERTS,
+                () -> alertRepository.countTodayAlerts(startOfDay), timings);
+        CompletableFuture<Long> unresolvedAlertFuture = submitSection(SECTION_UNRESOLVED_ALERTS,
+                alertRepository::countByIsResolvedFalse, timings);
+        CompletableFuture<Map<Long, Double>> todayConsumptionFuture = submitSection(SECTION_TODAY_ENERGY,
+                () -> getConsumptionByDevice(startOfDay, now), timings);
+        CompletableFuture<Map<Long, Double>> monthConsumptionFuture = submitSection(SECTION_MONTH_ENERGY,
+                () -> getConsumptionByDevice(startOfMonth, now), timings);
+        CompletableFuture<BuildingDirectory> buildingDirectoryFuture = submitSection(SECTION_BUILDINGS,
+                this::loadBuildingDirectory, timings);
+        CompletableFuture<Map<String, Long>> alertTypeFuture = submitSection(SECTION_ALERT_TYPES,
+                this::getAlertTypeStats, timings);
         
-        // ============================================
-        // 外观模式：封装子系统调用
-        // 调用AlertRepository获取告警统计
-        // ============================================
-        // 告警统计
-        long todayAlertCount = alertRepository.countTodayAlerts(startOfDay);
-        long unresolvedAlertCount = alertRepository.countByIsResolvedFalse();
-        
-        // ============================================
-        // 外观模式：封装复杂的计算逻辑
-        // 调用EnergyDataRepository计算能耗统计
-        // ============================================
-        // 能耗统计（简化计算）
-        Double todayTotalEnergy = calculateTotalEnergy(startOfDay, now);
-        Double monthTotalEnergy = calculateTotalEnergy(startOfMonth, now);
-        
-        // ============================================
-        // 外观模式：封装复杂的数据聚合
-        // 各建筑用电量统计（涉及多个Repository的交互）
-        // ============================================
-        // 各建筑用电量统计
-        List<StatisticsDTO.BuildingEnergyStats> buildingEnergyStats = getBuildingEnergyStats();
-        
-        // ============================================
-        // 外观模式：封装子系统调用
-        // 告警类型统计
-        // ============================================
-        // 告警类型统计
-        var alertTypeStats = getAlertTypeStats();
+        // 超时或失败的项使用上一次成功的结果，没有时为空
+        List<String> degraded = new ArrayList<>();
+        Long buildingCount = awaitSection(SECTION_BUILDING_COUNT, buildingCountFuture, started, timings, degraded);
+        Map<DeviceStatus, Long> statusCounts = awaitSection(SECTION_DEVICE_STATUS, statusCountsFuture,
+                started, timings, degraded);
+        Long todayAlertCount = awaitSection(SECTION_TODAY_ALERTS, todayAlertFuture, started, timings, degraded);
+        Long unresolvedAlertCount = awaitSection(SECTION_UNRESOLVED_ALERTS, unresolvedAlertFuture,
+                started, timings, degraded);
+        Map<Long, Double> todayConsumption = awaitSection(SECTION_TODAY_ENERGY, todayConsumptionFuture,
+                started, timings, degraded);
+        Map<Long, Double> monthConsumption = awaitSection(SECTION_MONTH_ENERGY, monthConsumptionFuture,
+                started, timings, degraded);
+        BuildingDirectory buildingDirectory = awaitSection(SECTION_BUILDINGS, buildingDirectoryFuture,
+                started, timings, degraded);
+        Map<String, Long> alertTypeStats = awaitSection(SECTION_ALERT_TYPES, alertTypeFuture,
+                started, timings, degraded);
         
         // ============================================
         // 外观模式：封装数据聚合
-        // 将所有统计数据封装到DTO对象
+        // 将所有统计数据封装到DTO对象（各建筑用电量复用本月按设备的用电量）
         // ============================================
-        return StatisticsDTO.builder()
+        StatisticsDTO overview = StatisticsDTO.builder()
                 .buildingCount(buildingCount)
-                .deviceCount(deviceCount)
-                .onlineDeviceCount(onlineDeviceCount)
-                .offlineDeviceCount(offlineDeviceCount)
+                .deviceCount(statusCounts != null ? statusCounts.values().stream().mapToLong(Long::longValue).sum() : null)
+                .onlineDeviceCount(statusCounts != null ? statusCounts.getOrDefault(DeviceStatus.ONLINE, 0L) : null)
+                .offlineDeviceCount(statusCounts != null ? statusCounts.getOrDefault(DeviceStatus.OFFLINE, 0L) : null)
                 .todayAlertCount(todayAlertCount)
                 .unresolvedAlertCount(unresolvedAlertCount)
-                .todayTotalEnergy(todayTotalEnergy)
-                .monthTotalEnergy(monthTotalEnergy)
-                .buildingEnergyStats(buildingEnergyStats)
-                .alertTypeStats(alertTypeStats)
+                .todayTotalEnergy(todayConsumption != null ? calculateTotalEnergy(todayConsumption) : null)
+                .monthTotalEnergy(monthConsumption != null ? calculateTotalEnergy(monthConsumption) : null)
+                .buildingEnergyStats(buildingDirectory != null
+                        ? getBuildingEnergyStats(buildingDirectory, monthConsumption != null ? monthConsumption : Map.of())
+                        : List.of())
+                .alertTypeStats(alertTypeStats != null ? alertTypeStats : Map.of())
+                .degradedSections(degraded)
                 .build();
+        
+        Map<String, Long> orderedTimings = new LinkedHashMap<>();
+        for (String section : SECTIONS) {
+            orderedTimings.put(section, timings.get(section));
+        }
+        orderedTimings.put("total", elapsedMillis(started));
+        overview.setSectionTimings(orderedTimings);
+        if (!degraded.isEmpty()) {
+            log.warn("概览统计部分项使用兜底结果: {}，各项耗时(ms): {}", degraded, orderedTimings);
+        }
+        return overview;
     }
     
     /**
-     * 计算时间范围内的总用电量
+     * 提交一个统计项到概览线程池，超过 section-timeout-millis 未完成视为超时
+     * 
+     * 超时后取消任务：尚未开始的不再执行，正在执行的线程被中断；
+     * 查询本身在只读事务中执行，事务超时由数据库取消语句，线程随即释放。
+     */
+    private <T> CompletableFuture<T> submitSection(String section, Supplier<T> supplier, Map<String, Long> timings) {
+        long submitted = System.nanoTime();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> task;
+        try {
+            task = overviewExecutor.submit(() -> {
+                try {
+                    T value = sectionTransaction.execute(status -> supplier.get());
+                    timings.put(section, elapsedMillis(submitted));
+                    if (value != null) {
+                        lastSectionResults.put(section, value);
+                    }
+                    result.complete(value);
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 线程池已满（数据库持续变慢时）：直接使用兜底结果，不排队等待
+            return CompletableFuture.failedFuture(e);
+        }
+        result.orTimeout(sectionTimeoutMillis, TimeUnit.MILLISECONDS)
+                .whenComplete((value, e) -> {
+                    if (e != null) {
+                        task.cancel(true);
+                    }
+                });
+        return result;
+    }
+    
+    /**
+     * 等待统计项结果；超时或失败时记入 degraded 并返回上一次成功的结果（没有时返回 null）
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T awaitSection(String section, CompletableFuture<T> future, long started,
+                               Map<String, Long> timings, List<String> degraded) {
+        try {
+            return future.join();
+        } catch (CompletionException | CancellationException e) {
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            timings.putIfAbsent(section, elapsedMillis(started));
+            degraded.add(section);
+            log.warn("概览统计项[{}]{}: {}", section,
+                    cause instanceof TimeoutException ? "超时" : "失败", cause.toString());
+            return (T) lastSectionResults.get(section);
+        }
+    }
+    
+    private static long elapsedMillis(long startedNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedNanos);
+    }
+    
+    /**
+     * 按状态统计设备数量（一次分组查询）
+     */
+    private Map<DeviceStatus, Long> countDevicesByStatus() {
+        Map<DeviceStatus, Long> result = new EnumMap<>(DeviceStatus.class);
+        for (Object[] row : deviceRepository.countGroupByStatus()) {
+            result.put((DeviceStatus) row[0], (Long) row[1]);
+        }
+        return result;
+    }
+    
+    /**
+     * 按设备统计时间范围内的用电量（一次分组查询）
      * 
      * ============================================
      * 设计模式：Facade Pattern（外观模式）
      * ============================================
      * 
-     * 外观模式：封装复杂的计算逻辑
+     * 外观模式：封装数据来源的选择
      * 
      * 执行流程：
-     * 1. 调用DeviceRepository获取所有设备
-     * 2. 遍历每个设备，调用EnergyDataRepository计算用电量
-     * 3. 累加所有设备的用电量
+     * 1. 开启汇总时，分组查询汇总表
+     * 2. 未开启汇总、使用分块存储时，分组查询读数块的汇总列
+     * 3. 否则按设备分组扫描原始读数（MAX - MIN 累计用电量）
+     * ============================================
      * 
-     * 外观模式优势体现：
-     * - 隐藏了需要调用两个Repository的复杂性
-     * - 隐藏了数据聚合和计算逻辑
-     * - 客户端不需要知道计算过程
+     * @return 设备ID -> 用电量(kWh)，没有读数的设备不包含在内
+     */
+    private Map<Long, Double> getConsumptionByDevice(LocalDateTime startTime, LocalDateTime endTime) {
+        if (energyRollupService.isEnabled()) {
+            return energyRollupService.getConsumptionByDevice(startTime, endTime);
+        }
+        if (energyChunkStore.isEnabled()) {
+            return energyChunkStore.getConsumptionByDevice(startTime, endTime);
+        }
+        Map<Long, Double> result = new HashMap<>();
+        for (Object[] row : energyDataRepository.calculateEnergyConsumptionPerDevice(startTime, endTime)) {
+            if (row[1] != null) {
+                result.put((Long) row[0], (Double) row[1]);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 累加各设备的用电量，保留3位小数
+     */
+    private Double calculateTotalEnergy(Map<Long, Double> consumptionByDevice) {
+        double total = consumptionByDevice.values().stream()
+                .mapToDouble(Double::doubleValue)
+                .sum();
+        return Math.round(total * 1000.0) / 1000.0;
+    }
+    
+    /**
+     * 加载各建筑用电量统计所需的建筑与设备归属（三次查询，与用电量查询并行执行）
+     * 
+     * ============================================
+     * 设计模式：Facade Pattern（外观模式）
+     * ============================================
+     * 
+     * 执行流程：
+     * 1. 调用BuildingRepository获取所有建筑
+     * 2. 调用DeviceRepository分组统计各建筑的设备数量（一次查询）
+     * 3. 调用DeviceRepository获取所有设备所属的建筑（一次查询，只取ID）
      * ============================================
      */
-    private Double calculateTotalEnergy(LocalDateTime startTime, LocalDateTime endTime) {
-        // ============================================
-        // 外观模式：封装子系统调用
-        // 调用DeviceRepository获取所有设备
-        // ============================================
-        // 获取所有设备的用电量并累加
-        return deviceRepository.findAll().stream()
-                .mapToDouble(device -> {
-                    // ============================================
-                    // 外观模式：封装子系统调用
-                    // 调用EnergyDataRepository计算每个设备的用电量
-                    // ============================================
-                    Double consumption = energyDataRepository.calculateEnergyConsumption(
-                            device.getId(), startTime, endTime);
-                    return consumption != null ? consumption : 0.0;
-                })
-                .sum();  // 外观模式：封装数据聚合逻辑
+    private BuildingDirectory loadBuildingDirectory() {
+        Map<Long, Long> deviceCounts = new HashMap<>();
+        for (Object[] row : deviceRepository.countGroupByBuildingId()) {
+            deviceCounts.put((Long) row[0], (Long) row[1]);
+        }
+        Map<Long, Long> deviceBuildingIds = new HashMap<>();
+        for (Object[] row : deviceRepository.findAllDeviceBuildingIds()) {
+            if (row[1] != null) {
+                deviceBuildingIds.put((Long) row[0], (Long) row[1]);
+            }
+        }
+        return new BuildingDirectory(buildingRepository.findAll(), deviceCounts, deviceBuildingIds);
     }
     
     /**
@@ -240,49 +476,29 @@ public class StatisticsService {
      * 外观模式：封装复杂的数据聚合逻辑
      * 
      * 执行流程：
-     * 1. 调用BuildingRepository获取所有建筑
-     * 2. 对每个建筑：
-     *    - 调用DeviceRepository统计设备数量
-     *    - 调用DeviceRepository获取该建筑下的设备
-     *    - 对每个设备调用EnergyDataRepository计算用电量
-     *    - 累加该建筑下所有设备的用电量
-     * 3. 封装为BuildingEnergyStats对象列表
+     * 1. 按设备所属建筑累加本月用电量
+     * 2. 封装为BuildingEnergyStats对象列表
      * 
      * 外观模式优势体现：
-     * - 隐藏了需要调用3个Repository的复杂性
-     * - 隐藏了复杂的数据聚合和计算逻辑
-     * - 客户端不需要知道统计过程
+     * - 隐藏了需要调用多个Repository的复杂性
+     * - 查询次数固定，不随建筑数与设备数增长
      * ============================================
+     * 
+     * @param monthConsumption 本月按设备的用电量
      */
-    private List<StatisticsDTO.BuildingEnergyStats> getBuildingEnergyStats() {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime startOfMonth = now.withDayOfMonth(1).toLocalDate().atStartOfDay();
+    private List<StatisticsDTO.BuildingEnergyStats> getBuildingEnergyStats(BuildingDirectory directory,
+                                                                          Map<Long, Double> monthConsumption) {
+        Map<Long, Double> buildingEnergy = new HashMap<>();
+        directory.deviceBuildingIds().forEach((deviceId, buildingId) -> {
+            Double consumption = monthConsumption.get(deviceId);
+            if (consumption != null) {
+                buildingEnergy.merge(buildingId, consumption, Double::sum);
+            }
+        });
         
-        // ============================================
-        // 外观模式：封装子系统调用
-        // 调用BuildingRepository获取所有建筑
-        // ============================================
-        return buildingRepository.findAll().stream()
+        return directory.buildings().stream()
                 .map(building -> {
-                    // ============================================
-                    // 外观模式：封装子系统调用
-                    // 调用DeviceRepository统计设备数量
-                    // ============================================
-                    int deviceCount = (int) deviceRepository.countByBuildingId(building.getId());
-                    
-                    // ============================================
-                    // 外观模式：封装复杂的数据聚合
-                    // 调用DeviceRepository和EnergyDataRepository计算用电量
-                    // ============================================
-                    // 计算该建筑下所有设备的总用电量
-                    double totalEnergy = deviceRepository.findByBuildingId(building.getId()).stream()
-                            .mapToDouble(device -> {
-                                // 外观模式：调用EnergyDataRepository计算每个设备的用电量
-                                Double consumption = energyDataRepository.calculateEnergyConsumption(
-                                        device.getId(), startOfMonth, now);
-                                return consumption != null ? consumption : 0.0;
-                            })
-                            .sum();  // 外观模式：封装数据聚合逻辑
+                    double totalEnergy = buildingEnergy.getOrDefault(building.getId(), 0.0);
                     
                     // ============================================
                     // 外观模式：封装数据封装
@@ -291,7 +507,7 @@ public class StatisticsService {
                     return StatisticsDTO.BuildingEnergyStats.builder()
                             .buildingId(building.getId())
                             .buildingName(building.getName())
-                            .deviceCount(deviceCount)
+                            .deviceCount(directory.deviceCounts().getOrDefault(building.getId(), 0L).intValue())
                             .totalEnergy(Math.round(totalEnergy * 100.0) / 100.0)
                             .build();
                 })
@@ -301,9 +517,9 @@ public class StatisticsService {
     /**
      * 获取告警类型统计
      */
-    private java.util.Map<String, Long> getAlertTypeStats() {
+    private Map<String, Long> getAlertTypeStats() {
         List<Object[]> stats = alertRepository.countByAlertType();
-        java.util.Map<String, Long> result = new java.util.HashMap<>();
+        Map<String, Long> result = new HashMap<>();
         
         for (Object[] row : stats) {
             com.campus.energy.enums.AlertType type = (com.campus.energy.enums.AlertType) row[0];
@@ -313,5 +529,11 @@ public class StatisticsService {
         
         return result;
     }
+    
+    /**
+     * 各建筑用电量统计所需的建筑列表、各建筑设备数与设备所属建筑
+     */
+    private record BuildingDirectory(List<Building> buildings, Map<Long, Long> deviceCounts,
+                                     Map<Long, Long> deviceBuildingIds) {
+    }
 }
-
@@ -0,0 +1,211 @@
+package com.campus.energy.simulator;
+
+import com.campus.energy.entity.Device;
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.pattern.strategy.AlertStrategy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 自适应采样（simulator.adaptive.enabled=true 时生效）
+ *
+ * 说明：
+ * 大部分电表长期稳定运行，每5秒上报几乎相同的读数，这些行占据了 t_energy_data 的大部分增长。
+ * 自适应采样按读数离告警阈值的远近和变化速度调整每台设备的采样间隔：
+ * - 读数接近阈值（任一告警策略的 thresholdProximity ≥ near-threshold）、读数异常
+ *   或功率变化超过额定功率的 change-ratio：立即恢复基础间隔
+ * - 读数远离阈值（所有策略的 thresholdProximity ≤ relaxed-threshold）且变化平稳：间隔加倍，
+ *   最多放大到基础间隔的 max-stretch 倍
+ * - 介于两者之间：保持当前间隔
+ *
+ * 阈值的判断复用告警策略（策略模式），新增告警策略后自动参与采样判断，
+ * 接近告警的设备始终以全分辨率采样，不影响告警的准确性。
+ *
+ * 按设备统计节省的存储：全速率下应产生的读数条数 - 实际采样条数。
+ */
+@Component
+@RequiredArgsConstructor
+public class AdaptiveSampler {
+
+    private final List<AlertStrategy> alertStrategies;
+
+    @Value("${simulator.adaptive.enabled:false}")
+    private boolean enabled;
+
+    /**
+     * 采样间隔最大放大倍数（相对基础间隔）
+     */
+    @Value("${simulator.adaptive.max-stretch:12}")
+    private int maxStretch;
+
+    /**
+     * 接近阈值的判定比例，达到后恢复基础间隔
+     */
+    @Value("${simulator.adaptive.near-threshold:0.8}")
+    private double nearThreshold;
+
+    /**
+     * 远离阈值的判定比例，低于该值且变化平稳时放大间隔
+     */
+    @Value("${simulator.adaptive.relaxed-threshold:0.6}")
+    private double relaxedThreshold;
+
+    /**
+     * 快速变化判定：相邻两次采样功率变化 / 额定功率
+     */
+    @Value("${simulator.adaptive.change-ratio:0.1}")
+    private double changeRatio;
+
+    private final Map<Long, DeviceState> states = new ConcurrentHashMap<>();
+
+    /**
+     * 从放大间隔恢复到基础间隔的次数
+     */
+    private final AtomicLong rampUps = new AtomicLong();
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 全局定时调度下判断设备本轮是否需要采样
+     *
+     * @return 需要采样时返回距上次采样的毫秒数（首次采样返回基础间隔），不需要时返回 -1
+     */
+    public long elapsedIfDue(Long deviceId, long nowMillis, long baseIntervalMillis) {
+        DeviceState state = enabled ? states.get(deviceId) : null;
+        if (state == null) {
+            return baseIntervalMillis;
+        }
+        synchronized (state) {
+            // 容忍半个基础间隔的调度抖动
+            if (nowMillis + baseIntervalMillis / 2 < state.lastSampleMillis + baseIntervalMillis * state.stretch) {
+                return -1;
+            }
+            return nowMillis - state.lastSampleMillis;
+        }
+    }
+
+    /**
+     * 记录一次采样，返回到下一次采样的间隔
+     *
+     * @param sampleMillis 本次采样时刻（epoch毫秒）
+     * @return 下一次采样间隔（毫秒），未开启自适应采样时为基础间隔
+     */
+    public long record(EnergyData reading, long sampleMillis, long baseIntervalMillis) {
+        if (!enabled) {
+            return baseIntervalMillis;
+        }
+        Device device = reading.getDevice();
+        DeviceState state = states.computeIfAbsent(device.getId(), id -> new DeviceState(sampleMillis));
+        synchronized (state) {
+            double proximity = 0.0;
+            for (AlertStrategy strategy : alertStrategies) {
+                proximity = Math.max(proximity, strategy.thresholdProximity(device, reading));
+            }
+            boolean changing = state.samples > 0 && device.getRatedPower() != null
+                    && Math.abs(reading.getPower() - state.lastPower) >= device.getRatedPower() * changeRatio;
+
+            if (Boolean.TRUE.equals(reading.getIsAbnormal()) || proximity >= nearThreshold || changing) {
+                if (state.stretch > 1) {
+                    rampUps.incrementAndGet();
+                }
+                state.stretch = 1;
+            } else if (proximity <= relaxedThreshold) {
+                state.stretch = Math.min(state.stretch * 2, maxStretch);
+            }
+
+            state.samples++;
+            state.baseIntervalMillis = baseIntervalMillis;
+            state.lastSampleMillis = sampleMillis;
+            state.lastPower = reading.getPower();
+            return baseIntervalMillis * state.stretch;
+        }
+    }
+
+    /**
+     * 获取自适应采样统计：总体节省比例及节省最多的 limit 台设备
+     */
+    public Map<String, Object> getStats(int limit) {
+        long samples = 0;
+        long fullRateSamples = 0;
+        int stretched = 0;
+        List<Map<String, Object>> devices = new ArrayList<>(states.size());
+        for (Map.Entry<Long, DeviceState> entry : states.entrySet()) {
+            DeviceState state = entry.getValue();
+            synchronized (state) {
+                long fullRate = state.fullRateSamples();
+                samples += state.samples;
+                fullRateSamples += fullRate;
+                if (state.stretch > 1) {
+                    stretched++;
+                }
+                Map<String, Object> device = new LinkedHashMap<>();
+                device.put("deviceId", entry.getKey());
+                device.put("samples", state.samples);
+                device.put("fullRateSamples", fullRate);
+                device.put("saved", fullRate - state.samples);
+                device.put("savedRatio", ratio(fullRate - state.samples, fullRate));
+                device.put("currentIntervalSeconds", state.baseIntervalMillis * state.stretch / 1000.0);
+                devices.add(device);
+            }
+        }
+        devices.sort(Comparator.comparingLong((Map<String, Object> d) -> (Long) d.get("saved")).reversed());
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("maxStretch", maxStretch);
+        stats.put("nearThreshold", nearThreshold);
+        stats.put("relaxedThreshold", relaxedThreshold);
+        stats.put("trackedDevices", states.size());
+        stats.put("stretchedDevices", stretched);
+        stats.put("rampUps", rampUps.get());
+        stats.put("samples", samples);
+        stats.put("fullRateSamples", fullRateSamples);
+        stats.put("saved", fullRateSamples - samples);
+        stats.put("savedRatio", ratio(fullRateSamples - samples, fullRateSamples));
+        stats.put("devices", devices.subList(0, Math.min(limit, devices.size())));
+        return stats;
+    }
+
+    private static double ratio(long part, long total) {
+        return total > 0 ? Math.round(part * 1000.0 / total) / 1000.0 : 0.0;
+    }
+
+    /**
+     * 单台设备的采样状态（调用方持有该对象的锁）
+     */
+    private static final class DeviceState {
+
+        private final long firstSampleMillis;
+        private long lastSampleMillis;
+        private long baseIntervalMillis;
+        private int stretch = 1;
+        private long samples;
+        private double lastPower;
+
+        private DeviceState(long firstSampleMillis) {
+            this.firstSampleMillis = firstSampleMillis;
+        }
+
+        /**
+         * 以基础间隔采样时，从首次到最近一次采样应产生的读数条数
+         */
+        private long fullRateSamples() {
+            if (baseIntervalMillis <= 0) {
+                return samples;
+            }
+            long fullRate = Math.round((double) (lastSampleMillis - firstSampleMillis) / baseIntervalMillis) + 1;
+            return Math.max(fullRate, samples);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.campus.energy.simulator;
+
+import com.campus.energy.entity.Device;
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.ingest.LiveCampusCounters;
+import com.campus.energy.exception.BusinessException;
+import com.campus.energy.pattern.factory.AbnormalEnergyDataFactory;
+import com.campus.energy.pattern.factory.NormalEnergyDataFactory;
+import com.campus.energy.repository.DeviceRepository;
+import com.campus.energy.repository.EnergyDataBatchWriter;
+import com.campus.energy.repository.EnergyDataRepository;
+import com.campus.energy.service.EnergyRollupService;
+import com.campus.energy.storage.EnergyChunkStore;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 历史数据回填服务
+ * 
+ * 说明：
+ * 模拟器只能生成"当前"读数，统计与看板的性能测试需要数月的历史数据。
+ * 本服务复用正常/异常数据工厂，按指定采集时间为每台设备生成N天的历史读数，
+ * 通过批量写入器按块写库（多行INSERT），按设备并行执行。
+ * 
+ * 回填方向：从设备已有的最早读数开始向过去回填。
+ * - 累计用电量随时间倒推递减，保证与已有数据（及模拟器后续数据）衔接，不会出现负用电量
+ * - 每块数据写入后即提交，已提交的数据始终是连续的时间段，
+ *   因此中断后重新执行会从设备当前最早的读数继续（可续传）
+ * - 没有任何读数的设备，以当前时间为起点，按额定功率估算一个起始累计用电量
+ * 
+ * 回填的是历史数据，不触发告警。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BackfillService {
+    
+    private final DeviceRepository deviceRepository;
+    private final EnergyDataRepository energyDataRepository;
+    private final EnergyChunkStore energyChunkStore;
+    private final EnergyDataBatchWriter energyDataBatchWriter;
+    private final EnergyRollupService energyRollupService;
+    private final MeterRegister meterRegister;
+    private final LiveCampusCounters liveCampusCounters;
+    private final NormalEnergyDataFactory normalDataFactory;
+    private final AbnormalEnergyDataFactory abnormalDataFactory;
+    
+    /**
+     * 并行回填的设备数
+     */
+    @Value("${simulator.backfill.parallelism:4}")
+    private int parallelism;
+    
+    /**
+     * 每次提交的读数条数
+     */
+    @Value("${simulator.backfill.chunk-size:5000}")
+    private int chunkSize;
+    
+    @Value("${simulator.anomaly-frequency:30}")
+    private int anomalyFrequency;
+    
+    private volatile boolean running;
+    private ExecutorService executor;
+    private long startedAtMillis;
+    private long finishedAtMillis;
+    private int totalDevices;
+    
+    private final AtomicInteger finishedDevices = new AtomicInteger();
+    private final AtomicInteger failedDevices = new AtomicInteger();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    
+    /**
+     * 启动回填
+     * 
+     * @param days 回填天数
+     * @param stepSeconds 读数间隔（秒）
+     */
+    public synchronized void start(int days, int stepSeconds) {
+        if (running) {
+            throw new BusinessException("历史数据回填已在运行中");
+        }
+        if (days <= 0 || stepSeconds <= 0) {
+            throw new BusinessException("回填天数与读数间隔必须大于0");
+        }
+        
+        List<Device> devices = deviceRepository.findAll();
+        if (devices.isEmpty()) {
+            throw new BusinessException("没有可回填的设备");
+        }
+        Map<Long, Object[]> earliest = new HashMap<>();
+        List<Object[]> earliestRows = energyChunkStore.isEnabled()
+                ? energyChunkStore.findEarliestReadingPerDevice()
+                : energyDataRepository.findEarliestReadingPerDevice();
+        for (Object[] row : earliestRows) {
+            earliest.put((Long) row[0], row);
+        }
+        
+        LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        LocalDateTime target = now.minusDays(days);
+        
+        totalDevices = devices.size();
+        finishedDevices.set(0);
+        failedDevices.set(0);
+        rowsWritten.set(0);
+        startedAtMillis = System.currentTimeMillis();
+        finishedAtMillis = 0;
+        running = true;
+        
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "backfill-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        for (Device device : devices) {
+            Object[] anchor = earliest.get(device.getId());
+            LocalDateTime anchorTime = anchor != null ? (LocalDateTime) anchor[1] : now;
+            double anchorTotal = anchor != null
+                    ? (Double) anchor[2]
+                    : estimateTotalEnergy(device, days);
+            executor.submit(() -> backfillDevice(device, anchorTime, anchorTotal, target, stepSeconds));
+        }
+        executor.shutdown();
+        
+        log.info("历史数据回填已启动：{} 台设备，回填至 {}，间隔 {} 秒", totalDevices, target, stepSeconds);
+    }
+    
+    /**
+     * 停止回填（已提交的数据保留，重新启动时从断点继续）
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        executor.shutdownNow();
+        log.info("历史数据回填已停止，已写入 {} 条", rowsWritten.get());
+    }
+    
+    /**
+     * 从锚点向过去回填单台设备
+     */
+    private void backfillDevice(Device device, LocalDateTime anchorTime, double anchorTotal,
+                                LocalDateTime target, int stepSeconds) {
+        try {
+            // 没有历史数据的设备，确保模拟器后续读数从估算的累计用电量继续
+            meterRegister.update(device.getId(), anchorTotal);
+            
+            LocalDateTime time = anchorTime.minusSeconds(stepSeconds);
+            double nextTotal = anchorTotal;
+            long index = 0;
+            List<EnergyData> chunk = new ArrayList<>(chunkSize);
+            // 已连续写入的最早一条读数的时间，断点续传从这里继续
+            LocalDateTime earliestWritten = anchorTime;
+            boolean complete = true;
+            
+            while (running && time.isAfter(target)) {
+                EnergyData data = (++index % anomalyFrequency == 0)
+                        ? abnormalDataFactory.createEnergyData(device, nextTotal, time, stepSeconds)
+                        : normalDataFactory.createEnergyData(device, nextTotal, time, stepSeconds);
+                
+                // 工厂按时间正向累加，回填时把增量从后一条读数中扣除
+                double increment = data.getTotalEnergy() - nextTotal;
+                nextTotal = Math.max(0.0, Math.round((nextTotal - increment) * 1000.0) / 1000.0);
+                data.setTotalEnergy(nextTotal);
+                chunk.add(data);
+                
+                if (chunk.size() >= chunkSize) {
+                    List<EnergyData> written = writeChunk(chunk);
+                    if (!written.isEmpty()) {
+                        earliestWritten = written.get(written.size() - 1).getCollectTime();
+                    }
+                    if (written.size() < chunk.size()) {
+                        complete = false;
+                        break;
+                    }
+                    chunk = new ArrayList<>(chunkSize);
+                }
+                time = time.minusSeconds(stepSeconds);
+            }
+            
+            if (complete && !chunk.isEmpty() && running) {
+                List<EnergyData> written = writeChunk(chunk);
+                if (!written.isEmpty()) {
+                    earliestWritten = written.get(written.size() - 1).getCollectTime();
+                }
+                complete = written.size() == chunk.size();
+            }
+            // 回填读数不经过接入流水线，登记为汇总的脏区间，由修复任务生成汇总（实时计数器已在写入后合并）
+            if (earliestWritten.isBefore(anchorTime)) {
+                energyRollupService.markDirty(device.getId(), earliestWritten, anchorTime);
+            }
+            if (!complete) {
+                // 已写入的读数是连续的，重新启动回填时从最早一条继续，不会留下空洞
+                failedDevices.incrementAndGet();
+                log.error("设备[{}]历史数据回填写入失败，已停止该设备，已回填至 {}",
+                        device.getSerialNumber(), earliestWritten);
+            }
+        } catch (Exception e) {
+            failedDevices.incrementAndGet();
+            log.error("设备[{}]历史数据回填失败: {}", device.getSerialNumber(), e.getMessage(), e);
+        } finally {
+            if (finishedDevices.incrementAndGet() == totalDevices) {
+                finishedAtMillis = System.currentTimeMillis();
+                running = false;
+                log.info("历史数据回填完成，共写入 {} 条", rowsWritten.get());
+            }
+        }
+    }
+    
+    /**
+     * 按顺序写入一块回填读数，遇到失败即停止，只把已写入的读数计入实时计数器
+     *
+     * @return 已写入的读数（chunk 的前缀）
+     */
+    private List<EnergyData> writeChunk(List<EnergyData> chunk) {
+        List<EnergyData> failed = new ArrayList<>();
+        rowsWritten.addAndGet(energyDataBatchWriter.writeInOrder(chunk, EnergyDataBatchWriter.ENERGY_DATA_TABLE, failed));
+        List<EnergyData> written = chunk.subList(0, chunk.size() - failed.size());
+        liveCampusCounters.accumulate(written);
+        return written;
+    }
+    
+    /**
+     * 估算无历史数据设备的起始累计用电量（按额定功率50%运行估算），保证倒推时不低于0
+     */
+    private double estimateTotalEnergy(Device device, int days) {
+        return Math.round(device.getRatedPower() * 0.5 / 1000.0 * 24 * days * 1000.0) / 1000.0;
+    }
+    
+    /**
+     * 获取回填进度
+     */
+    public Map<String, Object> getStatus() {
+        long end = finishedAtMillis > 0 ? finishedAtMillis : System.currentTimeMillis();
+        double seconds = startedAtMillis > 0 ? (end - startedAtMillis) / 1000.0 : 0;
+        
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running);
+        status.put("totalDevices", totalDevices);
+        status.put("finishedDevices", finishedDevices.get());
+        status.put("failedDevices", failedDevices.get());
+        status.put("rowsWritten", rowsWritten.get());
+        status.put("elapsedSeconds", Math.round(seconds));
+        status.put("rowsPerSecond", seconds > 0 ? Math.round(rowsWritten.get() / seconds) : 0);
+        return status;
+    }
+}
@@ -3,22 +3,37 @@ package com.campus.energy.simulator;
 import com.campus.energy.entity.Device;
 import com.campus.energy.entity.EnergyData;
 import com.campus.energy.enums.DeviceStatus;
+import com.campus.energy.exception.BusinessException;
 import com.campus.energy.pattern.factory.AbnormalEnergyDataFactory;
+import com.campus.energy.pattern.factory.EnergyDataFactory;
 import com.campus.energy.pattern.factory.NormalEnergyDataFactory;
 import com.campus.energy.pattern.observer.AlertObserver;
 import com.campus.energy.pattern.observer.AlertSubject;
 import com.campus.energy.repository.DeviceRepository;
-import com.campus.energy.repository.EnergyDataRepository;
-import com.campus.energy.service.AlertService;
+import com.campus.energy.repository.EnergyDataBatchWriter;
+import com.campus.energy.service.EnergyIngestService;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -26,6 +41,27 @@ import java.util.concurrent.atomic.AtomicInteger;
  * 
  * 定时任务：每隔固定时间生成所有在线设备的能耗数据
  * 
+ * 调度方式（simulator.scheduler）：
+ * - global：全局定时任务，所有设备同一时刻、同一间隔采样
+ * - wheel：由 WheelSamplingScheduler 按设备各自的间隔和相位调度，通过 sample() 生成读数
+ * 
+ * 可复现模式（simulator.seed 或 /simulator/seeded/start 开启）：
+ * 每台设备使用独立的种子随机流、按设备计数注入异常、采集时间取虚拟时钟，
+ * 各分片生成的读数汇总后按设备ID排序统一接入。
+ * 累计用电量由 SeededSimulation 按设备维护（起始值由种子得到），不读写电表寄存器，
+ * 相同种子、相同设备时，无论顺序还是并行、线程数多少、此前数据库中有什么读数，
+ * 生成的数据集（摘要）和告警序列都完全一致，便于对接入链路和告警引擎做可比较的性能测试。
+ * 注意：同一虚拟起始时间的第二次运行生成的读数与第一次的 (设备, 采集时间) 相同，
+ * 写库时被 INSERT IGNORE 忽略（摘要不受影响）；需要重新入库时换一个 seed-start-time 或先清理该时间段的数据。
+ * 
+ * 自适应采样（simulator.adaptive.enabled）：
+ * 远离告警阈值的稳定设备降低采样频率，接近阈值或快速变化时恢复基础间隔（见 AdaptiveSampler），
+ * 全局定时调度下未到采样时刻的设备本轮跳过，时间轮调度下直接按放大后的间隔安排下一次采样。
+ * 
+ * 故障场景（/simulator/scenario/start 开启）：
+ * 生成的读数在接入前交给 ScenarioEngine 按场景改写（电压骤降、过载爬升、掉线等），
+ * 可与可复现模式组合，得到可重复的告警风暴。
+ * 
  * ============================================
  * 设计模式应用：
  * 1. Factory Pattern（工厂模式）- 使用工厂模式创建正常/异常能耗数据
@@ -37,9 +73,18 @@ import java.util.concurrent.atomic.AtomicInteger;
 @RequiredArgsConstructor
 public class EnergySimulatorService {
     
+    /**
+     * FNV-1a 64位哈希参数，用于计算可复现模式的数据集摘要
+     */
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+    
     private final DeviceRepository deviceRepository;
-    private final EnergyDataRepository energyDataRepository;
-    private final AlertService alertService;
+    private final MeterRegister meterRegister;
+    private final EnergyDataBatchWriter energyDataBatchWriter;
+    private final EnergyIngestService energyIngestService;
+    private final ScenarioEngine scenarioEngine;
+    private final AdaptiveSampler adaptiveSampler;
     
     // ============================================
     // 设计模式：Observer Pattern（观察者模式）
@@ -61,34 +106,153 @@ public class EnergySimulatorService {
     @Value("${simulator.anomaly-frequency:30}")
     private int anomalyFrequency;
     
+    /**
+     * 执行模式：sequential（顺序）/ parallel（分片并行）
+     */
+    @Value("${simulator.execution-mode:sequential}")
+    private String executionMode;
+    
+    /**
+     * 分片方式：building（按建筑）/ hash（按设备ID哈希）
+     */
+    @Value("${simulator.shard-by:building}")
+    private String shardBy;
+    
+    /**
+     * 哈希分片数量（shard-by=hash 时生效）
+     */
+    @Value("${simulator.shard-count:8}")
+    private int shardCount;
+    
+    /**
+     * 分片并行线程数
+     */
+    @Value("${simulator.parallelism:4}")
+    private int parallelism;
+    
+    /**
+     * 调度方式：global（全局定时）/ wheel（按设备的时间轮调度）
+     */
+    @Value("${simulator.scheduler:global}")
+    private String scheduler;
+    
     /**
      * 数据计数器，用于控制异常数据的生成频率
+     * AtomicInteger 保证并行分片下计数准确，异常数据频率保持不变
      */
     private final AtomicInteger dataCounter = new AtomicInteger(0);
     
+    /**
+     * 因接入过载而跳过的轮次
+     */
+    private final AtomicInteger skippedTicks = new AtomicInteger(0);
+    
+    /**
+     * 采集间隔（毫秒），可复现模式下虚拟时钟每轮前进该值
+     */
+    @Value("${simulator.interval:5000}")
+    private long intervalMillis;
+    
+    /**
+     * 可复现模式的随机种子，配置后启动即进入可复现模式
+     */
+    @Value("${simulator.seed:#{null}}")
+    private Long configuredSeed;
+    
+    /**
+     * 可复现模式的虚拟起始时间
+     */
+    @Value("${simulator.seed-start-time:2025-01-01T00:00:00}")
+    private String seedStartTime;
+    
+    /**
+     * 可复现模式状态，null 表示普通模式
+     */
+    private volatile SeededSimulation seededSimulation;
+    
+    /**
+     * 可复现模式下已发布读数的摘要
+     */
+    private volatile long datasetDigest = FNV_OFFSET_BASIS;
+    
+    /**
+     * 分片执行线程池（有界）
+     */
+    private ExecutorService shardExecutor;
+    
+    /**
+     * 最近一轮各分片的执行统计
+     */
+    private volatile Map<String, Map<String, Object>> lastShardStats = Map.of();
+    
     @PostConstruct
     public void init() {
         log.info("============================================");
         log.info("能耗数据模拟器初始化");
         log.info("模拟器状态: {}", simulatorEnabled ? "已启用" : "已禁用");
         log.info("异常数据频率: 每 {} 条正常数据生成1条异常数据", anomalyFrequency);
+        log.info("执行模式: {}", executionMode);
+        log.info("调度方式: {}", scheduler);
         log.info("============================================");
+        
+        AtomicInteger threadIndex = new AtomicInteger();
+        shardExecutor = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "simulator-shard-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
 
+        if (configuredSeed != null && isWheelScheduler()) {
+            log.warn("可复现模式仅支持 global 调度方式，已忽略 simulator.seed");
+        } else if (configuredSeed != null) {
+            startSeeded(configuredSeed, null);
+        }
+        
         alertObservers.forEach(alertSubject::registerObserver);
         log.info("已注册 {} 个告警观察者", alertSubject.getObserverCount());
     }
     
+    @PreDestroy
+    public void shutdown() {
+        shardExecutor.shutdownNow();
+    }
+    
     /**
-     * 定时任务：生成能耗数据
-     * 每5秒执行一次（可在配置文件中修改）
+     * 全局定时任务：每5秒执行一次（可在配置文件中修改）
+     * 
+     * wheel 调度方式下由时间轮按设备调度，全局定时任务不再生成数据
      */
     @Scheduled(fixedRateString = "${simulator.interval:5000}")
-    @Transactional
+    public void scheduledGeneration() {
+        if (isWheelScheduler()) {
+            return;
+        }
+        generateEnergyData();
+    }
+    
+    /**
+     * 生成能耗数据
+     * 
+     * 在线设备按分片处理：
+     * - sequential 模式：所有设备作为一个分片，在调度线程中执行
+     * - parallel 模式：按建筑（或设备ID哈希）分片，各分片在线程池中并行执行
+     * 每个分片独立收集读数并发布到接入流水线，写库与告警检查由流水线异步完成，
+     * 单个分片失败不影响其他分片
+     * 
+     * 接入过载时跳过本轮，避免调度线程被阻塞、积压继续增长
+     */
     public void generateEnergyData() {
         if (!simulatorEnabled) {
             return;
         }
         
+        // 接入过载时跳过本轮，由下游先消化积压（生产者主动降速）
+        if (energyIngestService.isOverloaded()) {
+            int skipped = skippedTicks.incrementAndGet();
+            log.warn("接入过载，跳过本轮数据生成，累计跳过 {} 轮", skipped);
+            return;
+        }
+        
         // 获取所有在线设备
         List<Device> onlineDevices = deviceRepository.findByStatus(DeviceStatus.ONLINE);
         
@@ -98,27 +262,175 @@ public class EnergySimulatorService {
         }
         
         log.debug("开始为 {} 个在线设备生成能耗数据", onlineDevices.size());
+        long start = System.currentTimeMillis();
+        
+        Map<String, List<Device>> shards = partition(onlineDevices);
+        Map<String, Map<String, Object>> shardStats = new ConcurrentHashMap<>();
+        
+        // 可复现模式：虚拟时钟前进一个间隔，各分片只生成读数，汇总后按设备ID顺序统一接入
+        SeededSimulation seeded = seededSimulation;
+        LocalDateTime tickTime = seeded != null ? seeded.nextTick(intervalMillis) : null;
+        boolean ingestInShard = seeded == null;
+        List<EnergyData> generated = new ArrayList<>();
+        
+        if (shards.size() == 1) {
+            Map.Entry<String, List<Device>> shard = shards.entrySet().iterator().next();
+            generated.addAll(processShard(shard.getKey(), shard.getValue(), shardStats, seeded, tickTime, ingestInShard));
+        } else {
+            List<Callable<List<EnergyData>>> tasks = new ArrayList<>(shards.size());
+            shards.forEach((key, devices) -> tasks.add(() -> processShard(key, devices, shardStats,
+                    seeded, tickTime, ingestInShard)));
+            try {
+                for (Future<List<EnergyData>> future : shardExecutor.invokeAll(tasks)) {
+                    generated.addAll(future.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.warn("模拟器分片执行被中断");
+            } catch (ExecutionException e) {
+                log.error("模拟器分片执行异常: {}", e.getMessage(), e);
+            }
+        }
+        
+        if (!ingestInShard) {
+            generated.sort(Comparator.comparing(data -> data.getDevice().getId()));
+            updateDigest(generated);
+            energyIngestService.ingestWithoutMeterRegister(generated);
+        }
+        
+        lastShardStats = shardStats;
+        log.debug("本轮数据生成完成，{} 个分片，发布 {} 条，耗时 {} ms，总计数: {}",
+                shards.size(), generated.size(), System.currentTimeMillis() - start, dataCounter.get());
+    }
+    
+    /**
+     * 将在线设备划分为分片
+     */
+    private Map<String, List<Device>> partition(List<Device> devices) {
+        Map<String, List<Device>> shards = new LinkedHashMap<>();
+        if (!"parallel".equalsIgnoreCase(executionMode)) {
+            shards.put("all", devices);
+            return shards;
+        }
+        for (Device device : devices) {
+            String key = "hash".equalsIgnoreCase(shardBy)
+                    ? "hash-" + Math.floorMod(device.getId().hashCode(), shardCount)
+                    : "building-" + device.getBuilding().getId();
+            shards.computeIfAbsent(key, k -> new ArrayList<>()).add(device);
+        }
+        return shards;
+    }
+    
+    /**
+     * 处理单个分片：生成读数 -> 接入（更新电表寄存器 -> 发布到接入流水线）
+     * 
+     * @param seeded 可复现模式的运行状态，普通模式为null
+     * @param tickTime 可复现模式下本轮的虚拟采集时间，普通模式为null
+     * @param ingest 是否在分片内直接接入（可复现模式下由调用方汇总后统一接入）
+     * @return 本分片发布（或生成）的读数
+     */
+    private List<EnergyData> processShard(String shardKey, List<Device> devices,
+                                          Map<String, Map<String, Object>> shardStats,
+                                          SeededSimulation seeded, LocalDateTime tickTime, boolean ingest) {
+        long shardStart = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        List<EnergyData> readings = new ArrayList<>(devices.size());
+        boolean failed = false;
+        int adaptiveSkipped = 0;
         
-        for (Device device : onlineDevices) {
+        try {
+            for (Device device : devices) {
+                try {
+                    EnergyData energyData;
+                    double intervalSeconds = intervalMillis / 1000.0;
+                    if (tickTime != null) {
+                        energyData = generateSeededDataForDevice(device, seeded, tickTime);
+                    } else {
+                        // 自适应采样：稳定设备未到采样时刻时本轮跳过
+                        long elapsedMillis = adaptiveSampler.elapsedIfDue(device.getId(), nowMillis, intervalMillis);
+                        if (elapsedMillis < 0) {
+                            adaptiveSkipped++;
+                            continue;
+                        }
+                        intervalSeconds = elapsedMillis / 1000.0;
+                        energyData = generateDataForDevice(device, meterRegister.getTotalEnergy(device.getId()),
+                                LocalDateTime.now(), intervalSeconds);
+                    }
+                    // 故障场景改写，掉线的电表本轮不上报
+                    energyData = scenarioEngine.apply(energyData, intervalSeconds);
+                    if (energyData != null) {
+                        if (tickTime == null) {
+                            adaptiveSampler.record(energyData, nowMillis, intervalMillis);
+                        } else {
+                            seeded.setTotalEnergy(device.getId(), energyData.getTotalEnergy());
+                        }
+                        readings.add(energyData);
+                    }
+                } catch (Exception e) {
+                    log.error("设备[{}]数据生成失败: {}", device.getSerialNumber(), e.getMessage(), e);
+                }
+            }
+            
+            // 更新电表寄存器并发布到接入流水线
+            if (ingest) {
+                energyIngestService.ingest(readings);
+            }
+        } catch (Exception e) {
+            failed = true;
+            log.error("分片[{}]处理失败: {}", shardKey, e.getMessage(), e);
+        }
+        
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("devices", devices.size());
+        stats.put("published", failed ? 0 : readings.size());
+        stats.put("adaptiveSkipped", adaptiveSkipped);
+        stats.put("elapsedMillis", (System.nanoTime() - shardStart) / 1_000_000);
+        stats.put("failed", failed);
+        shardStats.put(shardKey, stats);
+        
+        return failed ? List.of() : readings;
+    }
+    
+    /**
+     * 按设备采样：为时间轮调度器到期的采样请求生成读数并接入
+     * 
+     * 同一批中同一设备可能有多条（补采），累计用电量在批内按顺序递推
+     * 
+     * @return 生成并接入的读数（掉线、生成失败的采样不包含在内）
+     */
+    public List<EnergyData> sample(List<SampleRequest> requests) {
+        Map<Long, Double> runningTotals = new HashMap<>();
+        List<EnergyData> readings = new ArrayList<>(requests.size());
+        for (SampleRequest request : requests) {
+            Device device = request.device();
             try {
-                generateDataForDevice(device);
+                Double lastTotalEnergy = runningTotals.containsKey(device.getId())
+                        ? runningTotals.get(device.getId())
+                        : meterRegister.getTotalEnergy(device.getId());
+                EnergyData energyData = generateDataForDevice(device, lastTotalEnergy,
+                        request.collectTime(), request.intervalSeconds());
+                energyData = scenarioEngine.apply(energyData, request.intervalSeconds());
+                if (energyData != null) {
+                    runningTotals.put(device.getId(), energyData.getTotalEnergy());
+                    readings.add(energyData);
+                }
             } catch (Exception e) {
                 log.error("设备[{}]数据生成失败: {}", device.getSerialNumber(), e.getMessage(), e);
             }
         }
-        
-        log.debug("本轮数据生成完成，总计数: {}", dataCounter.get());
+        energyIngestService.ingest(readings);
+        return readings;
     }
     
     /**
      * 为单个设备生成能耗数据
+     * 
+     * @param lastTotalEnergy 设备最新的累计用电量（来自电表寄存器，内存读取，不访问数据库）
+     * @param collectTime 采集时间
+     * @param intervalSeconds 与上一条读数的间隔（秒）
      */
-    private void generateDataForDevice(Device device) {
-        // 获取设备最新的累计用电量
-        Double lastTotalEnergy = energyDataRepository
-                .findLatestTotalEnergyByDeviceId(device.getId())
-                .orElse(0.0);
-        
+    private EnergyData generateDataForDevice(Device device, Double lastTotalEnergy,
+                                             LocalDateTime collectTime, double intervalSeconds) {
         // 增加计数器
         int count = dataCounter.incrementAndGet();
         
@@ -133,15 +445,12 @@ public class EnergySimulatorService {
         if (count % anomalyFrequency == 0) {
             log.info("故障注入：为设备[{}]生成异常数据", device.getSerialNumber());
             // 使用异常数据工厂
-            energyData = abnormalDataFactory.createEnergyData(device, lastTotalEnergy);
+            energyData = abnormalDataFactory.createEnergyData(device, lastTotalEnergy, collectTime, intervalSeconds);
         } else {
             // 使用正常数据工厂
-            energyData = normalDataFactory.createEnergyData(device, lastTotalEnergy);
+            energyData = normalDataFactory.createEnergyData(device, lastTotalEnergy, collectTime, intervalSeconds);
         }
         
-        // 保存能耗数据
-        energyDataRepository.save(energyData);
-        
         log.debug("设备[{}] - 电压: {}V, 电流: {}A, 功率: {}W, 累计: {}kWh, 异常: {}",
                 device.getSerialNumber(),
                 energyData.getVoltage(),
@@ -150,11 +459,102 @@ public class EnergySimulatorService {
                 energyData.getTotalEnergy(),
                 energyData.getIsAbnormal());
         
-        // ============================================
-        // 设计模式：Strategy Pattern（策略模式）
-        // 调用AlertService检查告警，内部使用策略模式判断
-        // ============================================
-        alertService.checkAndTriggerAlerts(device, energyData);
+        return energyData;
+    }
+    
+    /**
+     * 可复现模式下为单个设备生成能耗数据
+     * 
+     * 随机数来自设备独立的种子随机流，异常注入按设备计数，
+     * 相位按设备ID错开，避免同一轮所有设备同时异常；
+     * 上一条累计用电量取自 SeededSimulation，不读取电表寄存器
+     */
+    private EnergyData generateSeededDataForDevice(Device device, SeededSimulation seeded, LocalDateTime tickTime) {
+        double lastTotalEnergy = seeded.getTotalEnergy(device.getId());
+        long count = seeded.nextCount(device.getId());
+        dataCounter.incrementAndGet();
+        
+        boolean abnormal = (count + device.getId()) % anomalyFrequency == 0;
+        EnergyDataFactory factory = abnormal ? abnormalDataFactory : normalDataFactory;
+        return factory.createEnergyData(device, lastTotalEnergy, tickTime, intervalMillis / 1000.0,
+                seeded.randomFor(device.getId()));
+    }
+    
+    /**
+     * 累加数据集摘要（FNV-1a 64位），相同种子的两次运行摘要相同即数据逐字节一致
+     */
+    private void updateDigest(List<EnergyData> readings) {
+        long hash = datasetDigest;
+        for (EnergyData data : readings) {
+            hash = fnv(hash, data.getDevice().getId());
+            hash = fnv(hash, data.getCollectTime().toEpochSecond(ZoneOffset.UTC));
+            hash = fnv(hash, Double.doubleToLongBits(data.getVoltage()));
+            hash = fnv(hash, Double.doubleToLongBits(data.getCurrent()));
+            hash = fnv(hash, Double.doubleToLongBits(data.getPower()));
+            hash = fnv(hash, Double.doubleToLongBits(data.getTotalEnergy()));
+            hash = fnv(hash, Boolean.TRUE.equals(data.getIsAbnormal()) ? 1 : 0);
+        }
+        datasetDigest = hash;
+    }
+    
+    private static long fnv(long hash, long value) {
+        for (int i = 0; i < 8; i++) {
+            hash ^= (value >>> (i * 8)) & 0xFF;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+    
+    /**
+     * 开启可复现模式：按种子重新开始，虚拟时钟从 startTime 开始，
+     * 同时重置接入的按设备重排与去重状态
+     * 
+     * 以相同的 startTime 再次运行时，读数与上次的 (设备, 采集时间) 相同，
+     * 写库被 INSERT IGNORE 忽略，数据库中保留的是第一次运行的数据
+     */
+    public synchronized void startSeeded(long seed, LocalDateTime startTime) {
+        if (isWheelScheduler()) {
+            throw new BusinessException("可复现模式仅支持 global 调度方式");
+        }
+        // 虚拟时钟通常早于普通模式已输出的读数：先清空按设备的重排与去重状态，
+        // 否则可复现模式的读数全部走迟到数据路径，不做告警检查也不更新实时状态
+        energyIngestService.resetDeviceState();
+        seededSimulation = new SeededSimulation(seed, startTime != null ? startTime : LocalDateTime.parse(seedStartTime));
+        datasetDigest = FNV_OFFSET_BASIS;
+        log.info("模拟器进入可复现模式，种子: {}，虚拟起始时间: {}", seed, seededSimulation.getStartTime());
+    }
+    
+    /**
+     * 退出可复现模式，恢复按墙钟与线程本地随机数生成
+     */
+    public synchronized void stopSeeded() {
+        seededSimulation = null;
+        log.info("模拟器退出可复现模式");
+    }
+    
+    /**
+     * 模拟器当前的采集时间：可复现模式下为虚拟时钟，否则为当前时间
+     */
+    public LocalDateTime currentSimulationTime() {
+        SeededSimulation seeded = seededSimulation;
+        return seeded != null ? seeded.getVirtualNow() : LocalDateTime.now();
+    }
+    
+    /**
+     * 获取可复现模式状态：种子、虚拟时钟、已执行轮数、数据集摘要；未开启时返回null
+     */
+    public Map<String, Object> getSeededStatus() {
+        SeededSimulation seeded = seededSimulation;
+        if (seeded == null) {
+            return null;
+        }
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("seed", seeded.getSeed());
+        status.put("startTime", seeded.getStartTime());
+        status.put("virtualNow", seeded.getVirtualNow());
+        status.put("ticks", seeded.getTicks());
+        status.put("datasetDigest", Long.toHexString(datasetDigest));
+        return status;
     }
     
     /**
@@ -186,5 +586,68 @@ public class EnergySimulatorService {
     public int getGeneratedDataCount() {
         return dataCounter.get();
     }
+    
+    /**
+     * 获取批量写入统计信息
+     */
+    public Map<String, Object> getWriterStats() {
+        return energyDataBatchWriter.getStats();
+    }
+    
+    /**
+     * 接入是否处于过载状态
+     */
+    public boolean isOverloaded() {
+        return energyIngestService.isOverloaded();
+    }
+    
+    /**
+     * 获取因过载跳过的轮次
+     */
+    public int getSkippedTicks() {
+        return skippedTicks.get();
+    }
+    
+    /**
+     * 获取接入流水线统计信息（各阶段积压与批处理情况）
+     */
+    public Map<String, Object> getPipelineStats() {
+        return energyIngestService.getPipelineStats();
+    }
+    
+    /**
+     * 获取自适应采样统计（总体及节省最多的 limit 台设备）
+     */
+    public Map<String, Object> getAdaptiveStats(int limit) {
+        return adaptiveSampler.getStats(limit);
+    }
+    
+    /**
+     * 是否使用时间轮按设备调度
+     */
+    public boolean isWheelScheduler() {
+        return "wheel".equalsIgnoreCase(scheduler);
+    }
+    
+    /**
+     * 获取调度方式
+     */
+    public String getScheduler() {
+        return scheduler;
+    }
+    
+    /**
+     * 获取执行模式
+     */
+    public String getExecutionMode() {
+        return executionMode;
+    }
+    
+    /**
+     * 获取最近一轮各分片的执行统计（设备数、发布数、耗时、是否失败）
+     */
+    public Map<String, Map<String, Object>> getLastShardStats() {
+        return lastShardStats;
+    }
 }
 
@@ -0,0 +1,148 @@
+package com.campus.energy.simulator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * 分层时间轮
+ *
+ * 说明：
+ * 第0层每格 tickMillis，共 wheelSize 格；第 n 层每格等于第 n-1 层一整圈的时长，按需创建。
+ * 到期时间超出当前层一整圈的任务放入上层，上层某格到期时把其中的任务重新分配到下层，
+ * 添加和到期处理都是 O(1)，与任务数量无关，适合数万台设备各自以不同间隔、不同相位采样。
+ *
+ * 非线程安全，由唯一的驱动线程调用（添加任务也在驱动线程中进行）。
+ *
+ * @param <T> 任务类型
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final List<Level> levels = new ArrayList<>();
+
+    /**
+     * 已到期、等待下次推进时输出的任务
+     */
+    private final ArrayDeque<Entry<T>> due = new ArrayDeque<>();
+
+    private long currentTime;
+    private int size;
+
+    public HierarchicalTimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.currentTime = startMillis - startMillis % tickMillis;
+        levels.add(new Level(tickMillis, currentTime));
+    }
+
+    /**
+     * 添加任务
+     *
+     * @param deadlineMillis 到期时间（epoch毫秒），已过期的任务在下次推进时立即输出
+     */
+    public void schedule(T task, long deadlineMillis) {
+        insert(new Entry<>(task, deadlineMillis));
+        size++;
+    }
+
+    /**
+     * 推进时钟到 nowMillis，按到期顺序（格粒度）输出所有到期任务及其到期时间
+     */
+    public void advance(long nowMillis, BiConsumer<T, Long> expired) {
+        drainDue(expired);
+        while (currentTime + tickMillis <= nowMillis) {
+            currentTime += tickMillis;
+            // 先更新各层时间，再自上而下把跨过格边界的上层任务重新分配到下层
+            boolean[] crossed = new boolean[levels.size()];
+            for (int i = 0; i < levels.size(); i++) {
+                Level level = levels.get(i);
+                long levelTime = currentTime - currentTime % level.tick;
+                crossed[i] = levelTime != level.currentTime;
+                level.currentTime = levelTime;
+            }
+            for (int i = levels.size() - 1; i >= 0; i--) {
+                if (crossed[i]) {
+                    ArrayDeque<Entry<T>> bucket = levels.get(i).bucketOf(levels.get(i).currentTime);
+                    for (int n = bucket.size(); n > 0; n--) {
+                        insert(bucket.poll());
+                    }
+                }
+            }
+            drainDue(expired);
+        }
+    }
+
+    /**
+     * 当前任务数
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 当前层数
+     */
+    public int levelCount() {
+        return levels.size();
+    }
+
+    private void drainDue(BiConsumer<T, Long> expired) {
+        Entry<T> entry;
+        while ((entry = due.poll()) != null) {
+            size--;
+            expired.accept(entry.task, entry.deadline);
+        }
+    }
+
+    private void insert(Entry<T> entry) {
+        if (entry.deadline < currentTime + tickMillis) {
+            due.add(entry);
+            return;
+        }
+        for (int i = 0; ; i++) {
+            if (i == levels.size()) {
+                long tick = levels.get(i - 1).span();
+                levels.add(new Level(tick, currentTime - currentTime % tick));
+            }
+            Level level = levels.get(i);
+            if (entry.deadline < level.currentTime + level.span()) {
+                level.bucketOf(entry.deadline).add(entry);
+                return;
+            }
+        }
+    }
+
+    /**
+     * 时间轮的一层
+     */
+    private final class Level {
+
+        private final long tick;
+        private final ArrayDeque<Entry<T>>[] buckets;
+        private long currentTime;
+
+        @SuppressWarnings("unchecked")
+        private Level(long tick, long currentTime) {
+            this.tick = tick;
+            this.currentTime = currentTime;
+            this.buckets = new ArrayDeque[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new ArrayDeque<>();
+            }
+        }
+
+        private long span() {
+            return tick * wheelSize;
+        }
+
+        private ArrayDeque<Entry<T>> bucketOf(long time) {
+            return buckets[(int) ((time / tick) % wheelSize)];
+        }
+    }
+
+    private record Entry<T>(T task, long deadline) {
+    }
+}
@@ -0,0 +1,340 @@
+package com.campus.energy.simulator;
+
+import com.campus.energy.entity.Building;
+import com.campus.energy.entity.Device;
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.enums.DeviceStatus;
+import com.campus.energy.exception.BusinessException;
+import com.campus.energy.ingest.IngestOutcome;
+import com.campus.energy.ingest.IngestPipeline;
+import com.campus.energy.ingest.LoadTestSink;
+import com.campus.energy.pattern.factory.AbnormalEnergyDataFactory;
+import com.campus.energy.pattern.factory.NormalEnergyDataFactory;
+import com.campus.energy.service.EnergyIngestService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 大规模虚拟电表压测服务
+ * 
+ * 说明：
+ * 模拟器只为数据库中真实存在的在线设备生成数据，无法验证系统在更大规模下的承载能力。
+ * 本服务在内存中合成指定数量的虚拟电表（不创建JPA实体、不写设备表），
+ * 按目标速率生成读数，并走与真实读数相同的接入路径（EnergyIngestService）：
+ * - 数据工厂生成读数（正常/异常）
+ * - 去重、乱序重排、准入缓冲区（过载策略）、环形缓冲区与各流水线阶段
+ * - 写库阶段写入压测表 t_energy_data_load（避免污染真实数据与外键约束）
+ * - 告警阶段逐条执行告警策略（虚拟电表没有设备记录，因此只统计触发的告警，不落库）
+ * 虚拟电表读数在流水线中的去向见 LoadTestSink，本类实现该接口接收写库与告警检查结果。
+ * 
+ * 背压来自真实流水线：BLOCK 策略下生产线程被阻塞（实际生成速率低于目标速率），
+ * 其他策略下被丢弃的读数计入 shed。
+ * 
+ * 统计指标：实际生成/写入速率、端到端延迟（采集时间到写库提交，采集时间精确到秒）、在途读数。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LoadGeneratorService implements LoadTestSink {
+    
+    /**
+     * 每次生成的最大读数条数
+     */
+    private static final int MAX_BATCH = 2000;
+    
+    /**
+     * 停止时等待在途读数处理完的最长时间（毫秒）
+     */
+    private static final long DRAIN_TIMEOUT_MILLIS = 30_000;
+    
+    private final NormalEnergyDataFactory normalDataFactory;
+    private final AbnormalEnergyDataFactory abnormalDataFactory;
+    private final EnergyIngestService energyIngestService;
+    private final IngestPipeline ingestPipeline;
+    
+    @Value("${simulator.load.meter-count:100000}")
+    private int defaultMeterCount;
+    
+    @Value("${simulator.load.building-count:50}")
+    private int defaultBuildingCount;
+    
+    @Value("${simulator.load.rated-power-min:800}")
+    private double ratedPowerMin;
+    
+    @Value("${simulator.load.rated-power-max:12000}")
+    private double ratedPowerMax;
+    
+    @Value("${simulator.load.target-rate:20000}")
+    private int defaultTargetRate;
+    
+    @Value("${simulator.load.producer-threads:2}")
+    private int producerThreads;
+    
+    @Value("${simulator.anomaly-frequency:30}")
+    private int anomalyFrequency;
+    
+    private volatile boolean running;
+    private ExecutorService executor;
+    
+    private Device[] meters;
+    private double[] meterTotalEnergy;
+    private int targetRate;
+    private long startedAtNanos;
+    private long stoppedAtNanos;
+    
+    private final AtomicLong generated = new AtomicLong();
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong alertsChecked = new AtomicLong();
+    private final AtomicLong alertsTriggered = new AtomicLong();
+    private final AtomicLong latencyReadings = new AtomicLong();
+    private final AtomicLong totalLatencyMillis = new AtomicLong();
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+    
+    @PostConstruct
+    public void init() {
+        ingestPipeline.setLoadTestSink(this);
+    }
+    
+    /**
+     * 启动压测
+     * 
+     * @param meterCount 虚拟电表数量，为空时使用配置值
+     * @param buildingCount 虚拟建筑数量，为空时使用配置值
+     * @param rate 目标速率（条/秒），为空时使用配置值
+     */
+    public synchronized void start(Integer meterCount, Integer buildingCount, Integer rate) {
+        if (running) {
+            throw new BusinessException("压测已在运行中");
+        }
+        int count = meterCount != null ? meterCount : defaultMeterCount;
+        int buildings = buildingCount != null ? buildingCount : defaultBuildingCount;
+        targetRate = rate != null ? rate : defaultTargetRate;
+        if (count <= 0 || buildings <= 0 || targetRate <= 0) {
+            throw new BusinessException("电表数量、建筑数量与目标速率必须大于0");
+        }
+        // 幂等键精确到秒：同一电表一秒内的多条读数会被当作重复丢弃
+        if (count < targetRate) {
+            throw new BusinessException("每台虚拟电表的采样间隔不能小于1秒，电表数量需不少于目标速率");
+        }
+        
+        buildFleet(count, buildings);
+        resetStats();
+        
+        int threads = Math.max(1, Math.min(producerThreads, count));
+        AtomicInteger threadIndex = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "load-generator-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        running = true;
+        startedAtNanos = System.nanoTime();
+        // 每个生产线程负责一部分电表（按下标取模），同一电表的读数由同一线程按时间顺序提交
+        for (int i = 0; i < threads; i++) {
+            int shard = i;
+            executor.submit(() -> produceLoop(shard, threads));
+        }
+        log.info("压测已启动：虚拟电表 {} 台，建筑 {} 栋，目标速率 {} 条/秒", count, buildings, targetRate);
+    }
+    
+    /**
+     * 停止压测，等待在途读数处理完
+     */
+    @PreDestroy
+    public synchronized void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        stoppedAtNanos = System.nanoTime();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(DRAIN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                executor.shutdownNow();
+            }
+            // 输出重排缓冲区中的虚拟读数并释放虚拟电表的去重与重排状态，等待流水线写完
+            energyIngestService.releaseVirtualDeviceState();
+            long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+            while (inFlight() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        log.info("压测已停止，共生成 {} 条，写入 {} 条，在途 {} 条", generated.get(), written.get(), inFlight());
+    }
+    
+    /**
+     * 合成虚拟电表（额定功率在配置区间内均匀分布，均匀分散到各建筑）
+     */
+    private void buildFleet(int count, int buildingCount) {
+        Building[] buildings = new Building[buildingCount];
+        for (int i = 0; i < buildingCount; i++) {
+            buildings[i] = Building.builder()
+                    .id(LoadTestSink.VIRTUAL_ID_BASE + i)
+                    .name("虚拟建筑-" + i)
+                    .locationCode("VIRTUAL_BLD_" + i)
+                    .floorCount(1)
+                    .category("压测")
+                    .build();
+        }
+        
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        meters = new Device[count];
+        meterTotalEnergy = new double[count];
+        for (int i = 0; i < count; i++) {
+            meters[i] = Device.builder()
+                    .id(LoadTestSink.VIRTUAL_ID_BASE + i)
+                    .name("虚拟电表-" + i)
+                    .serialNumber("VIRTUAL_METER_" + i)
+                    .status(DeviceStatus.ONLINE)
+                    .ratedPower((double) Math.round(ratedPowerMin + random.nextDouble() * (ratedPowerMax - ratedPowerMin)))
+                    .building(buildings[i % buildingCount])
+                    .roomNumber(String.valueOf(i))
+                    .build();
+        }
+    }
+    
+    /**
+     * 生产线程：按目标速率（本线程负责的份额）轮询本分片的虚拟电表生成读数，提交到接入服务
+     * 
+     * 准入缓冲区满时按过载策略处理：BLOCK 策略下在提交处阻塞，其他策略下丢弃的读数计入 shed
+     */
+    private void produceLoop(int shard, int shards) {
+        double rate = (double) targetRate / shards;
+        long produced = 0;
+        int cursor = shard;
+        long readingIndex = 0;
+        // 轮询一圈的时长即每台虚拟电表的采样间隔
+        double meterIntervalSeconds = (double) meters.length / targetRate;
+        while (running) {
+            long elapsed = System.nanoTime() - startedAtNanos;
+            long due = (long) (rate * (elapsed / 1_000_000_000.0)) - produced;
+            if (due <= 0) {
+                LockSupport.parkNanos(1_000_000);
+                continue;
+            }
+            int n = (int) Math.min(due, MAX_BATCH);
+            produced += n;
+            
+            List<EnergyData> readings = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                Device meter = meters[cursor];
+                EnergyData data = (++readingIndex % anomalyFrequency == 0)
+                        ? abnormalDataFactory.createEnergyData(meter, meterTotalEnergy[cursor], LocalDateTime.now(), meterIntervalSeconds)
+                        : normalDataFactory.createEnergyData(meter, meterTotalEnergy[cursor], LocalDateTime.now(), meterIntervalSeconds);
+                meterTotalEnergy[cursor] = data.getTotalEnergy();
+                readings.add(data);
+                cursor += shards;
+                if (cursor >= meters.length) {
+                    cursor = shard;
+                }
+            }
+            
+            generated.addAndGet(n);
+            IngestOutcome outcome = energyIngestService.submit(readings);
+            accepted.addAndGet(outcome.accepted());
+            duplicates.addAndGet(outcome.duplicates());
+            shed.addAndGet(outcome.shed());
+        }
+    }
+    
+    @Override
+    public void onPersisted(List<EnergyData> readings, int writtenCount, int failedCount) {
+        written.addAndGet(writtenCount);
+        failed.addAndGet(failedCount);
+        LocalDateTime now = LocalDateTime.now();
+        long total = 0;
+        long max = 0;
+        for (EnergyData data : readings) {
+            long latency = Duration.between(data.getCollectTime(), now).toMillis();
+            total += latency;
+            max = Math.max(max, latency);
+        }
+        latencyReadings.addAndGet(readings.size());
+        totalLatencyMillis.addAndGet(total);
+        maxLatencyMillis.accumulateAndGet(max, Math::max);
+    }
+    
+    @Override
+    public void onAlertsChecked(int checked, int triggered) {
+        alertsChecked.addAndGet(checked);
+        alertsTriggered.addAndGet(triggered);
+    }
+    
+    /**
+     * 已进入接入路径、尚未写库的读数（暂存在重排缓冲区、准入缓冲区或环形缓冲区中）
+     */
+    private long inFlight() {
+        return accepted.get() - written.get() - failed.get();
+    }
+    
+    private void resetStats() {
+        generated.set(0);
+        accepted.set(0);
+        duplicates.set(0);
+        written.set(0);
+        failed.set(0);
+        shed.set(0);
+        alertsChecked.set(0);
+        alertsTriggered.set(0);
+        latencyReadings.set(0);
+        totalLatencyMillis.set(0);
+        maxLatencyMillis.set(0);
+    }
+    
+    /**
+     * 获取压测状态
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", running);
+        status.put("meterCount", meters != null ? meters.length : 0);
+        status.put("targetRate", targetRate);
+        
+        long end = running ? System.nanoTime() : stoppedAtNanos;
+        double seconds = startedAtNanos > 0 ? (end - startedAtNanos) / 1_000_000_000.0 : 0;
+        long latencyCount = latencyReadings.get();
+        
+        status.put("elapsedSeconds", Math.round(seconds));
+        status.put("generated", generated.get());
+        status.put("accepted", accepted.get());
+        status.put("duplicates", duplicates.get());
+        status.put("written", written.get());
+        status.put("failed", failed.get());
+        status.put("shed", shed.get());
+        status.put("backlog", inFlight());
+        status.put("alertsChecked", alertsChecked.get());
+        status.put("alertsTriggered", alertsTriggered.get());
+        status.put("generatedPerSecond", seconds > 0 ? Math.round(generated.get() / seconds) : 0);
+        status.put("writtenPerSecond", seconds > 0 ? Math.round(written.get() / seconds) : 0);
+        status.put("avgLatencyMillis", latencyCount > 0 ? totalLatencyMillis.get() / latencyCount : 0);
+        status.put("maxLatencyMillis", maxLatencyMillis.get());
+        status.put("overloaded", ingestPipeline.isOverloaded());
+        return status;
+    }
+}
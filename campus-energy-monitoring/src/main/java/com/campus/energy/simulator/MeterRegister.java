@@ -0,0 +1,80 @@
+package com.campus.energy.simulator;
+
+import com.campus.energy.repository.EnergyDataRepository;
+import com.campus.energy.storage.EnergyChunkStore;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 电表寄存器（内存中的设备累计用电量）
+ * 
+ * 说明：
+ * 模拟器每次生成读数前都需要设备最新的累计用电量(totalEnergy)。
+ * 该值由本进程在上一轮写入，没有必要每台设备每轮都查询一次数据库。
+ * 
+ * 本组件在启动时通过一次分组查询加载所有设备的累计用电量，
+ * 之后每次写入读数时更新，供数据工厂直接使用。
+ * 
+ * 累计用电量单调递增，更新时取较大值，避免乱序写入导致回退。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MeterRegister {
+    
+    private final EnergyDataRepository energyDataRepository;
+    private final EnergyChunkStore energyChunkStore;
+    
+    /**
+     * 设备ID -> 累计用电量(kWh)
+     */
+    private final Map<Long, Double> totalEnergyByDevice = new ConcurrentHashMap<>();
+    
+    /**
+     * 启动时一次性加载所有设备的累计用电量
+     */
+    @PostConstruct
+    public void init() {
+        List<Object[]> rows = energyChunkStore.isEnabled()
+                ? energyChunkStore.findLatestTotalEnergyPerDevice()
+                : energyDataRepository.findLatestTotalEnergyPerDevice();
+        for (Object[] row : rows) {
+            Long deviceId = (Long) row[0];
+            Double totalEnergy = (Double) row[1];
+            if (deviceId != null && totalEnergy != null) {
+                totalEnergyByDevice.put(deviceId, totalEnergy);
+            }
+        }
+        log.info("电表寄存器初始化完成，已加载 {} 台设备的累计用电量", totalEnergyByDevice.size());
+    }
+    
+    /**
+     * 获取设备当前累计用电量，无记录时返回0
+     */
+    public double getTotalEnergy(Long deviceId) {
+        return totalEnergyByDevice.getOrDefault(deviceId, 0.0);
+    }
+    
+    /**
+     * 写入读数后更新设备累计用电量
+     */
+    public void update(Long deviceId, Double totalEnergy) {
+        if (deviceId == null || totalEnergy == null) {
+            return;
+        }
+        totalEnergyByDevice.merge(deviceId, totalEnergy, Math::max);
+    }
+    
+    /**
+     * 已登记的设备数量
+     */
+    public int size() {
+        return totalEnergyByDevice.size();
+    }
+}
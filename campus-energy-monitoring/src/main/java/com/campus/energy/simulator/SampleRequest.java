@@ -0,0 +1,15 @@
+package com.campus.energy.simulator;
+
+import com.campus.energy.entity.Device;
+
+import java.time.LocalDateTime;
+
+/**
+ * 一次设备采样请求（时间轮调度器到期时生成）
+ *
+ * @param device          采样设备
+ * @param collectTime     采集时间（采样时刻，而非实际执行时间）
+ * @param intervalSeconds 与上一次采样的间隔（秒），用于计算累计用电量增量
+ */
+public record SampleRequest(Device device, LocalDateTime collectTime, double intervalSeconds) {
+}
@@ -0,0 +1,120 @@
+package com.campus.energy.simulator;
+
+import com.campus.energy.enums.ScenarioEventType;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 故障场景定义（由YAML解析）
+ *
+ * 示例：
+ * <pre>
+ * name: building-voltage-sag
+ * durationSeconds: 300
+ * events:
+ *   - type: VOLTAGE_SAG
+ *     startSeconds: 30
+ *     durationSeconds: 120
+ *     buildingIds: [1]
+ *     voltage: 185
+ * </pre>
+ *
+ * 时间均为相对场景开始的秒数，按读数的采集时间计算（可复现模式下即虚拟时钟）。
+ * 事件的 buildingIds、deviceIds 都为空时作用于全校所有电表。
+ */
+@Data
+public class ScenarioDefinition {
+
+    /**
+     * 场景名称
+     */
+    private String name;
+
+    /**
+     * 场景总时长（秒），为空时取最后一个事件的结束时间
+     */
+    private Long durationSeconds;
+
+    /**
+     * 事件列表
+     */
+    private List<Event> events = new ArrayList<>();
+
+    /**
+     * 场景总时长（秒）
+     */
+    public long effectiveDurationSeconds() {
+        if (durationSeconds != null) {
+            return durationSeconds;
+        }
+        return events.stream().mapToLong(e -> e.getStartSeconds() + e.getDurationSeconds()).max().orElse(0);
+    }
+
+    /**
+     * 场景事件
+     */
+    @Data
+    public static class Event {
+
+        private ScenarioEventType type;
+
+        /**
+         * 开始时间（相对场景开始，秒）
+         */
+        private long startSeconds;
+
+        /**
+         * 持续时间（秒）
+         */
+        private long durationSeconds;
+
+        /**
+         * 受影响的建筑ID
+         */
+        private List<Long> buildingIds = new ArrayList<>();
+
+        /**
+         * 受影响的设备ID
+         */
+        private List<Long> deviceIds = new ArrayList<>();
+
+        /**
+         * VOLTAGE_SAG：骤降后的电压（V）
+         */
+        private double voltage = 185.0;
+
+        /**
+         * OVERLOAD_RAMP：起始功率倍数（相对额定功率）
+         */
+        private double fromRatio = 1.0;
+
+        /**
+         * OVERLOAD_RAMP：目标功率倍数（相对额定功率）
+         */
+        private double toRatio = 1.5;
+
+        /**
+         * FLAPPING：抖动周期（秒），前半周期上报、后半周期掉线
+         */
+        private long periodSeconds = 20;
+
+        /**
+         * 事件在 offsetSeconds 时是否生效
+         */
+        public boolean isActiveAt(long offsetSeconds) {
+            return offsetSeconds >= startSeconds && offsetSeconds < startSeconds + durationSeconds;
+        }
+
+        /**
+         * 是否作用于指定设备
+         */
+        public boolean affects(Long deviceId, Long buildingId) {
+            if (buildingIds.isEmpty() && deviceIds.isEmpty()) {
+                return true;
+            }
+            return deviceIds.contains(deviceId) || buildingIds.contains(buildingId);
+        }
+    }
+}
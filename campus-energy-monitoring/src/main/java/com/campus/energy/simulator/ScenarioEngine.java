@@ -0,0 +1,342 @@
+package com.campus.energy.simulator;
+
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.enums.AlertType;
+import com.campus.energy.exception.BusinessException;
+import com.campus.energy.ingest.IngestPipeline;
+import com.campus.energy.pattern.observer.AlertMetricsObserver;
+import com.campus.energy.repository.EnergyDataBatchWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 故障场景引擎（告警风暴压测）
+ *
+ * 说明：
+ * 异常数据工厂每 anomaly-frequency 条读数只注入一条单设备异常，
+ * 无法覆盖整栋楼电网跌落、全校过载等同时触发大量告警的情况。
+ * 本引擎按YAML定义的场景，在模拟器生成读数后对受影响电表的读数进行改写：
+ * - VOLTAGE_SAG：电压降至指定值
+ * - OVERLOAD_RAMP：功率按时间线性爬升到额定功率的目标倍数
+ * - DROPOUT / FLAPPING：读数丢弃（持续掉线 / 周期性掉线）
+ *
+ * 场景运行期间每秒采样告警数与流水线积压，结束时给出：
+ * 告警吞吐（平均/峰值每秒告警数）、告警阶段最大积压，
+ * 以及写放大（每条读数产生的写库行数与事务数）。
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class ScenarioEngine {
+
+    /**
+     * 内置场景所在的类路径目录
+     */
+    private static final String SCENARIO_LOCATION = "scenarios/";
+
+    private final AlertMetricsObserver alertMetricsObserver;
+    private final EnergyDataBatchWriter energyDataBatchWriter;
+    private final IngestPipeline ingestPipeline;
+    private final ObjectMapper objectMapper;
+
+    private volatile ActiveScenario active;
+    private volatile Map<String, Object> lastReport;
+
+    /**
+     * 解析YAML场景定义
+     */
+    public ScenarioDefinition parse(InputStream yamlStream) {
+        Object raw;
+        try {
+            raw = new Yaml().load(yamlStream);
+        } catch (Exception e) {
+            throw new BusinessException("场景YAML解析失败: " + e.getMessage());
+        }
+        ScenarioDefinition definition;
+        try {
+            definition = objectMapper.convertValue(raw, ScenarioDefinition.class);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException("场景定义格式错误: " + e.getMessage());
+        }
+        validate(definition);
+        return definition;
+    }
+
+    /**
+     * 解析YAML文本形式的场景定义
+     */
+    public ScenarioDefinition parse(String yaml) {
+        return parse(new ByteArrayInputStream(yaml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * 加载内置场景（classpath:scenarios/{name}.yml）
+     */
+    public ScenarioDefinition load(String name) {
+        if (!name.matches("[A-Za-z0-9_-]+")) {
+            throw new BusinessException("场景名称不合法: " + name);
+        }
+        ClassPathResource resource = new ClassPathResource(SCENARIO_LOCATION + name + ".yml");
+        if (!resource.exists()) {
+            throw new BusinessException("场景不存在: " + name);
+        }
+        try (InputStream in = resource.getInputStream()) {
+            return parse(in);
+        } catch (IOException e) {
+            throw new BusinessException("场景读取失败: " + name, e);
+        }
+    }
+
+    private void validate(ScenarioDefinition definition) {
+        if (definition == null || definition.getEvents() == null || definition.getEvents().isEmpty()) {
+            throw new BusinessException("场景至少需要一个事件");
+        }
+        for (ScenarioDefinition.Event event : definition.getEvents()) {
+            if (event.getType() == null) {
+                throw new BusinessException("场景事件缺少类型");
+            }
+            if (event.getDurationSeconds() <= 0 || event.getStartSeconds() < 0) {
+                throw new BusinessException("场景事件的开始时间不能为负、持续时间必须大于0");
+            }
+            if (event.getPeriodSeconds() < 2) {
+                throw new BusinessException("抖动周期不能小于2秒");
+            }
+        }
+    }
+
+    /**
+     * 启动场景
+     *
+     * @param startTime 场景起点（模拟器当前采集时间，可复现模式下为虚拟时钟）
+     */
+    public synchronized void start(ScenarioDefinition definition, LocalDateTime startTime) {
+        if (active != null) {
+            throw new BusinessException("场景 " + active.definition.getName() + " 正在运行");
+        }
+        active = new ActiveScenario(definition, startTime);
+        log.info("故障场景[{}]开始，起点: {}，时长: {} 秒，事件数: {}", definition.getName(), startTime,
+                definition.effectiveDurationSeconds(), definition.getEvents().size());
+    }
+
+    /**
+     * 停止场景并生成报告
+     */
+    public synchronized Map<String, Object> stop() {
+        ActiveScenario scenario = active;
+        if (scenario == null) {
+            return lastReport;
+        }
+        return finish(scenario, "STOPPED");
+    }
+
+    private synchronized Map<String, Object> finish(ActiveScenario scenario, String status) {
+        if (active != scenario) {
+            return lastReport;
+        }
+        active = null;
+        lastReport = scenario.report(status);
+        log.info("故障场景[{}]结束({})，报告: {}", scenario.definition.getName(), status, lastReport);
+        return lastReport;
+    }
+
+    /**
+     * 改写一条模拟读数
+     *
+     * @param intervalSeconds 采集间隔，用于修正功率变化后的累计用电量
+     * @return 改写后的读数；电表掉线时返回null
+     */
+    public EnergyData apply(EnergyData data, double intervalSeconds) {
+        ActiveScenario scenario = active;
+        if (scenario == null) {
+            return data;
+        }
+        return scenario.apply(data, intervalSeconds);
+    }
+
+    /**
+     * 每秒采样告警吞吐与积压，场景到期自动结束
+     */
+    @Scheduled(fixedRate = 1000)
+    public void sample() {
+        ActiveScenario scenario = active;
+        if (scenario == null) {
+            return;
+        }
+        scenario.sample();
+        if (scenario.maxOffsetSeen.get() >= scenario.definition.effectiveDurationSeconds()) {
+            finish(scenario, "FINISHED");
+        }
+    }
+
+    /**
+     * 获取场景状态：运行中时返回实时统计，否则返回最近一次报告
+     */
+    public Map<String, Object> getStatus() {
+        ActiveScenario scenario = active;
+        return scenario != null ? scenario.report("RUNNING") : lastReport;
+    }
+
+    /**
+     * 运行中的场景及其统计基线
+     */
+    private final class ActiveScenario {
+
+        private final ScenarioDefinition definition;
+        private final LocalDateTime startTime;
+        private final long startNanos = System.nanoTime();
+
+        private final long baseAlerts;
+        private final Map<AlertType, Long> baseAlertsByType;
+        private final long baseRows;
+        private final long baseChunks;
+        private final long baseAlertEvaluations;
+
+        private final AtomicLong readings = new AtomicLong();
+        private final AtomicLong modified = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong maxOffsetSeen = new AtomicLong();
+
+        private long lastSampleAlerts;
+        private long peakAlertsPerSecond;
+        private long maxAlertLag;
+        private long maxPersistenceLag;
+
+        private ActiveScenario(ScenarioDefinition definition, LocalDateTime startTime) {
+            this.definition = definition;
+            this.startTime = startTime;
+            this.baseAlerts = alertMetricsObserver.getTotal();
+            this.baseAlertsByType = alertMetricsObserver.getTotalsByType();
+            this.baseRows = writerStat("totalRows");
+            this.baseChunks = writerStat("totalChunks");
+            this.baseAlertEvaluations = ingestPipeline.getStageProcessed(IngestPipeline.ALERT_STAGE);
+            this.lastSampleAlerts = baseAlerts;
+        }
+
+        private EnergyData apply(EnergyData data, double intervalSeconds) {
+            long offset = Duration.between(startTime, data.getCollectTime()).getSeconds();
+            maxOffsetSeen.accumulateAndGet(offset, Math::max);
+            Long deviceId = data.getDevice().getId();
+            Long buildingId = data.getDevice().getBuilding().getId();
+            boolean changed = false;
+
+            for (ScenarioDefinition.Event event : definition.getEvents()) {
+                if (!event.isActiveAt(offset) || !event.affects(deviceId, buildingId)) {
+                    continue;
+                }
+                switch (event.getType()) {
+                    case DROPOUT:
+                        dropped.incrementAndGet();
+                        return null;
+                    case FLAPPING:
+                        long phase = (offset - event.getStartSeconds()) % event.getPeriodSeconds();
+                        if (phase >= event.getPeriodSeconds() / 2) {
+                            dropped.incrementAndGet();
+                            return null;
+                        }
+                        break;
+                    case VOLTAGE_SAG:
+                        // 保留原读数相对220V的波动，叠加到骤降电压上
+                        double voltage = event.getVoltage() + (data.getVoltage() - 220.0) * 0.1;
+                        data.setVoltage(round(voltage, 100.0));
+                        data.setCurrent(round(data.getPower() / data.getVoltage(), 100.0));
+                        changed = true;
+                        break;
+                    case OVERLOAD_RAMP:
+                        if (data.getDevice().getRatedPower() == null) {
+                            break;
+                        }
+                        double progress = (double) (offset - event.getStartSeconds()) / event.getDurationSeconds();
+                        double ratio = event.getFromRatio() + (event.getToRatio() - event.getFromRatio()) * progress;
+                        double power = data.getDevice().getRatedPower() * ratio;
+                        if (power > data.getPower()) {
+                            // 功率提高后按差值补充累计用电量
+                            double extra = (power - data.getPower()) / 1000.0 * (intervalSeconds / 3600.0);
+                            data.setTotalEnergy(round(data.getTotalEnergy() + extra, 1000.0));
+                            data.setPower(round(power, 100.0));
+                            data.setCurrent(round(data.getPower() / data.getVoltage(), 100.0));
+                            changed = true;
+                        }
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            readings.incrementAndGet();
+            if (changed) {
+                data.setIsAbnormal(true);
+                modified.incrementAndGet();
+            }
+            return data;
+        }
+
+        private synchronized void sample() {
+            long alerts = alertMetricsObserver.getTotal();
+            peakAlertsPerSecond = Math.max(peakAlertsPerSecond, alerts - lastSampleAlerts);
+            lastSampleAlerts = alerts;
+            maxAlertLag = Math.max(maxAlertLag, ingestPipeline.getStageLag(IngestPipeline.ALERT_STAGE));
+            maxPersistenceLag = Math.max(maxPersistenceLag, ingestPipeline.getStageLag(IngestPipeline.PERSISTENCE_STAGE));
+        }
+
+        private synchronized Map<String, Object> report(String status) {
+            double elapsedSeconds = (System.nanoTime() - startNanos) / 1_000_000_000.0;
+            long readingCount = readings.get();
+            long alerts = alertMetricsObserver.getTotal() - baseAlerts;
+            long energyRows = writerStat("totalRows") - baseRows;
+            long chunks = writerStat("totalChunks") - baseChunks;
+            long alertEvaluations = ingestPipeline.getStageProcessed(IngestPipeline.ALERT_STAGE) - baseAlertEvaluations;
+
+            Map<AlertType, Long> alertsByType = new EnumMap<>(AlertType.class);
+            alertMetricsObserver.getTotalsByType().forEach((type, count) ->
+                    alertsByType.put(type, count - baseAlertsByType.getOrDefault(type, 0L)));
+
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("name", definition.getName());
+            report.put("status", status);
+            report.put("startTime", startTime);
+            report.put("scenarioSeconds", maxOffsetSeen.get());
+            report.put("durationSeconds", definition.effectiveDurationSeconds());
+            report.put("elapsedSeconds", round(elapsedSeconds, 10.0));
+            report.put("readings", readingCount);
+            report.put("modifiedReadings", modified.get());
+            report.put("droppedReadings", dropped.get());
+            report.put("alerts", alerts);
+            report.put("alertsByType", alertsByType);
+            report.put("alertsPerSecond", elapsedSeconds > 0 ? round(alerts / elapsedSeconds, 10.0) : 0.0);
+            report.put("peakAlertsPerSecond", Math.max(peakAlertsPerSecond, 0));
+            report.put("maxAlertStageLag", maxAlertLag);
+            report.put("maxPersistenceStageLag", maxPersistenceLag);
+            report.put("energyRowsWritten", energyRows);
+            report.put("alertRowsWritten", alerts);
+            // 写放大：每条读数产生的写库行数（读数行 + 告警行）与事务数（写库块事务 + 每条读数一次告警检查事务）
+            report.put("rowsPerReading", readingCount > 0 ? round((double) (energyRows + alerts) / readingCount, 1000.0) : 0.0);
+            report.put("transactionsPerReading", readingCount > 0
+                    ? round((double) (chunks + alertEvaluations) / readingCount, 1000.0) : 0.0);
+            return report;
+        }
+    }
+
+    private long writerStat(String key) {
+        return ((Number) energyDataBatchWriter.getStats().get(key)).longValue();
+    }
+
+    private static double round(double value, double scale) {
+        return Math.round(value * scale) / scale;
+    }
+}
@@ -0,0 +1,111 @@
+package com.campus.energy.simulator;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 可复现模拟的运行状态（种子、虚拟时钟、设备独立随机流）
+ *
+ * 说明：
+ * - 每台设备一个独立的 SplittableRandom，种子由 (全局种子, 设备ID) 混合得到，
+ *   与设备被哪个线程、以什么顺序处理无关
+ * - 每台设备独立计数，异常数据按设备计数注入，不依赖全局计数器
+ * - 虚拟时钟从固定起点开始，每轮前进一个采集间隔，采集时间与墙钟无关
+ * - 每台设备的累计用电量由本对象维护，起始值由 (全局种子, 设备ID) 得到，
+ *   不读写电表寄存器（MeterRegister），与数据库中已有的读数和普通模式的运行无关
+ *
+ * 同一设备在同一轮中只会被一个分片处理，因此设备随机流和计数无需加锁。
+ */
+public class SeededSimulation {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final long seed;
+    private final LocalDateTime startTime;
+    private final Map<Long, SplittableRandom> randoms = new ConcurrentHashMap<>();
+    private final Map<Long, long[]> counters = new ConcurrentHashMap<>();
+    private final Map<Long, double[]> totalEnergies = new ConcurrentHashMap<>();
+
+    private LocalDateTime virtualNow;
+    private long ticks;
+
+    public SeededSimulation(long seed, LocalDateTime startTime) {
+        this.seed = seed;
+        this.startTime = startTime;
+        this.virtualNow = startTime;
+    }
+
+    /**
+     * 虚拟时钟前进一个间隔，返回本轮的采集时间
+     */
+    public synchronized LocalDateTime nextTick(long intervalMillis) {
+        if (ticks > 0) {
+            virtualNow = virtualNow.plusNanos(intervalMillis * 1_000_000L);
+        }
+        ticks++;
+        return virtualNow;
+    }
+
+    /**
+     * 设备独立的随机流
+     */
+    public SplittableRandom randomFor(Long deviceId) {
+        return randoms.computeIfAbsent(deviceId, id -> new SplittableRandom(mix(seed + id * GOLDEN_GAMMA)));
+    }
+
+    /**
+     * 设备计数加一并返回新值
+     */
+    public long nextCount(Long deviceId) {
+        return ++counters.computeIfAbsent(deviceId, id -> new long[1])[0];
+    }
+
+    /**
+     * 设备当前的累计用电量（kWh），首次读取时为由种子得到的起始值 [0, 1000)，保留3位小数
+     */
+    public double getTotalEnergy(Long deviceId) {
+        return totalEnergies.computeIfAbsent(deviceId, id -> new double[]{initialTotalEnergy(id)})[0];
+    }
+
+    /**
+     * 记录设备本轮上报的累计用电量，作为下一轮的起点
+     */
+    public void setTotalEnergy(Long deviceId, double totalEnergy) {
+        totalEnergies.computeIfAbsent(deviceId, id -> new double[1])[0] = totalEnergy;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public LocalDateTime getStartTime() {
+        return startTime;
+    }
+
+    public synchronized LocalDateTime getVirtualNow() {
+        return virtualNow;
+    }
+
+    public synchronized long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * 起始累计用电量：与设备随机流使用不同的混合输入，不消耗随机流
+     */
+    private double initialTotalEnergy(Long deviceId) {
+        long bits = mix(mix(seed ^ deviceId) + GOLDEN_GAMMA);
+        return Math.round((bits >>> 11) * 0x1.0p-53 * 1000.0 * 1000.0) / 1000.0;
+    }
+
+    /**
+     * SplitMix64 混合函数，使相邻设备ID得到不相关的种子
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
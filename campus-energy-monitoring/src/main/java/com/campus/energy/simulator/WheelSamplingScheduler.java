@@ -0,0 +1,360 @@
+package com.campus.energy.simulator;
+
+import com.campus.energy.entity.Device;
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.enums.DeviceStatus;
+import com.campus.energy.enums.MissedTickPolicy;
+import com.campus.energy.repository.DeviceRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 按设备采样的时间轮调度器（simulator.scheduler=wheel 时启用）
+ *
+ * 说明：
+ * 全局定时任务每个间隔为所有设备同时生成读数，写库集中在一瞬间，随后空闲；
+ * 且所有电表只能使用同一个采集间隔。
+ *
+ * 本调度器为每台设备维护独立的采样计划：
+ * - 采样间隔取设备的 sample_interval（秒），为空时取 simulator.interval
+ * - 相位偏移由设备ID哈希得到，同一间隔的设备均匀分布在整个周期内，写入随之平摊
+ * - 采样计划放在分层时间轮中，驱动线程每格推进一次，到期设备的读数作为一批接入
+ *
+ * 错过采样时刻（驱动线程被阻塞、接入过载等）时按 missed-tick-policy 处理：
+ * - CATCH_UP：逐一补生成错过的读数（最多 max-catch-up 条），采集时间取原定采样时刻
+ * - SKIP：只生成最近一个采样时刻的读数，累计用电量按实际间隔计算，不会丢电量
+ *
+ * 开启自适应采样时，每次采样后由 AdaptiveSampler 根据读数给出下一次的间隔（基础间隔的倍数），
+ * 稳定设备在时间轮中按放大后的间隔安排，不产生无效的到期检查。
+ *
+ * 漂移（drift）= 实际执行时间 - 原定采样时刻，包含不超过一格的时间轮粒度。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "simulator", name = "scheduler", havingValue = "wheel")
+public class WheelSamplingScheduler {
+
+    /**
+     * 采样间隔下限（毫秒）：读数采集时间按秒去重，间隔不能小于1秒
+     */
+    private static final long MIN_INTERVAL_MILLIS = 1000;
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final EnergySimulatorService simulatorService;
+    private final DeviceRepository deviceRepository;
+    private final AdaptiveSampler adaptiveSampler;
+
+    /**
+     * 设备未配置采样间隔时使用的默认间隔（毫秒）
+     */
+    @Value("${simulator.interval:5000}")
+    private long defaultIntervalMillis;
+
+    /**
+     * 时间轮每格时长（毫秒）
+     */
+    @Value("${simulator.wheel.tick-millis:100}")
+    private long tickMillis;
+
+    /**
+     * 时间轮每层格数
+     */
+    @Value("${simulator.wheel.wheel-size:64}")
+    private int wheelSize;
+
+    @Value("${simulator.wheel.missed-tick-policy:CATCH_UP}")
+    private MissedTickPolicy missedTickPolicy;
+
+    /**
+     * CATCH_UP 策略下每台设备单次最多补生成的读数条数，更早的采样时刻直接跳过
+     */
+    @Value("${simulator.wheel.max-catch-up:12}")
+    private int maxCatchUp;
+
+    /**
+     * 在线设备列表刷新间隔（毫秒），新上线设备、间隔变更在刷新后生效
+     */
+    @Value("${simulator.wheel.refresh-interval:30000}")
+    private long refreshIntervalMillis;
+
+    /**
+     * 设备ID -> 当前有效的采样计划（仅驱动线程访问）
+     */
+    private final Map<Long, DeviceSchedule> schedules = new HashMap<>();
+
+    private HierarchicalTimingWheel<DeviceSchedule> wheel;
+    private Thread wheelThread;
+    private volatile boolean running;
+    private long lastRefreshMillis;
+
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong catchUpSamples = new AtomicLong();
+    private final AtomicLong skippedSamples = new AtomicLong();
+    private final AtomicLong firedTicks = new AtomicLong();
+    private final AtomicLong maxSamplesPerTick = new AtomicLong();
+    private final AtomicLong driftCount = new AtomicLong();
+    private final AtomicLong totalDriftMillis = new AtomicLong();
+    private final AtomicLong maxDriftMillis = new AtomicLong();
+    private final AtomicLong lastDriftMillis = new AtomicLong();
+    private final AtomicLong failedTicks = new AtomicLong();
+    private volatile int scheduledDevices;
+    private volatile int levels;
+
+    @PostConstruct
+    public void start() {
+        long now = System.currentTimeMillis();
+        wheel = new HierarchicalTimingWheel<>(tickMillis, wheelSize, now);
+        running = true;
+        wheelThread = new Thread(this::runLoop, "simulator-wheel");
+        wheelThread.setDaemon(true);
+        wheelThread.start();
+        log.info("时间轮采样调度器已启动，每格 {} ms，每层 {} 格，默认间隔 {} ms，错过采样策略: {}",
+                tickMillis, wheelSize, defaultIntervalMillis, missedTickPolicy);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        wheelThread.interrupt();
+        wheelThread.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    /**
+     * 驱动线程：刷新设备计划 -> 推进时间轮 -> 到期设备的读数作为一批接入 -> 等待下一格
+     */
+    private void runLoop() {
+        while (running) {
+            long now = System.currentTimeMillis();
+            try {
+                if (now - lastRefreshMillis >= refreshIntervalMillis) {
+                    refreshDevices(now);
+                    lastRefreshMillis = now;
+                }
+                boolean enabled = simulatorService.isSimulatorEnabled();
+                boolean overloaded = simulatorService.isOverloaded();
+                List<SampleRequest> requests = new ArrayList<>();
+                List<DeviceSchedule> sampled = new ArrayList<>();
+                wheel.advance(now, (schedule, deadline) ->
+                        fire(schedule, deadline, now, enabled, overloaded, requests, sampled));
+                levels = wheel.levelCount();
+                if (!requests.isEmpty()) {
+                    // 无论采样是否成功都要重新安排已取出的设备，否则设备会从时间轮中消失
+                    List<EnergyData> readings = List.of();
+                    try {
+                        readings = simulatorService.sample(requests);
+                    } finally {
+                        rescheduleSampled(sampled, readings);
+                    }
+                    samples.addAndGet(requests.size());
+                    firedTicks.incrementAndGet();
+                    maxSamplesPerTick.accumulateAndGet(requests.size(), Math::max);
+                }
+            } catch (Exception e) {
+                failedTicks.incrementAndGet();
+                log.error("时间轮采样失败: {}", e.getMessage(), e);
+            }
+            long sleepMillis = tickMillis - System.currentTimeMillis() % tickMillis;
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(sleepMillis));
+        }
+    }
+
+    /**
+     * 设备采样时刻到期：按错过采样策略生成采样请求，并安排下一次采样
+     */
+    private void fire(DeviceSchedule schedule, long deadline, long now, boolean enabled,
+                      boolean overloaded, List<SampleRequest> requests, List<DeviceSchedule> sampled) {
+        if (schedules.get(schedule.device.getId()) != schedule) {
+            // 设备已下线或采样间隔已变更，旧计划作废
+            return;
+        }
+        long interval = schedule.currentIntervalMillis;
+        long drift = Math.max(0, now - deadline);
+        long missed = drift / interval;
+        long next = deadline + (missed + 1) * interval;
+        recordDrift(drift);
+
+        if (!enabled) {
+            // 模拟器停用期间不生成读数，恢复后从一个间隔重新计算
+            schedule.lastSampleMillis = 0;
+        } else if (overloaded) {
+            // 接入过载时不生成读数，下次采样按实际间隔补足累计用电量
+            skippedSamples.addAndGet(missed + 1);
+        } else if (missed == 0 || missedTickPolicy == MissedTickPolicy.SKIP) {
+            skippedSamples.addAndGet(missed);
+            addRequest(schedule, deadline + missed * interval, requests);
+        } else {
+            long count = Math.min(missed + 1, maxCatchUp);
+            skippedSamples.addAndGet(missed + 1 - count);
+            catchUpSamples.addAndGet(count - 1);
+            for (long slot = deadline + (missed + 1 - count) * interval; slot < next; slot += interval) {
+                addRequest(schedule, slot, requests);
+            }
+        }
+        if (enabled && !overloaded) {
+            // 本次已生成采样请求，下一次采样时刻在读数生成后确定
+            sampled.add(schedule);
+        } else {
+            wheel.schedule(schedule, next);
+        }
+    }
+
+    /**
+     * 按本次读数安排已采样设备的下一次采样：自适应采样根据读数放大或恢复间隔
+     */
+    private void rescheduleSampled(List<DeviceSchedule> sampled, List<EnergyData> readings) {
+        Map<Long, EnergyData> latest = new HashMap<>();
+        for (EnergyData reading : readings) {
+            latest.put(reading.getDevice().getId(), reading);
+        }
+        for (DeviceSchedule schedule : sampled) {
+            EnergyData reading = latest.get(schedule.device.getId());
+            if (reading != null) {
+                schedule.currentIntervalMillis = adaptiveSampler.record(reading, schedule.lastSampleMillis,
+                        schedule.intervalMillis);
+            }
+            wheel.schedule(schedule, schedule.lastSampleMillis + schedule.currentIntervalMillis);
+        }
+    }
+
+    private void addRequest(DeviceSchedule schedule, long slotMillis, List<SampleRequest> requests) {
+        long sinceLast = schedule.lastSampleMillis > 0 ? slotMillis - schedule.lastSampleMillis : schedule.intervalMillis;
+        requests.add(new SampleRequest(schedule.device,
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(slotMillis), ZoneId.systemDefault()),
+                sinceLast / 1000.0));
+        schedule.lastSampleMillis = slotMillis;
+    }
+
+    private void recordDrift(long drift) {
+        driftCount.incrementAndGet();
+        totalDriftMillis.addAndGet(drift);
+        maxDriftMillis.accumulateAndGet(drift, Math::max);
+        lastDriftMillis.set(drift);
+    }
+
+    /**
+     * 刷新在线设备：新设备按相位加入时间轮，间隔变更的设备重建计划，下线设备的计划作废
+     */
+    private void refreshDevices(long now) {
+        List<Device> online = deviceRepository.findByStatus(DeviceStatus.ONLINE);
+        Set<Long> seen = new HashSet<>();
+        int added = 0;
+        for (Device device : online) {
+            seen.add(device.getId());
+            long interval = intervalOf(device);
+            DeviceSchedule current = schedules.get(device.getId());
+            if (current != null && current.intervalMillis == interval) {
+                current.device = device;
+                continue;
+            }
+            DeviceSchedule schedule = new DeviceSchedule(device, interval);
+            if (current != null) {
+                schedule.lastSampleMillis = current.lastSampleMillis;
+            }
+            schedules.put(device.getId(), schedule);
+            wheel.schedule(schedule, nextSlot(now, interval, phaseOf(device.getId(), interval)));
+            added++;
+        }
+        int before = schedules.size();
+        schedules.keySet().retainAll(seen);
+        scheduledDevices = schedules.size();
+        if (added > 0 || before != schedules.size()) {
+            log.info("时间轮采样计划已刷新，新增/变更 {} 台，移除 {} 台，当前 {} 台",
+                    added, before - schedules.size(), schedules.size());
+        }
+    }
+
+    private long intervalOf(Device device) {
+        long interval = device.getSampleInterval() != null
+                ? TimeUnit.SECONDS.toMillis(device.getSampleInterval())
+                : defaultIntervalMillis;
+        return Math.max(MIN_INTERVAL_MILLIS, interval);
+    }
+
+    /**
+     * 设备的相位偏移：设备ID哈希后对间隔取模，同一间隔的设备均匀错开
+     */
+    private static long phaseOf(Long deviceId, long interval) {
+        return Math.floorMod((deviceId * GOLDEN_GAMMA) >>> 16, interval);
+    }
+
+    /**
+     * now 之后第一个满足 slot ≡ phase (mod interval) 的采样时刻
+     */
+    private static long nextSlot(long now, long interval, long phase) {
+        return now - Math.floorMod(now - phase, interval) + interval;
+    }
+
+    /**
+     * 获取调度统计：设备数、采样数、补采/跳过数、每格采样数及漂移
+     */
+    public Map<String, Object> getStats() {
+        long ticks = firedTicks.get();
+        long drifts = driftCount.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tickMillis", tickMillis);
+        stats.put("wheelSize", wheelSize);
+        stats.put("levels", levels);
+        stats.put("missedTickPolicy", missedTickPolicy);
+        stats.put("scheduledDevices", scheduledDevices);
+        stats.put("samples", samples.get());
+        stats.put("catchUpSamples", catchUpSamples.get());
+        stats.put("skippedSamples", skippedSamples.get());
+        stats.put("avgSamplesPerTick", ticks > 0 ? samples.get() / ticks : 0);
+        stats.put("maxSamplesPerTick", maxSamplesPerTick.get());
+        stats.put("avgDriftMillis", drifts > 0 ? totalDriftMillis.get() / drifts : 0);
+        stats.put("maxDriftMillis", maxDriftMillis.get());
+        stats.put("lastDriftMillis", lastDriftMillis.get());
+        stats.put("failedTicks", failedTicks.get());
+        return stats;
+    }
+
+    /**
+     * 单台设备的采样计划
+     */
+    private static final class DeviceSchedule {
+
+        private Device device;
+
+        /**
+         * 基础采样间隔（毫秒）
+         */
+        private final long intervalMillis;
+
+        /**
+         * 当前采样间隔（毫秒），自适应采样时为基础间隔的倍数
+         */
+        private long currentIntervalMillis;
+
+        /**
+         * 上一次生成读数的采样时刻（epoch毫秒），0 表示尚未采样
+         */
+        private long lastSampleMillis;
+
+        private DeviceSchedule(Device device, long intervalMillis) {
+            this.device = device;
+            this.intervalMillis = intervalMillis;
+            this.currentIntervalMillis = intervalMillis;
+        }
+    }
+}
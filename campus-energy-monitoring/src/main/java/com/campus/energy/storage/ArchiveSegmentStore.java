@@ -0,0 +1,206 @@
+package com.campus.energy.storage;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+
+/**
+ * 冷数据归档段文件存储
+ *
+ * 说明：
+ * 每台设备每天一个段文件：{dir}/{deviceId}/{yyyy-MM-dd}.seg，内容为一个列式读数数据块（见 ReadingBlockCodec）。
+ * 段文件写入临时文件并刷盘后原子重命名，已有段文件不会被原地修改：
+ * 归档同一天的迟到读数时与旧段合并后整体替换，正在读取旧文件的查询不受影响。
+ * 读取时用 MappedByteBuffer 映射整个文件，由操作系统页缓存负责缓存，不占用 JVM 堆与 MySQL 缓冲池。
+ */
+@Slf4j
+@Component
+public class ArchiveSegmentStore {
+
+    private static final String SUFFIX = ".seg";
+
+    @Value("${energy.archive.dir:./data/archive}")
+    private String dir;
+
+    private Path root;
+
+    @PostConstruct
+    public void init() {
+        root = Paths.get(dir).toAbsolutePath().normalize();
+    }
+
+    /**
+     * 读取设备在 [from, to] 内的归档读数，按时间升序
+     */
+    public ReadingColumns read(Long deviceId, LocalDateTime from, LocalDateTime to) {
+        long fromSecond = ReadingColumns.toEpochSecond(from);
+        long toSecond = ReadingColumns.toEpochSecond(to);
+        ReadingColumns result = null;
+        for (LocalDate day : listDays(deviceId)) {
+            if (day.isBefore(from.toLocalDate()) || day.isAfter(to.toLocalDate())) {
+                continue;
+            }
+            ReadingColumns segment = read(segmentPath(deviceId, day), fromSecond, toSecond);
+            if (result == null) {
+                result = segment;
+            } else {
+                result.addAll(segment);
+            }
+        }
+        return result != null ? result : new ReadingColumns(0);
+    }
+
+    /**
+     * 读取设备某一天的全部归档读数，没有段文件时返回空
+     */
+    public ReadingColumns read(Long deviceId, LocalDate day) {
+        Path path = segmentPath(deviceId, day);
+        return Files.exists(path) ? read(path, Long.MIN_VALUE, Long.MAX_VALUE) : new ReadingColumns(0);
+    }
+
+    /**
+     * 写入设备某一天的段文件；已有段文件时先与其合并（时间相同的读数以新写入的为准）
+     *
+     * @return 段文件字节数
+     */
+    public long write(Long deviceId, LocalDate day, ReadingColumns columns) {
+        ReadingColumns existing = read(deviceId, day);
+        if (!existing.isEmpty()) {
+            columns = ReadingColumns.merge(existing, columns);
+        }
+        byte[] block = ReadingBlockCodec.encode(columns);
+        Path path = segmentPath(deviceId, day);
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(path.getParent());
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.wrap(block);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                // 刷盘后才重命名，随后才允许删除数据库中的原始读数
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("写入归档段失败: " + path, e);
+        }
+        return block.length;
+    }
+
+    /**
+     * 设备已归档的日期，按日期升序
+     */
+    public List<LocalDate> listDays(Long deviceId) {
+        Path deviceDir = root.resolve(String.valueOf(deviceId));
+        if (!Files.isDirectory(deviceDir)) {
+            return List.of();
+        }
+        TreeSet<LocalDate> days = new TreeSet<>();
+        try (Stream<Path> files = Files.list(deviceDir)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .forEach(name -> {
+                        try {
+                            days.add(LocalDate.parse(name.substring(0, name.length() - SUFFIX.length())));
+                        } catch (DateTimeParseException e) {
+                            log.warn("忽略无法识别的归档文件: {}/{}", deviceDir, name);
+                        }
+                    });
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取归档目录失败: " + deviceDir, e);
+        }
+        return new ArrayList<>(days);
+    }
+
+    /**
+     * 所有设备中最晚的归档日期，没有归档时返回 null
+     */
+    public LocalDate findLatestDay() {
+        if (!Files.isDirectory(root)) {
+            return null;
+        }
+        LocalDate latest = null;
+        try (Stream<Path> deviceDirs = Files.list(root)) {
+            for (Path deviceDir : (Iterable<Path>) deviceDirs::iterator) {
+                String name = deviceDir.getFileName().toString();
+                if (!Files.isDirectory(deviceDir) || !name.chars().allMatch(Character::isDigit)) {
+                    continue;
+                }
+                List<LocalDate> days = listDays(Long.valueOf(name));
+                if (!days.isEmpty() && (latest == null || days.get(days.size() - 1).isAfter(latest))) {
+                    latest = days.get(days.size() - 1);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取归档目录失败: " + root, e);
+        }
+        return latest;
+    }
+
+    /**
+     * 归档存储统计：段文件数与总字节数
+     */
+    public Map<String, Object> getStats() {
+        long segments = 0;
+        long bytes = 0;
+        if (Files.isDirectory(root)) {
+            try (Stream<Path> files = Files.walk(root, 2)) {
+                for (Path path : (Iterable<Path>) files::iterator) {
+                    if (path.getFileName().toString().endsWith(SUFFIX)) {
+                        segments++;
+                        bytes += Files.size(path);
+                    }
+                }
+            } catch (IOException e) {
+                log.warn("统计归档目录失败: {}", e.getMessage());
+            }
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("dir", root.toString());
+        stats.put("segments", segments);
+        stats.put("bytes", bytes);
+        return stats;
+    }
+
+    private Path segmentPath(Long deviceId, LocalDate day) {
+        return root.resolve(String.valueOf(deviceId)).resolve(day + SUFFIX);
+    }
+
+    private static ReadingColumns read(Path path, long from, long to) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // 映射在通道关闭后仍然有效
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return ReadingBlockCodec.decode(buffer, 0, from, to);
+        } catch (IOException e) {
+            throw new UncheckedIOException("读取归档段失败: " + path, e);
+        }
+    }
+}
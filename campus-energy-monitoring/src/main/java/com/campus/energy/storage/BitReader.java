@@ -0,0 +1,60 @@
+package com.campus.energy.storage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 按位读取 ByteBuffer 中的一段字节（高位在前），与 {@link BitWriter} 对应
+ *
+ * 使用绝对位置读取，不修改 ByteBuffer 的 position，
+ * 多个列可以共享同一个（内存映射的）缓冲区。非线程安全。
+ */
+public class BitReader {
+
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    /**
+     * 已读取的位数
+     */
+    private long bitPos;
+
+    public BitReader(ByteBuffer buffer, int offset, int length) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public boolean readBit() {
+        return readBits(1) != 0;
+    }
+
+    /**
+     * 读取 bits 位（1~64），按无符号返回
+     */
+    public long readBits(int bits) {
+        long value = 0;
+        while (bits > 0) {
+            int index = (int) (bitPos >>> 3);
+            if (index >= length) {
+                throw new IllegalStateException("列数据已读完，数据可能已损坏");
+            }
+            int current = buffer.get(offset + index) & 0xFF;
+            int available = 8 - (int) (bitPos & 7);
+            int take = Math.min(available, bits);
+            int chunk = (current >>> (available - take)) & ((1 << take) - 1);
+            value = (value << take) | chunk;
+            bitPos += take;
+            bits -= take;
+        }
+        return value;
+    }
+
+    /**
+     * 读取 bits 位并按补码做符号扩展
+     */
+    public long readSigned(int bits) {
+        long raw = readBits(bits);
+        return (raw << (64 - bits)) >> (64 - bits);
+    }
+}
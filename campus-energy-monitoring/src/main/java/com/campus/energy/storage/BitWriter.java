@@ -0,0 +1,55 @@
+package com.campus.energy.storage;
+
+import java.util.Arrays;
+
+/**
+ * 按位写入的字节缓冲区（高位在前），供 Gorilla 编码使用
+ *
+ * 非线程安全。
+ */
+public class BitWriter {
+
+    private byte[] buffer;
+
+    /**
+     * 已写入的位数
+     */
+    private long bitCount;
+
+    public BitWriter(int initialBytes) {
+        this.buffer = new byte[Math.max(16, initialBytes)];
+    }
+
+    public void writeBit(boolean bit) {
+        writeBits(bit ? 1 : 0, 1);
+    }
+
+    /**
+     * 写入 value 的低 bits 位（1~64）
+     */
+    public void writeBits(long value, int bits) {
+        while (bits > 0) {
+            int index = (int) (bitCount >>> 3);
+            if (index >= buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            int free = 8 - (int) (bitCount & 7);
+            int take = Math.min(free, bits);
+            int chunk = (int) ((value >>> (bits - take)) & ((1 << take) - 1));
+            buffer[index] |= (byte) (chunk << (free - take));
+            bitCount += take;
+            bits -= take;
+        }
+    }
+
+    /**
+     * 已写入的字节数（最后一个字节不足8位时补0）
+     */
+    public int size() {
+        return (int) ((bitCount + 7) >>> 3);
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, size());
+    }
+}
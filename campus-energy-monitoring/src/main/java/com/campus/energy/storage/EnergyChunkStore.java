@@ -0,0 +1,442 @@
+package com.campus.energy.storage;
+
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.enums.StorageMode;
+import com.campus.energy.repository.EnergyChunkRepository;
+import com.campus.energy.repository.EnergyChunkRepository.ChunkWrite;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按设备按小时分块的读数存储（energy.storage.mode=CHUNK）
+ *
+ * 说明：
+ * 按行存储时每5秒一条读数就是一行 InnoDB 记录加三个二级索引，占用远大于读数本身。
+ * 分块模式下每台设备每小时只有一行（t_energy_chunk），读数列式压缩后保存在 payload 中：
+ * - 写入：读数追加到内存中当前小时的打开块，写入器线程不访问数据库
+ * - 检查点：每 flush-interval 把有新读数的打开块整块写库，进程异常退出时最多丢失一个间隔的读数
+ * - 封存：小时结束 seal-delay-seconds 后最后写库一次并移出内存；
+ *   迟到读数或历史回填落在已封存的小时时，从数据库加载该块合并后立即写库
+ * - 读取：只解码与查询范围重叠的块，内存中的打开块覆盖数据库中的同一块
+ *
+ * 同一块的追加、写库与封存在块对象上同步；块封存后再追加的读数会重新加载一个新块，不会写入已移出的块。
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class EnergyChunkStore {
+
+    private final EnergyChunkRepository energyChunkRepository;
+
+    @Value("${energy.storage.mode:ROW}")
+    private StorageMode mode;
+
+    /**
+     * 小时结束后等待多久（秒）封存，容纳轻微乱序的读数
+     */
+    @Value("${energy.storage.seal-delay-seconds:120}")
+    private long sealDelaySeconds;
+
+    /**
+     * 打开块 (设备ID, 小时起始时间) -> 块
+     */
+    private final Map<ChunkKey, OpenChunk> openChunks = new ConcurrentHashMap<>();
+
+    private final AtomicLong appendedReadings = new AtomicLong();
+    private final AtomicLong loadedChunks = new AtomicLong();
+    private final AtomicLong flushedChunks = new AtomicLong();
+    private final AtomicLong sealedChunks = new AtomicLong();
+    private final AtomicLong flushedReadings = new AtomicLong();
+    private final AtomicLong flushedBytes = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+
+    public boolean isEnabled() {
+        return mode == StorageMode.CHUNK;
+    }
+
+    public StorageMode getMode() {
+        return mode;
+    }
+
+    /**
+     * 追加一批读数；落在已可封存的小时（迟到读数、历史回填）的块立即写库
+     *
+     * @return 追加的读数条数
+     */
+    public int append(List<EnergyData> readings) {
+        Set<ChunkKey> touched = new LinkedHashSet<>();
+        for (EnergyData data : readings) {
+            ChunkKey key = new ChunkKey(data.getDevice().getId(), chunkStart(data.getCollectTime()));
+            touched.add(key);
+            while (true) {
+                OpenChunk chunk = openChunks.computeIfAbsent(key, this::load);
+                synchronized (chunk) {
+                    if (!chunk.sealed) {
+                        chunk.readings.add(data.getCollectTime(), data.getVoltage(), data.getCurrent(),
+                                data.getPower(), data.getTotalEnergy(), Boolean.TRUE.equals(data.getIsAbnormal()));
+                        chunk.dirty = true;
+                        break;
+                    }
+                }
+            }
+        }
+        appendedReadings.addAndGet(readings.size());
+
+        LocalDateTime sealBefore = sealBefore();
+        List<ChunkKey> sealable = touched.stream().filter(key -> key.chunkStart().isBefore(sealBefore)).toList();
+        if (!sealable.isEmpty()) {
+            // 与写入器同步完成，作为背压，避免回填时大量历史块积压在内存中
+            flush(sealable, true);
+        }
+        return readings.size();
+    }
+
+    /**
+     * 定时检查点：有新读数的打开块写库，已到封存时间的块写库后移出内存
+     */
+    @Scheduled(fixedDelayString = "${energy.storage.flush-interval:60000}")
+    public void checkpoint() {
+        if (!isEnabled() || openChunks.isEmpty()) {
+            return;
+        }
+        LocalDateTime sealBefore = sealBefore();
+        List<ChunkKey> sealable = new ArrayList<>();
+        List<ChunkKey> active = new ArrayList<>();
+        for (ChunkKey key : openChunks.keySet()) {
+            (key.chunkStart().isBefore(sealBefore) ? sealable : active).add(key);
+        }
+        try {
+            flush(active, false);
+            flush(sealable, true);
+        } catch (RuntimeException e) {
+            log.error("读数分块写库失败，下次检查点重试: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 停机时写入并封存全部打开块
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (isEnabled() && !openChunks.isEmpty()) {
+            flush(new ArrayList<>(openChunks.keySet()), true);
+            log.info("读数分块已全部写库");
+        }
+    }
+
+    /**
+     * 读取设备在 [from, to] 内的读数，按时间升序
+     */
+    public ReadingColumns read(Long deviceId, LocalDateTime from, LocalDateTime to) {
+        long fromSecond = ReadingColumns.toEpochSecond(from);
+        long toSecond = ReadingColumns.toEpochSecond(to);
+        LocalDateTime fromChunk = chunkStart(from);
+        TreeMap<LocalDateTime, ReadingColumns> chunks = new TreeMap<>(
+                energyChunkRepository.findRange(deviceId, fromChunk, to, fromSecond, toSecond));
+        openChunks.forEach((key, chunk) -> {
+            if (key.deviceId().equals(deviceId) && !key.chunkStart().isBefore(fromChunk)
+                    && !key.chunkStart().isAfter(to)) {
+                ReadingColumns snapshot = snapshot(chunk);
+                if (snapshot != null) {
+                    chunks.put(key.chunkStart(), snapshot.slice(fromSecond, toSecond));
+                }
+            }
+        });
+        ReadingColumns result = new ReadingColumns(0);
+        chunks.values().forEach(result::addAll);
+        return result;
+    }
+
+    /**
+     * 设备在 since 之后的最新一条读数，没有时返回空
+     */
+    public ReadingColumns findLatest(Long deviceId, LocalDateTime since) {
+        Map.Entry<LocalDateTime, ReadingColumns> latest = latestOpenChunks(since).get(deviceId);
+        if (latest == null) {
+            latest = energyChunkRepository.findLatest(deviceId, chunkStart(since));
+        }
+        return latest != null ? last(latest.getValue()) : new ReadingColumns(0);
+    }
+
+    /**
+     * 所有设备在 since 之后的最新一条读数
+     */
+    public Map<Long, ReadingColumns> findLatestForAllDevices(LocalDateTime since) {
+        Map<Long, Map.Entry<LocalDateTime, ReadingColumns>> latest =
+                energyChunkRepository.findLatestForAllDevices(chunkStart(since));
+        latestOpenChunks(since).forEach((deviceId, entry) -> latest.merge(deviceId, entry,
+                (stored, open) -> open.getKey().isBefore(stored.getKey()) ? stored : open));
+        Map<Long, ReadingColumns> result = new HashMap<>();
+        latest.forEach((deviceId, entry) -> {
+            ReadingColumns reading = last(entry.getValue());
+            if (!reading.isEmpty()) {
+                result.put(deviceId, reading);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 设备每个块的读数条数（数据库与内存合并），按时间倒序
+     */
+    public Map<LocalDateTime, Integer> getSampleCounts(Long deviceId) {
+        TreeMap<LocalDateTime, Integer> counts = new TreeMap<>(energyChunkRepository.findSampleCounts(deviceId));
+        openChunks.forEach((key, chunk) -> {
+            if (key.deviceId().equals(deviceId)) {
+                ReadingColumns snapshot = snapshot(chunk);
+                if (snapshot != null) {
+                    counts.put(key.chunkStart(), snapshot.getSize());
+                }
+            }
+        });
+        return counts.descendingMap();
+    }
+
+    /**
+     * [from, to) 内有读数的设备（数据库与内存合并，from 与 to 须对齐到小时）
+     */
+    public Set<Long> findDeviceIds(LocalDateTime from, LocalDateTime to) {
+        Set<Long> deviceIds = energyChunkRepository.findDeviceIds(from, to);
+        openChunks.keySet().forEach(key -> {
+            if (!key.chunkStart().isBefore(from) && key.chunkStart().isBefore(to)) {
+                deviceIds.add(key.deviceId());
+            }
+        });
+        return deviceIds;
+    }
+
+    /**
+     * 按设备统计 [from, to] 内的用电量
+     *
+     * @return 设备ID -> 用电量(kWh)
+     */
+    public Map<Long, Double> getConsumptionByDevice(LocalDateTime from, LocalDateTime to) {
+        Map<Long, Double> result = new HashMap<>();
+        getEnergyRangeByDevice(from, to).forEach((deviceId, range) -> result.put(deviceId, range[1] - range[0]));
+        return result;
+    }
+
+    /**
+     * 按设备统计 [from, to] 内的累计用电量范围（数据库汇总列与内存中的块合并）
+     * from 须对齐到小时；按整块统计，to 所在块中晚于 to 的读数也会计入（to 通常为当前时间）
+     *
+     * @return 设备ID -> [最小累计用电量, 最大累计用电量]
+     */
+    public Map<Long, double[]> getEnergyRangeByDevice(LocalDateTime from, LocalDateTime to) {
+        Map<Long, double[]> ranges = energyChunkRepository.findEnergyRangeByDevice(from, to);
+        openChunks.forEach((key, chunk) -> {
+            if (key.chunkStart().isBefore(from) || key.chunkStart().isAfter(to)) {
+                return;
+            }
+            ReadingColumns snapshot = snapshot(chunk);
+            if (snapshot == null || snapshot.isEmpty()) {
+                return;
+            }
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < snapshot.getSize(); i++) {
+                min = Math.min(min, snapshot.getTotalEnergy()[i]);
+                max = Math.max(max, snapshot.getTotalEnergy()[i]);
+            }
+            ranges.merge(key.deviceId(), new double[]{min, max},
+                    (a, b) -> new double[]{Math.min(a[0], b[0]), Math.max(a[1], b[1])});
+        });
+        return ranges;
+    }
+
+    /**
+     * 每台设备的最新累计用电量（启动加载使用）
+     */
+    public List<Object[]> findLatestTotalEnergyPerDevice() {
+        return energyChunkRepository.findLatestTotalEnergyPerDevice();
+    }
+
+    /**
+     * 每台设备最早的采集时间与最小累计用电量（历史回填续传使用）
+     */
+    public List<Object[]> findEarliestReadingPerDevice() {
+        return energyChunkRepository.findEarliestReadingPerDevice();
+    }
+
+    /**
+     * 将指定的块写库；seal=true 时写库后移出内存
+     */
+    private void flush(List<ChunkKey> keys, boolean seal) {
+        List<ChunkWrite> writes = new ArrayList<>();
+        List<OpenChunk> chunks = new ArrayList<>();
+        for (ChunkKey key : keys) {
+            OpenChunk chunk = openChunks.get(key);
+            if (chunk == null) {
+                continue;
+            }
+            synchronized (chunk) {
+                if (chunk.sealed) {
+                    continue;
+                }
+                if (chunk.dirty && !chunk.readings.isEmpty()) {
+                    // 排序去重后替换，之后追加的读数接在有序数据之后
+                    chunk.readings = chunk.readings.sorted();
+                    writes.add(new ChunkWrite(key.deviceId(), key.chunkStart(), copy(chunk.readings)));
+                    chunks.add(chunk);
+                    chunk.dirty = false;
+                } else if (seal) {
+                    sealAndRemove(key, chunk);
+                }
+            }
+        }
+        if (writes.isEmpty()) {
+            return;
+        }
+
+        // 写库期间不持有块锁，写入的是上面取到的副本
+        try {
+            flushedBytes.addAndGet(energyChunkRepository.upsert(writes));
+        } catch (RuntimeException e) {
+            failedFlushes.incrementAndGet();
+            chunks.forEach(chunk -> {
+                synchronized (chunk) {
+                    chunk.dirty = true;
+                }
+            });
+            throw e;
+        }
+        flushedChunks.addAndGet(writes.size());
+        writes.forEach(write -> flushedReadings.addAndGet(write.readings().getSize()));
+
+        if (seal) {
+            for (int i = 0; i < writes.size(); i++) {
+                OpenChunk chunk = chunks.get(i);
+                synchronized (chunk) {
+                    // 写库期间又有追加的块留到下次检查点
+                    if (!chunk.dirty) {
+                        sealAndRemove(new ChunkKey(writes.get(i).deviceId(), writes.get(i).chunkStart()), chunk);
+                    }
+                }
+            }
+        }
+    }
+
+    private void sealAndRemove(ChunkKey key, OpenChunk chunk) {
+        chunk.sealed = true;
+        openChunks.remove(key, chunk);
+        sealedChunks.incrementAndGet();
+    }
+
+    /**
+     * 打开块：已封存后又有读数时，从数据库加载已有读数继续追加
+     */
+    private OpenChunk load(ChunkKey key) {
+        OpenChunk chunk = new OpenChunk();
+        if (key.chunkStart().isBefore(sealBefore())) {
+            ReadingColumns stored = energyChunkRepository.find(key.deviceId(), key.chunkStart());
+            if (!stored.isEmpty()) {
+                chunk.readings = stored;
+                loadedChunks.incrementAndGet();
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * 内存中各设备 since 之后最新的打开块
+     */
+    private Map<Long, Map.Entry<LocalDateTime, ReadingColumns>> latestOpenChunks(LocalDateTime since) {
+        LocalDateTime sinceChunk = chunkStart(since);
+        Map<Long, Map.Entry<LocalDateTime, ReadingColumns>> latest = new HashMap<>();
+        openChunks.forEach((key, chunk) -> {
+            if (key.chunkStart().isBefore(sinceChunk)) {
+                return;
+            }
+            Map.Entry<LocalDateTime, ReadingColumns> current = latest.get(key.deviceId());
+            if (current == null || key.chunkStart().isAfter(current.getKey())) {
+                ReadingColumns snapshot = snapshot(chunk);
+                if (snapshot != null && !snapshot.isEmpty()) {
+                    latest.put(key.deviceId(), Map.entry(key.chunkStart(), snapshot));
+                }
+            }
+        });
+        return latest;
+    }
+
+    /**
+     * 块中读数的有序副本，块已封存时返回 null（以数据库中的为准）
+     */
+    private static ReadingColumns snapshot(OpenChunk chunk) {
+        synchronized (chunk) {
+            return chunk.sealed ? null : copy(chunk.readings.sorted());
+        }
+    }
+
+    private static ReadingColumns copy(ReadingColumns readings) {
+        ReadingColumns copy = new ReadingColumns(readings.getSize());
+        copy.addAll(readings);
+        return copy;
+    }
+
+    private static ReadingColumns last(ReadingColumns readings) {
+        ReadingColumns sorted = readings.sorted();
+        ReadingColumns result = new ReadingColumns(1);
+        if (!sorted.isEmpty()) {
+            result.add(sorted, sorted.getSize() - 1);
+        }
+        return result;
+    }
+
+    private LocalDateTime sealBefore() {
+        return chunkStart(LocalDateTime.now().minusSeconds(sealDelaySeconds));
+    }
+
+    private static LocalDateTime chunkStart(LocalDateTime time) {
+        return time.truncatedTo(ChronoUnit.HOURS);
+    }
+
+    /**
+     * 获取分块存储统计信息
+     */
+    public Map<String, Object> getStats() {
+        long readings = flushedReadings.get();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", mode);
+        stats.put("openChunks", openChunks.size());
+        stats.put("appendedReadings", appendedReadings.get());
+        stats.put("loadedChunks", loadedChunks.get());
+        stats.put("flushedChunks", flushedChunks.get());
+        stats.put("sealedChunks", sealedChunks.get());
+        stats.put("failedFlushes", failedFlushes.get());
+        stats.put("flushedBytes", flushedBytes.get());
+        stats.put("bytesPerReading", readings > 0 ? Math.round((double) flushedBytes.get() / readings * 100) / 100.0 : 0.0);
+        return stats;
+    }
+
+    /**
+     * 块的唯一键
+     */
+    private record ChunkKey(Long deviceId, LocalDateTime chunkStart) {
+    }
+
+    /**
+     * 内存中的打开块
+     */
+    private static class OpenChunk {
+        private ReadingColumns readings = new ReadingColumns(64);
+        private boolean dirty;
+        private boolean sealed;
+    }
+}
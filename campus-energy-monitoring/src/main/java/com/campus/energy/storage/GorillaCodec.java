@@ -0,0 +1,149 @@
+package com.campus.energy.storage;
+
+/**
+ * Gorilla 时间序列编码（Facebook Gorilla 论文中的时间戳与浮点数压缩）
+ *
+ * 时间戳（秒）：第一个按64位写入，之后写入二阶差分（本次间隔 - 上次间隔）：
+ * <pre>
+ *   0                      -> '0'
+ *   [-64, 63]              -> '10'   + 7位
+ *   [-256, 255]            -> '110'  + 9位
+ *   [-2048, 2047]          -> '1110' + 12位
+ *   其他                    -> '1111' + 64位
+ * </pre>
+ * 固定间隔采样时每个时间戳只占1位。
+ *
+ * 浮点数：第一个按64位写入，之后与前一个值做异或：
+ * <pre>
+ *   异或为0                 -> '0'
+ *   有效位落在上次的窗口内   -> '10' + 窗口内的有效位
+ *   其他                    -> '11' + 5位前导零个数 + 6位有效位长度 + 有效位
+ * </pre>
+ * 电压、功率等缓慢变化的读数相邻值高位相同，异或后只有少量有效位。
+ */
+public final class GorillaCodec {
+
+    private GorillaCodec() {
+    }
+
+    /**
+     * 编码前 count 个时间戳（应按时间升序，乱序也能正确还原但压缩率下降）
+     */
+    public static void writeTimestamps(BitWriter out, long[] times, int count) {
+        if (count == 0) {
+            return;
+        }
+        out.writeBits(times[0], 64);
+        long prevDelta = 0;
+        for (int i = 1; i < count; i++) {
+            long delta = times[i] - times[i - 1];
+            long dod = delta - prevDelta;
+            if (dod == 0) {
+                out.writeBit(false);
+            } else if (dod >= -64 && dod <= 63) {
+                out.writeBits(0b10, 2);
+                out.writeBits(dod, 7);
+            } else if (dod >= -256 && dod <= 255) {
+                out.writeBits(0b110, 3);
+                out.writeBits(dod, 9);
+            } else if (dod >= -2048 && dod <= 2047) {
+                out.writeBits(0b1110, 4);
+                out.writeBits(dod, 12);
+            } else {
+                out.writeBits(0b1111, 4);
+                out.writeBits(dod, 64);
+            }
+            prevDelta = delta;
+        }
+    }
+
+    /**
+     * 解码 count 个时间戳到 out
+     */
+    public static void readTimestamps(BitReader in, long[] out, int count) {
+        if (count == 0) {
+            return;
+        }
+        out[0] = in.readBits(64);
+        long prevDelta = 0;
+        for (int i = 1; i < count; i++) {
+            long dod;
+            if (!in.readBit()) {
+                dod = 0;
+            } else if (!in.readBit()) {
+                dod = in.readSigned(7);
+            } else if (!in.readBit()) {
+                dod = in.readSigned(9);
+            } else if (!in.readBit()) {
+                dod = in.readSigned(12);
+            } else {
+                dod = in.readBits(64);
+            }
+            prevDelta += dod;
+            out[i] = out[i - 1] + prevDelta;
+        }
+    }
+
+    /**
+     * 编码前 count 个浮点数
+     */
+    public static void writeValues(BitWriter out, double[] values, int count) {
+        if (count == 0) {
+            return;
+        }
+        long prev = Double.doubleToRawLongBits(values[0]);
+        out.writeBits(prev, 64);
+        int prevLeading = -1;
+        int prevTrailing = 0;
+        for (int i = 1; i < count; i++) {
+            long bits = Double.doubleToRawLongBits(values[i]);
+            long xor = bits ^ prev;
+            if (xor == 0) {
+                out.writeBit(false);
+            } else {
+                out.writeBit(true);
+                // 前导零个数用5位保存，超过31的按31处理
+                int leading = Math.min(Long.numberOfLeadingZeros(xor), 31);
+                int trailing = Long.numberOfTrailingZeros(xor);
+                if (prevLeading >= 0 && leading >= prevLeading && trailing >= prevTrailing) {
+                    out.writeBit(false);
+                    out.writeBits(xor >>> prevTrailing, 64 - prevLeading - prevTrailing);
+                } else {
+                    int significant = 64 - leading - trailing;
+                    out.writeBit(true);
+                    out.writeBits(leading, 5);
+                    // 有效位长度为1~64，按减1后的6位保存
+                    out.writeBits(significant - 1, 6);
+                    out.writeBits(xor >>> trailing, significant);
+                    prevLeading = leading;
+                    prevTrailing = trailing;
+                }
+            }
+            prev = bits;
+        }
+    }
+
+    /**
+     * 解码前 count 个浮点数到 out（只需要前面一部分时可以提前停止）
+     */
+    public static void readValues(BitReader in, double[] out, int count) {
+        if (count == 0) {
+            return;
+        }
+        long prev = in.readBits(64);
+        out[0] = Double.longBitsToDouble(prev);
+        int leading = 0;
+        int trailing = 0;
+        for (int i = 1; i < count; i++) {
+            if (in.readBit()) {
+                if (in.readBit()) {
+                    leading = (int) in.readBits(5);
+                    int significant = (int) in.readBits(6) + 1;
+                    trailing = 64 - leading - significant;
+                }
+                prev ^= in.readBits(64 - leading - trailing) << trailing;
+            }
+            out[i] = Double.longBitsToDouble(prev);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.campus.energy.storage;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 列式读数数据块编解码
+ *
+ * 数据块格式（大端）：
+ * <pre>
+ *   int    魔数 "ERCB"
+ *   short  版本
+ *   short  列数（6）
+ *   int    读数条数
+ *   long   第一条读数时间（纪元秒）
+ *   long   最后一条读数时间（纪元秒）
+ *   int[6] 各列字节长度
+ *   列数据：时间（二阶差分）、电压、电流、功率、累计用电量（异或压缩）、是否异常（位图）
+ * </pre>
+ * 读数都按固定小数位四舍五入（电压/电流/功率2位，累计用电量3位），直接对这类小数做异或
+ * 尾数几乎全部不同；数值列第一个字节记录小数位数 d，列中保存 value * 10^d（整数值的浮点数），
+ * 其尾数低位全为0，异或后有效位大幅减少。无法按不超过 4 位小数精确还原的列 d 记为 -1，按原值保存。
+ * 头部带时间范围，读取时不解码即可判断是否与查询范围重叠；
+ * 每列独立压缩，解码时只需要解到查询范围的最后一条。
+ *
+ * 5秒间隔的读数平均每条约占 6~12 字节，数据库中每行（含索引）约 100~200 字节。
+ */
+public final class ReadingBlockCodec {
+
+    public static final int MAGIC = 0x45524342;
+    public static final short VERSION = 1;
+
+    private static final int COLUMNS = 6;
+    private static final int HEADER_BYTES = 4 + 2 + 2 + 4 + 8 + 8 + 4 * COLUMNS;
+
+    private static final int MAX_DECIMALS = 4;
+    private static final double[] SCALES = {1, 10, 100, 1000, 10000};
+
+    private ReadingBlockCodec() {
+    }
+
+    /**
+     * 将一组按时间升序的读数编码为数据块
+     */
+    public static byte[] encode(ReadingColumns columns) {
+        int count = columns.getSize();
+        if (count == 0) {
+            throw new IllegalArgumentException("不能编码空数据块");
+        }
+        byte[][] encoded = new byte[COLUMNS][];
+
+        BitWriter timeWriter = new BitWriter(count / 4 + 16);
+        GorillaCodec.writeTimestamps(timeWriter, columns.getTimes(), count);
+        encoded[0] = timeWriter.toByteArray();
+        encoded[1] = encodeValues(columns.getVoltage(), count);
+        encoded[2] = encodeValues(columns.getCurrent(), count);
+        encoded[3] = encodeValues(columns.getPower(), count);
+        encoded[4] = encodeValues(columns.getTotalEnergy(), count);
+
+        byte[] flags = new byte[(count + 7) >>> 3];
+        boolean[] abnormal = columns.getAbnormal();
+        for (int i = 0; i < count; i++) {
+            if (abnormal[i]) {
+                flags[i >>> 3] |= (byte) (0x80 >>> (i & 7));
+            }
+        }
+        encoded[5] = flags;
+
+        int total = HEADER_BYTES;
+        for (byte[] column : encoded) {
+            total += column.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        buffer.putInt(MAGIC)
+                .putShort(VERSION)
+                .putShort((short) COLUMNS)
+                .putInt(count)
+                .putLong(columns.getFirstTime())
+                .putLong(columns.getLastTime());
+        for (byte[] column : encoded) {
+            buffer.putInt(column.length);
+        }
+        for (byte[] column : encoded) {
+            buffer.put(column);
+        }
+        return buffer.array();
+    }
+
+    /**
+     * 解码数据块中时间在 [from, to]（纪元秒）内的读数
+     *
+     * @param buffer 数据块所在的缓冲区（可以是内存映射缓冲区），从 base 处开始
+     */
+    public static ReadingColumns decode(ByteBuffer buffer, int base, long from, long to) {
+        if (buffer.getInt(base) != MAGIC) {
+            throw new IllegalStateException("不是有效的读数数据块");
+        }
+        short version = buffer.getShort(base + 4);
+        if (version != VERSION) {
+            throw new IllegalStateException("不支持的数据块版本: " + version);
+        }
+        int count = buffer.getInt(base + 8);
+        if (buffer.getLong(base + 12) > to || buffer.getLong(base + 20) < from) {
+            return new ReadingColumns(0);
+        }
+        int[] offsets = new int[COLUMNS];
+        int[] lengths = new int[COLUMNS];
+        int offset = base + HEADER_BYTES;
+        for (int c = 0; c < COLUMNS; c++) {
+            lengths[c] = buffer.getInt(base + 28 + 4 * c);
+            offsets[c] = offset;
+            offset += lengths[c];
+        }
+
+        long[] times = new long[count];
+        GorillaCodec.readTimestamps(new BitReader(buffer, offsets[0], lengths[0]), times, count);
+        int lo = 0;
+        while (lo < count && times[lo] < from) {
+            lo++;
+        }
+        int hi = lo;
+        while (hi < count && times[hi] <= to) {
+            hi++;
+        }
+        ReadingColumns result = new ReadingColumns(hi - lo);
+        if (lo == hi) {
+            return result;
+        }
+
+        // 异或编码只能顺序解码，解到范围内最后一条即可
+        double[] voltage = decodeValues(buffer, offsets[1], lengths[1], hi);
+        double[] current = decodeValues(buffer, offsets[2], lengths[2], hi);
+        double[] power = decodeValues(buffer, offsets[3], lengths[3], hi);
+        double[] totalEnergy = decodeValues(buffer, offsets[4], lengths[4], hi);
+        for (int i = lo; i < hi; i++) {
+            boolean abnormal = (buffer.get(offsets[5] + (i >>> 3)) & (0x80 >>> (i & 7))) != 0;
+            result.add(times[i], voltage[i], current[i], power[i], totalEnergy[i], abnormal);
+        }
+        return result;
+    }
+
+    /**
+     * 解码整个数据块
+     */
+    public static ReadingColumns decode(ByteBuffer buffer, int base) {
+        return decode(buffer, base, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    private static byte[] encodeValues(double[] values, int count) {
+        int decimals = decimals(values, count);
+        double[] encoded = values;
+        if (decimals >= 0) {
+            encoded = new double[count];
+            for (int i = 0; i < count && encoded != values; i++) {
+                encoded[i] = Math.round(values[i] * SCALES[decimals]);
+                if (encoded[i] / SCALES[decimals] != values[i]) {
+                    // 逐个确认能精确还原，否则整列按原值保存
+                    decimals = -1;
+                    encoded = values;
+                }
+            }
+        }
+        BitWriter writer = new BitWriter(count + 16);
+        writer.writeBits(decimals, 8);
+        GorillaCodec.writeValues(writer, encoded, count);
+        return writer.toByteArray();
+    }
+
+    /**
+     * 列中所有值都能按 d 位小数精确还原的最小 d，不存在时返回 -1
+     */
+    private static int decimals(double[] values, int count) {
+        int decimals = 0;
+        for (int i = 0; i < count; i++) {
+            while (decimals <= MAX_DECIMALS
+                    && Math.round(values[i] * SCALES[decimals]) / SCALES[decimals] != values[i]) {
+                decimals++;
+            }
+            if (decimals > MAX_DECIMALS) {
+                return -1;
+            }
+        }
+        return decimals;
+    }
+
+    private static double[] decodeValues(ByteBuffer buffer, int offset, int length, int count) {
+        double[] values = new double[count];
+        BitReader reader = new BitReader(buffer, offset, length);
+        int decimals = (int) reader.readSigned(8);
+        GorillaCodec.readValues(reader, values, count);
+        if (decimals >= 0) {
+            for (int i = 0; i < count; i++) {
+                values[i] = values[i] / SCALES[decimals];
+            }
+        }
+        return values;
+    }
+}
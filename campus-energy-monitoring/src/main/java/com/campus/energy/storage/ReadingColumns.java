@@ -0,0 +1,175 @@
+package com.campus.energy.storage;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * 单台设备的一组读数，按列保存（时间、电压、电流、功率、累计用电量、是否异常）
+ *
+ * 说明：
+ * 时间保存为把本地时间当作UTC换算的纪元秒（与汇总表的时间桶计算一致），
+ * 读数按时间升序追加；编码为列式数据块后每列可以独立压缩与解码。
+ *
+ * 非线程安全。
+ */
+@Getter
+public class ReadingColumns {
+
+    private long[] times;
+    private double[] voltage;
+    private double[] current;
+    private double[] power;
+    private double[] totalEnergy;
+    private boolean[] abnormal;
+    private int size;
+
+    public ReadingColumns(int capacity) {
+        capacity = Math.max(capacity, 8);
+        this.times = new long[capacity];
+        this.voltage = new double[capacity];
+        this.current = new double[capacity];
+        this.power = new double[capacity];
+        this.totalEnergy = new double[capacity];
+        this.abnormal = new boolean[capacity];
+    }
+
+    /**
+     * 追加一条读数
+     */
+    public void add(long time, double voltage, double current, double power, double totalEnergy, boolean abnormal) {
+        if (size == times.length) {
+            int capacity = size * 2;
+            times = Arrays.copyOf(times, capacity);
+            this.voltage = Arrays.copyOf(this.voltage, capacity);
+            this.current = Arrays.copyOf(this.current, capacity);
+            this.power = Arrays.copyOf(this.power, capacity);
+            this.totalEnergy = Arrays.copyOf(this.totalEnergy, capacity);
+            this.abnormal = Arrays.copyOf(this.abnormal, capacity);
+        }
+        times[size] = time;
+        this.voltage[size] = voltage;
+        this.current[size] = current;
+        this.power[size] = power;
+        this.totalEnergy[size] = totalEnergy;
+        this.abnormal[size] = abnormal;
+        size++;
+    }
+
+    public void add(LocalDateTime collectTime, double voltage, double current, double power,
+                    double totalEnergy, boolean abnormal) {
+        add(toEpochSecond(collectTime), voltage, current, power, totalEnergy, abnormal);
+    }
+
+    /**
+     * 追加 other 中的第 index 条读数
+     */
+    public void add(ReadingColumns other, int index) {
+        add(other.times[index], other.voltage[index], other.current[index], other.power[index],
+                other.totalEnergy[index], other.abnormal[index]);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public LocalDateTime getCollectTime(int index) {
+        return fromEpochSecond(times[index]);
+    }
+
+    public long getFirstTime() {
+        return times[0];
+    }
+
+    public long getLastTime() {
+        return times[size - 1];
+    }
+
+    /**
+     * 是否按时间严格升序（没有乱序与重复时间）
+     */
+    public boolean isSorted() {
+        for (int i = 1; i < size; i++) {
+            if (times[i] <= times[i - 1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按时间排序并去重后的副本（时间相同时保留后追加的读数）；已有序时返回自身
+     */
+    public ReadingColumns sorted() {
+        if (isSorted()) {
+            return this;
+        }
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        // 稳定排序，同一时间的读数保持追加顺序
+        Arrays.sort(order, (a, b) -> Long.compare(times[a], times[b]));
+        ReadingColumns result = new ReadingColumns(size);
+        for (int k = 0; k < size; k++) {
+            int index = order[k];
+            if (k + 1 < size && times[order[k + 1]] == times[index]) {
+                continue;
+            }
+            result.add(this, index);
+        }
+        return result;
+    }
+
+    /**
+     * 时间在 [from, to]（纪元秒）内的读数副本，要求已按时间升序
+     */
+    public ReadingColumns slice(long from, long to) {
+        ReadingColumns result = new ReadingColumns(size);
+        for (int i = 0; i < size; i++) {
+            if (times[i] >= from && times[i] <= to) {
+                result.add(this, i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 追加 other 中的全部读数
+     */
+    public void addAll(ReadingColumns other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other, i);
+        }
+    }
+
+    /**
+     * 按时间合并两组升序读数；时间相同时保留 newer 中的读数
+     */
+    public static ReadingColumns merge(ReadingColumns older, ReadingColumns newer) {
+        ReadingColumns merged = new ReadingColumns(older.size + newer.size);
+        int i = 0;
+        int j = 0;
+        while (i < older.size || j < newer.size) {
+            if (j == newer.size || (i < older.size && older.times[i] < newer.times[j])) {
+                merged.add(older, i++);
+            } else {
+                if (i < older.size && older.times[i] == newer.times[j]) {
+                    i++;
+                }
+                merged.add(newer, j++);
+            }
+        }
+        return merged;
+    }
+
+    public static long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public static LocalDateTime fromEpochSecond(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
@@ -27,6 +27,7 @@ CREATE TABLE IF NOT EXISTS t_device (
     serial_number VARCHAR(50) NOT NULL UNIQUE COMMENT '唯一设备序列号(SN)',
     status VARCHAR(20) NOT NULL DEFAULT 'ONLINE' COMMENT '通讯状态',
     rated_power DOUBLE NOT NULL COMMENT '额定功率阈值(W)',
+    sample_interval INT COMMENT '采样间隔(秒)，为空时使用全局采集间隔',
     building_id BIGINT NOT NULL COMMENT '所属建筑ID',
     room_number VARCHAR(50) NOT NULL COMMENT '房间号',
     usage_description VARCHAR(200) COMMENT '设备用途描述',
@@ -38,9 +39,9 @@ CREATE TABLE IF NOT EXISTS t_device (
     INDEX idx_building_id (building_id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='智能电表设备表';
 
--- 能耗数据表
+-- 能耗数据表（按 collect_time 分区，分区由 EnergyDataPartitionManager 预建；分区表不支持外键）
 CREATE TABLE IF NOT EXISTS t_energy_data (
-    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    id BIGINT NOT NULL AUTO_INCREMENT COMMENT '主键ID',
     device_id BIGINT NOT NULL COMMENT '所属设备ID',
     voltage DOUBLE NOT NULL COMMENT '当前电压(V)',
     current DOUBLE NOT NULL COMMENT '当前电流(A)',
@@ -48,11 +49,76 @@ CREATE TABLE IF NOT EXISTS t_energy_data (
     total_energy DOUBLE NOT NULL COMMENT '累计用电量(kWh)',
     is_abnormal TINYINT(1) DEFAULT 0 COMMENT '数据是否异常',
     collect_time DATETIME NOT NULL COMMENT '采集时间戳',
-    FOREIGN KEY (device_id) REFERENCES t_device(id),
-    INDEX idx_device_id (device_id),
+    PRIMARY KEY (id, collect_time),
     INDEX idx_collect_time (collect_time),
-    INDEX idx_device_time (device_id, collect_time)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='能耗数据表';
+    UNIQUE KEY uk_device_time (device_id, collect_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='能耗数据表'
+PARTITION BY RANGE (TO_DAYS(collect_time)) (
+    PARTITION p_history VALUES LESS THAN (TO_DAYS('2025-01-01')),
+    PARTITION p_future VALUES LESS THAN MAXVALUE
+);
+
+-- 压测数据表（虚拟电表压测写入，结构与能耗数据表相同，不关联设备表）
+CREATE TABLE IF NOT EXISTS t_energy_data_load (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '主键ID',
+    device_id BIGINT NOT NULL COMMENT '虚拟电表ID',
+    voltage DOUBLE NOT NULL COMMENT '当前电压(V)',
+    current DOUBLE NOT NULL COMMENT '当前电流(A)',
+    power DOUBLE NOT NULL COMMENT '当前实时功率(W)',
+    total_energy DOUBLE NOT NULL COMMENT '累计用电量(kWh)',
+    is_abnormal TINYINT(1) DEFAULT 0 COMMENT '数据是否异常',
+    collect_time DATETIME NOT NULL COMMENT '采集时间戳',
+    INDEX idx_load_device_time (device_id, collect_time)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='压测数据表';
+
+-- 能耗汇总表（按设备、按粒度的时间桶汇总，由接入流水线增量维护）
+CREATE TABLE IF NOT EXISTS t_energy_rollup (
+    resolution VARCHAR(16) NOT NULL COMMENT '聚合粒度: MINUTE_1, MINUTE_15, HOUR_1, DAY_1',
+    device_id BIGINT NOT NULL COMMENT '设备ID',
+    bucket_start DATETIME NOT NULL COMMENT '时间桶起始时间',
+    sample_count INT NOT NULL COMMENT '读数条数',
+    voltage_min DOUBLE NOT NULL COMMENT '最小电压(V)',
+    voltage_max DOUBLE NOT NULL COMMENT '最大电压(V)',
+    voltage_sum DOUBLE NOT NULL COMMENT '电压合计(V)，平均值=合计/条数',
+    voltage_last DOUBLE NOT NULL COMMENT '最后电压(V)',
+    current_min DOUBLE NOT NULL COMMENT '最小电流(A)',
+    current_max DOUBLE NOT NULL COMMENT '最大电流(A)',
+    current_sum DOUBLE NOT NULL COMMENT '电流合计(A)',
+    current_last DOUBLE NOT NULL COMMENT '最后电流(A)',
+    power_min DOUBLE NOT NULL COMMENT '最小功率(W)',
+    power_max DOUBLE NOT NULL COMMENT '最大功率(W)',
+    power_sum DOUBLE NOT NULL COMMENT '功率合计(W)',
+    power_last DOUBLE NOT NULL COMMENT '最后功率(W)',
+    energy_min DOUBLE NOT NULL COMMENT '桶内最小累计用电量(kWh)',
+    energy_max DOUBLE NOT NULL COMMENT '桶内最大累计用电量(kWh)，用电量=最大-最小',
+    last_time DATETIME NOT NULL COMMENT '最后值的采集时间',
+    PRIMARY KEY (resolution, device_id, bucket_start),
+    INDEX idx_rollup_time (resolution, bucket_start)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='能耗汇总表';
+
+-- 能耗读数分块表（energy.storage.mode=chunk 时使用）
+CREATE TABLE IF NOT EXISTS t_energy_chunk (
+    device_id BIGINT NOT NULL COMMENT '设备ID',
+    chunk_start DATETIME NOT NULL COMMENT '小时起始时间',
+    sample_count INT NOT NULL COMMENT '读数条数',
+    first_time DATETIME NOT NULL COMMENT '第一条读数的采集时间',
+    last_time DATETIME NOT NULL COMMENT '最后一条读数的采集时间',
+    voltage_min DOUBLE NOT NULL COMMENT '最小电压(V)',
+    voltage_max DOUBLE NOT NULL COMMENT '最大电压(V)',
+    voltage_sum DOUBLE NOT NULL COMMENT '电压合计(V)',
+    current_min DOUBLE NOT NULL COMMENT '最小电流(A)',
+    current_max DOUBLE NOT NULL COMMENT '最大电流(A)',
+    current_sum DOUBLE NOT NULL COMMENT '电流合计(A)',
+    power_min DOUBLE NOT NULL COMMENT '最小功率(W)',
+    power_max DOUBLE NOT NULL COMMENT '最大功率(W)',
+    power_sum DOUBLE NOT NULL COMMENT '功率合计(W)',
+    energy_min DOUBLE NOT NULL COMMENT '最小累计用电量(kWh)',
+    energy_max DOUBLE NOT NULL COMMENT '最大累计用电量(kWh)',
+    abnormal_count INT NOT NULL DEFAULT 0 COMMENT '异常读数条数',
+    payload MEDIUMBLOB NOT NULL COMMENT '列式压缩的读数(时间/电压/电流/功率/累计用电量/是否异常)',
+    PRIMARY KEY (device_id, chunk_start),
+    INDEX idx_chunk_start (chunk_start)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='能耗读数分块表';
 
 -- 告警记录表
 CREATE TABLE IF NOT EXISTS t_alert (
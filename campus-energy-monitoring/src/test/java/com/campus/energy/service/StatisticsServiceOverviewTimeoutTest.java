@@ -0,0 +1,126 @@
+package com.campus.energy.service;
+
+import com.campus.energy.dto.StatisticsDTO;
+import com.campus.energy.enums.AlertType;
+import com.campus.energy.ingest.LiveCampusCounters;
+import com.campus.energy.repository.AlertRepository;
+import com.campus.energy.repository.BuildingRepository;
+import com.campus.energy.repository.DeviceRepository;
+import com.campus.energy.repository.EnergyDataRepository;
+import com.campus.energy.storage.EnergyChunkStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 概览统计项超时：降级项使用上一次成功的结果，超时任务被取消，降级结果不进入缓存
+ */
+@ExtendWith(MockitoExtension.class)
+class StatisticsServiceOverviewTimeoutTest {
+
+    private static final long SECTION_TIMEOUT_MILLIS = 300;
+
+    @Mock
+    private BuildingRepository buildingRepository;
+    @Mock
+    private DeviceRepository deviceRepository;
+    @Mock
+    private AlertRepository alertRepository;
+    @Mock
+    private EnergyDataRepository energyDataRepository;
+    @Mock
+    private EnergyRollupService energyRollupService;
+    @Mock
+    private EnergyChunkStore energyChunkStore;
+    @Mock
+    private LiveCampusCounters liveCampusCounters;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private StatisticsOverviewCache cache;
+    private StatisticsService statisticsService;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        cache = new StatisticsOverviewCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "ttlMillis", 60_000L);
+        ReflectionTestUtils.setField(cache, "degradedTtlMillis", 0L);
+
+        statisticsService = new StatisticsService(buildingRepository, deviceRepository, alertRepository,
+                energyDataRepository, energyRollupService, energyChunkStore, liveCampusCounters, cache,
+                transactionManager);
+        ReflectionTestUtils.setField(statisticsService, "parallelism", 4);
+        ReflectionTestUtils.setField(statisticsService, "sectionTimeoutMillis", SECTION_TIMEOUT_MILLIS);
+        statisticsService.initOverviewExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        statisticsService.shutdownOverviewExecutor();
+    }
+
+    @Test
+    void slowSectionFallsBackAndIsCancelledAndNotCached() throws InterruptedException {
+        doReturn(3L).when(buildingRepository).count();
+        doReturn(List.<Object[]>of(new Object[]{AlertType.POWER_OVERLOAD, 4L})).when(alertRepository).countByAlertType();
+        StatisticsDTO healthy = statisticsService.getOverviewStatistics();
+        assertThat(healthy.getDegradedSections()).isEmpty();
+
+        // 告警类型统计变慢：阻塞到被中断为止
+        CountDownLatch interrupted = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return List.of();
+        }).when(alertRepository).countByAlertType();
+        doReturn(5L).when(buildingRepository).count();
+        cache.invalidate("test");
+
+        StatisticsDTO degraded = statisticsService.getOverviewStatistics();
+
+        assertThat(degraded.getDegradedSections()).containsExactly("alertTypes");
+        // 降级项使用上一次成功的结果，其余项是本次的结果
+        assertThat(degraded.getAlertTypeStats()).isEqualTo(Map.of(AlertType.POWER_OVERLOAD.getLabel(), 4L));
+        assertThat(degraded.getBuildingCount()).isEqualTo(5L);
+        Map<String, Long> timings = degraded.getSectionTimings();
+        assertThat(timings).containsKeys("buildingCount", "deviceStatus", "todayAlerts", "unresolvedAlerts",
+                "todayEnergy", "monthEnergy", "buildings", "alertTypes", "total");
+        assertThat(timings.get("alertTypes")).isGreaterThanOrEqualTo(SECTION_TIMEOUT_MILLIS);
+        assertThat(timings.get("total")).isLessThan(SECTION_TIMEOUT_MILLIS * 5);
+        // 超时的任务被中断，不再占用概览线程
+        assertThat(interrupted.await(2, TimeUnit.SECONDS)).isTrue();
+
+        // 降级结果不缓存：恢复后下一次读取重新计算，之后正常命中缓存
+        doReturn(List.<Object[]>of()).when(alertRepository).countByAlertType();
+        StatisticsDTO recovered = statisticsService.getOverviewStatistics();
+        assertThat(recovered.getDegradedSections()).isEmpty();
+        assertThat(recovered.getAlertTypeStats()).isEmpty();
+        statisticsService.getOverviewStatistics();
+        verify(buildingRepository, times(3)).count();
+        assertThat(cache.getStats()).containsEntry("degradedLoads", 1L);
+    }
+}
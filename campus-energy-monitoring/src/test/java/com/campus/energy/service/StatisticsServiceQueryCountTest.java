@@ -0,0 +1,153 @@
+package com.campus.energy.service;
+
+import com.campus.energy.dto.StatisticsDTO;
+import com.campus.energy.entity.Building;
+import com.campus.energy.entity.Device;
+import com.campus.energy.entity.EnergyData;
+import com.campus.energy.ingest.LiveCampusCounters;
+import com.campus.energy.repository.BuildingRepository;
+import com.campus.energy.repository.DeviceRepository;
+import com.campus.energy.repository.EnergyDataRepository;
+import com.campus.energy.storage.EnergyChunkStore;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 概览统计的查询次数不随设备数量增长
+ *
+ * 在 H2 上按原始读数统计（关闭汇总、分块存储、实时计数器与缓存），
+ * 用 Hibernate Statistics 统计一次概览执行的 SQL 语句数，比较 N 台与 10·N 台设备。
+ * 各统计项在概览线程池中执行，测试数据需要提交后才可见，因此测试方法不在事务中运行。
+ */
+@DataJpaTest(properties = {
+        "spring.sql.init.mode=never",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "statistics.cache.enabled=false",
+        "logging.level.org.hibernate.engine.internal.StatisticalLoggingSessionEventListener=WARN"
+})
+@Import({StatisticsService.class, StatisticsOverviewCache.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class StatisticsServiceQueryCountTest {
+
+    private static final int DEVICES = 20;
+    private static final int DEVICES_PER_BUILDING = 5;
+
+    @MockBean
+    private EnergyRollupService energyRollupService;
+
+    @MockBean
+    private EnergyChunkStore energyChunkStore;
+
+    @MockBean
+    private LiveCampusCounters liveCampusCounters;
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Autowired
+    private BuildingRepository buildingRepository;
+
+    @Autowired
+    private DeviceRepository deviceRepository;
+
+    @Autowired
+    private EnergyDataRepository energyDataRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private int seeded;
+
+    @AfterEach
+    void cleanUp() {
+        energyDataRepository.deleteAllInBatch();
+        deviceRepository.deleteAllInBatch();
+        buildingRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void overviewStatementCountDoesNotGrowWithDevices() {
+        seedDevices(DEVICES);
+        StatisticsDTO small = statisticsService.getOverviewStatistics();
+        long smallStatements = countStatements();
+
+        seedDevices(DEVICES * 9);
+        StatisticsDTO large = statisticsService.getOverviewStatistics();
+        long largeStatements = countStatements();
+
+        assertThat(small.getDegradedSections()).isEmpty();
+        assertThat(large.getDegradedSections()).isEmpty();
+        assertThat(small.getDeviceCount()).isEqualTo(DEVICES);
+        assertThat(large.getDeviceCount()).isEqualTo(DEVICES * 10);
+        assertThat(large.getBuildingEnergyStats()).hasSize(DEVICES * 10 / DEVICES_PER_BUILDING);
+        assertThat(largeStatements).isPositive().isEqualTo(smallStatements);
+    }
+
+    /**
+     * 上一次概览执行的语句数（读取后清零）
+     */
+    private long countStatements() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        long count = statistics.getPrepareStatementCount();
+        statistics.clear();
+        return count;
+    }
+
+    /**
+     * 新增 count 台设备（每个建筑 DEVICES_PER_BUILDING 台），每台写入两条今日读数，然后清零语句计数
+     */
+    private void seedDevices(int count) {
+        LocalDateTime now = LocalDateTime.now();
+        List<EnergyData> readings = new ArrayList<>();
+        for (int b = 0; b < count / DEVICES_PER_BUILDING; b++) {
+            Building building = buildingRepository.save(Building.builder()
+                    .name("测试楼" + seeded)
+                    .locationCode("T" + seeded)
+                    .floorCount(5)
+                    .category("教学楼")
+                    .build());
+            for (int d = 0; d < DEVICES_PER_BUILDING; d++) {
+                Device device = deviceRepository.save(Device.builder()
+                        .name("电表" + seeded)
+                        .serialNumber("TEST_" + seeded)
+                        .ratedPower(2000.0)
+                        .building(building)
+                        .roomNumber("R" + d)
+                        .build());
+                seeded++;
+                readings.add(reading(device, now.withHour(0).withMinute(1), 100.0));
+                readings.add(reading(device, now.withHour(0).withMinute(2), 101.5));
+            }
+        }
+        energyDataRepository.saveAll(readings);
+        entityManagerFactory.unwrap(SessionFactory.class).getStatistics().clear();
+    }
+
+    private static EnergyData reading(Device device, LocalDateTime collectTime, double totalEnergy) {
+        return EnergyData.builder()
+                .device(device)
+                .voltage(220.0)
+                .current(1.0)
+                .power(220.0)
+                .totalEnergy(totalEnergy)
+                .collectTime(collectTime)
+                .build();
+    }
+}